@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * An abstract representation of a prototypical non-blocking HTTP/S client request.
+ *
+ * Requests are not sent through the blocking clients' filters: the deadline and codec of a configuration apply, but a
+ * configuration with a rate limit, concurrency limit, isolation, load balancing, retry, compression or response cache
+ * policy is unsupported and its request fails.
+ *
+ * @param <T> a typed HTTP/S response object
+ */
+
+public interface AsyncHttpCall<T> {
+
+    /**
+     * A fully supported non-blocking HTTP request populated with a holder configurables.
+     *
+     * @param httpMethod method (e.g. GET, POST, PUT, DELETE)
+     * @param config configuration holder
+     * @return future materialized typed response
+     */
+
+    ListenableFuture<T> makeRequest(String httpMethod, HttpCallConfig<T> config);
+
+    /**
+     * Non-blocking HTTP GET executor.
+     *
+     * @param config request holder
+     * @return future materialized typed response
+     */
+
+    ListenableFuture<T> doGet(HttpCallConfig<T> config);
+
+    /**
+     * Non-blocking HTTP POST executor.
+     *
+     * @param config request holder
+     * @return future materialized typed response
+     */
+
+    ListenableFuture<T> doPost(HttpCallConfig<T> config);
+
+    /**
+     * Non-blocking HTTP PUT executor.
+     *
+     * @param config request holder
+     * @return future materialized typed response
+     */
+
+    ListenableFuture<T> doPut(HttpCallConfig<T> config);
+
+    /**
+     * Non-blocking HTTP DELETE executor.
+     *
+     * @param config request holder
+     * @return future materialized typed response
+     */
+
+    ListenableFuture<T> doDelete(HttpCallConfig<T> config);
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * An immutable HTTP/S response snapshot held by a {@link HttpResponseCache}.
+ */
+
+public final class CachedHttpResponse {
+
+    private static final int OVERHEAD = 64;
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+    private final long storedAt;
+
+    /**
+     * Constructor.
+     *
+     * @param status response status code
+     * @param headers response headers
+     * @param body response body
+     * @param storedAt epoch milliseconds at which the response was received or last revalidated
+     */
+
+    public CachedHttpResponse(final int status, final Map<String, List<String>> headers, final byte[] body,
+                              final long storedAt) {
+        this.status = status;
+        this.headers = unmodifiableMap(headers);
+        this.body = body;
+        this.storedAt = storedAt;
+    }
+
+    /**
+     * status getter.
+     *
+     * @return status value
+     */
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * headers getter.
+     *
+     * @return headers value
+     */
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * First header value getter, header names are matched case insensitively.
+     *
+     * @param name header name
+     * @return first header value, or null if absent
+     */
+
+    public String getFirstHeader(final String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name) && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * body getter. The returned array is shared and must not be modified.
+     *
+     * @return body value
+     */
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * storedAt getter.
+     *
+     * @return storedAt value
+     */
+
+    public long getStoredAt() {
+        return storedAt;
+    }
+
+    /**
+     * Approximate retained size in bytes, used for weight based eviction.
+     *
+     * @return approximate size
+     */
+
+    public int getWeight() {
+        int weight = OVERHEAD + body.length;
+
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            weight += entry.getKey().length() * 2;
+
+            for (String value : entry.getValue()) {
+                weight += value.length() * 2;
+            }
+        }
+
+        return weight;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+import com.google.inject.AbstractModule;
+import com.intuit.autumn.client.impl.AsyncHttpCallImpl;
+import com.intuit.autumn.client.impl.AsyncHttpClientService;
+import com.intuit.autumn.client.impl.ClientMetricsService;
+import com.intuit.autumn.client.impl.ConnectionPoolService;
+import com.intuit.autumn.client.impl.Http2ClientService;
+import org.slf4j.Logger;
+
+import static com.google.inject.Scopes.SINGLETON;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * An injector that includes the HTTP/S client lifecycle providers, see {@link ClientServices}, and the
+ * {@link AsyncHttpCall} implementation over the started AsyncHttpClientService.
+ *
+ * The client metrics are published to the bound MetricRegistry, e.g. that of the MetricsModule.
+ */
+
+public class ClientModule extends AbstractModule {
+
+    private static final Logger LOGGER = getLogger(ClientModule.class);
+
+    /**
+     * Inject module dependencies.
+     */
+
+    @Override
+    protected void configure() {
+        LOGGER.debug("binding client services");
+
+        bind(AsyncHttpCall.class).to(AsyncHttpCallImpl.class);
+        bind(AsyncHttpClientService.class).in(SINGLETON);
+        bind(ClientMetricsService.class).in(SINGLETON);
+        bind(ConnectionPoolService.class).in(SINGLETON);
+        bind(Http2ClientService.class).in(SINGLETON);
+
+        LOGGER.debug("bound client services");
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Service;
+import com.intuit.autumn.client.impl.AsyncHttpClientService;
+import com.intuit.autumn.client.impl.ClientMetricsService;
+import com.intuit.autumn.client.impl.ConnectionPoolService;
+import com.intuit.autumn.client.impl.Http2ClientService;
+
+import java.util.Set;
+
+/**
+ * A provider for the HTTP/S client lifecycle providers, bound by the {@link ClientModule}.
+ */
+
+public class ClientServices {
+
+    private static final Set<Class<? extends Service>> CLIENT_SERVICES = ImmutableSet.<Class<? extends Service>>of(
+            AsyncHttpClientService.class, ClientMetricsService.class, ConnectionPoolService.class,
+            Http2ClientService.class);
+
+    private ClientServices() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Client services configuration utility.
+     *
+     * @return collection of client services, releasing the shared connection pools and engines on shutdown
+     */
+
+    public static Set<Class<? extends Service>> getClientServices() {
+        return CLIENT_SERVICES;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+/**
+ * Immutable content coding settings.
+ *
+ * Responses may be requested gzip or deflate encoded and are then transparently decoded. Request entities at least as
+ * large as a threshold may be encoded too, which the server must support; only entities already serialized, i.e.
+ * strings, byte arrays or entities encoded by a {@link HttpCodec}, are measured and encoded.
+ */
+
+public final class CompressionPolicy {
+
+    private final boolean decompressResponses;
+    private final Encoding requestEncoding;
+    private final int minRequestSize;
+    private final int level;
+
+    private CompressionPolicy(final Builder builder) {
+        this.decompressResponses = builder.decompressResponses;
+        this.requestEncoding = builder.requestEncoding;
+        this.minRequestSize = builder.minRequestSize;
+        this.level = builder.level;
+    }
+
+    /**
+     * decompressResponses getter.
+     *
+     * @return decompressResponses value
+     */
+
+    public boolean getDecompressResponses() {
+        return decompressResponses;
+    }
+
+    /**
+     * requestEncoding getter.
+     *
+     * @return requestEncoding value, or null if request entities are not encoded
+     */
+
+    public Encoding getRequestEncoding() {
+        return requestEncoding;
+    }
+
+    /**
+     * minRequestSize getter.
+     *
+     * @return minRequestSize value
+     */
+
+    public int getMinRequestSize() {
+        return minRequestSize;
+    }
+
+    /**
+     * level getter.
+     *
+     * @return level value
+     */
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Content coding.
+     */
+
+    public enum Encoding {
+
+        /**
+         * gzip, RFC 1952.
+         */
+
+        GZIP("gzip"),
+
+        /**
+         * deflate, the zlib format of RFC 1950.
+         */
+
+        DEFLATE("deflate");
+
+        private final String token;
+
+        Encoding(final String token) {
+            this.token = token;
+        }
+
+        /**
+         * Content-Encoding token getter.
+         *
+         * @return token
+         */
+
+        public String getToken() {
+            return token;
+        }
+    }
+
+    /**
+     * CompressionPolicy builder utility.
+     */
+
+    public static class Builder {
+
+        private boolean decompressResponses = true;
+        private Encoding requestEncoding;
+        private int minRequestSize = 1024;
+        private int level = -1;
+
+        private Builder() {
+        }
+
+        /**
+         * Create a new Builder instance.
+         *
+         * @return Builder
+         */
+
+        public static Builder aCompressionPolicy() {
+            return new Builder();
+        }
+
+        /**
+         * Set whether encoded responses are accepted and decoded.
+         *
+         * @param decompressResponses true to send Accept-Encoding: gzip, deflate
+         * @return builder instance
+         */
+
+        public Builder withDecompressResponses(boolean decompressResponses) {
+            this.decompressResponses = decompressResponses;
+            return this;
+        }
+
+        /**
+         * Set request entity encoding.
+         *
+         * @param requestEncoding encoding, or null not to encode request entities
+         * @return builder instance
+         */
+
+        public Builder withRequestEncoding(Encoding requestEncoding) {
+            this.requestEncoding = requestEncoding;
+            return this;
+        }
+
+        /**
+         * Set the smallest request entity encoded.
+         *
+         * @param minRequestSize minimum bytes
+         * @return builder instance
+         */
+
+        public Builder withMinRequestSize(int minRequestSize) {
+            this.minRequestSize = minRequestSize;
+            return this;
+        }
+
+        /**
+         * Set request compression level.
+         *
+         * @param level 0 to 9, or -1 for the default level
+         * @return builder instance
+         */
+
+        public Builder withLevel(int level) {
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * CompressionPolicy builder.
+         *
+         * @return materialized CompressionPolicy
+         */
+
+        public CompressionPolicy build() {
+            return new CompressionPolicy(this);
+        }
+    }
+}
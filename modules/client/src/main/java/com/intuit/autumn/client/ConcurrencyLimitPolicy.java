@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+/**
+ * Immutable adaptive concurrency limit settings.
+ *
+ * Each downstream host admits a number of in-flight requests that adapts to its measured round trip time: the limit
+ * grows while latency stays near the minimum observed, i.e. the host has headroom, and shrinks as latency rises with
+ * queueing at the host or as requests fail or are shed (429, 503 or 504 status). Requests over the limit are rejected,
+ * or queued for at most the maximum wait. Host settings are fixed by the first request to each host.
+ */
+
+public final class ConcurrencyLimitPolicy {
+
+    private final Algorithm algorithm;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxWaitMillis;
+
+    private ConcurrencyLimitPolicy(final Builder builder) {
+        if (builder.minLimit < 1 || builder.minLimit > builder.maxLimit) {
+            throw new IllegalArgumentException("minLimit must be positive and no greater than maxLimit");
+        }
+
+        this.algorithm = builder.algorithm;
+        this.initialLimit = Math.min(Math.max(builder.initialLimit, builder.minLimit), builder.maxLimit);
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.maxWaitMillis = builder.maxWaitMillis;
+    }
+
+    /**
+     * algorithm getter.
+     *
+     * @return algorithm value
+     */
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * initialLimit getter.
+     *
+     * @return initialLimit value
+     */
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    /**
+     * minLimit getter.
+     *
+     * @return minLimit value
+     */
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * maxLimit getter.
+     *
+     * @return maxLimit value
+     */
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * maxWaitMillis getter.
+     *
+     * @return maxWaitMillis value
+     */
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * Limit adaptation algorithm.
+     */
+
+    public enum Algorithm {
+
+        /**
+         * TCP Vegas: the number of requests queued at the host is estimated from the ratio of the minimum to the
+         * sampled round trip time, and the limit grown or shrunk to keep it between small thresholds.
+         */
+
+        VEGAS,
+
+        /**
+         * Gradient: the limit is scaled by the ratio of the long term to the short term round trip time, plus a
+         * small queue allowance, and smoothed.
+         */
+
+        GRADIENT
+    }
+
+    /**
+     * ConcurrencyLimitPolicy builder utility.
+     */
+
+    public static class Builder {
+
+        private Algorithm algorithm = Algorithm.VEGAS;
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private long maxWaitMillis;
+
+        private Builder() {
+        }
+
+        /**
+         * Create a new Builder instance.
+         *
+         * @return Builder
+         */
+
+        public static Builder aConcurrencyLimitPolicy() {
+            return new Builder();
+        }
+
+        /**
+         * Set limit adaptation algorithm.
+         *
+         * @param algorithm algorithm
+         * @return builder instance
+         */
+
+        public Builder withAlgorithm(Algorithm algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        /**
+         * Set the limit before any round trip time is measured.
+         *
+         * @param initialLimit initial in-flight requests
+         * @return builder instance
+         */
+
+        public Builder withInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Set the lowest limit.
+         *
+         * @param minLimit minimum in-flight requests
+         * @return builder instance
+         */
+
+        public Builder withMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * Set the highest limit, also sizing the host connection pool unless maxConnectionPerHost is configured.
+         *
+         * @param maxLimit maximum in-flight requests
+         * @return builder instance
+         */
+
+        public Builder withMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Set the maximum wait for an in-flight slot, 0 failing fast.
+         *
+         * @param maxWaitMillis maximum wait milliseconds
+         * @return builder instance
+         */
+
+        public Builder withMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+            return this;
+        }
+
+        /**
+         * ConcurrencyLimitPolicy builder.
+         *
+         * @return materialized ConcurrencyLimitPolicy
+         */
+
+        public ConcurrencyLimitPolicy build() {
+            return new ConcurrencyLimitPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+/**
+ * Demand driven publish and subscribe interfaces, identical in shape to Java 9's java.util.concurrent.Flow so that
+ * adapting either way is a one line delegation.
+ *
+ * A {@link Subscriber} receives items only as far as it has requested them through its {@link Subscription}, so a
+ * slow consumer bounds what is produced on its behalf.
+ */
+
+public final class Flow {
+
+    private Flow() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * A producer of items, delivered to each subscriber on demand.
+     *
+     * @param <T> item type
+     */
+
+    public interface Publisher<T> {
+
+        /**
+         * Add a subscriber, which is then given a subscription by {@link Subscriber#onSubscribe(Subscription)}.
+         *
+         * @param subscriber subscriber
+         */
+
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. Calls are serialized, never concurrent.
+     *
+     * @param <T> item type
+     */
+
+    public interface Subscriber<T> {
+
+        /**
+         * Called once, before any other call.
+         *
+         * @param subscription subscription, requesting items and cancelling
+         */
+
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with each item, at most as many times as requested.
+         *
+         * @param item item
+         */
+
+        void onNext(T item);
+
+        /**
+         * Called on failure, after which no other call is made.
+         *
+         * @param throwable failure
+         */
+
+        void onError(Throwable throwable);
+
+        /**
+         * Called once all items are delivered, after which no other call is made.
+         */
+
+        void onComplete();
+    }
+
+    /**
+     * The link between a publisher and one of its subscribers.
+     */
+
+    public interface Subscription {
+
+        /**
+         * Add to the outstanding demand.
+         *
+         * @param n number of further items, a non-positive number signalling an error
+         */
+
+        void request(long n);
+
+        /**
+         * Stop delivery, possibly after items already in flight.
+         */
+
+        void cancel();
+    }
+}
@@ -56,6 +56,17 @@ public interface HttpCall<T> {
 
     T makeRequest(String httpMethod, HttpCallConfig<T> config);
 
+    /**
+     * A compiled request template invocation.
+     *
+     * @param template compiled request
+     * @param data payload, or null if none
+     * @param values url template variable values
+     * @return materialized typed response
+     */
+
+    T execute(HttpCallTemplate<T> template, Object data, Object... values);
+
     /**
      * Header adder.
      *
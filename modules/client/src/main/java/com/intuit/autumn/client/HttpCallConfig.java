@@ -17,8 +17,10 @@
 package com.intuit.autumn.client;
 
 import com.google.common.base.Optional;
+import com.intuit.autumn.utils.Deadline;
 
 import java.util.Map;
+import java.util.Set;
 
 import static com.google.common.base.Optional.fromNullable;
 /**
@@ -59,6 +61,292 @@ public class HttpCallConfig<T> {
     private boolean useConnectionPooling;
     // maximum connection per hosts
     private Integer maxConnectionPerHost;
+    // share a single in-flight GET amongst identical concurrent requests
+    private boolean useRequestCoalescing;
+    // header names, besides Authorization and Cookie, that distinguish otherwise identical coalesced requests
+    private Set<String> coalescingHeaders;
+    // client side GET response cache
+    private HttpResponseCache responseCache;
+    // retries and hedging for idempotent requests
+    private RetryPolicy retryPolicy;
+    // bulkhead and circuit breaker
+    private IsolationPolicy isolationPolicy;
+    // bounded cardinality endpoint name used for metrics, e.g. /users/{id}
+    private String endpointTemplate;
+    // multiplex requests over HTTP/2, falling back to HTTP/1.1 per host
+    private boolean useHttp2;
+    // client side load balancing over the endpoints of the service named by the url host
+    private LoadBalancingPolicy loadBalancingPolicy;
+    // adaptive per host in-flight limit
+    private ConcurrencyLimitPolicy concurrencyLimitPolicy;
+    // entity codec replacing the Jersey entity mapping
+    private HttpCodec codec;
+    // gzip and deflate content coding
+    private CompressionPolicy compressionPolicy;
+    // client side rate limit
+    private RateLimitPolicy rateLimitPolicy;
+    // request deadline, defaulting to that of the request being served
+    private Deadline deadline;
+
+    /**
+     * deadline getter.
+     *
+     * @return deadline value
+     */
+
+    public Optional<Deadline> getDeadline() {
+        return fromNullable(deadline);
+    }
+
+    /**
+     * deadline setter.
+     *
+     * @param deadline value
+     */
+
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * rateLimitPolicy getter.
+     *
+     * @return rateLimitPolicy value
+     */
+
+    public Optional<RateLimitPolicy> getRateLimitPolicy() {
+        return fromNullable(rateLimitPolicy);
+    }
+
+    /**
+     * rateLimitPolicy setter.
+     *
+     * @param rateLimitPolicy value
+     */
+
+    public void setRateLimitPolicy(RateLimitPolicy rateLimitPolicy) {
+        this.rateLimitPolicy = rateLimitPolicy;
+    }
+
+    /**
+     * compressionPolicy getter.
+     *
+     * @return compressionPolicy value
+     */
+
+    public Optional<CompressionPolicy> getCompressionPolicy() {
+        return fromNullable(compressionPolicy);
+    }
+
+    /**
+     * compressionPolicy setter.
+     *
+     * @param compressionPolicy value
+     */
+
+    public void setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+    }
+
+    /**
+     * codec getter.
+     *
+     * @return codec value
+     */
+
+    public Optional<HttpCodec> getCodec() {
+        return fromNullable(codec);
+    }
+
+    /**
+     * codec setter.
+     *
+     * @param codec value
+     */
+
+    public void setCodec(HttpCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * concurrencyLimitPolicy getter.
+     *
+     * @return concurrencyLimitPolicy value
+     */
+
+    public Optional<ConcurrencyLimitPolicy> getConcurrencyLimitPolicy() {
+        return fromNullable(concurrencyLimitPolicy);
+    }
+
+    /**
+     * concurrencyLimitPolicy setter.
+     *
+     * @param concurrencyLimitPolicy value
+     */
+
+    public void setConcurrencyLimitPolicy(ConcurrencyLimitPolicy concurrencyLimitPolicy) {
+        this.concurrencyLimitPolicy = concurrencyLimitPolicy;
+    }
+
+    /**
+     * loadBalancingPolicy getter.
+     *
+     * @return loadBalancingPolicy value
+     */
+
+    public Optional<LoadBalancingPolicy> getLoadBalancingPolicy() {
+        return fromNullable(loadBalancingPolicy);
+    }
+
+    /**
+     * loadBalancingPolicy setter.
+     *
+     * @param loadBalancingPolicy value
+     */
+
+    public void setLoadBalancingPolicy(LoadBalancingPolicy loadBalancingPolicy) {
+        this.loadBalancingPolicy = loadBalancingPolicy;
+    }
+
+    /**
+     * useHttp2 getter.
+     *
+     * @return useHttp2 value
+     */
+
+    public boolean getUseHttp2() {
+        return useHttp2;
+    }
+
+    /**
+     * useHttp2 setter.
+     *
+     * @param useHttp2 value
+     */
+
+    public void setUseHttp2(boolean useHttp2) {
+        this.useHttp2 = useHttp2;
+    }
+
+    /**
+     * endpointTemplate getter.
+     *
+     * @return endpointTemplate value
+     */
+
+    public Optional<String> getEndpointTemplate() {
+        return fromNullable(endpointTemplate);
+    }
+
+    /**
+     * endpointTemplate setter.
+     *
+     * @param endpointTemplate value
+     */
+
+    public void setEndpointTemplate(String endpointTemplate) {
+        this.endpointTemplate = endpointTemplate;
+    }
+
+    /**
+     * isolationPolicy getter.
+     *
+     * @return isolationPolicy value
+     */
+
+    public Optional<IsolationPolicy> getIsolationPolicy() {
+        return fromNullable(isolationPolicy);
+    }
+
+    /**
+     * isolationPolicy setter.
+     *
+     * @param isolationPolicy value
+     */
+
+    public void setIsolationPolicy(IsolationPolicy isolationPolicy) {
+        this.isolationPolicy = isolationPolicy;
+    }
+
+    /**
+     * retryPolicy getter.
+     *
+     * @return retryPolicy value
+     */
+
+    public Optional<RetryPolicy> getRetryPolicy() {
+        return fromNullable(retryPolicy);
+    }
+
+    /**
+     * retryPolicy setter.
+     *
+     * @param retryPolicy value
+     */
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * responseCache getter.
+     *
+     * @return responseCache value
+     */
+
+    public Optional<HttpResponseCache> getResponseCache() {
+        return fromNullable(responseCache);
+    }
+
+    /**
+     * responseCache setter.
+     *
+     * @param responseCache value
+     */
+
+    public void setResponseCache(HttpResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * useRequestCoalescing getter.
+     *
+     * @return useRequestCoalescing value
+     */
+
+    public boolean getUseRequestCoalescing() {
+        return useRequestCoalescing;
+    }
+
+    /**
+     * useRequestCoalescing setter.
+     *
+     * @param useRequestCoalescing value
+     */
+
+    public void setUseRequestCoalescing(boolean useRequestCoalescing) {
+        this.useRequestCoalescing = useRequestCoalescing;
+    }
+
+    /**
+     * coalescingHeaders getter.
+     *
+     * @return coalescingHeaders value
+     */
+
+    public Set<String> getCoalescingHeaders() {
+        return coalescingHeaders;
+    }
+
+    /**
+     * coalescingHeaders setter.
+     *
+     * @param coalescingHeaders value
+     */
+
+    public void setCoalescingHeaders(Set<String> coalescingHeaders) {
+        this.coalescingHeaders = coalescingHeaders;
+    }
 
     /**
      * useConnectionPooling getter.
@@ -383,6 +671,19 @@ public class HttpCallConfig<T> {
         private int proxyPort;
         private boolean useConnectionPooling;
         private Integer maxConnectionPerHost;
+        private boolean useRequestCoalescing;
+        private Set<String> coalescingHeaders;
+        private HttpResponseCache responseCache;
+        private RetryPolicy retryPolicy;
+        private IsolationPolicy isolationPolicy;
+        private String endpointTemplate;
+        private boolean useHttp2;
+        private LoadBalancingPolicy loadBalancingPolicy;
+        private ConcurrencyLimitPolicy concurrencyLimitPolicy;
+        private HttpCodec codec;
+        private CompressionPolicy compressionPolicy;
+        private RateLimitPolicy rateLimitPolicy;
+        private Deadline deadline;
 
         private Builder() {
         }
@@ -397,6 +698,40 @@ public class HttpCallConfig<T> {
             return new Builder();
         }
 
+        /**
+         * Create a new Builder instance initialized from a configuration.
+         *
+         * @param config configuration to copy
+         * @param <T> a typed HTTP/S response object
+         * @return Builder
+         */
+
+        @SuppressWarnings("unchecked")
+        public static <T> Builder<T> aHttpCallConfig(final HttpCallConfig<T> config) {
+            Builder<T> builder = new Builder<>();
+
+            return builder.withHttpMethod(config.getHttpMethod()).withUrl(config.getUrl())
+                    .withData(config.getData().orNull()).withToMap(config.getToMap()).withHeaders(config.getHeaders())
+                    .withQueryParams(config.getQueryParams()).withAccept(config.getAccept())
+                    .withType(config.getType()).withExpectedStatus(config.getExpectedStatus())
+                    .withConnectionTimeout(config.getConnectionTimeout().orNull())
+                    .withReadTimeOut(config.getReadTimeOut().orNull()).withProxyURL(config.getProxyURL().orNull())
+                    .withProxyPort(config.getProxyPort()).withUseConnectionPooling(config.getUseConnectionPooling())
+                    .withMaxConnectionPerHost(config.getMaxConnectionPerHost().orNull())
+                    .withUseRequestCoalescing(config.getUseRequestCoalescing())
+                    .withCoalescingHeaders(config.getCoalescingHeaders())
+                    .withResponseCache(config.getResponseCache().orNull())
+                    .withRetryPolicy(config.getRetryPolicy().orNull())
+                    .withIsolationPolicy(config.getIsolationPolicy().orNull())
+                    .withEndpointTemplate(config.getEndpointTemplate().orNull()).withUseHttp2(config.getUseHttp2())
+                    .withLoadBalancingPolicy(config.getLoadBalancingPolicy().orNull())
+                    .withConcurrencyLimitPolicy(config.getConcurrencyLimitPolicy().orNull())
+                    .withCodec(config.getCodec().orNull())
+                    .withCompressionPolicy(config.getCompressionPolicy().orNull())
+                    .withRateLimitPolicy(config.getRateLimitPolicy().orNull())
+                    .withDeadline(config.getDeadline().orNull());
+        }
+
         /**
          * Set httpMethod.
          *
@@ -422,7 +757,7 @@ public class HttpCallConfig<T> {
         }
 
         /**
-         * Set payload data.
+         * Set payload data, a Path, FileChannel, ByteBuffer or byte[] being sent as is with a known Content-Length.
          *
          * @param data payload data
          * @return builder instance
@@ -577,6 +912,163 @@ public class HttpCallConfig<T> {
             return this;
         }
 
+        /**
+         * Set use request coalescing.
+         *
+         * @param useRequestCoalescing use request coalescing
+         * @return builder instance
+         */
+
+        public Builder withUseRequestCoalescing(boolean useRequestCoalescing) {
+            this.useRequestCoalescing = useRequestCoalescing;
+            return this;
+        }
+
+        /**
+         * Set coalescing headers.
+         *
+         * @param coalescingHeaders header names included in the coalescing key, besides Authorization and Cookie
+         * @return builder instance
+         */
+
+        public Builder withCoalescingHeaders(Set<String> coalescingHeaders) {
+            this.coalescingHeaders = coalescingHeaders;
+            return this;
+        }
+
+        /**
+         * Set response cache.
+         *
+         * @param responseCache response cache
+         * @return builder instance
+         */
+
+        public Builder withResponseCache(HttpResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * Set retry policy.
+         *
+         * @param retryPolicy retry policy
+         * @return builder instance
+         */
+
+        public Builder withRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Set isolation policy.
+         *
+         * @param isolationPolicy isolation policy
+         * @return builder instance
+         */
+
+        public Builder withIsolationPolicy(IsolationPolicy isolationPolicy) {
+            this.isolationPolicy = isolationPolicy;
+            return this;
+        }
+
+        /**
+         * Set endpoint template.
+         *
+         * @param endpointTemplate endpoint name used for metrics, e.g. /users/{id}
+         * @return builder instance
+         */
+
+        public Builder withEndpointTemplate(String endpointTemplate) {
+            this.endpointTemplate = endpointTemplate;
+            return this;
+        }
+
+        /**
+         * Set use HTTP/2.
+         *
+         * @param useHttp2 use HTTP/2, h2c or TLS with ALPN, falling back to HTTP/1.1
+         * @return builder instance
+         */
+
+        public Builder withUseHttp2(boolean useHttp2) {
+            this.useHttp2 = useHttp2;
+            return this;
+        }
+
+        /**
+         * Set load balancing policy.
+         *
+         * @param loadBalancingPolicy load balancing policy, the url host naming the service
+         * @return builder instance
+         */
+
+        public Builder withLoadBalancingPolicy(LoadBalancingPolicy loadBalancingPolicy) {
+            this.loadBalancingPolicy = loadBalancingPolicy;
+            return this;
+        }
+
+        /**
+         * Set adaptive per host concurrency limit.
+         *
+         * @param concurrencyLimitPolicy concurrency limit settings
+         * @return builder instance
+         */
+
+        public Builder withConcurrencyLimitPolicy(ConcurrencyLimitPolicy concurrencyLimitPolicy) {
+            this.concurrencyLimitPolicy = concurrencyLimitPolicy;
+            return this;
+        }
+
+        /**
+         * Set entity codec.
+         *
+         * @param codec request and response entity codec
+         * @return builder instance
+         */
+
+        public Builder withCodec(HttpCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        /**
+         * Set content coding.
+         *
+         * @param compressionPolicy content coding settings
+         * @return builder instance
+         */
+
+        public Builder withCompressionPolicy(CompressionPolicy compressionPolicy) {
+            this.compressionPolicy = compressionPolicy;
+            return this;
+        }
+
+        /**
+         * Set client side rate limit.
+         *
+         * @param rateLimitPolicy rate limit policy
+         * @return builder instance
+         */
+
+        public Builder withRateLimitPolicy(RateLimitPolicy rateLimitPolicy) {
+            this.rateLimitPolicy = rateLimitPolicy;
+            return this;
+        }
+
+        /**
+         * Set the request deadline, by default that of the request being served, if any; the earlier of the two
+         * applies.
+         *
+         * @param deadline request deadline
+         * @return builder instance
+         */
+
+        public Builder withDeadline(Deadline deadline) {
+            this.deadline = deadline;
+            return this;
+        }
+
         /**
          * Builder builder.
          *
@@ -588,7 +1080,13 @@ public class HttpCallConfig<T> {
                     .withHeaders(headers).withQueryParams(queryParams).withAccept(accept).withType(type)
                     .withExpectedStatus(expectedStatus).withConnectionTimeout(connectionTimeout)
                     .withReadTimeOut(readTimeOut).withProxyURL(proxyURL).withProxyPort(proxyPort)
-                    .withUseConnectionPooling(useConnectionPooling).withMaxConnectionPerHost(maxConnectionPerHost);
+                    .withUseConnectionPooling(useConnectionPooling).withMaxConnectionPerHost(maxConnectionPerHost)
+                    .withUseRequestCoalescing(useRequestCoalescing).withCoalescingHeaders(coalescingHeaders)
+                    .withResponseCache(responseCache).withRetryPolicy(retryPolicy)
+                    .withIsolationPolicy(isolationPolicy).withEndpointTemplate(endpointTemplate).withUseHttp2(useHttp2)
+                    .withLoadBalancingPolicy(loadBalancingPolicy).withConcurrencyLimitPolicy(concurrencyLimitPolicy)
+                    .withCodec(codec).withCompressionPolicy(compressionPolicy).withRateLimitPolicy(rateLimitPolicy)
+                    .withDeadline(deadline);
         }
 
         /**
@@ -615,6 +1113,19 @@ public class HttpCallConfig<T> {
             httpCallConfig.setProxyPort(proxyPort);
             httpCallConfig.setUseConnectionPooling(useConnectionPooling);
             httpCallConfig.setMaxConnectionPerHost(maxConnectionPerHost);
+            httpCallConfig.setUseRequestCoalescing(useRequestCoalescing);
+            httpCallConfig.setCoalescingHeaders(coalescingHeaders);
+            httpCallConfig.setResponseCache(responseCache);
+            httpCallConfig.setRetryPolicy(retryPolicy);
+            httpCallConfig.setIsolationPolicy(isolationPolicy);
+            httpCallConfig.setEndpointTemplate(endpointTemplate);
+            httpCallConfig.setUseHttp2(useHttp2);
+            httpCallConfig.setLoadBalancingPolicy(loadBalancingPolicy);
+            httpCallConfig.setConcurrencyLimitPolicy(concurrencyLimitPolicy);
+            httpCallConfig.setCodec(codec);
+            httpCallConfig.setCompressionPolicy(compressionPolicy);
+            httpCallConfig.setRateLimitPolicy(rateLimitPolicy);
+            httpCallConfig.setDeadline(deadline);
 
             return httpCallConfig;
         }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.escape.Escaper;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.net.UrlEscapers.urlFormParameterEscaper;
+import static com.google.common.net.UrlEscapers.urlPathSegmentEscaper;
+
+/**
+ * An immutable request compiled once from a {@link HttpCallConfig} and invoked many times with only its variable
+ * parts, i.e. the url template variables and the payload.
+ *
+ * The url may hold {name} variables in its path and query, but not in its scheme, host or port. The url is split
+ * around the variables, the fixed query parameters are encoded and appended, and the headers frozen at compile time,
+ * so that an invocation only escapes the variable values into a presized buffer: no configuration is built, no map
+ * copied and no resource rebuilt per query parameter. The configuration must not be modified once compiled.
+ *
+ * @param <T> a typed HTTP/S response object
+ */
+
+public final class HttpCallTemplate<T> {
+
+    private static final Escaper PATH_ESCAPER = urlPathSegmentEscaper();
+    private static final Escaper QUERY_ESCAPER = urlFormParameterEscaper();
+    private static final int VARIABLE_LENGTH = 16;
+    private final String httpMethod;
+    private final HttpCallConfig<T> config;
+    private final URI origin;
+    private final String[] literals;
+    private final boolean[] queryVariables;
+    private final ImmutableList<String> variables;
+    private final ImmutableMap<String, String> headers;
+    private final int length;
+
+    private HttpCallTemplate(final String httpMethod, final HttpCallConfig<T> config, final URI origin,
+                             final List<String> literals, final List<Boolean> queryVariables,
+                             final List<String> variables) {
+        this.httpMethod = httpMethod;
+        this.config = config;
+        this.origin = origin;
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.queryVariables = new boolean[queryVariables.size()];
+        this.variables = ImmutableList.copyOf(variables);
+        this.headers = config.getHeaders() == null ? ImmutableMap.<String, String>of() :
+                ImmutableMap.copyOf(config.getHeaders());
+
+        int size = 0;
+
+        for (int i = 0; i < this.queryVariables.length; i++) {
+            this.queryVariables[i] = queryVariables.get(i);
+        }
+
+        for (String literal : this.literals) {
+            size += literal.length();
+        }
+
+        this.length = size + VARIABLE_LENGTH * variables.size();
+    }
+
+    /**
+     * Compile a request template.
+     *
+     * @param httpMethod method (e.g. GET, POST, PUT, DELETE)
+     * @param config configuration holder, its url possibly holding {name} variables
+     * @param <T> a typed HTTP/S response object
+     * @return compiled template
+     * @throws IllegalArgumentException if the url is not absolute, a variable is unterminated or in the authority
+     */
+
+    public static <T> HttpCallTemplate<T> compile(final String httpMethod, final HttpCallConfig<T> config) {
+        checkNotNull(httpMethod, "httpMethod");
+
+        String url = checkNotNull(config.getUrl(), "url");
+        int authority = url.indexOf("://");
+
+        checkArgument(authority > 0, "url must be absolute: %s", url);
+
+        int path = url.indexOf('/', authority + 3);
+        int end = path < 0 ? url.length() : path;
+        String base = url.substring(0, end);
+
+        checkArgument(base.indexOf('{') < 0, "url host may not be a variable: %s", url);
+
+        List<String> literals = new ArrayList<>();
+        List<Boolean> queryVariables = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(base);
+        boolean query = false;
+
+        for (int i = end; i < url.length(); i++) {
+            char c = url.charAt(i);
+
+            if (c == '{') {
+                int close = url.indexOf('}', i);
+
+                checkArgument(close > i + 1, "unterminated or empty variable at %s: %s", i, url);
+
+                literals.add(literal.toString());
+                queryVariables.add(query);
+                variables.add(url.substring(i + 1, close));
+                literal.setLength(0);
+
+                i = close;
+            } else {
+                query |= c == '?';
+
+                literal.append(c);
+            }
+        }
+
+        appendQuery(literal, query, config.getQueryParams());
+        literals.add(literal.toString());
+
+        return new HttpCallTemplate<>(httpMethod, config, URI.create(base), literals, queryVariables, variables);
+    }
+
+    /**
+     * Expand the url template.
+     *
+     * @param values variable values, in the order of the variables in the url, escaped as path segments or query
+     *               parameters
+     * @return request url, including the fixed query parameters
+     * @throws IllegalArgumentException if the number of values differs from the number of variables
+     */
+
+    public String expand(final Object... values) {
+        checkArgument(values.length == queryVariables.length, "expected %s values, got %s", queryVariables.length,
+                values.length);
+
+        StringBuilder url = new StringBuilder(length);
+
+        url.append(literals[0]);
+
+        for (int i = 0; i < values.length; i++) {
+            String value = String.valueOf(values[i]);
+
+            url.append(queryVariables[i] ? QUERY_ESCAPER.escape(value) : PATH_ESCAPER.escape(value))
+                    .append(literals[i + 1]);
+        }
+
+        return url.toString();
+    }
+
+    /**
+     * httpMethod getter.
+     *
+     * @return httpMethod value
+     */
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    /**
+     * config getter.
+     *
+     * @return compiled configuration, whose url is the unexpanded template
+     */
+
+    public HttpCallConfig<T> getConfig() {
+        return config;
+    }
+
+    /**
+     * origin getter.
+     *
+     * @return scheme, host and port of every expanded url
+     */
+
+    public URI getOrigin() {
+        return origin;
+    }
+
+    /**
+     * variables getter.
+     *
+     * @return variable names, in order
+     */
+
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * headers getter.
+     *
+     * @return fixed headers
+     */
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    private static void appendQuery(final StringBuilder url, final boolean query,
+                                    final Map<String, String> queryParams) {
+        if (queryParams == null) {
+            return;
+        }
+
+        boolean first = !query;
+
+        for (Map.Entry<String, String> entry : queryParams.entrySet()) {
+            url.append(first ? '?' : '&').append(QUERY_ESCAPER.escape(entry.getKey())).append('=')
+                    .append(QUERY_ESCAPER.escape(entry.getValue()));
+
+            first = false;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A pluggable request and response entity codec, replacing the generic Jersey entity mapping. Implementations must be
+ * thread-safe.
+ */
+
+public interface HttpCodec {
+
+    /**
+     * Media type of encoded entities, sent as the request content type unless one is configured.
+     *
+     * @return media type, e.g. application/json
+     */
+
+    String getContentType();
+
+    /**
+     * Media types the codec decodes, sent as the request accept type unless one is configured.
+     *
+     * @return accept header value
+     */
+
+    String getAccept();
+
+    /**
+     * Encode a request entity.
+     *
+     * @param value request entity
+     * @return encoded entity
+     * @throws IOException if the entity cannot be encoded
+     */
+
+    byte[] encode(Object value) throws IOException;
+
+    /**
+     * Decode a response entity.
+     *
+     * @param in response body, closed by the caller
+     * @param contentType response content type, or null if absent
+     * @param type response type
+     * @param <T> a typed HTTP/S response object
+     * @return decoded entity
+     * @throws IOException if the entity cannot be decoded
+     */
+
+    <T> T decode(InputStream in, String contentType, Class<T> type) throws IOException;
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Immutable page of a paginated resource, see {@link HttpPagination}.
+ *
+ * @param <T> a typed HTTP/S response object
+ */
+
+public final class HttpPage<T> {
+
+    private final HttpCallConfig<T> config;
+    private final int index;
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final T value;
+
+    /**
+     * Constructor.
+     *
+     * @param config configuration the page was requested with
+     * @param index zero based page index
+     * @param status response status
+     * @param headers response headers
+     * @param value typed response, possibly null
+     */
+
+    public HttpPage(final HttpCallConfig<T> config, final int index, final int status,
+                    final Map<String, List<String>> headers, final T value) {
+        this.config = checkNotNull(config, "config");
+        this.index = index;
+        this.status = status;
+        this.headers = unmodifiableMap(headers);
+        this.value = value;
+    }
+
+    /**
+     * config getter.
+     *
+     * @return configuration the page was requested with
+     */
+
+    public HttpCallConfig<T> getConfig() {
+        return config;
+    }
+
+    /**
+     * index getter.
+     *
+     * @return zero based page index
+     */
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * status getter.
+     *
+     * @return response status
+     */
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * headers getter.
+     *
+     * @return response headers
+     */
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * value getter.
+     *
+     * @return typed response, possibly null
+     */
+
+    public T getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpPage{url=" + config.getUrl() + ", index=" + index + ", status=" + status + '}';
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+/**
+ * Streamed consumption of a paginated resource.
+ *
+ * Pages are requested one after the other, each following the previous page's next page link or cursor, and
+ * published to the subscriber on demand. A bounded number of pages is fetched ahead of demand, so network waits
+ * overlap with the processing of earlier pages while memory stays bounded regardless of the number of pages.
+ */
+
+public interface HttpPagination {
+
+    /**
+     * Pages of a paginated GET resource.
+     *
+     * @param config first page configuration, subsequent pages differing by url or cursor query parameter only
+     * @param policy navigation and prefetch settings
+     * @param <T> a typed HTTP/S response object, of each page
+     * @return cold publisher, each subscription walking the pages from the first
+     */
+
+    <T> Flow.Publisher<HttpPage<T>> pages(HttpCallConfig<T> config, PaginationPolicy policy);
+}
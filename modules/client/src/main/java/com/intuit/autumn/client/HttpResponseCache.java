@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+/**
+ * A pluggable client side HTTP/S response store. Implementations must be thread-safe.
+ */
+
+public interface HttpResponseCache {
+
+    /**
+     * Cached response getter.
+     *
+     * @param key request key
+     * @return cached response, or null if absent
+     */
+
+    CachedHttpResponse get(String key);
+
+    /**
+     * Cached response setter.
+     *
+     * @param key request key
+     * @param response response to be cached
+     */
+
+    void put(String key, CachedHttpResponse response);
+
+    /**
+     * Cached response remover.
+     *
+     * @param key request key
+     */
+
+    void invalidate(String key);
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.jersey.api.client.ClientHandlerException;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.channels.Channels.newChannel;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * An unbuffered HTTP/S response body, returned when {@link HttpCallConfig#getToMap()} is
+ * {@code HttpResponseStream.class}.
+ *
+ * The body may be consumed once, as an {@link InputStream}, a {@link ReadableByteChannel} or an iterator over the
+ * elements of a top level JSON array, so heap usage is independent of the payload size. The underlying connection is
+ * released once the body has been fully read or the stream is closed; callers should always close the stream, e.g. with
+ * try-with-resources, when abandoning a partially read body.
+ */
+
+public final class HttpResponseStream implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final InputStream entity;
+    private final Closeable connection;
+    private final AtomicBoolean consumed = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Constructor.
+     *
+     * @param status response status code
+     * @param headers response headers
+     * @param entity response body
+     * @param connection resource released when the body is exhausted or closed
+     */
+
+    public HttpResponseStream(final int status, final Map<String, List<String>> headers, final InputStream entity,
+                              final Closeable connection) {
+        this.status = status;
+        this.headers = unmodifiableMap(headers);
+        this.entity = entity;
+        this.connection = connection;
+    }
+
+    /**
+     * status getter.
+     *
+     * @return status value
+     */
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * headers getter.
+     *
+     * @return headers value
+     */
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Body as an input stream, releasing the connection at end of stream or on close.
+     *
+     * @return body input stream
+     */
+
+    public InputStream getInputStream() {
+        consume();
+
+        return new FilterInputStream(entity) {
+            @Override
+            public int read() throws IOException {
+                return released(super.read());
+            }
+
+            @Override
+            public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+                return released(super.read(bytes, offset, length));
+            }
+
+            @Override
+            public void close() throws IOException {
+                HttpResponseStream.this.close();
+            }
+        };
+    }
+
+    /**
+     * Body as a byte channel, releasing the connection at end of stream or on close.
+     *
+     * @return body byte channel
+     */
+
+    public ReadableByteChannel getChannel() {
+        return newChannel(getInputStream());
+    }
+
+    /**
+     * Body as an iterator over the elements of a top level JSON array, each element being bound on demand. The
+     * connection is released once the closing bracket is read, on error, or on close.
+     *
+     * @param type element type
+     * @param <E> element type
+     * @return element iterator
+     */
+
+    public <E> Iterator<E> elements(final Class<E> type) {
+        final JsonParser parser;
+
+        try {
+            parser = MAPPER.getFactory().createParser(getInputStream());
+
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("response body is not a JSON array");
+            }
+        } catch (IOException e) {
+            closeQuietly();
+
+            throw new ClientHandlerException(e);
+        } catch (RuntimeException e) {
+            closeQuietly();
+
+            throw e;
+        }
+
+        return new Iterator<E>() {
+            private JsonToken next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = parser.nextToken();
+                    } catch (IOException e) {
+                        closeQuietly();
+
+                        throw new ClientHandlerException(e);
+                    }
+
+                    if (next == null || next == JsonToken.END_ARRAY) {
+                        closeQuietly();
+                    }
+                }
+
+                return next != null && next != JsonToken.END_ARRAY;
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                try {
+                    return MAPPER.readValue(parser, type);
+                } catch (IOException e) {
+                    closeQuietly();
+
+                    throw new ClientHandlerException(e);
+                } finally {
+                    next = null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Whether the connection has been released.
+     *
+     * @return true if released
+     */
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            connection.close();
+        }
+    }
+
+    private void consume() {
+        if (!consumed.compareAndSet(false, true)) {
+            throw new IllegalStateException("response body has already been consumed");
+        }
+    }
+
+    private int released(final int read) throws IOException {
+        if (read < 0) {
+            close();
+        }
+
+        return read;
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // ignore, the connection is being discarded
+        }
+    }
+}
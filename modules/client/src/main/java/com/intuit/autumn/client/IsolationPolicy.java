@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+/**
+ * Immutable bulkhead and circuit breaker settings.
+ *
+ * Requests are isolated per group, by default the target host and port. Each group admits at most a fixed number of
+ * concurrent requests, and a circuit breaker rejects requests outright for a cool down period once the failure, i.e.
+ * I/O error or 5xx status, or slow call rate over the most recent calls crosses a threshold. A single trial request is
+ * then admitted, closing the circuit on success or re-opening it on failure. Group settings are fixed by the first
+ * request of each group.
+ */
+
+public final class IsolationPolicy {
+
+    private final String group;
+    private final int maxConcurrentRequests;
+    private final long maxWaitMillis;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallDurationMillis;
+    private final double slowCallRateThreshold;
+    private final long openMillis;
+
+    private IsolationPolicy(final Builder builder) {
+        this.group = builder.group;
+        this.maxConcurrentRequests = builder.maxConcurrentRequests;
+        this.maxWaitMillis = builder.maxWaitMillis;
+        this.windowSize = builder.windowSize;
+        this.minimumCalls = builder.minimumCalls;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallDurationMillis = builder.slowCallDurationMillis;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.openMillis = builder.openMillis;
+    }
+
+    /**
+     * group getter.
+     *
+     * @return group value, or null for per host isolation
+     */
+
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * maxConcurrentRequests getter.
+     *
+     * @return maxConcurrentRequests value
+     */
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * maxWaitMillis getter.
+     *
+     * @return maxWaitMillis value
+     */
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * windowSize getter.
+     *
+     * @return windowSize value
+     */
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * minimumCalls getter.
+     *
+     * @return minimumCalls value
+     */
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * failureRateThreshold getter.
+     *
+     * @return failureRateThreshold value
+     */
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * slowCallDurationMillis getter.
+     *
+     * @return slowCallDurationMillis value
+     */
+
+    public long getSlowCallDurationMillis() {
+        return slowCallDurationMillis;
+    }
+
+    /**
+     * slowCallRateThreshold getter.
+     *
+     * @return slowCallRateThreshold value
+     */
+
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * openMillis getter.
+     *
+     * @return openMillis value
+     */
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    /**
+     * IsolationPolicy builder utility.
+     */
+
+    public static class Builder {
+
+        private String group;
+        private int maxConcurrentRequests = 20;
+        private long maxWaitMillis;
+        private int windowSize = 100;
+        private int minimumCalls = 20;
+        private double failureRateThreshold = 0.5;
+        private long slowCallDurationMillis = Long.MAX_VALUE;
+        private double slowCallRateThreshold = 1.0;
+        private long openMillis = 5000;
+
+        private Builder() {
+        }
+
+        /**
+         * Create a new Builder instance.
+         *
+         * @return Builder
+         */
+
+        public static Builder anIsolationPolicy() {
+            return new Builder();
+        }
+
+        /**
+         * Set isolation group, shared by all requests naming it.
+         *
+         * @param group group name
+         * @return builder instance
+         */
+
+        public Builder withGroup(String group) {
+            this.group = group;
+            return this;
+        }
+
+        /**
+         * Set bulkhead size.
+         *
+         * @param maxConcurrentRequests maximum concurrent requests
+         * @return builder instance
+         */
+
+        public Builder withMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * Set the maximum bulkhead wait, 0 failing fast.
+         *
+         * @param maxWaitMillis maximum wait milliseconds
+         * @return builder instance
+         */
+
+        public Builder withMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+            return this;
+        }
+
+        /**
+         * Set the number of most recent calls the circuit breaker rates are computed over.
+         *
+         * @param windowSize window size
+         * @return builder instance
+         */
+
+        public Builder withWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Set the minimum number of calls before the circuit may open.
+         *
+         * @param minimumCalls minimum calls
+         * @return builder instance
+         */
+
+        public Builder withMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * Set failure rate threshold.
+         *
+         * @param failureRateThreshold failure rate, in (0, 1]
+         * @return builder instance
+         */
+
+        public Builder withFailureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Set the duration above which a call is considered slow.
+         *
+         * @param slowCallDurationMillis slow call milliseconds
+         * @return builder instance
+         */
+
+        public Builder withSlowCallDurationMillis(long slowCallDurationMillis) {
+            this.slowCallDurationMillis = slowCallDurationMillis;
+            return this;
+        }
+
+        /**
+         * Set slow call rate threshold.
+         *
+         * @param slowCallRateThreshold slow call rate, in (0, 1]
+         * @return builder instance
+         */
+
+        public Builder withSlowCallRateThreshold(double slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * Set the open circuit cool down.
+         *
+         * @param openMillis open milliseconds
+         * @return builder instance
+         */
+
+        public Builder withOpenMillis(long openMillis) {
+            this.openMillis = openMillis;
+            return this;
+        }
+
+        /**
+         * IsolationPolicy builder.
+         *
+         * @return materialized IsolationPolicy
+         */
+
+        public IsolationPolicy build() {
+            return new IsolationPolicy(this);
+        }
+    }
+}
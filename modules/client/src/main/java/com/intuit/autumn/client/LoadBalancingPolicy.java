@@ -0,0 +1,239 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+/**
+ * Immutable client side load balancing settings.
+ *
+ * The host of a load balanced request URL names a logical service, e.g. http://user-service/users/1, which is resolved
+ * by a {@link ServiceDirectory} to a list of endpoints. Each request, and each retry, is sent to the endpoint with the
+ * least outstanding requests, either amongst all endpoints or amongst two picked at random. Endpoints failing, i.e. I/O
+ * error or 5xx status, a number of consecutive requests or whose average latency exceeds a threshold are ejected for a
+ * while, never ejecting more than a fraction of the service's endpoints. Service state is shared by all requests naming
+ * the same directory and service and its settings are fixed by the first such request.
+ */
+
+public final class LoadBalancingPolicy {
+
+    /**
+     * Endpoint selection strategy.
+     */
+
+    public enum Strategy {
+
+        /**
+         * Pick the endpoint with the least outstanding requests.
+         */
+
+        LEAST_OUTSTANDING_REQUESTS,
+
+        /**
+         * Pick two endpoints at random and use the one with the least outstanding requests.
+         */
+
+        POWER_OF_TWO_CHOICES
+    }
+
+    private final ServiceDirectory serviceDirectory;
+    private final Strategy strategy;
+    private final int consecutiveFailures;
+    private final long maxLatencyMillis;
+    private final long ejectionMillis;
+    private final double maxEjectionRatio;
+
+    private LoadBalancingPolicy(final Builder builder) {
+        if (builder.serviceDirectory == null) {
+            throw new IllegalArgumentException("a service directory is required");
+        }
+
+        this.serviceDirectory = builder.serviceDirectory;
+        this.strategy = builder.strategy;
+        this.consecutiveFailures = builder.consecutiveFailures;
+        this.maxLatencyMillis = builder.maxLatencyMillis;
+        this.ejectionMillis = builder.ejectionMillis;
+        this.maxEjectionRatio = builder.maxEjectionRatio;
+    }
+
+    /**
+     * serviceDirectory getter.
+     *
+     * @return serviceDirectory value
+     */
+
+    public ServiceDirectory getServiceDirectory() {
+        return serviceDirectory;
+    }
+
+    /**
+     * strategy getter.
+     *
+     * @return strategy value
+     */
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * consecutiveFailures getter.
+     *
+     * @return consecutiveFailures value
+     */
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * maxLatencyMillis getter.
+     *
+     * @return maxLatencyMillis value
+     */
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    /**
+     * ejectionMillis getter.
+     *
+     * @return ejectionMillis value
+     */
+
+    public long getEjectionMillis() {
+        return ejectionMillis;
+    }
+
+    /**
+     * maxEjectionRatio getter.
+     *
+     * @return maxEjectionRatio value
+     */
+
+    public double getMaxEjectionRatio() {
+        return maxEjectionRatio;
+    }
+
+    /**
+     * LoadBalancingPolicy builder utility.
+     */
+
+    public static class Builder {
+
+        private ServiceDirectory serviceDirectory;
+        private Strategy strategy = Strategy.POWER_OF_TWO_CHOICES;
+        private int consecutiveFailures = 5;
+        private long maxLatencyMillis = Long.MAX_VALUE;
+        private long ejectionMillis = 30000;
+        private double maxEjectionRatio = 0.5;
+
+        private Builder() {
+        }
+
+        /**
+         * Create a new Builder instance.
+         *
+         * @return Builder
+         */
+
+        public static Builder aLoadBalancingPolicy() {
+            return new Builder();
+        }
+
+        /**
+         * Set service directory.
+         *
+         * @param serviceDirectory service endpoint source
+         * @return builder instance
+         */
+
+        public Builder withServiceDirectory(ServiceDirectory serviceDirectory) {
+            this.serviceDirectory = serviceDirectory;
+            return this;
+        }
+
+        /**
+         * Set endpoint selection strategy.
+         *
+         * @param strategy selection strategy
+         * @return builder instance
+         */
+
+        public Builder withStrategy(Strategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * Set the number of consecutive failures after which an endpoint is ejected.
+         *
+         * @param consecutiveFailures consecutive failures
+         * @return builder instance
+         */
+
+        public Builder withConsecutiveFailures(int consecutiveFailures) {
+            this.consecutiveFailures = consecutiveFailures;
+            return this;
+        }
+
+        /**
+         * Set the average latency above which an endpoint is ejected.
+         *
+         * @param maxLatencyMillis maximum average latency milliseconds
+         * @return builder instance
+         */
+
+        public Builder withMaxLatencyMillis(long maxLatencyMillis) {
+            this.maxLatencyMillis = maxLatencyMillis;
+            return this;
+        }
+
+        /**
+         * Set how long an ejected endpoint is skipped.
+         *
+         * @param ejectionMillis ejection milliseconds
+         * @return builder instance
+         */
+
+        public Builder withEjectionMillis(long ejectionMillis) {
+            this.ejectionMillis = ejectionMillis;
+            return this;
+        }
+
+        /**
+         * Set the maximum fraction of a service's endpoints that may be ejected at once.
+         *
+         * @param maxEjectionRatio maximum ejection ratio, in [0, 1]
+         * @return builder instance
+         */
+
+        public Builder withMaxEjectionRatio(double maxEjectionRatio) {
+            this.maxEjectionRatio = maxEjectionRatio;
+            return this;
+        }
+
+        /**
+         * LoadBalancingPolicy builder.
+         *
+         * @return materialized LoadBalancingPolicy
+         */
+
+        public LoadBalancingPolicy build() {
+            return new LoadBalancingPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+/**
+ * Immutable pagination settings, see {@link HttpPagination}.
+ *
+ * The next page is by default that of the RFC 5988 Link response header with relation "next". Otherwise it is read
+ * from the response body, as a JSON pointer either to the next page url or to a cursor then sent in a query parameter
+ * of the first page's request. Pagination ends with the first page lacking a next page, or an empty cursor.
+ */
+
+public final class PaginationPolicy {
+
+    private final int prefetch;
+    private final int maxPages;
+    private final String nextLinkPointer;
+    private final String cursorPointer;
+    private final String cursorParam;
+
+    private PaginationPolicy(final Builder builder) {
+        this.prefetch = builder.prefetch;
+        this.maxPages = builder.maxPages;
+        this.nextLinkPointer = builder.nextLinkPointer;
+        this.cursorPointer = builder.cursorPointer;
+        this.cursorParam = builder.cursorParam;
+    }
+
+    /**
+     * prefetch getter.
+     *
+     * @return prefetch value, the number of pages fetched ahead of demand
+     */
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * maxPages getter.
+     *
+     * @return maxPages value
+     */
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    /**
+     * nextLinkPointer getter.
+     *
+     * @return nextLinkPointer value, or null if none
+     */
+
+    public String getNextLinkPointer() {
+        return nextLinkPointer;
+    }
+
+    /**
+     * cursorPointer getter.
+     *
+     * @return cursorPointer value, or null if none
+     */
+
+    public String getCursorPointer() {
+        return cursorPointer;
+    }
+
+    /**
+     * cursorParam getter.
+     *
+     * @return cursorParam value, or null if none
+     */
+
+    public String getCursorParam() {
+        return cursorParam;
+    }
+
+    /**
+     * PaginationPolicy builder utility.
+     */
+
+    public static class Builder {
+
+        private int prefetch = 1;
+        private int maxPages = Integer.MAX_VALUE;
+        private String nextLinkPointer;
+        private String cursorPointer;
+        private String cursorParam;
+
+        private Builder() {
+        }
+
+        /**
+         * Create a new Builder instance.
+         *
+         * @return Builder
+         */
+
+        public static Builder aPaginationPolicy() {
+            return new Builder();
+        }
+
+        /**
+         * Set the number of pages fetched ahead of demand, 0 fetching on demand only.
+         *
+         * @param prefetch prefetched pages
+         * @return builder instance
+         */
+
+        public Builder withPrefetch(int prefetch) {
+            this.prefetch = prefetch;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of pages.
+         *
+         * @param maxPages maximum pages
+         * @return builder instance
+         */
+
+        public Builder withMaxPages(int maxPages) {
+            this.maxPages = maxPages;
+            return this;
+        }
+
+        /**
+         * Set the JSON pointer, e.g. "/links/next", to the next page url in the response body.
+         *
+         * @param nextLinkPointer next page url pointer
+         * @return builder instance
+         */
+
+        public Builder withNextLinkPointer(String nextLinkPointer) {
+            this.nextLinkPointer = nextLinkPointer;
+            return this;
+        }
+
+        /**
+         * Set the JSON pointer, e.g. "/meta/next_cursor", to the next page cursor in the response body.
+         *
+         * @param cursorPointer next page cursor pointer
+         * @return builder instance
+         */
+
+        public Builder withCursorPointer(String cursorPointer) {
+            this.cursorPointer = cursorPointer;
+            return this;
+        }
+
+        /**
+         * Set the query parameter the cursor is sent in.
+         *
+         * @param cursorParam cursor query parameter
+         * @return builder instance
+         */
+
+        public Builder withCursorParam(String cursorParam) {
+            this.cursorParam = cursorParam;
+            return this;
+        }
+
+        /**
+         * PaginationPolicy builder.
+         *
+         * @return materialized PaginationPolicy
+         */
+
+        public PaginationPolicy build() {
+            return new PaginationPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+/**
+ * Immutable client side rate limit settings.
+ *
+ * Requests are metered per downstream host, per endpoint template or per named group by a token bucket refilled at a
+ * fixed rate and holding at most a burst of tokens. Each request, including each retry, takes a token; once the bucket
+ * is empty a request waits for its token, for at most the maximum wait, or is rejected outright, depending on the
+ * acquire mode, so that bursts are smoothed before they leave the process. Bucket settings are fixed by the first
+ * request of each host, endpoint or group.
+ */
+
+public final class RateLimitPolicy {
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final AcquireMode acquireMode;
+    private final long maxWaitMillis;
+    private final Scope scope;
+    private final String group;
+
+    private RateLimitPolicy(final Builder builder) {
+        if (builder.permitsPerSecond <= 0 || builder.burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+        }
+
+        this.permitsPerSecond = builder.permitsPerSecond;
+        this.burst = builder.burst;
+        this.acquireMode = builder.acquireMode;
+        this.maxWaitMillis = builder.maxWaitMillis;
+        this.scope = builder.scope;
+        this.group = builder.group;
+    }
+
+    /**
+     * permitsPerSecond getter.
+     *
+     * @return permitsPerSecond value
+     */
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * burst getter.
+     *
+     * @return burst value
+     */
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * acquireMode getter.
+     *
+     * @return acquireMode value
+     */
+
+    public AcquireMode getAcquireMode() {
+        return acquireMode;
+    }
+
+    /**
+     * maxWaitMillis getter.
+     *
+     * @return maxWaitMillis value
+     */
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * scope getter.
+     *
+     * @return scope value
+     */
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * group getter.
+     *
+     * @return group value, or null for per scope rate limiting
+     */
+
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * Behaviour once the bucket is empty.
+     */
+
+    public enum AcquireMode {
+
+        /**
+         * Wait for a token however long it takes.
+         */
+
+        BLOCK,
+
+        /**
+         * Wait for a token for at most the maximum wait, otherwise reject the request without taking a token.
+         */
+
+        TIMED,
+
+        /**
+         * Reject the request without waiting.
+         */
+
+        FAIL_FAST
+    }
+
+    /**
+     * Requests sharing a bucket, unless a group is named.
+     */
+
+    public enum Scope {
+
+        /**
+         * All requests to a host and port.
+         */
+
+        HOST,
+
+        /**
+         * Requests to a host and port with the same method and endpoint template, falling back to the host for
+         * requests without an endpoint template.
+         */
+
+        ENDPOINT
+    }
+
+    /**
+     * RateLimitPolicy builder utility.
+     */
+
+    public static class Builder {
+
+        private double permitsPerSecond = 10;
+        private int burst = 1;
+        private AcquireMode acquireMode = AcquireMode.TIMED;
+        private long maxWaitMillis = 1000;
+        private Scope scope = Scope.HOST;
+        private String group;
+
+        private Builder() {
+        }
+
+        /**
+         * Create a new Builder instance.
+         *
+         * @return Builder
+         */
+
+        public static Builder aRateLimitPolicy() {
+            return new Builder();
+        }
+
+        /**
+         * Set the sustained request rate.
+         *
+         * @param permitsPerSecond requests per second
+         * @return builder instance
+         */
+
+        public Builder withPermitsPerSecond(double permitsPerSecond) {
+            this.permitsPerSecond = permitsPerSecond;
+            return this;
+        }
+
+        /**
+         * Set the number of requests that may be sent back to back after an idle period.
+         *
+         * @param burst bucket capacity
+         * @return builder instance
+         */
+
+        public Builder withBurst(int burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * Set behaviour once the bucket is empty.
+         *
+         * @param acquireMode acquire mode
+         * @return builder instance
+         */
+
+        public Builder withAcquireMode(AcquireMode acquireMode) {
+            this.acquireMode = acquireMode;
+            return this;
+        }
+
+        /**
+         * Set the maximum wait for a token in the timed acquire mode.
+         *
+         * @param maxWaitMillis maximum wait milliseconds
+         * @return builder instance
+         */
+
+        public Builder withMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+            return this;
+        }
+
+        /**
+         * Set the requests sharing a bucket.
+         *
+         * @param scope scope
+         * @return builder instance
+         */
+
+        public Builder withScope(Scope scope) {
+            this.scope = scope;
+            return this;
+        }
+
+        /**
+         * Set rate limit group, shared by all requests naming it regardless of scope.
+         *
+         * @param group group name
+         * @return builder instance
+         */
+
+        public Builder withGroup(String group) {
+            this.group = group;
+            return this;
+        }
+
+        /**
+         * RateLimitPolicy builder.
+         *
+         * @return materialized RateLimitPolicy
+         */
+
+        public RateLimitPolicy build() {
+            return new RateLimitPolicy(this);
+        }
+    }
+}
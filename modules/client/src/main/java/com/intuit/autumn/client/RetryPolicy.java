@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * Immutable retry and hedging settings.
+ *
+ * Idempotent requests, i.e. GET, HEAD, OPTIONS, PUT and DELETE, failing with an I/O error or a retryable status are
+ * retried after an exponential backoff with full jitter. Retries, and hedges, are drawn from a per host budget which
+ * is replenished by a fraction of each request so that retries cannot amplify an outage. When hedging is enabled, a
+ * GET still outstanding after the endpoint's observed p95 latency is duplicated and the first response wins.
+ */
+
+public final class RetryPolicy {
+
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double retryBudgetRatio;
+    private final int retryBudgetReserve;
+    private final boolean hedging;
+    private final Set<Integer> retryableStatuses;
+
+    private RetryPolicy(final Builder builder) {
+        this.maxRetries = builder.maxRetries;
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.retryBudgetRatio = builder.retryBudgetRatio;
+        this.retryBudgetReserve = builder.retryBudgetReserve;
+        this.hedging = builder.hedging;
+        this.retryableStatuses = ImmutableSet.copyOf(builder.retryableStatuses);
+    }
+
+    /**
+     * maxRetries getter.
+     *
+     * @return maxRetries value
+     */
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * initialBackoffMillis getter.
+     *
+     * @return initialBackoffMillis value
+     */
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    /**
+     * maxBackoffMillis getter.
+     *
+     * @return maxBackoffMillis value
+     */
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    /**
+     * retryBudgetRatio getter.
+     *
+     * @return retryBudgetRatio value
+     */
+
+    public double getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    /**
+     * retryBudgetReserve getter.
+     *
+     * @return retryBudgetReserve value
+     */
+
+    public int getRetryBudgetReserve() {
+        return retryBudgetReserve;
+    }
+
+    /**
+     * hedging getter.
+     *
+     * @return hedging value
+     */
+
+    public boolean getHedging() {
+        return hedging;
+    }
+
+    /**
+     * retryableStatuses getter.
+     *
+     * @return retryableStatuses value
+     */
+
+    public Set<Integer> getRetryableStatuses() {
+        return retryableStatuses;
+    }
+
+    /**
+     * RetryPolicy builder utility.
+     */
+
+    public static class Builder {
+
+        private int maxRetries = 2;
+        private long initialBackoffMillis = 50;
+        private long maxBackoffMillis = 1000;
+        private double retryBudgetRatio = 0.2;
+        private int retryBudgetReserve = 10;
+        private boolean hedging;
+        private Set<Integer> retryableStatuses = ImmutableSet.of(502, 503, 504);
+
+        private Builder() {
+        }
+
+        /**
+         * Create a new Builder instance.
+         *
+         * @return Builder
+         */
+
+        public static Builder aRetryPolicy() {
+            return new Builder();
+        }
+
+        /**
+         * Set maximum retries, excluding the initial attempt.
+         *
+         * @param maxRetries maximum retries
+         * @return builder instance
+         */
+
+        public Builder withMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Set the backoff upper bound before the first retry, doubled on each subsequent retry.
+         *
+         * @param initialBackoffMillis initial backoff milliseconds
+         * @return builder instance
+         */
+
+        public Builder withInitialBackoffMillis(long initialBackoffMillis) {
+            this.initialBackoffMillis = initialBackoffMillis;
+            return this;
+        }
+
+        /**
+         * Set the backoff upper bound.
+         *
+         * @param maxBackoffMillis maximum backoff milliseconds
+         * @return builder instance
+         */
+
+        public Builder withMaxBackoffMillis(long maxBackoffMillis) {
+            this.maxBackoffMillis = maxBackoffMillis;
+            return this;
+        }
+
+        /**
+         * Set the retries earned per request, e.g. 0.2 allows retries to add at most 20% to the host load.
+         *
+         * @param retryBudgetRatio retry budget ratio
+         * @return builder instance
+         */
+
+        public Builder withRetryBudgetRatio(double retryBudgetRatio) {
+            this.retryBudgetRatio = retryBudgetRatio;
+            return this;
+        }
+
+        /**
+         * Set the maximum retries that may be banked per host.
+         *
+         * @param retryBudgetReserve retry budget reserve
+         * @return builder instance
+         */
+
+        public Builder withRetryBudgetReserve(int retryBudgetReserve) {
+            this.retryBudgetReserve = retryBudgetReserve;
+            return this;
+        }
+
+        /**
+         * Set hedging.
+         *
+         * @param hedging hedge GET requests outstanding past the endpoint's p95 latency
+         * @return builder instance
+         */
+
+        public Builder withHedging(boolean hedging) {
+            this.hedging = hedging;
+            return this;
+        }
+
+        /**
+         * Set retryable response statuses.
+         *
+         * @param retryableStatuses retryable statuses
+         * @return builder instance
+         */
+
+        public Builder withRetryableStatuses(Set<Integer> retryableStatuses) {
+            this.retryableStatuses = retryableStatuses;
+            return this;
+        }
+
+        /**
+         * RetryPolicy builder.
+         *
+         * @return materialized RetryPolicy
+         */
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+import java.util.List;
+
+/**
+ * Scatter-gather fan-out of independent HTTP/S requests under one shared deadline.
+ *
+ * All requests are sent concurrently, so the overall latency is that of the slowest request rather than the sum of
+ * them, and the caller waits no longer than the deadline. Requests outstanding at the deadline are cancelled, their
+ * connections released, and reported as timed out alongside the completed ones. A request that cannot be sent, e.g.
+ * one configured with a policy unsupported by {@link AsyncHttpCall}, is reported as failed.
+ */
+
+public interface ScatterGather {
+
+    /**
+     * Send requests concurrently and gather their outcomes.
+     *
+     * @param httpMethod method (e.g. GET, POST, PUT, DELETE) shared by all requests
+     * @param configs configuration holders, possibly mapping to different response types
+     * @param timeoutMillis overall deadline, from the call, in milliseconds
+     * @param <T> common supertype of the typed responses
+     * @return one result per configuration, in the same order
+     */
+
+    <T> List<ScatterGatherResult<T>> execute(String httpMethod, List<? extends HttpCallConfig<? extends T>> configs,
+                                             long timeoutMillis);
+}
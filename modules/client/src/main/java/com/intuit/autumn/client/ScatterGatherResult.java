@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client;
+
+import com.google.common.base.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable outcome of a single request of a {@link ScatterGather} fan-out.
+ *
+ * @param <T> a typed HTTP/S response object
+ */
+
+public final class ScatterGatherResult<T> {
+
+    private final HttpCallConfig<? extends T> config;
+    private final Status status;
+    private final T value;
+    private final Throwable failure;
+    private final long elapsedMillis;
+
+    private ScatterGatherResult(final HttpCallConfig<? extends T> config, final Status status, final T value,
+                                final Throwable failure, final long elapsedMillis) {
+        this.config = checkNotNull(config, "config");
+        this.status = status;
+        this.value = value;
+        this.failure = failure;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Successful outcome factory.
+     *
+     * @param config request configuration
+     * @param value typed response, possibly null
+     * @param elapsedMillis milliseconds from the fan-out to the response
+     * @param <T> a typed HTTP/S response object
+     * @return result
+     */
+
+    public static <T> ScatterGatherResult<T> succeeded(final HttpCallConfig<? extends T> config, final T value,
+                                                       final long elapsedMillis) {
+        return new ScatterGatherResult<>(config, Status.SUCCEEDED, value, null, elapsedMillis);
+    }
+
+    /**
+     * Failed outcome factory.
+     *
+     * @param config request configuration
+     * @param failure cause, e.g. an I/O error or an unexpected status
+     * @param elapsedMillis milliseconds from the fan-out to the failure
+     * @param <T> a typed HTTP/S response object
+     * @return result
+     */
+
+    public static <T> ScatterGatherResult<T> failed(final HttpCallConfig<? extends T> config,
+                                                    final Throwable failure, final long elapsedMillis) {
+        return new ScatterGatherResult<>(config, Status.FAILED, null, checkNotNull(failure, "failure"),
+                elapsedMillis);
+    }
+
+    /**
+     * Timed out outcome factory.
+     *
+     * @param config request configuration
+     * @param elapsedMillis milliseconds from the fan-out to the deadline
+     * @param <T> a typed HTTP/S response object
+     * @return result
+     */
+
+    public static <T> ScatterGatherResult<T> timedOut(final HttpCallConfig<? extends T> config,
+                                                      final long elapsedMillis) {
+        return new ScatterGatherResult<>(config, Status.TIMED_OUT, null, null, elapsedMillis);
+    }
+
+    /**
+     * config getter.
+     *
+     * @return request configuration
+     */
+
+    public HttpCallConfig<? extends T> getConfig() {
+        return config;
+    }
+
+    /**
+     * status getter.
+     *
+     * @return status value
+     */
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Whether the request succeeded.
+     *
+     * @return true if a response with the expected status was received
+     */
+
+    public boolean isSucceeded() {
+        return status == Status.SUCCEEDED;
+    }
+
+    /**
+     * value getter.
+     *
+     * @return typed response, absent unless succeeded with a non-null response
+     */
+
+    public Optional<T> getValue() {
+        return Optional.fromNullable(value);
+    }
+
+    /**
+     * failure getter.
+     *
+     * @return cause, absent unless failed
+     */
+
+    public Optional<Throwable> getFailure() {
+        return Optional.fromNullable(failure);
+    }
+
+    /**
+     * elapsedMillis getter.
+     *
+     * @return milliseconds from the fan-out to the outcome
+     */
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ScatterGatherResult{url=" + config.getUrl() + ", status=" + status + ", elapsedMillis=" +
+                elapsedMillis + '}';
+    }
+
+    /**
+     * Outcome of a request.
+     */
+
+    public enum Status {
+
+        /**
+         * A response with the expected status was received.
+         */
+
+        SUCCEEDED,
+
+        /**
+         * The request failed before the deadline.
+         */
+
+        FAILED,
+
+        /**
+         * The request was still outstanding at the deadline and was cancelled.
+         */
+
+        TIMED_OUT
+    }
+}
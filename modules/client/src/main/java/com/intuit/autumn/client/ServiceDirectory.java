@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * A pluggable source of the endpoints of logical services. Implementations must be thread-safe and cheap to query, as
+ * the directory is consulted on every load balanced request.
+ */
+
+public interface ServiceDirectory {
+
+    /**
+     * Service endpoints getter.
+     *
+     * @param serviceName logical service name
+     * @return endpoint base URIs, e.g. http://10.0.0.1:8080, or an empty list for an unknown service
+     */
+
+    List<URI> getEndpoints(String serviceName);
+}
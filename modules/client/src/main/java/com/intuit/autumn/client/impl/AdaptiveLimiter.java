@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.intuit.autumn.client.ConcurrencyLimitPolicy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * An in-flight request limit adapting to the round trip times sampled from a single host.
+ *
+ * Admission is lock-free; waiting for a slot and limit updates synchronize on the limiter. The limit is only grown
+ * while at least half of it is in use, so that a lightly loaded host does not earn an unbounded limit.
+ */
+
+final class AdaptiveLimiter {
+
+    // samples between re-measurements of the Vegas minimum round trip time, per unit of limit
+    private static final int PROBE_SAMPLES_PER_LIMIT = 30;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double LONG_RTT_WINDOW = 600;
+    private static final double LONG_RTT_DRIFT = 0.95;
+    private static final double MAX_RTT_RATIO = 2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    private final ConcurrencyLimitPolicy policy;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    private int waiters;
+    private double estimatedLimit;
+    private long minRttNanos = Long.MAX_VALUE;
+    private double longRttNanos;
+    private long probeSamples;
+
+    /**
+     * Constructor.
+     *
+     * @param policy limit settings
+     */
+
+    AdaptiveLimiter(final ConcurrencyLimitPolicy policy) {
+        this.policy = policy;
+        this.limit = policy.getInitialLimit();
+        this.estimatedLimit = policy.getInitialLimit();
+    }
+
+    /**
+     * Admit a request if under the limit, waiting for a slot for at most the given time.
+     *
+     * @param maxWaitMillis maximum wait milliseconds, 0 failing fast
+     * @return in-flight requests including this one once admitted, or 0 if not admitted
+     * @throws InterruptedException if interrupted while waiting
+     */
+
+    int acquire(final long maxWaitMillis) throws InterruptedException {
+        int admitted = tryAcquire();
+
+        if (admitted > 0 || maxWaitMillis <= 0) {
+            return admitted;
+        }
+
+        long deadline = nanoTime() + MILLISECONDS.toNanos(maxWaitMillis);
+
+        synchronized (this) {
+            waiters++;
+
+            try {
+                while ((admitted = tryAcquire()) == 0) {
+                    long remaining = deadline - nanoTime();
+
+                    if (remaining <= 0) {
+                        return 0;
+                    }
+
+                    wait(Math.max(1, NANOSECONDS.toMillis(remaining)));
+                }
+            } finally {
+                waiters--;
+            }
+        }
+
+        return admitted;
+    }
+
+    /**
+     * Release an admitted request, sampling its round trip time.
+     *
+     * @param rttNanos round trip time, from admission to the response headers
+     * @param dropped true if the request failed or was shed by the host, backing the limit off
+     * @param admittedInFlight in-flight requests when the request was admitted
+     */
+
+    void release(final long rttNanos, final boolean dropped, final int admittedInFlight) {
+        inFlight.decrementAndGet();
+
+        synchronized (this) {
+            if (dropped) {
+                estimatedLimit *= BACKOFF_RATIO;
+            } else if (policy.getAlgorithm() == ConcurrencyLimitPolicy.Algorithm.VEGAS) {
+                updateVegas(rttNanos, admittedInFlight);
+            } else {
+                updateGradient(rttNanos, admittedInFlight);
+            }
+
+            estimatedLimit = Math.min(policy.getMaxLimit(), Math.max(policy.getMinLimit(), estimatedLimit));
+            limit = (int) estimatedLimit;
+
+            if (waiters > 0) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Release an admitted request that was not sent, taking no sample.
+     */
+
+    void cancel() {
+        inFlight.decrementAndGet();
+
+        synchronized (this) {
+            if (waiters > 0) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Current limit getter.
+     *
+     * @return in-flight request limit
+     */
+
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * In-flight requests getter.
+     *
+     * @return admitted requests not yet released
+     */
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    private int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+
+            if (current >= limit) {
+                return 0;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    // queue = limit * (1 - minRtt / rtt), kept between alpha and beta, both scaled by log10(limit)
+    private void updateVegas(final long rttNanos, final int admittedInFlight) {
+        if (--probeSamples <= 0) {
+            // forget the minimum from time to time, so that a host that became permanently slower is re-learnt
+            minRttNanos = rttNanos;
+            probeSamples = PROBE_SAMPLES_PER_LIMIT * (long) estimatedLimit;
+        }
+
+        minRttNanos = Math.min(minRttNanos, rttNanos);
+
+        if (admittedInFlight * 2 < estimatedLimit) {
+            return;
+        }
+
+        double queue = Math.ceil(estimatedLimit * (1 - (double) minRttNanos / Math.max(1, rttNanos)));
+        double log = Math.max(1, Math.log10(estimatedLimit));
+
+        if (queue <= log) {
+            estimatedLimit += 6 * log;
+        } else if (queue < 3 * log) {
+            estimatedLimit += log;
+        } else if (queue > 6 * log) {
+            estimatedLimit -= log;
+        }
+    }
+
+    // limit = limit * longRtt / shortRtt + sqrt(limit), smoothed
+    private void updateGradient(final long rttNanos, final int admittedInFlight) {
+        longRttNanos = longRttNanos == 0 ? rttNanos : longRttNanos + (rttNanos - longRttNanos) / LONG_RTT_WINDOW;
+
+        if (longRttNanos > rttNanos * MAX_RTT_RATIO) {
+            // recover faster from a transient high latency episode
+            longRttNanos *= LONG_RTT_DRIFT;
+        }
+
+        if (admittedInFlight * 2 < estimatedLimit) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1, longRttNanos / Math.max(1, rttNanos)));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+
+        estimatedLimit = estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING;
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.inject.Inject;
+import com.intuit.autumn.client.AsyncHttpCall;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.utils.Deadline;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.*;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.entity.NFileEntity;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.String.format;
+import static javax.ws.rs.HttpMethod.*;
+import static org.apache.http.HttpHeaders.ACCEPT;
+import static org.apache.http.HttpHeaders.CONTENT_TYPE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A non-blocking HTTP/S client implementation.
+ *
+ * No caller thread is held while a request is in flight: the exchange is driven by the {@link AsyncHttpClientService}
+ * I/O reactor and the response is materialized on its bounded completion executor.
+ *
+ * @param <T> a typed HTTP/S request response object
+ */
+
+public class AsyncHttpCallImpl<T> implements AsyncHttpCall<T> {
+
+    private static final Logger LOGGER = getLogger(AsyncHttpCall.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private final AsyncHttpClientService asyncHttpClientService;
+
+    /**
+     * Constructor.
+     *
+     * @param asyncHttpClientService non-blocking engine
+     */
+
+    @Inject
+    public AsyncHttpCallImpl(final AsyncHttpClientService asyncHttpClientService) {
+        this.asyncHttpClientService = asyncHttpClientService;
+    }
+
+    @Override
+    public ListenableFuture<T> makeRequest(final String httpMethod, final HttpCallConfig<T> config) {
+        HttpRequestBase request;
+
+        try {
+            request = toRequest(httpMethod, config);
+        } catch (RuntimeException e) {
+            return immediateFailedFuture(e);
+        }
+
+        final SettableFuture<T> result = SettableFuture.create();
+        String host = ClientFilters.toHost(request.getURI());
+        final HostMetrics hostMetrics = ClientMetrics.getInstance().getHostMetrics(host);
+        final Timer.Context endpoint = !config.getEndpointTemplate().isPresent() ? null :
+                ClientMetrics.getInstance().getEndpointTimer(host, httpMethod, config.getEndpointTemplate().get())
+                        .time();
+        final Timer.Context context = hostMetrics.start();
+        FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(final HttpResponse response) {
+                hostMetrics.onResponse(context, response.getStatusLine().getStatusCode());
+                stop(endpoint);
+
+                if (response.getEntity() != null && response.getEntity().getContentLength() > 0) {
+                    hostMetrics.getBytesReceived().inc(response.getEntity().getContentLength());
+                }
+
+                try {
+                    asyncHttpClientService.getCompletionExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            complete(httpMethod, config, response, result);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    result.setException(new HttpCallException(
+                            format("error, %s call to %s rejected by saturated completion executor",
+                                    httpMethod, config.getUrl()), e));
+                }
+            }
+
+            @Override
+            public void failed(final Exception e) {
+                hostMetrics.onError(context);
+                stop(endpoint);
+
+                String msg = format("error, %s call to %s failed", httpMethod, config.getUrl());
+
+                LOGGER.error(msg, e);
+
+                result.setException(new HttpCallException(msg, e));
+            }
+
+            @Override
+            public void cancelled() {
+                hostMetrics.onError(context);
+                stop(endpoint);
+                result.cancel(false);
+            }
+        };
+        final Future<HttpResponse> exchange;
+
+        try {
+            exchange = asyncHttpClientService.getClient().execute(request, callback);
+        } catch (RuntimeException e) {
+            // not running, or its reactor stopped
+            hostMetrics.onError(context);
+            stop(endpoint);
+
+            return immediateFailedFuture(e);
+        }
+
+        // propagate caller cancellation to the in-flight exchange so its connection is released
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) {
+                    exchange.cancel(true);
+                }
+            }
+        }, directExecutor());
+
+        return result;
+    }
+
+    private static void stop(final Timer.Context endpoint) {
+        if (endpoint != null) {
+            endpoint.stop();
+        }
+    }
+
+    private void complete(final String httpMethod, final HttpCallConfig<T> config, final HttpResponse response,
+                          final SettableFuture<T> result) {
+        int status = response.getStatusLine().getStatusCode();
+
+        if (status != config.getExpectedStatus()) {
+            String msg = format("error, %s call to %s returned status was %s expecting status = %s", httpMethod,
+                    config.getUrl(), status, config.getExpectedStatus());
+
+            LOGGER.error(msg);
+
+            EntityUtils.consumeQuietly(response.getEntity());
+            result.setException(new HttpCallException(msg));
+
+            return;
+        }
+
+        try {
+            result.set(toEntity(response, config));
+        } catch (IOException | RuntimeException e) {
+            result.setException(new HttpCallException(format("error, unable to read %s response from %s",
+                    httpMethod, config.getUrl()), e));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T toEntity(final HttpResponse response, final HttpCallConfig<T> config) throws IOException {
+        Class<T> toMap = config.getToMap();
+
+        if (toMap == null || HttpResponse.class.isAssignableFrom(toMap)) {
+            return (T) response;
+        }
+
+        HttpEntity entity = response.getEntity();
+
+        if (entity == null) {
+            return null;
+        } else if (String.class == toMap) {
+            return (T) EntityUtils.toString(entity, UTF_8);
+        } else if (byte[].class == toMap) {
+            return (T) EntityUtils.toByteArray(entity);
+        }
+
+        try (InputStream in = entity.getContent()) {
+            if (config.getCodec().isPresent()) {
+                return config.getCodec().get().decode(in,
+                        entity.getContentType() == null ? null : entity.getContentType().getValue(), toMap);
+            }
+
+            return MAPPER.readValue(in, toMap);
+        }
+    }
+
+    private HttpRequestBase toRequest(final String httpMethod, final HttpCallConfig<T> config) {
+        checkSupported(httpMethod, config);
+
+        URI uri = toUri(config.getUrl(), config.getQueryParams());
+        HttpRequestBase request;
+
+        switch (httpMethod) {
+            case GET:
+                request = new HttpGet(uri);
+
+                break;
+            case POST:
+                request = withEntity(new HttpPost(uri), config);
+
+                break;
+            case PUT:
+                request = withEntity(new HttpPut(uri), config);
+
+                break;
+            case DELETE:
+                request = new HttpDelete(uri);
+
+                break;
+            default:
+                String msg = format("error, unsupported HTTP method called %s", httpMethod);
+
+                LOGGER.error(msg);
+
+                throw new UnsupportedOperationException(msg);
+        }
+
+        addHeaders(request, config.getHeaders(), Codecs.getAccept(config), Codecs.getType(config));
+
+        Deadline deadline = DeadlineFilter.getDeadline(config);
+
+        if (deadline != null) {
+            if (deadline.isExpired()) {
+                throw new HttpCallRejectedException(format("deadline exceeded, host: %s",
+                        ClientFilters.toHost(uri)));
+            }
+
+            request.setHeader(Deadline.HEADER, String.valueOf(deadline.getRemainingMillis()));
+        }
+
+        request.setConfig(toRequestConfig(config, deadline));
+
+        return request;
+    }
+
+    // policies applied by the blocking clients' filters only
+    private static void checkSupported(final String httpMethod, final HttpCallConfig<?> config) {
+        String policy = config.getRateLimitPolicy().isPresent() ? "rate limit" :
+                config.getConcurrencyLimitPolicy().isPresent() ? "concurrency limit" :
+                config.getIsolationPolicy().isPresent() ? "isolation" :
+                config.getLoadBalancingPolicy().isPresent() ? "load balancing" :
+                config.getRetryPolicy().isPresent() ? "retry" :
+                config.getCompressionPolicy().isPresent() ? "compression" :
+                config.getResponseCache().isPresent() ? "response cache" : null;
+
+        if (policy != null) {
+            String msg = format("error, unsupported %s policy for %s call to %s", policy, httpMethod,
+                    config.getUrl());
+
+            LOGGER.error(msg);
+
+            throw new UnsupportedOperationException(msg);
+        }
+    }
+
+    private static URI toUri(final String url, final Map<String, String> queryParams) {
+        try {
+            URIBuilder uriBuilder = new URIBuilder(url);
+
+            if (queryParams != null) {
+                for (Map.Entry<String, String> entry : queryParams.entrySet()) {
+                    uriBuilder.addParameter(entry.getKey(), entry.getValue());
+                }
+            }
+
+            return uriBuilder.build();
+        } catch (URISyntaxException e) {
+            throw new HttpCallException("error, invalid url " + url, e);
+        }
+    }
+
+    private static HttpRequestBase withEntity(final HttpEntityEnclosingRequestBase request,
+                                              final HttpCallConfig<?> config) {
+        if (!config.getData().isPresent()) {
+            return request;
+        }
+
+        Object data = config.getData().get();
+        AbstractHttpEntity entity;
+
+        try {
+            if (data instanceof String) {
+                entity = new StringEntity((String) data, UTF_8);
+            } else if (data instanceof byte[]) {
+                entity = new NByteArrayEntity((byte[]) data);
+            } else if (data instanceof Path && ((Path) data).getFileSystem() == FileSystems.getDefault()) {
+                // sent with FileChannel.transferTo straight to the connection unless TLS is in between
+                entity = new NFileEntity(((Path) data).toFile());
+            } else if (RequestBodies.isBody(data.getClass())) {
+                entity = new RequestBodies.AsyncEntity(RequestBodies.toByteBuffer(data));
+            } else if (config.getCodec().isPresent()) {
+                entity = new ByteArrayEntity(config.getCodec().get().encode(data));
+            } else {
+                entity = new ByteArrayEntity(MAPPER.writeValueAsBytes(data));
+            }
+        } catch (IOException e) {
+            throw new HttpCallException("error, unable to serialize payload for " + config.getUrl(), e);
+        }
+
+        if (Codecs.getType(config) != null) {
+            entity.setContentType(Codecs.getType(config));
+        }
+
+        request.setEntity(entity);
+
+        return request;
+    }
+
+    private static void addHeaders(final HttpRequestBase request, final Map<String, String> headers,
+                                   final String accept, final String type) {
+        if (accept != null) {
+            request.setHeader(ACCEPT, accept);
+        }
+
+        if (headers != null) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                request.addHeader(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (type != null) {
+            request.setHeader(CONTENT_TYPE, type);
+        }
+    }
+
+    // timeouts are capped to the remaining time budget of the deadline, if any, as the request is submitted
+    private static RequestConfig toRequestConfig(final HttpCallConfig<?> config, final Deadline deadline) {
+        RequestConfig.Builder requestConfig = RequestConfig.custom();
+
+        if (deadline != null) {
+            requestConfig.setConnectTimeout(deadline.cap(config.getConnectionTimeout().or(-1)));
+            requestConfig.setSocketTimeout(deadline.cap(config.getReadTimeOut().or(-1)));
+        } else {
+            if (config.getConnectionTimeout().or(-1) > 0) {
+                requestConfig.setConnectTimeout(config.getConnectionTimeout().get());
+            }
+
+            if (config.getReadTimeOut().or(-1) > 0) {
+                requestConfig.setSocketTimeout(config.getReadTimeOut().get());
+            }
+        }
+
+        if (config.getProxyURL().isPresent()) {
+            requestConfig.setProxy(new HttpHost(config.getProxyURL().get(), config.getProxyPort()));
+        }
+
+        return requestConfig.build();
+    }
+
+    @Override
+    public ListenableFuture<T> doGet(final HttpCallConfig<T> httpCallConfig) {
+        return makeRequest(GET, httpCallConfig);
+    }
+
+    @Override
+    public ListenableFuture<T> doPost(final HttpCallConfig<T> httpCallConfig) {
+        return makeRequest(POST, httpCallConfig);
+    }
+
+    @Override
+    public ListenableFuture<T> doPut(final HttpCallConfig<T> httpCallConfig) {
+        return makeRequest(PUT, httpCallConfig);
+    }
+
+    @Override
+    public ListenableFuture<T> doDelete(final HttpCallConfig<T> httpCallConfig) {
+        return makeRequest(DELETE, httpCallConfig);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.http.impl.nio.client.HttpAsyncClients.custom;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A lifecycle provider for the non-blocking HTTP/S engine backing {@link AsyncHttpCallImpl}.
+ *
+ * Requests are multiplexed over a small, fixed number of I/O reactor threads; response materialization is handed off
+ * to a bounded completion executor so slow deserialization never stalls the reactor.
+ */
+
+public class AsyncHttpClientService extends AbstractIdleService {
+
+    static final String METRIC_SCOPE = "async";
+    private static final Logger LOGGER = getLogger(AsyncHttpClientService.class);
+    private static final int DEFAULT_MAX_CONNECTIONS = 200;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final int DEFAULT_COMPLETION_QUEUE_SIZE = 1024;
+    private static final List<String> POOL_GAUGES = ImmutableList.of("leased", "available", "pending", "max");
+    private final int ioThreadCount;
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final int completionThreadCount;
+    private final int completionQueueSize;
+    private CloseableHttpAsyncClient client;
+    private ThreadPoolExecutor completionExecutor;
+
+    /**
+     * Constructor with defaults sized to the available processors.
+     */
+
+    @Inject
+    public AsyncHttpClientService() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE,
+                Runtime.getRuntime().availableProcessors(), DEFAULT_COMPLETION_QUEUE_SIZE);
+    }
+
+    /**
+     * Constructor with configurable state.
+     *
+     * @param ioThreadCount I/O reactor thread count
+     * @param maxConnections maximum pooled connections
+     * @param maxConnectionsPerRoute maximum pooled connections per host
+     * @param completionThreadCount response completion thread count
+     * @param completionQueueSize response completion queue bound
+     */
+
+    public AsyncHttpClientService(final int ioThreadCount, final int maxConnections, final int maxConnectionsPerRoute,
+                                  final int completionThreadCount, final int completionQueueSize) {
+        LOGGER.debug("instantiating {}", serviceName());
+
+        this.ioThreadCount = ioThreadCount;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.completionThreadCount = completionThreadCount;
+        this.completionQueueSize = completionQueueSize;
+
+        LOGGER.debug("instantiated {}", serviceName());
+    }
+
+    /**
+     * Instance lifecycle start hook.
+     *
+     * @throws Exception unintended exception
+     */
+
+    @Override
+    protected void startUp() throws Exception {
+        if (client != null) {
+            LOGGER.info("already started {}", serviceName());
+
+            return;
+        }
+
+        LOGGER.info("starting {}", serviceName());
+
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreadCount)
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager =
+                new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        completionExecutor = new ThreadPoolExecutor(completionThreadCount, completionThreadCount, 60, SECONDS,
+                new ArrayBlockingQueue<Runnable>(completionQueueSize),
+                new ThreadFactoryBuilder().setNameFormat("autumn-async-http-%d").setDaemon(true).build(),
+                new AbortPolicy());
+        client = custom().setConnectionManager(connectionManager).build();
+
+        client.start();
+        registerPoolGauges(connectionManager);
+
+        LOGGER.info("started {}", serviceName());
+    }
+
+    /**
+     * Instance lifecycle stop hook.
+     *
+     * @throws Exception unintended exception
+     */
+
+    @Override
+    protected void shutDown() throws Exception {
+        if (client == null) {
+            LOGGER.info("already stopped {}", serviceName());
+
+            return;
+        }
+
+        LOGGER.info("stopping {}", serviceName());
+
+        try {
+            for (String name : POOL_GAUGES) {
+                ClientMetrics.getInstance().remove(ClientMetrics.toName(METRIC_SCOPE, "pool", name));
+            }
+
+            client.close();
+        } finally {
+            completionExecutor.shutdown();
+            client = null;
+            completionExecutor = null;
+        }
+
+        LOGGER.info("stopped {}", serviceName());
+    }
+
+    /**
+     * Non-blocking client getter.
+     *
+     * @return started non-blocking client
+     * @throws IllegalStateException if the service is not running
+     */
+
+    CloseableHttpAsyncClient getClient() {
+        if (client == null) {
+            throw new IllegalStateException(serviceName() + " is not running");
+        }
+
+        return client;
+    }
+
+    /**
+     * Bounded response completion executor getter.
+     *
+     * @return completion executor
+     * @throws IllegalStateException if the service is not running
+     */
+
+    Executor getCompletionExecutor() {
+        if (completionExecutor == null) {
+            throw new IllegalStateException(serviceName() + " is not running");
+        }
+
+        return completionExecutor;
+    }
+
+    private static void registerPoolGauges(final PoolingNHttpClientConnectionManager connectionManager) {
+        ClientMetrics metrics = ClientMetrics.getInstance();
+
+        for (final String name : POOL_GAUGES) {
+            metrics.add(ClientMetrics.toName(METRIC_SCOPE, "pool", name), new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    PoolStats stats = connectionManager.getTotalStats();
+
+                    switch (name) {
+                        case "leased":
+                            return stats.getLeased();
+                        case "available":
+                            return stats.getAvailable();
+                        case "pending":
+                            return stats.getPending();
+                        default:
+                            return stats.getMax();
+                    }
+                }
+            });
+        }
+    }
+}
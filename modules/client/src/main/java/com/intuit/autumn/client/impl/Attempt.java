@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+/**
+ * A single attempt at sending a request, which another thread may abort, e.g. once a hedged attempt has won.
+ *
+ * The attempt is bound to the thread sending it, see {@link #attach(Attempt)}, from where the transport registers how
+ * the exchange in flight is cut off, see {@link #onAbort(Runnable)}.
+ */
+
+final class Attempt {
+
+    private static final ThreadLocal<Attempt> CURRENT = new ThreadLocal<>();
+    private Runnable abortAction;
+    private boolean aborted;
+
+    /**
+     * Whether the attempt bound to the current thread, if any, has been aborted.
+     *
+     * @return true if aborted
+     */
+
+    static boolean isCurrentAborted() {
+        Attempt attempt = CURRENT.get();
+
+        return attempt != null && attempt.isAborted();
+    }
+
+    /**
+     * Bind an attempt to the current thread, until detached.
+     *
+     * @param attempt attempt, or null to unbind
+     * @return previously bound attempt, to be restored with {@link #detach(Attempt)}
+     */
+
+    static Attempt attach(final Attempt attempt) {
+        Attempt previous = CURRENT.get();
+
+        if (attempt == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(attempt);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Restore the attempt bound to the current thread before {@link #attach(Attempt)}.
+     *
+     * @param previous previously bound attempt
+     */
+
+    static void detach(final Attempt previous) {
+        attach(previous);
+    }
+
+    /**
+     * Register how the exchange of the attempt bound to the current thread is cut off, if any. The action runs at once
+     * if the attempt has already been aborted.
+     *
+     * @param action abort action
+     */
+
+    static void onAbort(final Runnable action) {
+        Attempt attempt = CURRENT.get();
+
+        if (attempt == null) {
+            return;
+        }
+
+        synchronized (attempt) {
+            attempt.abortAction = action;
+
+            if (!attempt.aborted) {
+                return;
+            }
+        }
+
+        action.run();
+    }
+
+    /**
+     * Abort the attempt, cutting off its exchange if one is in flight.
+     */
+
+    void abort() {
+        Runnable action;
+
+        synchronized (this) {
+            if (aborted) {
+                return;
+            }
+
+            aborted = true;
+            action = abortAction;
+        }
+
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    /**
+     * Aborted getter.
+     *
+     * @return aborted value
+     */
+
+    synchronized boolean isAborted() {
+        return aborted;
+    }
+}
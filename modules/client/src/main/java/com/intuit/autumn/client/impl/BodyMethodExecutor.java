@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.client.apache.DefaultApacheHttpMethodExecutor;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Executes requests whose entity is a first class body, see {@link RequestBodies}, with the body streamed straight
+ * to the connection under a Content-Length, rather than first buffered in full on the heap as Jersey does for any
+ * entity not sent chunked. Other requests are executed as is.
+ *
+ * An aborted {@link Attempt} aborts the method in flight.
+ */
+
+final class BodyMethodExecutor extends DefaultApacheHttpMethodExecutor {
+
+    /**
+     * Constructor.
+     *
+     * @param client executing client
+     */
+
+    BodyMethodExecutor(final HttpClient client) {
+        super(client);
+    }
+
+    @Override
+    public void executeMethod(final HttpMethod method, final ClientRequest request) {
+        Attempt.onAbort(new Runnable() {
+            @Override
+            public void run() {
+                method.abort();
+            }
+        });
+
+        Object entity = request.getEntity();
+
+        if (entity == null || !(method instanceof EntityEnclosingMethod) || !RequestBodies.isBody(entity.getClass())) {
+            super.executeMethod(method, request);
+
+            return;
+        }
+
+        long length;
+
+        try {
+            length = RequestBodies.getLength(entity);
+        } catch (IOException e) {
+            throw new ClientHandlerException(e);
+        }
+
+        ((EntityEnclosingMethod) method).setRequestEntity(new BodyRequestEntity(request, entity, length));
+
+        // the entity is cleared so that Jersey applies only the headers and properties, keeping the one set above
+        request.setEntity(null);
+
+        try {
+            super.executeMethod(method, request);
+        } finally {
+            request.setEntity(entity);
+        }
+    }
+
+    private static final class BodyRequestEntity implements RequestEntity {
+
+        private final ClientRequest request;
+        private final Object body;
+        private final long length;
+
+        private BodyRequestEntity(final ClientRequest request, final Object body, final long length) {
+            this.request = request;
+            this.body = body;
+            this.length = length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public void writeRequest(final OutputStream out) throws IOException {
+            RequestBodies.write(request, body, out);
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public String getContentType() {
+            // set from the request headers
+            return null;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.intuit.autumn.client.IsolationPolicy;
+
+import static com.intuit.autumn.client.impl.CircuitBreaker.Permit.CALL;
+import static com.intuit.autumn.client.impl.CircuitBreaker.Permit.REJECTED;
+import static com.intuit.autumn.client.impl.CircuitBreaker.Permit.TRIAL;
+import static com.intuit.autumn.client.impl.CircuitBreaker.State.CLOSED;
+import static com.intuit.autumn.client.impl.CircuitBreaker.State.HALF_OPEN;
+import static com.intuit.autumn.client.impl.CircuitBreaker.State.OPEN;
+
+/**
+ * A count based circuit breaker over the most recent calls.
+ */
+
+final class CircuitBreaker {
+
+    /**
+     * Circuit states.
+     */
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Call admissions, only the trial call decides whether a half open circuit closes or opens again.
+     */
+
+    enum Permit {
+        REJECTED, CALL, TRIAL
+    }
+
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+    private final IsolationPolicy policy;
+    private final byte[] window;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+    private int next;
+    private State state = CLOSED;
+    private long openedAt;
+    private boolean trial;
+
+    /**
+     * Constructor.
+     *
+     * @param policy breaker settings
+     */
+
+    CircuitBreaker(final IsolationPolicy policy) {
+        this.policy = policy;
+        this.window = new byte[Math.max(1, policy.getWindowSize())];
+    }
+
+    /**
+     * Request permission to call, admitting a single trial call once the open period has elapsed.
+     *
+     * @param now current epoch milliseconds
+     * @return permit to pass back with the call outcome, rejected if the call may not proceed
+     */
+
+    synchronized Permit tryAcquire(final long now) {
+        switch (state) {
+            case CLOSED:
+                return CALL;
+            case OPEN:
+                if (now - openedAt < policy.getOpenMillis()) {
+                    return REJECTED;
+                }
+
+                state = HALF_OPEN;
+                trial = false;
+
+                // fall through, admitting the trial call
+            default:
+                if (trial) {
+                    return REJECTED;
+                }
+
+                trial = true;
+
+                return TRIAL;
+        }
+    }
+
+    /**
+     * Release an admitted call that was not sent, recording no outcome; a cancelled trial admits another.
+     *
+     * @param permit permit the call was admitted with
+     */
+
+    synchronized void onCancel(final Permit permit) {
+        if (permit == TRIAL) {
+            trial = false;
+        }
+    }
+
+    /**
+     * Record a call outcome, ignoring calls admitted before the circuit opened while it is not closed.
+     *
+     * @param permit permit the call was admitted with
+     * @param failure whether the call failed
+     * @param slow whether the call was slow
+     * @param now current epoch milliseconds
+     */
+
+    synchronized void onComplete(final Permit permit, final boolean failure, final boolean slow, final long now) {
+        if (permit == TRIAL) {
+            trial = false;
+
+            if (failure || slow) {
+                open(now);
+            } else {
+                reset();
+            }
+
+            return;
+        } else if (state != CLOSED) {
+            return;
+        }
+
+        if (calls == window.length) {
+            byte evicted = window[next];
+
+            failures -= evicted & FAILURE;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            calls++;
+        }
+
+        window[next] = (byte) ((failure ? FAILURE : 0) | (slow ? SLOW : 0));
+        failures += failure ? 1 : 0;
+        slowCalls += slow ? 1 : 0;
+        next = (next + 1) % window.length;
+
+        if (calls >= policy.getMinimumCalls() && (failures >= policy.getFailureRateThreshold() * calls ||
+                slowCalls >= policy.getSlowCallRateThreshold() * calls)) {
+            open(now);
+        }
+    }
+
+    /**
+     * state getter.
+     *
+     * @return state value
+     */
+
+    synchronized State getState() {
+        return state;
+    }
+
+    private void open(final long now) {
+        state = OPEN;
+        openedAt = now;
+    }
+
+    private void reset() {
+        state = CLOSED;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+        next = 0;
+    }
+}
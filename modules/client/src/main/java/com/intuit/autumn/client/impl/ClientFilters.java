@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.collect.ImmutableSet;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.WebResource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+import static com.google.common.base.Throwables.getCausalChain;
+import static javax.ws.rs.HttpMethod.DELETE;
+import static javax.ws.rs.HttpMethod.GET;
+import static javax.ws.rs.HttpMethod.HEAD;
+import static javax.ws.rs.HttpMethod.OPTIONS;
+import static javax.ws.rs.HttpMethod.PUT;
+
+/**
+ * Installs the Jersey client filters shared by the blocking client implementations.
+ *
+ * Filters are installed once per client and may therefore be shared by concurrent requests; per request settings are
+ * read from the {@link HttpCallConfig} bound to the request properties.
+ */
+
+final class ClientFilters {
+
+    static final String CONFIG_PROPERTY = HttpCallConfig.class.getName();
+    private static final Set<String> IDEMPOTENT = ImmutableSet.of(GET, HEAD, OPTIONS, PUT, DELETE);
+    private static final int HTTP_PORT = 80;
+    private static final int HTTPS_PORT = 443;
+
+    private ClientFilters() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Install the client filter chain.
+     *
+     * @param client client to be filtered
+     * @return filtered client
+     */
+
+    static Client install(final Client client) {
+        // the last filter added handles requests first: cache, content coding, retries, rate limit, endpoint selection,
+        // adaptive concurrency limit, isolation, deadline, then metrics of each attempt
+        client.addFilter(new MetricsFilter());
+        client.addFilter(new DeadlineFilter());
+        client.addFilter(new IsolationFilter());
+        client.addFilter(new ConcurrencyLimitFilter());
+        client.addFilter(new LoadBalancingFilter());
+        client.addFilter(new RateLimitFilter());
+        client.addFilter(new RetryFilter());
+        client.addFilter(new CompressionFilter());
+        client.addFilter(new HttpCacheFilter(client.getMessageBodyWorkers()));
+
+        return client;
+    }
+
+    /**
+     * Bind the request configuration to a resource.
+     *
+     * @param webResource request resource
+     * @param config request configuration
+     * @return request resource
+     */
+
+    static WebResource bind(final WebResource webResource, final HttpCallConfig<?> config) {
+        webResource.setProperty(CONFIG_PROPERTY, config);
+
+        return webResource;
+    }
+
+    /**
+     * Bound request configuration getter.
+     *
+     * @param request filtered request
+     * @return request configuration, or null if none was bound
+     */
+
+    static HttpCallConfig<?> getConfig(final ClientRequest request) {
+        Object config = request.getProperties().get(CONFIG_PROPERTY);
+
+        return config instanceof HttpCallConfig ? (HttpCallConfig<?>) config : null;
+    }
+
+    /**
+     * Whether a request method is idempotent, i.e. the request may be resent.
+     *
+     * @param method request method
+     * @return true if idempotent
+     */
+
+    static boolean isIdempotent(final String method) {
+        return IDEMPOTENT.contains(method);
+    }
+
+    /**
+     * Whether a failed attempt is to be held against the host it was meant for: requests rejected locally without
+     * being sent, e.g. by a full bulkhead, an open circuit or an expired deadline, and attempts aborted by the client,
+     * e.g. a hedge losing, are not.
+     *
+     * @param e attempt failure
+     * @return true if the failure counts against the host
+     */
+
+    static boolean isHostFailure(final RuntimeException e) {
+        return !(e instanceof HttpCallRejectedException) && !Attempt.isCurrentAborted();
+    }
+
+    /**
+     * Whether a failed attempt is a transport failure of the host it was sent to, i.e. an I/O error or timeout, rather
+     * than e.g. an entity that could not be written or read.
+     *
+     * @param e attempt failure
+     * @return true if the attempt failed in transport
+     */
+
+    static boolean isTransportFailure(final RuntimeException e) {
+        if (!isHostFailure(e)) {
+            return false;
+        }
+
+        for (Throwable cause : getCausalChain(e)) {
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Request host and port, the port defaulting by scheme.
+     *
+     * @param uri request uri
+     * @return host and port
+     */
+
+    static String toHost(final URI uri) {
+        int port = uri.getPort() < 0 ? ("https".equalsIgnoreCase(uri.getScheme()) ? HTTPS_PORT : HTTP_PORT) :
+                uri.getPort();
+
+        return uri.getHost() + ':' + port;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Process-wide client metrics, published to a {@link MetricRegistry} once one is attached by the
+ * {@link ClientMetricsService}. Metrics created before a registry is attached are retained and registered on attach.
+ *
+ * Request metrics are bounded: hosts beyond {@link #MAXIMUM_HOSTS}, and endpoint templates beyond
+ * {@link #MAXIMUM_ENDPOINTS}, are aggregated under {@link #OTHER}.
+ */
+
+final class ClientMetrics {
+
+    static final String PREFIX = "autumn.client";
+    static final String OTHER = "other";
+    static final int MAXIMUM_HOSTS = 256;
+    static final int MAXIMUM_ENDPOINTS = 1024;
+    private static final ClientMetrics INSTANCE = new ClientMetrics();
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> endpoints = new ConcurrentHashMap<>();
+    private final int maximumHosts;
+    private final int maximumEndpoints;
+    private MetricRegistry metricRegistry;
+
+    /**
+     * Constructor.
+     */
+
+    ClientMetrics() {
+        this(MAXIMUM_HOSTS, MAXIMUM_ENDPOINTS);
+    }
+
+    /**
+     * Constructor with configurable state.
+     *
+     * @param maximumHosts maximum distinct hosts
+     * @param maximumEndpoints maximum distinct endpoint templates
+     */
+
+    ClientMetrics(final int maximumHosts, final int maximumEndpoints) {
+        this.maximumHosts = maximumHosts;
+        this.maximumEndpoints = maximumEndpoints;
+    }
+
+    /**
+     * Process-wide metrics getter.
+     *
+     * @return shared metrics
+     */
+
+    static ClientMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Metric name builder, scoped to the client prefix. Name parts are sanitized so that host names and ports do not
+     * introduce additional name segments.
+     *
+     * @param scope metric scope, e.g. a host
+     * @param names metric name parts
+     * @return metric name
+     */
+
+    static String toName(final String scope, final String... names) {
+        String[] parts = new String[names.length + 1];
+
+        parts[0] = scope;
+        System.arraycopy(names, 0, parts, 1, names.length);
+
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].replaceAll("[.:/ ]", "_");
+        }
+
+        return name(PREFIX, parts);
+    }
+
+    /**
+     * Per host request metrics getter.
+     *
+     * @param host host and port
+     * @return host metrics
+     */
+
+    HostMetrics getHostMetrics(final String host) {
+        HostMetrics hostMetrics = hosts.get(host);
+
+        if (hostMetrics != null) {
+            return hostMetrics;
+        }
+
+        synchronized (hosts) {
+            hostMetrics = hosts.get(host);
+
+            if (hostMetrics == null) {
+                if (hosts.size() >= maximumHosts && !OTHER.equals(host)) {
+                    return getHostMetrics(OTHER);
+                }
+
+                hostMetrics = new HostMetrics(this, host);
+                hosts.put(host, hostMetrics);
+            }
+
+            return hostMetrics;
+        }
+    }
+
+    /**
+     * Per endpoint template request timer getter.
+     *
+     * @param host host and port
+     * @param httpMethod request method
+     * @param endpointTemplate endpoint template, e.g. /users/{id}
+     * @return endpoint timer
+     */
+
+    Timer getEndpointTimer(final String host, final String httpMethod, final String endpointTemplate) {
+        String name = toName(host, "endpoints", httpMethod, endpointTemplate);
+        Timer timer = endpoints.get(name);
+
+        if (timer != null) {
+            return timer;
+        }
+
+        synchronized (endpoints) {
+            timer = endpoints.get(name);
+
+            if (timer == null) {
+                if (endpoints.size() >= maximumEndpoints) {
+                    name = toName(OTHER, "endpoints", OTHER);
+                    timer = endpoints.get(name);
+
+                    if (timer != null) {
+                        return timer;
+                    }
+                }
+
+                timer = add(name, new Timer());
+                endpoints.put(name, timer);
+            }
+
+            return timer;
+        }
+    }
+
+    /**
+     * Add a metric unless one is already registered under that name.
+     *
+     * @param name metric name
+     * @param metric candidate metric
+     * @param <T> metric type
+     * @return registered metric
+     */
+
+    @SuppressWarnings("unchecked")
+    synchronized <T extends Metric> T add(final String name, final T metric) {
+        Metric existing = metrics.putIfAbsent(name, metric);
+
+        if (existing != null) {
+            return (T) existing;
+        }
+
+        if (metricRegistry != null) {
+            metricRegistry.register(name, metric);
+        }
+
+        return metric;
+    }
+
+    /**
+     * Metric getter.
+     *
+     * @param name metric name
+     * @return metric, or null if absent
+     */
+
+    Metric get(final String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * Remove a metric.
+     *
+     * @param name metric name
+     */
+
+    synchronized void remove(final String name) {
+        if (metrics.remove(name) != null && metricRegistry != null) {
+            metricRegistry.remove(name);
+        }
+    }
+
+    /**
+     * Remove a metric, if still registered under that name.
+     *
+     * @param name metric name
+     * @param metric registered metric
+     */
+
+    synchronized void remove(final String name, final Metric metric) {
+        if (metrics.remove(name, metric) && metricRegistry != null) {
+            metricRegistry.remove(name);
+        }
+    }
+
+    /**
+     * Attach a registry, registering all known metrics with it.
+     *
+     * @param metricRegistry target registry
+     */
+
+    synchronized void attach(final MetricRegistry metricRegistry) {
+        detach();
+
+        this.metricRegistry = metricRegistry;
+
+        for (Map.Entry<String, Metric> metric : metrics.entrySet()) {
+            metricRegistry.register(metric.getKey(), metric.getValue());
+        }
+    }
+
+    /**
+     * Detach the current registry, if any, removing all known metrics from it.
+     */
+
+    synchronized void detach() {
+        if (metricRegistry == null) {
+            return;
+        }
+
+        for (String name : metrics.keySet()) {
+            metricRegistry.remove(name);
+        }
+
+        metricRegistry = null;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.inject.Inject;
+import org.slf4j.Logger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A lifecycle provider publishing the HTTP/S client metrics to the application {@link MetricRegistry}, e.g. the one
+ * bound by the MetricsModule.
+ */
+
+public class ClientMetricsService extends AbstractIdleService {
+
+    private static final Logger LOGGER = getLogger(ClientMetricsService.class);
+    private final MetricRegistry metricRegistry;
+
+    /**
+     * Client metrics constructor with configurable state.
+     *
+     * @param metricRegistry java-metrics registry
+     */
+
+    @Inject
+    public ClientMetricsService(final MetricRegistry metricRegistry) {
+        LOGGER.debug("instantiating {}", serviceName());
+
+        this.metricRegistry = metricRegistry;
+
+        LOGGER.debug("instantiated {}", serviceName());
+    }
+
+    /**
+     * Instance lifecycle start hook.
+     *
+     * @throws Exception unintended exception
+     */
+
+    @Override
+    protected void startUp() throws Exception {
+        LOGGER.info("starting {}", serviceName());
+
+        ClientMetrics.getInstance().attach(metricRegistry);
+
+        LOGGER.info("started {}", serviceName());
+    }
+
+    /**
+     * Instance lifecycle stop hook.
+     *
+     * @throws Exception unintended exception
+     */
+
+    @Override
+    protected void shutDown() throws Exception {
+        LOGGER.info("stopping {}", serviceName());
+
+        ClientMetrics.getInstance().detach();
+
+        LOGGER.info("stopped {}", serviceName());
+    }
+}
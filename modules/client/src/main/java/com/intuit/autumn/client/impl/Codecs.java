@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpCodec;
+import com.sun.jersey.api.client.ClientResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.lang.String.format;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+
+/**
+ * Applies the {@link HttpCodec} configured with {@link HttpCallConfig#getCodec()}, if any, to request and response
+ * entities.
+ */
+
+final class Codecs {
+
+    private Codecs() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Request entity, encoded by the codec unless already raw.
+     *
+     * @param config request configuration
+     * @return entity, or null if none
+     */
+
+    static Object toEntity(final HttpCallConfig<?> config) {
+        return toEntity(config, config.getData().orNull());
+    }
+
+    /**
+     * Request entity, encoded by the configured codec unless already raw.
+     *
+     * @param config request configuration
+     * @param data payload, or null if none
+     * @return entity, or null if none
+     */
+
+    static Object toEntity(final HttpCallConfig<?> config, final Object data) {
+        if (data == null || !config.getCodec().isPresent() || isRaw(data.getClass())) {
+            return data;
+        }
+
+        try {
+            return config.getCodec().get().encode(data);
+        } catch (IOException e) {
+            throw new HttpCallException(format("error, unable to encode payload for %s", config.getUrl()), e);
+        }
+    }
+
+    /**
+     * Request content type, defaulting to the codec's for an encoded entity.
+     *
+     * @param config request configuration
+     * @return content type, or null if none
+     */
+
+    static String getType(final HttpCallConfig<?> config) {
+        return getType(config, config.getData().orNull());
+    }
+
+    /**
+     * Request content type, defaulting to the configured codec's for an encoded entity.
+     *
+     * @param config request configuration
+     * @param data payload, or null if none
+     * @return content type, or null if none
+     */
+
+    static String getType(final HttpCallConfig<?> config, final Object data) {
+        if (config.getType() != null || !config.getCodec().isPresent() || data == null || isRaw(data.getClass())) {
+            return config.getType();
+        }
+
+        return config.getCodec().get().getContentType();
+    }
+
+    /**
+     * Request accept type, defaulting to the codec's.
+     *
+     * @param config request configuration
+     * @return accept type, or null if none
+     */
+
+    static String getAccept(final HttpCallConfig<?> config) {
+        if (config.getAccept() != null || !config.getCodec().isPresent()) {
+            return config.getAccept();
+        }
+
+        return config.getCodec().get().getAccept();
+    }
+
+    /**
+     * Whether the response is decoded by the codec rather than the Jersey entity mapping.
+     *
+     * @param config request configuration
+     * @return true if a codec is configured and the response type is neither raw nor a response
+     */
+
+    static boolean isDecoded(final HttpCallConfig<?> config) {
+        Class<?> toMap = config.getToMap();
+
+        return config.getCodec().isPresent() && toMap != null && !isRaw(toMap) && ClientResponse.class != toMap &&
+                !ResponseStreams.isStream(toMap);
+    }
+
+    /**
+     * Decode a response, closing it.
+     *
+     * @param response response
+     * @param config request configuration
+     * @param <T> a typed HTTP/S response object
+     * @return decoded entity
+     */
+
+    static <T> T decode(final ClientResponse response, final HttpCallConfig<T> config) {
+        try (InputStream in = response.getEntityInputStream()) {
+            return config.getCodec().get().decode(in, response.getHeaders().getFirst(CONTENT_TYPE),
+                    config.getToMap());
+        } catch (IOException e) {
+            throw new HttpCallException(format("error, unable to decode response from %s", config.getUrl()), e);
+        } finally {
+            response.close();
+        }
+    }
+
+    // entities written as is
+    private static boolean isRaw(final Class<?> type) {
+        return String.class == type || InputStream.class.isAssignableFrom(type) || RequestBodies.isBody(type);
+    }
+}
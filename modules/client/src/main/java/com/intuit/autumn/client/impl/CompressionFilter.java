@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.base.Optional;
+import com.intuit.autumn.client.CompressionPolicy;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.core.util.ReaderWriter;
+
+import javax.ws.rs.core.MediaType;
+
+import static com.google.common.net.HttpHeaders.ACCEPT_ENCODING;
+import static com.google.common.net.HttpHeaders.CONTENT_ENCODING;
+import static com.google.common.net.HttpHeaders.CONTENT_LENGTH;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+
+/**
+ * Applies the gzip and deflate content coding configured with a {@link CompressionPolicy}.
+ *
+ * Responses are decoded as they are read, so that the response cache, the codecs and response streams all see the
+ * decoded body, whereas the metrics of each attempt count the encoded bytes on the wire. A request entity is encoded
+ * once, ahead of retries.
+ */
+
+class CompressionFilter extends ClientFilter {
+
+    private static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        HttpCallConfig<?> config = ClientFilters.getConfig(request);
+        Optional<CompressionPolicy> policy = config == null ?
+                Optional.<CompressionPolicy>absent() : config.getCompressionPolicy();
+
+        if (!policy.isPresent()) {
+            return getNext().handle(request);
+        }
+
+        boolean decompress = policy.get().getDecompressResponses() &&
+                !request.getHeaders().containsKey(ACCEPT_ENCODING);
+
+        if (decompress) {
+            request.getHeaders().putSingle(ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+        }
+
+        if (policy.get().getRequestEncoding() != null && !request.getHeaders().containsKey(CONTENT_ENCODING)) {
+            encode(request, policy.get());
+        }
+
+        ClientResponse response = getNext().handle(request);
+        String encoding = response.getHeaders().getFirst(CONTENT_ENCODING);
+
+        if (decompress && encoding != null && ContentCoding.isSupported(encoding)) {
+            response.setEntityInputStream(ContentCoding.decode(response.getEntityInputStream(), encoding));
+            response.getHeaders().remove(CONTENT_ENCODING);
+            response.getHeaders().remove(CONTENT_LENGTH);
+        }
+
+        return response;
+    }
+
+    private static void encode(final ClientRequest request, final CompressionPolicy policy) {
+        Object entity = request.getEntity();
+        byte[] data;
+
+        if (entity instanceof byte[]) {
+            data = (byte[]) entity;
+        } else if (entity instanceof String) {
+            data = ((String) entity).getBytes(ReaderWriter.getCharset(getType(request)));
+        } else {
+            return;
+        }
+
+        if (data.length < policy.getMinRequestSize()) {
+            return;
+        }
+
+        request.setEntity(ContentCoding.encode(data, policy.getRequestEncoding(), policy.getLevel()));
+        request.getHeaders().putSingle(CONTENT_ENCODING, policy.getRequestEncoding().getToken());
+    }
+
+    private static MediaType getType(final ClientRequest request) {
+        Object type = request.getHeaders().getFirst(CONTENT_TYPE);
+
+        if (type instanceof MediaType) {
+            return (MediaType) type;
+        }
+
+        return type == null ? null : MediaType.valueOf(ClientRequest.getHeaderValue(type));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.intuit.autumn.client.ConcurrencyLimitPolicy;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.lang.Thread.currentThread;
+
+/**
+ * Admits requests configured with a {@link ConcurrencyLimitPolicy} under a per host adaptive in-flight limit,
+ * rejecting them with a {@link HttpCallRejectedException} once the limit is reached and the maximum wait elapsed.
+ *
+ * The round trip time is sampled when the response headers are received, and the limit backs off on transport
+ * failures and 429, 503 and 504 statuses only. Limiters are kept per host in a {@link KeyedRegistry}, with
+ * "concurrency-limit.limit" and "concurrency-limit.in-flight" gauges and a "concurrency-limit.rejected" meter.
+ */
+
+class ConcurrencyLimitFilter extends ClientFilter {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final int GATEWAY_TIMEOUT = 504;
+    private static final KeyedRegistry<String, Host> HOSTS = new KeyedRegistry<>();
+    private final KeyedRegistry<String, Host> hosts;
+
+    /**
+     * Constructor, sharing the process-wide hosts.
+     */
+
+    ConcurrencyLimitFilter() {
+        this(HOSTS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param hosts limited hosts
+     */
+
+    ConcurrencyLimitFilter(final KeyedRegistry<String, Host> hosts) {
+        this.hosts = hosts;
+    }
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        HttpCallConfig<?> config = ClientFilters.getConfig(request);
+        Optional<ConcurrencyLimitPolicy> policy = config == null ?
+                Optional.<ConcurrencyLimitPolicy>absent() : config.getConcurrencyLimitPolicy();
+
+        if (!policy.isPresent()) {
+            return getNext().handle(request);
+        }
+
+        Host host = getHost(ClientFilters.toHost(request.getURI()), policy.get());
+        int admitted;
+
+        try {
+            admitted = host.limiter.acquire(policy.get().getMaxWaitMillis());
+        } catch (InterruptedException e) {
+            currentThread().interrupt();
+
+            throw new HttpCallRejectedException("interrupted awaiting concurrency limit", e);
+        }
+
+        if (admitted == 0) {
+            host.rejected.mark();
+
+            throw new HttpCallRejectedException(format("concurrency limit reached, host: %s, limit: %s", host.name,
+                    host.limiter.getLimit()));
+        }
+
+        long start = nanoTime();
+        ClientResponse response;
+
+        try {
+            response = getNext().handle(request);
+        } catch (RuntimeException e) {
+            if (ClientFilters.isTransportFailure(e)) {
+                host.limiter.release(nanoTime() - start, true, admitted);
+            } else {
+                host.limiter.cancel();
+            }
+
+            throw e;
+        } catch (Error e) {
+            host.limiter.cancel();
+
+            throw e;
+        }
+
+        host.limiter.release(nanoTime() - start, isDropped(response.getStatus()), admitted);
+
+        return response;
+    }
+
+    /**
+     * Current limit getter.
+     *
+     * @param host host and port
+     * @return in-flight request limit, or null for an unknown host
+     */
+
+    Integer getLimit(final String host) {
+        Host limited = hosts.getIfPresent(host);
+
+        return limited == null ? null : limited.limiter.getLimit();
+    }
+
+    private Host getHost(final String name, final ConcurrencyLimitPolicy policy) {
+        return hosts.get(name, new Callable<Host>() {
+            @Override
+            public Host call() {
+                return new Host(name, policy);
+            }
+        });
+    }
+
+    private static boolean isDropped(final int status) {
+        return status == TOO_MANY_REQUESTS || status == SERVICE_UNAVAILABLE || status == GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * A host's adaptive limiter.
+     */
+
+    static final class Host implements KeyedRegistry.Instrumented {
+
+        private final String name;
+        private final AdaptiveLimiter limiter;
+        private final Meter rejected = new Meter();
+        private final Map<String, Metric> metrics;
+
+        private Host(final String name, final ConcurrencyLimitPolicy policy) {
+            this.name = name;
+            this.limiter = new AdaptiveLimiter(policy);
+            this.metrics = ImmutableMap.<String, Metric>of(
+                    ClientMetrics.toName(name, "concurrency-limit", "limit"), new Gauge<Integer>() {
+                        @Override
+                        public Integer getValue() {
+                            return limiter.getLimit();
+                        }
+                    },
+                    ClientMetrics.toName(name, "concurrency-limit", "in-flight"), new Gauge<Integer>() {
+                        @Override
+                        public Integer getValue() {
+                            return limiter.getInFlight();
+                        }
+                    },
+                    ClientMetrics.toName(name, "concurrency-limit", "rejected"), rejected);
+        }
+
+        @Override
+        public Map<String, Metric> getMetrics() {
+            return metrics;
+        }
+    }
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.client.apache.ApacheHttpClient;
+import com.sun.jersey.client.apache.ApacheHttpClientHandler;
+import com.sun.jersey.client.apache.config.DefaultApacheHttpClientConfig;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.HttpConnectionManager;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.slf4j.Logger;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.sun.jersey.client.apache.config.ApacheHttpClientConfig.PROPERTY_PROXY_URI;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A process-wide registry of pooled HTTP/S clients.
+ *
+ * Exactly one connection pool is kept per distinct (scheme, host, port, proxy, timeouts, maximum connections per
+ * host) combination. Lookups are lock-free; concurrent first requests for the same key race to publish a pool and the
+ * losers discard theirs. However many pools there are, at most a maximum total of connections are leased at once
+ * across all of them, requests past it waiting for a connection as they would on a full pool. Idle connections are
+ * evicted in the background and all pools are released on {@link #shutdown()}, typically driven by
+ * {@link ConnectionPoolService}.
+ *
+ * Host names are resolved with a {@link DnsCache}, and pools may be warmed up ahead of the first requests, so that
+ * these do not pay for name resolution, connection establishment and TLS handshakes.
+ */
+
+public class ConnectionPoolRegistry {
+
+    static final int DEFAULT_MAX_CONNECTION_PER_HOST = 20;
+    static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 1024;
+    private static final Logger LOGGER = getLogger(ConnectionPoolRegistry.class);
+    private static final ConnectionPoolRegistry INSTANCE = new ConnectionPoolRegistry();
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30000L;
+    private static final long DEFAULT_EVICTION_INTERVAL_MILLIS = 5000L;
+    private static final int MAXIMUM_WARM_UP_THREADS = 16;
+    private final ConcurrentMap<PoolKey, Pool> pools = new ConcurrentHashMap<>();
+    private final AtomicReference<ScheduledExecutorService> evictor = new AtomicReference<>();
+    private final long idleTimeoutMillis;
+    private final long evictionIntervalMillis;
+    private final DnsCache dnsCache;
+    private final int maxTotalConnections;
+    private final Semaphore connections;
+
+    /**
+     * Constructor with default idle connection eviction.
+     */
+
+    public ConnectionPoolRegistry() {
+        this(DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_EVICTION_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Constructor with configurable idle connection eviction.
+     *
+     * @param idleTimeoutMillis idle time after which a pooled connection is closed
+     * @param evictionIntervalMillis idle connection sweep interval
+     */
+
+    public ConnectionPoolRegistry(final long idleTimeoutMillis, final long evictionIntervalMillis) {
+        this(idleTimeoutMillis, evictionIntervalMillis, DnsCache.getInstance());
+    }
+
+    /**
+     * Constructor with configurable state.
+     *
+     * @param idleTimeoutMillis idle time after which a pooled connection is closed
+     * @param evictionIntervalMillis idle connection sweep interval
+     * @param dnsCache host name resolution cache, or null to resolve host names per connection
+     */
+
+    public ConnectionPoolRegistry(final long idleTimeoutMillis, final long evictionIntervalMillis,
+                                  final DnsCache dnsCache) {
+        this(idleTimeoutMillis, evictionIntervalMillis, dnsCache, DEFAULT_MAX_TOTAL_CONNECTIONS);
+    }
+
+    /**
+     * Constructor with configurable state and process-wide connection cap.
+     *
+     * @param idleTimeoutMillis idle time after which a pooled connection is closed
+     * @param evictionIntervalMillis idle connection sweep interval
+     * @param dnsCache host name resolution cache, or null to resolve host names per connection
+     * @param maxTotalConnections connections leased at once across all pools
+     */
+
+    public ConnectionPoolRegistry(final long idleTimeoutMillis, final long evictionIntervalMillis,
+                                  final DnsCache dnsCache, final int maxTotalConnections) {
+        checkArgument(maxTotalConnections > 0, "non-positive maximum total connections");
+
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.evictionIntervalMillis = evictionIntervalMillis;
+        this.dnsCache = dnsCache;
+        this.maxTotalConnections = maxTotalConnections;
+        this.connections = new Semaphore(maxTotalConnections, true);
+    }
+
+    /**
+     * Process-wide registry getter.
+     *
+     * @return shared registry
+     */
+
+    public static ConnectionPoolRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Pooled client getter, creating the backing pool on first use.
+     *
+     * @param config request configuration
+     * @return shared, thread-safe client
+     */
+
+    public Client getClient(final HttpCallConfig<?> config) {
+        return getClient(config, URI.create(config.getUrl()));
+    }
+
+    /**
+     * Pooled client getter for an already parsed url, creating the backing pool on first use.
+     *
+     * @param config request configuration
+     * @param uri request url, or its scheme, host and port
+     * @return shared, thread-safe client
+     */
+
+    public Client getClient(final HttpCallConfig<?> config, final URI uri) {
+        return getPool(config, uri).client;
+    }
+
+    /**
+     * Open connections ahead of the first requests, creating the backing pools as needed. Connections to distinct
+     * pools are opened concurrently and returned to their pool, where they remain available until evicted as idle.
+     * Failures are logged and otherwise ignored.
+     *
+     * As pools are keyed by configuration, each configuration should match those of the requests it warms up.
+     *
+     * @param configs request configurations, one per pool
+     * @param connections connections to open per pool, capped by its maximum connections per host
+     * @return number of connections opened
+     */
+
+    public int warmUp(final List<? extends HttpCallConfig<?>> configs, final int connections) {
+        if (configs.isEmpty() || connections <= 0) {
+            return 0;
+        }
+
+        List<Callable<Integer>> warmUps = newArrayList();
+
+        for (final HttpCallConfig<?> config : configs) {
+            if (config.getLoadBalancingPolicy().isPresent()) {
+                LOGGER.info("not warming up load balanced service {}, endpoints are chosen per request",
+                        config.getUrl());
+
+                continue;
+            }
+
+            warmUps.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    URI uri = URI.create(config.getUrl());
+
+                    return getPool(config, uri).warmUp(config, uri, connections);
+                }
+            });
+        }
+
+        if (warmUps.isEmpty()) {
+            return 0;
+        }
+
+        ExecutorService executor = newFixedThreadPool(Math.min(warmUps.size(), MAXIMUM_WARM_UP_THREADS),
+                new ThreadFactoryBuilder().setNameFormat("autumn-connection-pool-warm-up-%d").setDaemon(true).build());
+        int opened = 0;
+
+        try {
+            for (Future<Integer> warmUp : executor.invokeAll(warmUps)) {
+                try {
+                    opened += warmUp.get();
+                } catch (ExecutionException e) {
+                    LOGGER.warn("unable to warm up connection pool", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        LOGGER.info("warmed up connection pools, opened connections: {}", opened);
+
+        return opened;
+    }
+
+    private Pool getPool(final HttpCallConfig<?> config, final URI uri) {
+        PoolKey key = new PoolKey(config, uri);
+        Pool pool = pools.get(key);
+
+        if (pool == null) {
+            Pool candidate = new Pool(key, config, uri, dnsCache, connections);
+
+            pool = pools.putIfAbsent(key, candidate);
+
+            if (pool == null) {
+                pool = candidate;
+
+                LOGGER.info("created connection pool {}", key);
+
+                startEviction();
+            } else {
+                candidate.close();
+            }
+        }
+
+        return pool;
+    }
+
+    /**
+     * Connection pool count getter.
+     *
+     * @return number of live pools
+     */
+
+    public int size() {
+        return pools.size();
+    }
+
+    /**
+     * Maximum total connections getter.
+     *
+     * @return connections leased at once across all pools
+     */
+
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    /**
+     * Leased connection count getter.
+     *
+     * @return connections leased across all pools
+     */
+
+    public int getLeased() {
+        return maxTotalConnections - connections.availablePermits();
+    }
+
+    /**
+     * Close all pools and stop idle connection eviction. The registry remains usable and will lazily recreate pools.
+     */
+
+    public void shutdown() {
+        ScheduledExecutorService executor = evictor.getAndSet(null);
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        for (Map.Entry<PoolKey, Pool> entry : pools.entrySet()) {
+            if (pools.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().close();
+
+                LOGGER.info("closed connection pool {}", entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Create a client over the given connection manager.
+     *
+     * @param config request configuration
+     * @param connectionManager backing connection manager
+     * @return configured client
+     */
+
+    static Client newClient(final HttpCallConfig<?> config, final HttpConnectionManager connectionManager) {
+        HttpClient httpClient = new HttpClient(connectionManager);
+        ApacheHttpClientHandler clientHandler = new ApacheHttpClientHandler(httpClient,
+                new DefaultApacheHttpClientConfig(), new BodyMethodExecutor(httpClient));
+        ClientConfig clientConfig = RequestBodies.register(new DefaultApacheHttpClientConfig());
+
+        if (config.getProxyURL().isPresent()) {
+            clientConfig.getProperties().put(PROPERTY_PROXY_URI,
+                    "http://" + config.getProxyURL().get() + ':' + config.getProxyPort());
+        }
+
+        Client client = new Client(new ApacheHttpClient(clientHandler), clientConfig);
+
+        //Setting connection timeouts and read timeouts when present and doing it in the getClient method
+        if (config.getConnectionTimeout().or(-1) > 0) {
+            client.setConnectTimeout(config.getConnectionTimeout().get());
+        }
+
+        if (config.getReadTimeOut().or(-1) > 0) {
+            client.setReadTimeout(config.getReadTimeOut().get());
+        }
+
+        return ClientFilters.install(client);
+    }
+
+    private void startEviction() {
+        if (evictor.get() != null) {
+            return;
+        }
+
+        ScheduledExecutorService executor = newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("autumn-connection-pool-evictor-%d").setDaemon(true).build());
+
+        if (!evictor.compareAndSet(null, executor)) {
+            executor.shutdownNow();
+
+            return;
+        }
+
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                for (Pool pool : pools.values()) {
+                    pool.connectionManager.closeIdleConnections(idleTimeoutMillis);
+                    pool.connectionManager.deleteClosedConnections();
+                }
+            }
+        }, evictionIntervalMillis, evictionIntervalMillis, MILLISECONDS);
+    }
+
+    private static final class Pool {
+
+        private final MultiThreadedHttpConnectionManager connectionManager;
+        private final Client client;
+
+        private final int maxConnectionPerHost;
+
+        private Pool(final PoolKey key, final HttpCallConfig<?> config, final URI uri, final DnsCache dnsCache,
+                     final Semaphore connections) {
+            String host = ClientFilters.toHost(uri);
+
+            connectionManager = new InstrumentedHttpConnectionManager(host, dnsCache, connections);
+            maxConnectionPerHost = key.maxConnectionPerHost;
+
+            HttpConnectionManagerParams params = connectionManager.getParams();
+
+            // as set per request by the client, so that connections opened ahead of requests time out alike
+            if (config.getConnectionTimeout().or(-1) > 0) {
+                params.setConnectionTimeout(config.getConnectionTimeout().get());
+            }
+
+            // a pool serves a single host, so the host cap is also the pool wide cap, unless the host names a load
+            // balanced service whose endpoints are each capped
+            params.setDefaultMaxConnectionsPerHost(key.maxConnectionPerHost);
+            params.setMaxTotalConnections(config.getLoadBalancingPolicy().isPresent() ? Integer.MAX_VALUE :
+                    key.maxConnectionPerHost);
+
+            client = newClient(config, connectionManager);
+
+            LOGGER.info("Created a new client with the following properties set by the application {}",
+                    client.getProperties().toString());
+        }
+
+        private int warmUp(final HttpCallConfig<?> config, final URI uri, final int connections) {
+            HostConfiguration hostConfiguration = new HostConfiguration();
+
+            hostConfiguration.setHost(uri.getHost(), uri.getPort(), uri.getScheme());
+
+            if (config.getProxyURL().isPresent()) {
+                hostConfiguration.setProxy(config.getProxyURL().get(), config.getProxyPort());
+            }
+
+            List<HttpConnection> leased = newArrayList();
+            int opened = 0;
+
+            try {
+                // all connections are held until opened, as a released connection would be leased again
+                for (int i = 0; i < Math.min(connections, maxConnectionPerHost); i++) {
+                    HttpConnection connection = connectionManager.getConnectionWithTimeout(hostConfiguration, 1L);
+
+                    leased.add(connection);
+
+                    if (!connection.isOpen()) {
+                        connection.open();
+                        opened++;
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.warn("unable to warm up connection pool {}, cause: {}", uri, e.getMessage());
+            } finally {
+                for (HttpConnection connection : leased) {
+                    connection.releaseConnection();
+                }
+            }
+
+            LOGGER.info("warmed up connection pool {}, opened connections: {}", uri, opened);
+
+            return opened;
+        }
+
+        private void close() {
+            client.destroy();
+            connectionManager.shutdown();
+        }
+    }
+
+    static final class PoolKey {
+
+        private final String scheme;
+        private final String host;
+        private final int port;
+        private final String proxyURL;
+        private final int proxyPort;
+        private final int connectionTimeout;
+        private final int readTimeOut;
+        private final int maxConnectionPerHost;
+
+        PoolKey(final HttpCallConfig<?> config) {
+            this(config, URI.create(config.getUrl()));
+        }
+
+        PoolKey(final HttpCallConfig<?> config, final URI uri) {
+            this.scheme = uri.getScheme();
+            this.host = uri.getHost();
+            this.port = uri.getPort();
+            this.proxyURL = config.getProxyURL().orNull();
+            this.proxyPort = config.getProxyPort();
+            this.connectionTimeout = config.getConnectionTimeout().or(-1);
+            this.readTimeOut = config.getReadTimeOut().or(-1);
+            // an adaptive concurrency limit governs admission, so the pool must not cap it below its maximum
+            this.maxConnectionPerHost = config.getMaxConnectionPerHost().or(-1) > 0 ?
+                    config.getMaxConnectionPerHost().get() : config.getConcurrencyLimitPolicy().isPresent() ?
+                    config.getConcurrencyLimitPolicy().get().getMaxLimit() : DEFAULT_MAX_CONNECTION_PER_HOST;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof PoolKey)) {
+                return false;
+            }
+
+            PoolKey that = (PoolKey) o;
+
+            return port == that.port && proxyPort == that.proxyPort &&
+                    connectionTimeout == that.connectionTimeout && readTimeOut == that.readTimeOut &&
+                    maxConnectionPerHost == that.maxConnectionPerHost && Objects.equals(scheme, that.scheme) &&
+                    Objects.equals(host, that.host) && Objects.equals(proxyURL, that.proxyURL);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scheme, host, port, proxyURL, proxyPort, connectionTimeout, readTimeOut,
+                    maxConnectionPerHost);
+        }
+
+        @Override
+        public String toString() {
+            return scheme + "://" + host + ':' + port + (proxyURL == null ? "" : " via " + proxyURL + ':' + proxyPort) +
+                    " connectionTimeout: " + connectionTimeout + ", readTimeOut: " + readTimeOut +
+                    ", maxConnectionPerHost: " + maxConnectionPerHost;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.inject.Inject;
+import com.google.common.collect.ImmutableList;
+import com.intuit.autumn.client.HttpCallConfig;
+import org.slf4j.Logger;
+
+import java.util.List;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A lifecycle provider that optionally warms up connection pools on startup, and releases the shared
+ * {@link ConnectionPoolRegistry} connection pools on shutdown.
+ */
+
+public class ConnectionPoolService extends AbstractIdleService {
+
+    private static final Logger LOGGER = getLogger(ConnectionPoolService.class);
+    private final ConnectionPoolRegistry connectionPoolRegistry;
+    private final List<? extends HttpCallConfig<?>> warmUps;
+    private final int warmUpConnections;
+
+    /**
+     * Constructor bound to the process-wide registry.
+     */
+
+    @Inject
+    public ConnectionPoolService() {
+        this(ConnectionPoolRegistry.getInstance());
+    }
+
+    /**
+     * Constructor with configurable state.
+     *
+     * @param connectionPoolRegistry managed registry
+     */
+
+    public ConnectionPoolService(final ConnectionPoolRegistry connectionPoolRegistry) {
+        this(connectionPoolRegistry, ImmutableList.<HttpCallConfig<?>>of(), 0);
+    }
+
+    /**
+     * Constructor warming up connection pools on startup.
+     *
+     * @param connectionPoolRegistry managed registry
+     * @param warmUps request configurations, one per pool, matching those of the requests they warm up
+     * @param warmUpConnections connections to open per pool
+     */
+
+    public ConnectionPoolService(final ConnectionPoolRegistry connectionPoolRegistry,
+                                 final List<? extends HttpCallConfig<?>> warmUps, final int warmUpConnections) {
+        LOGGER.debug("instantiating {}", serviceName());
+
+        this.connectionPoolRegistry = connectionPoolRegistry;
+        this.warmUps = warmUps;
+        this.warmUpConnections = warmUpConnections;
+
+        LOGGER.debug("instantiated {}", serviceName());
+    }
+
+    /**
+     * Instance lifecycle start hook.
+     *
+     * @throws Exception unintended exception
+     */
+
+    @Override
+    protected void startUp() throws Exception {
+        LOGGER.info("starting {}", serviceName());
+
+        new HttpCallImplWithConnectionPooling<>(connectionPoolRegistry).warmUp(warmUps, warmUpConnections);
+
+        LOGGER.info("started {}", serviceName());
+    }
+
+    /**
+     * Instance lifecycle stop hook.
+     *
+     * @throws Exception unintended exception
+     */
+
+    @Override
+    protected void shutDown() throws Exception {
+        LOGGER.info("stopping {}, pool count: {}", serviceName(), connectionPoolRegistry.size());
+
+        connectionPoolRegistry.shutdown();
+
+        LOGGER.info("stopped {}", serviceName());
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.intuit.autumn.client.CompressionPolicy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * gzip and deflate content coding over pooled {@link Inflater} and {@link Deflater} instances, whose native zlib
+ * streams are costly to allocate and only released by finalization unless explicitly ended.
+ */
+
+final class ContentCoding {
+
+    private static final int POOL_SIZE = 64;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int DEFLATED = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int TRAILER_SIZE = 8;
+    private static final byte[] GZIP_HEADER = {(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), DEFLATED, 0, 0, 0, 0, 0,
+            0, (byte) 0xff};
+    private static final BlockingQueue<Inflater> RAW_INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Inflater> ZLIB_INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final ConcurrentMap<Integer, BlockingQueue<Deflater>> DEFLATERS = new ConcurrentHashMap<>();
+
+    private ContentCoding() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Whether a content coding is decoded.
+     *
+     * @param encoding Content-Encoding header value
+     * @return true for gzip, x-gzip or deflate
+     */
+
+    static boolean isSupported(final String encoding) {
+        return isGzip(encoding) || "deflate".equalsIgnoreCase(encoding.trim());
+    }
+
+    /**
+     * Encode an entity.
+     *
+     * @param data entity
+     * @param encoding content coding
+     * @param level compression level, -1 for the default
+     * @return encoded entity
+     */
+
+    static byte[] encode(final byte[] data, final CompressionPolicy.Encoding encoding, final int level) {
+        boolean gzip = encoding == CompressionPolicy.Encoding.GZIP;
+        Deflater deflater = borrow(level, gzip);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+
+        try {
+            if (gzip) {
+                out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            }
+
+            byte[] buffer = new byte[Math.min(BUFFER_SIZE, Math.max(64, data.length))];
+
+            deflater.setInput(data);
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            if (gzip) {
+                CRC32 crc = new CRC32();
+
+                crc.update(data);
+                writeInt(out, (int) crc.getValue());
+                writeInt(out, data.length);
+            }
+
+            return out.toByteArray();
+        } finally {
+            release(deflater, level, gzip);
+        }
+    }
+
+    /**
+     * Decode a response body, lazily so that an empty body, e.g. of a HEAD request, is not an error.
+     *
+     * @param in encoded body
+     * @param encoding Content-Encoding header value, a supported coding
+     * @return decoded body, releasing its inflater once closed
+     */
+
+    static InputStream decode(final InputStream in, final String encoding) {
+        return new DecodingInputStream(in, isGzip(encoding));
+    }
+
+    private static boolean isGzip(final String encoding) {
+        String token = encoding.trim();
+
+        return "gzip".equalsIgnoreCase(token) || "x-gzip".equalsIgnoreCase(token);
+    }
+
+    private static Deflater borrow(final int level, final boolean nowrap) {
+        Deflater deflater = getDeflaters(level, nowrap).poll();
+
+        return deflater == null ? new Deflater(level, nowrap) : deflater;
+    }
+
+    private static void release(final Deflater deflater, final int level, final boolean nowrap) {
+        deflater.reset();
+
+        if (!getDeflaters(level, nowrap).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private static BlockingQueue<Deflater> getDeflaters(final int level, final boolean nowrap) {
+        Integer key = level * 2 + (nowrap ? 1 : 0);
+        BlockingQueue<Deflater> deflaters = DEFLATERS.get(key);
+
+        if (deflaters == null) {
+            BlockingQueue<Deflater> candidate = new ArrayBlockingQueue<>(POOL_SIZE);
+
+            deflaters = DEFLATERS.putIfAbsent(key, candidate);
+
+            if (deflaters == null) {
+                deflaters = candidate;
+            }
+        }
+
+        return deflaters;
+    }
+
+    private static Inflater borrow(final boolean nowrap) {
+        Inflater inflater = (nowrap ? RAW_INFLATERS : ZLIB_INFLATERS).poll();
+
+        return inflater == null ? new Inflater(nowrap) : inflater;
+    }
+
+    private static void release(final Inflater inflater, final boolean nowrap) {
+        inflater.reset();
+
+        if (!(nowrap ? RAW_INFLATERS : ZLIB_INFLATERS).offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    private static void writeInt(final ByteArrayOutputStream out, final int value) {
+        for (int i = 0; i < 4; i++) {
+            out.write(value >>> (8 * i));
+        }
+    }
+
+    private static int readUByte(final InputStream in) throws IOException {
+        int b = in.read();
+
+        if (b < 0) {
+            throw new EOFException();
+        }
+
+        return b;
+    }
+
+    private static int readUShort(final InputStream in) throws IOException {
+        return readUByte(in) | (readUByte(in) << 8);
+    }
+
+    private static long readUInt(final InputStream in) throws IOException {
+        return readUShort(in) | ((long) readUShort(in) << 16);
+    }
+
+    private static void skip(final InputStream in, final int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            readUByte(in);
+        }
+    }
+
+    // RFC 1952 member header
+    private static void readGzipHeader(final InputStream in) throws IOException {
+        if (readUShort(in) != GZIP_MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+
+        if (readUByte(in) != DEFLATED) {
+            throw new ZipException("Unsupported compression method");
+        }
+
+        int flags = readUByte(in);
+
+        // modification time, extra flags and operating system
+        skip(in, 6);
+
+        if ((flags & FEXTRA) == FEXTRA) {
+            skip(in, readUShort(in));
+        }
+
+        if ((flags & FNAME) == FNAME) {
+            while (readUByte(in) != 0) {
+                continue;
+            }
+        }
+
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            while (readUByte(in) != 0) {
+                continue;
+            }
+        }
+
+        if ((flags & FHCRC) == FHCRC) {
+            skip(in, 2);
+        }
+    }
+
+    // RFC 1950 header: compression method 8 and a check value making the first two bytes a multiple of 31
+    private static boolean isZlib(final int cmf, final int flg) {
+        return (cmf & 0x0f) == DEFLATED && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    private static final class DecodingInputStream extends InputStream {
+
+        private final InputStream in;
+        private final boolean gzip;
+        private InputStream decoded;
+
+        private DecodingInputStream(final InputStream in, final boolean gzip) {
+            this.in = in;
+            this.gzip = gzip;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return getDecoded().read();
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            return getDecoded().read(bytes, offset, length);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return decoded == null ? 0 : decoded.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (decoded != null) {
+                decoded.close();
+            } else {
+                in.close();
+            }
+        }
+
+        private InputStream getDecoded() throws IOException {
+            if (decoded == null) {
+                PushbackInputStream pushback = new PushbackInputStream(in, 2);
+                int cmf = pushback.read();
+
+                if (cmf < 0) {
+                    decoded = pushback;
+
+                    return decoded;
+                }
+
+                int flg = pushback.read();
+
+                if (flg >= 0) {
+                    pushback.unread(flg);
+                }
+
+                pushback.unread(cmf);
+
+                if (gzip) {
+                    readGzipHeader(pushback);
+                }
+
+                // deflate is specified as zlib wrapped, but some servers send raw deflate
+                decoded = new PooledInflaterInputStream(pushback, gzip || !isZlib(cmf, flg), gzip);
+            }
+
+            return decoded;
+        }
+    }
+
+    private static final class PooledInflaterInputStream extends InflaterInputStream {
+
+        private final boolean nowrap;
+        private final CRC32 crc;
+        private boolean trailerRead;
+        private boolean released;
+
+        private PooledInflaterInputStream(final InputStream in, final boolean nowrap, final boolean gzip) {
+            super(in, borrow(nowrap), BUFFER_SIZE);
+
+            this.nowrap = nowrap;
+            this.crc = gzip ? new CRC32() : null;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (released) {
+                throw new IOException("Stream closed");
+            }
+
+            int read = super.read(bytes, offset, length);
+
+            if (crc != null) {
+                if (read > 0) {
+                    crc.update(bytes, offset, read);
+                } else if (read < 0 && !trailerRead) {
+                    trailerRead = true;
+
+                    readGzipTrailer();
+                }
+            }
+
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!released) {
+                    released = true;
+
+                    release(inf, nowrap);
+                }
+            }
+        }
+
+        // the trailer starts in the unconsumed input of the inflater and may continue in the stream
+        private void readGzipTrailer() throws IOException {
+            int remaining = inf.getRemaining();
+            InputStream trailer = remaining > 0 ? new SequenceInputStream(
+                    new ByteArrayInputStream(buf, len - remaining, Math.min(remaining, TRAILER_SIZE)), in) :
+                    in;
+
+            if (readUInt(trailer) != crc.getValue() || readUInt(trailer) != (inf.getBytesWritten() & 0xffffffffL)) {
+                throw new ZipException("Corrupt GZIP trailer");
+            }
+        }
+    }
+}
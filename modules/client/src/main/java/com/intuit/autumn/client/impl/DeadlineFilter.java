@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.utils.Deadline;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.sun.jersey.api.client.config.ClientConfig.PROPERTY_CONNECT_TIMEOUT;
+import static com.sun.jersey.api.client.config.ClientConfig.PROPERTY_READ_TIMEOUT;
+import static java.lang.String.format;
+
+/**
+ * Applies the request {@link Deadline}, that configured with {@link HttpCallConfig#getDeadline()} or bound to the
+ * thread serving an inbound request, whichever expires first, to each attempt: the connect and read timeouts are capped
+ * to the remaining time budget, which is forwarded downstream in the {@link Deadline#HEADER} header, and attempts past
+ * the deadline are rejected with a {@link HttpCallRejectedException} without being sent.
+ */
+
+class DeadlineFilter extends ClientFilter {
+
+    /**
+     * Effective request deadline getter.
+     *
+     * @param config request configuration, may be null
+     * @return the earlier of the configured and the current thread's deadline, or null if neither is set
+     */
+
+    static Deadline getDeadline(final HttpCallConfig<?> config) {
+        Deadline current = Deadline.getCurrent();
+
+        return config == null || !config.getDeadline().isPresent() ? current : config.getDeadline().get().min(current);
+    }
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        Deadline deadline = getDeadline(ClientFilters.getConfig(request));
+
+        if (deadline == null) {
+            return getNext().handle(request);
+        }
+
+        if (deadline.isExpired()) {
+            throw new HttpCallRejectedException(format("deadline exceeded, host: %s",
+                    ClientFilters.toHost(request.getURI())));
+        }
+
+        // the properties are shared with the request's resource, and may be with the client
+        Map<String, Object> properties = new HashMap<>(request.getProperties());
+
+        properties.put(PROPERTY_CONNECT_TIMEOUT, deadline.cap(toMillis(properties.get(PROPERTY_CONNECT_TIMEOUT))));
+        properties.put(PROPERTY_READ_TIMEOUT, deadline.cap(toMillis(properties.get(PROPERTY_READ_TIMEOUT))));
+        request.setProperties(properties);
+        request.getHeaders().putSingle(Deadline.HEADER, String.valueOf(deadline.getRemainingMillis()));
+
+        return getNext().handle(request);
+    }
+
+    private static int toMillis(final Object timeout) {
+        return timeout instanceof Integer ? (Integer) timeout : 0;
+    }
+}
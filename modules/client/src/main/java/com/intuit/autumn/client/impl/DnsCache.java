@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A process-wide host name resolution cache for the pooled clients, independent of the JVM's own address caching,
+ * which depending on the security manager either caches forever or for a short while only.
+ *
+ * A host's addresses are served from the cache and, once older than the time to live, refreshed in the background on
+ * the next lookup while the previous addresses continue to be served. A failed refresh leaves the previous addresses
+ * in place until they exceed the maximum staleness, after which the host is resolved again in the caller. Failed
+ * resolutions are not cached.
+ */
+
+public class DnsCache {
+
+    private static final Logger LOGGER = getLogger(DnsCache.class);
+    private static final long DEFAULT_TTL_MILLIS = 60000L;
+    private static final long DEFAULT_MAX_STALE_MILLIS = 600000L;
+    private static final int MAXIMUM_HOSTS = 1024;
+    private static final DnsCache INSTANCE = new DnsCache();
+    private final LoadingCache<String, InetAddress[]> addresses;
+
+    /**
+     * Constructor with a 1 minute time to live and 10 minutes maximum staleness.
+     */
+
+    public DnsCache() {
+        this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_STALE_MILLIS);
+    }
+
+    /**
+     * Constructor with configurable expiry.
+     *
+     * @param ttlMillis time after which a host's addresses are refreshed in the background
+     * @param maxStaleMillis time after which a host's addresses are no longer served, should refreshes fail
+     */
+
+    public DnsCache(final long ttlMillis, final long maxStaleMillis) {
+        this(new CacheLoader<String, InetAddress[]>() {
+            @Override
+            public InetAddress[] load(final String host) throws UnknownHostException {
+                return InetAddress.getAllByName(host);
+            }
+        }, ttlMillis, maxStaleMillis, Ticker.systemTicker(), newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("autumn-dns-cache-refresh-%d").setDaemon(true).build()));
+    }
+
+    /**
+     * Constructor with configurable state.
+     *
+     * @param resolver host name resolver
+     * @param ttlMillis time after which a host's addresses are refreshed in the background
+     * @param maxStaleMillis time after which a host's addresses are no longer served, should refreshes fail
+     * @param ticker time source
+     * @param executor background refresh executor
+     */
+
+    DnsCache(final CacheLoader<String, InetAddress[]> resolver, final long ttlMillis, final long maxStaleMillis,
+             final Ticker ticker, final Executor executor) {
+        this.addresses = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_HOSTS)
+                .refreshAfterWrite(ttlMillis, MILLISECONDS)
+                .expireAfterWrite(Math.max(ttlMillis, maxStaleMillis), MILLISECONDS)
+                .ticker(ticker)
+                .build(CacheLoader.asyncReloading(resolver, executor));
+    }
+
+    /**
+     * Process-wide cache getter.
+     *
+     * @return shared cache
+     */
+
+    public static DnsCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Resolve a host name.
+     *
+     * @param host host name or address literal
+     * @return host addresses, never empty
+     * @throws UnknownHostException if the host cannot be resolved
+     */
+
+    public InetAddress[] resolve(final String host) throws UnknownHostException {
+        try {
+            return addresses.get(host);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof UnknownHostException) {
+                throw (UnknownHostException) e.getCause();
+            }
+
+            LOGGER.warn("unable to resolve host: {}, cause: {}", host, e.getCause());
+
+            throw (UnknownHostException) new UnknownHostException(host).initCause(e.getCause());
+        }
+    }
+
+    /**
+     * Drop a host's addresses, e.g. after its endpoints moved, so that the next lookup resolves it again.
+     *
+     * @param host host name
+     */
+
+    public void invalidate(final String host) {
+        addresses.invalidate(host);
+    }
+
+    /**
+     * Cached host count getter.
+     *
+     * @return number of cached hosts
+     */
+
+    public long size() {
+        return addresses.size();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import org.apache.commons.httpclient.ConnectTimeoutException;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
+import org.apache.commons.httpclient.protocol.Protocol;
+import org.apache.commons.httpclient.protocol.ProtocolSocketFactory;
+import org.apache.commons.httpclient.protocol.SecureProtocolSocketFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLSocket;
+
+/**
+ * A socket factory connecting to the addresses of a {@link DnsCache} rather than resolving host names per connection.
+ *
+ * A host's addresses are tried in turn, starting from a rotating offset so that connections are spread over all of
+ * them, until one accepts the connection. TLS is layered over the connected socket by the wrapped factory, with the
+ * original host name, and the handshake completed eagerly so that an opened connection is ready for use.
+ */
+
+class DnsCachingSocketFactory implements ProtocolSocketFactory {
+
+    private final DnsCache dnsCache;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private DnsCachingSocketFactory(final DnsCache dnsCache) {
+        this.dnsCache = dnsCache;
+    }
+
+    /**
+     * Wrap a protocol's socket factory.
+     *
+     * @param protocol original protocol
+     * @param dnsCache host name resolution cache
+     * @return protocol resolving host names with the cache
+     */
+
+    static Protocol wrap(final Protocol protocol, final DnsCache dnsCache) {
+        ProtocolSocketFactory socketFactory = protocol.getSocketFactory();
+
+        if (socketFactory instanceof DnsCachingSocketFactory) {
+            return protocol;
+        }
+
+        if (socketFactory instanceof SecureProtocolSocketFactory) {
+            // still secure, the protocol checks the factory for SecureProtocolSocketFactory
+            return new Protocol(protocol.getScheme(), (ProtocolSocketFactory) new Secure(
+                    (SecureProtocolSocketFactory) socketFactory, dnsCache), protocol.getDefaultPort());
+        }
+
+        return new Protocol(protocol.getScheme(), new DnsCachingSocketFactory(dnsCache),
+                protocol.getDefaultPort());
+    }
+
+    @Override
+    public Socket createSocket(final String host, final int port) throws IOException {
+        return createSocket(host, port, null, 0, null);
+    }
+
+    @Override
+    public Socket createSocket(final String host, final int port, final InetAddress localAddress, final int localPort)
+            throws IOException {
+        return createSocket(host, port, localAddress, localPort, null);
+    }
+
+    @Override
+    public Socket createSocket(final String host, final int port, final InetAddress localAddress, final int localPort,
+                               final HttpConnectionParams params) throws IOException {
+        InetAddress[] addresses = dnsCache.resolve(host);
+        int timeout = params == null ? 0 : params.getConnectionTimeout();
+        int offset = next.getAndIncrement() & Integer.MAX_VALUE;
+        IOException failure = null;
+
+        for (int i = 0; i < addresses.length; i++) {
+            InetAddress address = addresses[(offset + i) % addresses.length];
+            Socket socket = new Socket();
+
+            try {
+                if (localAddress != null) {
+                    socket.bind(new InetSocketAddress(localAddress, localPort));
+                }
+
+                socket.connect(new InetSocketAddress(address, port), timeout);
+
+                return socket;
+            } catch (SocketTimeoutException e) {
+                socket.close();
+
+                failure = new ConnectTimeoutException("connect to " + address + " timed out after " + timeout + " ms",
+                        e);
+            } catch (IOException e) {
+                socket.close();
+
+                failure = e;
+            }
+        }
+
+        throw failure;
+    }
+
+    private static final class Secure extends DnsCachingSocketFactory implements SecureProtocolSocketFactory {
+
+        private final SecureProtocolSocketFactory delegate;
+
+        private Secure(final SecureProtocolSocketFactory delegate, final DnsCache dnsCache) {
+            super(dnsCache);
+
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port, final InetAddress localAddress,
+                                   final int localPort, final HttpConnectionParams params) throws IOException {
+            Socket socket = super.createSocket(host, port, localAddress, localPort, params);
+
+            try {
+                // bounds the handshake, the connection then applies its own read timeout
+                socket.setSoTimeout(params == null ? 0 : params.getConnectionTimeout());
+
+                return createSocket(socket, host, port, true);
+            } catch (IOException e) {
+                socket.close();
+
+                throw e;
+            }
+        }
+
+        @Override
+        public Socket createSocket(final Socket socket, final String host, final int port, final boolean autoClose)
+                throws IOException {
+            Socket secureSocket = delegate.createSocket(socket, host, port, autoClose);
+
+            if (secureSocket instanceof SSLSocket) {
+                ((SSLSocket) secureSocket).startHandshake();
+            }
+
+            return secureSocket;
+        }
+    }
+}
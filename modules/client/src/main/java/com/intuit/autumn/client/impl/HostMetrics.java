@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+/**
+ * Per host request metrics: a request timer, an in-flight counter, response status class meters, an error meter and
+ * sent and received byte counters.
+ */
+
+final class HostMetrics {
+
+    private static final int STATUS_CLASSES = 5;
+    private final Timer requests;
+    private final Counter inFlight;
+    private final Meter[] responses = new Meter[STATUS_CLASSES];
+    private final Meter errors;
+    private final Counter bytesSent;
+    private final Counter bytesReceived;
+
+    /**
+     * Constructor, registering the host metrics.
+     *
+     * @param metrics owning metrics
+     * @param host host and port
+     */
+
+    HostMetrics(final ClientMetrics metrics, final String host) {
+        this.requests = metrics.add(ClientMetrics.toName(host, "requests"), new Timer());
+        this.inFlight = metrics.add(ClientMetrics.toName(host, "in-flight"), new Counter());
+        this.errors = metrics.add(ClientMetrics.toName(host, "errors"), new Meter());
+        this.bytesSent = metrics.add(ClientMetrics.toName(host, "bytes", "sent"), new Counter());
+        this.bytesReceived = metrics.add(ClientMetrics.toName(host, "bytes", "received"), new Counter());
+
+        for (int i = 0; i < STATUS_CLASSES; i++) {
+            responses[i] = metrics.add(ClientMetrics.toName(host, "responses", (i + 1) + "xx"), new Meter());
+        }
+    }
+
+    /**
+     * Start timing a request.
+     *
+     * @return request timer context
+     */
+
+    Timer.Context start() {
+        inFlight.inc();
+
+        return requests.time();
+    }
+
+    /**
+     * Record a response.
+     *
+     * @param context request timer context
+     * @param status response status
+     */
+
+    void onResponse(final Timer.Context context, final int status) {
+        context.stop();
+        inFlight.dec();
+
+        int statusClass = status / 100 - 1;
+
+        if (statusClass >= 0 && statusClass < STATUS_CLASSES) {
+            responses[statusClass].mark();
+        }
+    }
+
+    /**
+     * Record a request failing without a response.
+     *
+     * @param context request timer context
+     */
+
+    void onError(final Timer.Context context) {
+        context.stop();
+        inFlight.dec();
+        errors.mark();
+    }
+
+    /**
+     * bytesSent getter.
+     *
+     * @return bytesSent value
+     */
+
+    Counter getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * bytesReceived getter.
+     *
+     * @return bytesReceived value
+     */
+
+    Counter getBytesReceived() {
+        return bytesReceived;
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.TerminatingClientHandler;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.core.header.InBoundHeaders;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentProvider;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.util.ByteBufferContentProvider;
+import org.eclipse.jetty.client.util.BytesContentProvider;
+import org.eclipse.jetty.client.util.PathContentProvider;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.util.HttpCookieStore;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.sun.jersey.api.client.config.ClientConfig.PROPERTY_READ_TIMEOUT;
+import static com.sun.jersey.api.json.JSONConfiguration.FEATURE_POJO_MAPPING;
+import static java.lang.Boolean.FALSE;
+import static java.lang.Boolean.TRUE;
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A process-wide HTTP/2 client engine, selected with {@link HttpCallConfig#getUseHttp2()}.
+ *
+ * Requests to a host are multiplexed as concurrent streams over a shared connection, with HPACK compressed headers.
+ * Plain text hosts are spoken to with prior knowledge h2c; TLS hosts negotiate h2 with ALPN, which requires the ALPN
+ * boot library on the boot class path, and otherwise use HTTP/1.1. A host whose first HTTP/2 request fails before a
+ * response is received is remembered for a while as HTTP/1.1 only, and the request is resent over HTTP/1.1 if it is
+ * idempotent or was never committed to the connection; once a host has answered over HTTP/2 its failures are never
+ * replayed. Requests through a proxy are not eligible and keep to the HTTP/1.1 implementations.
+ *
+ * The engine is started on first use and stopped by {@link #shutdown()}, typically driven by
+ * {@link Http2ClientService}; it remains usable afterwards and will lazily restart.
+ */
+
+public class Http2ClientEngine extends TerminatingClientHandler {
+
+    private static final Logger LOGGER = getLogger(Http2ClientEngine.class);
+    private static final Http2ClientEngine INSTANCE = new Http2ClientEngine();
+    private static final String HTTPS = "https";
+    private static final boolean ALPN = isAlpnAvailable();
+    private static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 15000L;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30000L;
+    private static final long DEFAULT_PROTOCOL_TTL_MILLIS = 600000L;
+    private static final int MAXIMUM_HOSTS = 1024;
+    private final long connectTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final Cache<String, Boolean> protocols;
+    private volatile Engines engines;
+
+    /**
+     * Constructor with default timeouts.
+     */
+
+    public Http2ClientEngine() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_PROTOCOL_TTL_MILLIS);
+    }
+
+    /**
+     * Constructor with configurable timeouts.
+     *
+     * @param connectTimeoutMillis connection establishment timeout
+     * @param idleTimeoutMillis idle time after which a connection is closed, and default read timeout
+     * @param protocolTtlMillis time a host's negotiated protocol is remembered for
+     */
+
+    public Http2ClientEngine(final long connectTimeoutMillis, final long idleTimeoutMillis,
+                             final long protocolTtlMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.protocols = CacheBuilder.newBuilder().maximumSize(MAXIMUM_HOSTS)
+                .expireAfterWrite(protocolTtlMillis, MILLISECONDS).build();
+    }
+
+    /**
+     * Process-wide engine getter.
+     *
+     * @return shared engine
+     */
+
+    public static Http2ClientEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Whether a request may be sent with the HTTP/2 engine.
+     *
+     * @param config request configuration
+     * @return true if HTTP/2 is requested and no proxy is configured
+     */
+
+    public static boolean isEligible(final HttpCallConfig<?> config) {
+        return config.getUseHttp2() && !config.getProxyURL().isPresent();
+    }
+
+    /**
+     * Shared client getter, starting the engine on first use.
+     *
+     * @return shared, thread-safe client
+     */
+
+    public Client getClient() {
+        return start().client;
+    }
+
+    /**
+     * Protocol last negotiated with a host.
+     *
+     * @param uri request URI
+     * @return "h2", "http/1.1" or null if not yet known
+     */
+
+    public String getProtocol(final URI uri) {
+        Boolean http2 = protocols.getIfPresent(ClientFilters.toHost(uri));
+
+        return http2 == null ? null : http2 ? "h2" : "http/1.1";
+    }
+
+    /**
+     * Stop the engine, closing all connections. The engine remains usable and will lazily restart.
+     */
+
+    public void shutdown() {
+        Engines stopped;
+
+        synchronized (this) {
+            stopped = engines;
+            engines = null;
+        }
+
+        if (stopped != null) {
+            stopped.stop();
+
+            LOGGER.info("stopped HTTP/2 client engine");
+        }
+    }
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        Engines started = start();
+        HttpCallConfig<?> config = ClientFilters.getConfig(request);
+        String host = ClientFilters.toHost(request.getURI());
+        ContentProvider entity = toContent(request, host);
+        Boolean http2 = protocols.getIfPresent(host);
+
+        if (FALSE.equals(http2) || (HTTPS.equals(request.getURI().getScheme()) && !ALPN)) {
+            return send(started.http1, request, entity, config, null);
+        }
+
+        AtomicBoolean committed = new AtomicBoolean();
+
+        try {
+            ClientResponse response = send(started.http2, request, entity, config, committed);
+
+            protocols.put(host, TRUE);
+
+            return response;
+        } catch (ClientHandlerException e) {
+            if (http2 != null || !isFallback(e.getCause()) || Attempt.isCurrentAborted()) {
+                throw e;
+            }
+
+            if (committed.get() && !ClientFilters.isIdempotent(request.getMethod())) {
+                // the host may have received it, as HTTP/1.1 or otherwise
+                protocols.put(host, FALSE);
+
+                LOGGER.info("HTTP/2 request to {} failed, using HTTP/1.1 from now on, {} not resent: {}", host,
+                        request.getMethod(), e.getMessage());
+
+                throw e;
+            }
+
+            LOGGER.info("HTTP/2 request to {} failed, falling back to HTTP/1.1: {}", host, e.getMessage());
+        }
+
+        ClientResponse response = send(started.http1, request, entity, config, null);
+
+        protocols.put(host, FALSE);
+
+        return response;
+    }
+
+    private ClientResponse send(final HttpClient client, final ClientRequest request, final ContentProvider entity,
+                                final HttpCallConfig<?> config, final AtomicBoolean committed) {
+        final Request exchange = client.newRequest(request.getURI()).method(request.getMethod());
+
+        for (Map.Entry<String, List<Object>> header : request.getHeaders().entrySet()) {
+            for (Object value : header.getValue()) {
+                exchange.header(header.getKey(), ClientRequest.getHeaderValue(value));
+            }
+        }
+
+        if (entity != null) {
+            exchange.content(entity);
+        }
+
+        Object readTimeout = request.getProperties().get(PROPERTY_READ_TIMEOUT);
+
+        // as capped by a request deadline, otherwise as configured
+        if (readTimeout instanceof Integer && (Integer) readTimeout > 0) {
+            exchange.idleTimeout((Integer) readTimeout, MILLISECONDS);
+        } else if (config != null && config.getReadTimeOut().or(-1) > 0) {
+            exchange.idleTimeout(config.getReadTimeOut().get(), MILLISECONDS);
+        }
+
+        if (committed != null) {
+            exchange.onRequestCommit(new Request.CommitListener() {
+                @Override
+                public void onCommit(final Request commit) {
+                    committed.set(true);
+                }
+            });
+        }
+
+        StreamingResponseListener listener = new StreamingResponseListener(exchange);
+
+        Attempt.onAbort(new Runnable() {
+            @Override
+            public void run() {
+                exchange.abort(new ClientHandlerException("attempt aborted"));
+            }
+        });
+
+        exchange.send(listener);
+
+        try {
+            Response response = listener.get();
+            InBoundHeaders headers = new InBoundHeaders();
+
+            for (HttpField field : response.getHeaders()) {
+                headers.add(field.getName(), field.getValue());
+            }
+
+            return new ClientResponse(response.getStatus(), headers, listener.getInputStream(),
+                    getMessageBodyWorkers());
+        } catch (ExecutionException e) {
+            throw new ClientHandlerException(e.getCause());
+        } catch (InterruptedException e) {
+            exchange.abort(e);
+            currentThread().interrupt();
+
+            throw new ClientHandlerException(e);
+        }
+    }
+
+    // reproducible so that a request may be replayed over HTTP/1.1, first class bodies as is and others buffered
+    private ContentProvider toContent(final ClientRequest request, final String host) {
+        Object entity = request.getEntity();
+
+        if (entity == null) {
+            return null;
+        }
+
+        try {
+            if (!RequestBodies.isBody(entity.getClass())) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+                getRequestEntityWriter(request).writeRequestEntity(out);
+
+                return new BytesContentProvider(out.toByteArray());
+            }
+
+            // not written through the request adapter, hence counted here
+            ClientMetrics.getInstance().getHostMetrics(host).getBytesSent().inc(RequestBodies.getLength(entity));
+
+            if (entity instanceof byte[]) {
+                return new BytesContentProvider((byte[]) entity);
+            } else if (entity instanceof Path) {
+                return new PathContentProvider((Path) entity);
+            }
+
+            return new ByteBufferContentProvider(RequestBodies.toByteBuffer(entity));
+        } catch (IOException e) {
+            throw new ClientHandlerException(e);
+        }
+    }
+
+    // connection refusals and timeouts say nothing about the protocol, and a timed out request may have been processed
+    private static boolean isFallback(final Throwable cause) {
+        return cause != null && !(cause instanceof ConnectException) && !(cause instanceof TimeoutException);
+    }
+
+    private Engines start() {
+        Engines started = engines;
+
+        if (started == null) {
+            synchronized (this) {
+                started = engines;
+
+                if (started == null) {
+                    started = new Engines();
+                    engines = started;
+
+                    LOGGER.info("started HTTP/2 client engine, ALPN available: {}", ALPN);
+                }
+            }
+        }
+
+        return started;
+    }
+
+    private HttpClient newHttpClient(final HttpClient client, final String name) {
+        QueuedThreadPool executor = new QueuedThreadPool();
+
+        executor.setName(name);
+        executor.setDaemon(true);
+
+        client.setExecutor(executor);
+        client.setScheduler(new ScheduledExecutorScheduler(name + "-scheduler", true));
+        client.setConnectTimeout(connectTimeoutMillis);
+        client.setIdleTimeout(idleTimeoutMillis);
+        // shared by all callers, so no cookie may leak from one to another
+        client.setCookieStore(new HttpCookieStore.Empty());
+        // bodies are handed over exactly as received, as with the HTTP/1.1 implementations
+        client.getContentDecoderFactories().clear();
+
+        try {
+            client.start();
+        } catch (Exception e) {
+            throw new ClientHandlerException(e);
+        }
+
+        return client;
+    }
+
+    private static SslContextFactory newSslContextFactory() {
+        SslContextFactory sslContextFactory = new SslContextFactory();
+
+        sslContextFactory.setEndpointIdentificationAlgorithm(HTTPS.toUpperCase());
+
+        return sslContextFactory;
+    }
+
+    private static boolean isAlpnAvailable() {
+        try {
+            // the ALPN boot library must be loaded by the boot class loader
+            Class.forName("org.eclipse.jetty.alpn.ALPN", false, null);
+
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private final class Engines {
+
+        private final HttpClient http2;
+        private final HttpClient http1;
+        private final Client client;
+
+        private Engines() {
+            http2 = newHttpClient(new HttpClient(new HttpClientTransportOverHTTP2(new HTTP2Client()),
+                    newSslContextFactory()), "autumn-http2-client");
+            http1 = newHttpClient(new HttpClient(newSslContextFactory()), "autumn-http1-client");
+
+            ClientConfig clientConfig = RequestBodies.register(new DefaultClientConfig());
+
+            clientConfig.getFeatures().put(FEATURE_POJO_MAPPING, TRUE);
+
+            client = ClientFilters.install(new Client(Http2ClientEngine.this, clientConfig));
+        }
+
+        private void stop() {
+            client.destroy();
+
+            for (HttpClient httpClient : new HttpClient[]{http2, http1}) {
+                try {
+                    httpClient.stop();
+                } catch (Exception e) {
+                    LOGGER.warn("unable to stop HTTP client", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.inject.Inject;
+import org.slf4j.Logger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A lifecycle provider that stops the shared {@link Http2ClientEngine}, closing its connections, on shutdown.
+ */
+
+public class Http2ClientService extends AbstractIdleService {
+
+    private static final Logger LOGGER = getLogger(Http2ClientService.class);
+    private final Http2ClientEngine http2ClientEngine;
+
+    /**
+     * Constructor bound to the process-wide engine.
+     */
+
+    @Inject
+    public Http2ClientService() {
+        this(Http2ClientEngine.getInstance());
+    }
+
+    /**
+     * Constructor with configurable state.
+     *
+     * @param http2ClientEngine managed engine
+     */
+
+    public Http2ClientService(final Http2ClientEngine http2ClientEngine) {
+        LOGGER.debug("instantiating {}", serviceName());
+
+        this.http2ClientEngine = http2ClientEngine;
+
+        LOGGER.debug("instantiated {}", serviceName());
+    }
+
+    /**
+     * Instance lifecycle start hook.
+     *
+     * @throws Exception unintended exception
+     */
+
+    @Override
+    protected void startUp() throws Exception {
+        LOGGER.info("started {}", serviceName());
+    }
+
+    /**
+     * Instance lifecycle stop hook.
+     *
+     * @throws Exception unintended exception
+     */
+
+    @Override
+    protected void shutDown() throws Exception {
+        LOGGER.info("stopping {}", serviceName());
+
+        http2ClientEngine.shutdown();
+
+        LOGGER.info("stopped {}", serviceName());
+    }
+}
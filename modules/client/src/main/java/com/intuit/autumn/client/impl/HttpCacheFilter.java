@@ -0,0 +1,404 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+import com.intuit.autumn.client.CachedHttpResponse;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpResponseCache;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.MessageBodyWorkers;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.net.HttpHeaders.ACCEPT;
+import static com.google.common.net.HttpHeaders.AGE;
+import static com.google.common.net.HttpHeaders.AUTHORIZATION;
+import static com.google.common.net.HttpHeaders.CACHE_CONTROL;
+import static com.google.common.net.HttpHeaders.CONTENT_ENCODING;
+import static com.google.common.net.HttpHeaders.CONTENT_LENGTH;
+import static com.google.common.net.HttpHeaders.DATE;
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.EXPIRES;
+import static com.google.common.net.HttpHeaders.IF_MODIFIED_SINCE;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
+import static com.google.common.net.HttpHeaders.LAST_MODIFIED;
+import static com.google.common.net.HttpHeaders.TRANSFER_ENCODING;
+import static com.google.common.net.HttpHeaders.VARY;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Locale.ENGLISH;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static javax.ws.rs.HttpMethod.GET;
+import static org.apache.http.client.utils.DateUtils.parseDate;
+
+/**
+ * A private, client side, GET response cache honoring the response Cache-Control, Expires, ETag and Last-Modified
+ * headers.
+ *
+ * Fresh responses are served without a round trip. Stale responses carrying a validator are conditionally
+ * revalidated with If-None-Match and/or If-Modified-Since; a 304 Not Modified refreshes the cached entry, which is then
+ * served in place of the empty 304. Responses marked no-store are never stored, responses marked no-cache are always
+ * revalidated. Responses with a Vary header are stored per variant, i.e. keyed on the varied request headers, and
+ * responses to requests carrying an Authorization header only if marked public or s-maxage. The filter is a no-op for
+ * requests without a configured {@link HttpResponseCache}.
+ */
+
+class HttpCacheFilter extends ClientFilter {
+
+    private static final int OK = 200;
+    private static final int NOT_MODIFIED = 304;
+    private static final String NO_STORE = "no-store";
+    private static final String NO_CACHE = "no-cache";
+    private static final String MAX_AGE = "max-age";
+    private static final String PUBLIC = "public";
+    private static final String S_MAXAGE = "s-maxage";
+    private static final String ANY = "*";
+    private final MessageBodyWorkers workers;
+
+    /**
+     * Constructor.
+     *
+     * @param workers client message body workers used to read cached entities
+     */
+
+    HttpCacheFilter(final MessageBodyWorkers workers) {
+        this.workers = workers;
+    }
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        HttpCallConfig<?> config = ClientFilters.getConfig(request);
+        Optional<HttpResponseCache> cache = config == null ?
+                Optional.<HttpResponseCache>absent() : config.getResponseCache();
+
+        if (!cache.isPresent() || !GET.equals(request.getMethod())) {
+            return getNext().handle(request);
+        }
+
+        String key = toKey(request);
+        CachedHttpResponse cached = cache.get().get(key);
+        List<String> vary = cached == null ? null : getVary(cached.getHeaders());
+
+        // a varying response is stored under its variant key, the request key recording only what it varies on
+        if (vary != null) {
+            key = vary.contains(ANY) ? null : toVariantKey(key, vary, request);
+            cached = key == null ? null : cache.get().get(key);
+        }
+
+        if (cached != null && isFresh(cached, currentTimeMillis()) && !hasDirective(request.getHeaders(), NO_CACHE)) {
+            return toResponse(cached);
+        }
+
+        boolean conditional = cached != null && addValidators(request, cached);
+        ClientResponse response = getNext().handle(request);
+
+        if (conditional && response.getStatus() == NOT_MODIFIED) {
+            response.close();
+
+            CachedHttpResponse revalidated = new CachedHttpResponse(cached.getStatus(),
+                    merge(cached.getHeaders(), response.getHeaders()), cached.getBody(), currentTimeMillis());
+
+            cache.get().put(key, revalidated);
+
+            return toResponse(revalidated);
+        }
+
+        if (response.getStatus() != OK || !isStorable(request, response.getHeaders())) {
+            return response;
+        }
+
+        Map<String, List<String>> headers = copy(response.getHeaders());
+        CachedHttpResponse stored = new CachedHttpResponse(response.getStatus(), headers, read(response),
+                currentTimeMillis());
+        String requestKey = toKey(request);
+
+        vary = getVary(headers);
+
+        if (vary == null) {
+            cache.get().put(requestKey, stored);
+        } else {
+            cache.get().put(requestKey, new CachedHttpResponse(OK, Collections.singletonMap(VARY, vary), new byte[0],
+                    stored.getStoredAt()));
+            cache.get().put(toVariantKey(requestKey, vary, request), stored);
+        }
+
+        return toResponse(stored);
+    }
+
+    /**
+     * Whether the cached response may be served without revalidation.
+     *
+     * @param cached cached response
+     * @param now current epoch milliseconds
+     * @return true if the cached response is fresh
+     */
+
+    static boolean isFresh(final CachedHttpResponse cached, final long now) {
+        String cacheControl = cached.getFirstHeader(CACHE_CONTROL);
+
+        if (hasDirective(cacheControl, NO_CACHE) || hasDirective(cacheControl, NO_STORE)) {
+            return false;
+        }
+
+        long lifetime = getMaxAge(cacheControl);
+
+        if (lifetime < 0) {
+            Date expires = parseHeaderDate(cached.getFirstHeader(EXPIRES));
+
+            if (expires == null) {
+                return false;
+            }
+
+            Date date = parseHeaderDate(cached.getFirstHeader(DATE));
+            long origin = date == null ? cached.getStoredAt() : date.getTime();
+
+            lifetime = MILLISECONDS.toSeconds(expires.getTime() - origin);
+        }
+
+        long age = MILLISECONDS.toSeconds(now - cached.getStoredAt()) + parseLong(cached.getFirstHeader(AGE), 0);
+
+        return age < lifetime;
+    }
+
+    private static boolean isStorable(final ClientRequest request, final MultivaluedMap<String, String> headers) {
+        String cacheControl = headers.getFirst(CACHE_CONTROL);
+        List<String> vary = getVary(headers);
+
+        if (hasDirective(cacheControl, NO_STORE) || vary != null && vary.contains(ANY)) {
+            return false;
+        }
+
+        // responses to authorized requests are stored only if explicitly shareable
+        if (getHeader(request, AUTHORIZATION) != null && !hasDirective(cacheControl, PUBLIC) &&
+                !hasDirective(cacheControl, S_MAXAGE)) {
+            return false;
+        }
+
+        return (getMaxAge(cacheControl) > 0 ||
+                headers.getFirst(EXPIRES) != null || headers.getFirst(ETAG) != null ||
+                headers.getFirst(LAST_MODIFIED) != null);
+    }
+
+    private static boolean addValidators(final ClientRequest request, final CachedHttpResponse cached) {
+        MultivaluedMap<String, Object> headers = request.getHeaders();
+
+        if (headers.containsKey(IF_NONE_MATCH) || headers.containsKey(IF_MODIFIED_SINCE)) {
+            return false;
+        }
+
+        String etag = cached.getFirstHeader(ETAG);
+        String lastModified = cached.getFirstHeader(LAST_MODIFIED);
+
+        if (etag != null) {
+            headers.putSingle(IF_NONE_MATCH, etag);
+        }
+
+        if (lastModified != null) {
+            headers.putSingle(IF_MODIFIED_SINCE, lastModified);
+        }
+
+        return etag != null || lastModified != null;
+    }
+
+    private ClientResponse toResponse(final CachedHttpResponse cached) {
+        InBoundHeaders headers = new InBoundHeaders();
+
+        for (Map.Entry<String, List<String>> header : cached.getHeaders().entrySet()) {
+            headers.put(header.getKey(), new ArrayList<>(header.getValue()));
+        }
+
+        return new ClientResponse(cached.getStatus(), headers, new ByteArrayInputStream(cached.getBody()), workers);
+    }
+
+    private static byte[] read(final ClientResponse response) {
+        try {
+            return ByteStreams.toByteArray(response.getEntityInputStream());
+        } catch (IOException e) {
+            throw new ClientHandlerException(e);
+        } finally {
+            response.close();
+        }
+    }
+
+    private static Map<String, List<String>> copy(final MultivaluedMap<String, String> headers) {
+        Map<String, List<String>> copy = new LinkedHashMap<>();
+
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            copy.put(header.getKey(), new ArrayList<>(header.getValue()));
+        }
+
+        return copy;
+    }
+
+    private static Map<String, List<String>> merge(final Map<String, List<String>> cached,
+                                                   final MultivaluedMap<String, String> revalidated) {
+        Map<String, List<String>> merged = new LinkedHashMap<>();
+
+        for (Map.Entry<String, List<String>> header : cached.entrySet()) {
+            if (!containsIgnoreCase(revalidated, header.getKey()) || isEntityHeader(header.getKey())) {
+                merged.put(header.getKey(), header.getValue());
+            }
+        }
+
+        for (Map.Entry<String, List<String>> header : revalidated.entrySet()) {
+            if (!isEntityHeader(header.getKey())) {
+                merged.put(header.getKey(), new ArrayList<>(header.getValue()));
+            }
+        }
+
+        return merged;
+    }
+
+    private static boolean isEntityHeader(final String name) {
+        return CONTENT_LENGTH.equalsIgnoreCase(name) || CONTENT_ENCODING.equalsIgnoreCase(name) ||
+                TRANSFER_ENCODING.equalsIgnoreCase(name);
+    }
+
+    private static boolean containsIgnoreCase(final MultivaluedMap<String, String> headers, final String name) {
+        for (String key : headers.keySet()) {
+            if (key.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String toKey(final ClientRequest request) {
+        Object accept = request.getHeaders().getFirst(ACCEPT);
+
+        return request.getURI().toString() + (accept == null ? "" : " " + accept);
+    }
+
+    private static String toVariantKey(final String key, final List<String> vary, final ClientRequest request) {
+        StringBuilder variantKey = new StringBuilder(key);
+
+        for (String name : vary) {
+            String value = getHeader(request, name);
+
+            variantKey.append('\n').append(name).append(':').append(value == null ? "" : value);
+        }
+
+        return variantKey.toString();
+    }
+
+    // the lower case request header names listed by the Vary headers, or null if none
+    private static List<String> getVary(final Map<String, List<String>> headers) {
+        List<String> vary = null;
+
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!VARY.equalsIgnoreCase(header.getKey())) {
+                continue;
+            }
+
+            for (String value : header.getValue()) {
+                for (String name : value.split(",")) {
+                    if (!name.trim().isEmpty()) {
+                        vary = vary == null ? new ArrayList<String>() : vary;
+                        vary.add(name.trim().toLowerCase(ENGLISH));
+                    }
+                }
+            }
+        }
+
+        return vary;
+    }
+
+    private static String getHeader(final ClientRequest request, final String name) {
+        StringBuilder value = null;
+
+        for (Map.Entry<String, List<Object>> header : request.getHeaders().entrySet()) {
+            if (!header.getKey().equalsIgnoreCase(name)) {
+                continue;
+            }
+
+            for (Object item : header.getValue()) {
+                value = value == null ? new StringBuilder() : value.append(',');
+                value.append(ClientRequest.getHeaderValue(item));
+            }
+        }
+
+        return value == null ? null : value.toString();
+    }
+
+    private static boolean hasDirective(final MultivaluedMap<String, Object> headers, final String directive) {
+        Object cacheControl = headers.getFirst(CACHE_CONTROL);
+
+        return cacheControl != null && hasDirective(cacheControl.toString(), directive);
+    }
+
+    private static boolean hasDirective(final String cacheControl, final String directive) {
+        if (cacheControl == null) {
+            return false;
+        }
+
+        for (String token : cacheControl.split(",")) {
+            String name = token.trim().toLowerCase(ENGLISH);
+
+            if (name.equals(directive) || name.startsWith(directive + "=")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static long getMaxAge(final String cacheControl) {
+        if (cacheControl == null) {
+            return -1;
+        }
+
+        for (String token : cacheControl.split(",")) {
+            String[] directive = token.trim().split("=", 2);
+
+            if (directive.length == 2 && MAX_AGE.equalsIgnoreCase(directive[0].trim())) {
+                return parseLong(directive[1].trim().replace("\"", ""), -1);
+            }
+        }
+
+        return -1;
+    }
+
+    private static Date parseHeaderDate(final String value) {
+        return value == null ? null : parseDate(value);
+    }
+
+    private static long parseLong(final String value, final long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
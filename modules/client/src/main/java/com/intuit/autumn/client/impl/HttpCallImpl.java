@@ -19,6 +19,7 @@ package com.intuit.autumn.client.impl;
 import com.google.inject.Inject;
 import com.intuit.autumn.client.HttpCall;
 import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpCallTemplate;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
@@ -34,6 +35,7 @@ import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import static com.sun.jersey.api.client.config.ClientConfig.PROPERTY_BUFFER_RESPONSE_ENTITY_ON_EXCEPTION;
 import static com.sun.jersey.api.json.JSONConfiguration.FEATURE_POJO_MAPPING;
@@ -80,11 +82,49 @@ public class HttpCallImpl<T> implements HttpCall<T> {
 
     @Override
     public T makeRequest(final String httpMethod, final HttpCallConfig<T> config) {
-        ClientResponse response = getResponse(httpMethod, config);
+        if (RequestCoalescer.isCoalescable(httpMethod, config)) {
+            return RequestCoalescer.getInstance().execute(httpMethod, config, new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return execute(httpMethod, config);
+                }
+            });
+        }
+
+        return execute(httpMethod, config);
+    }
+
+    @Override
+    public T execute(final HttpCallTemplate<T> template, final Object data, final Object... values) {
+        HttpCallConfig<T> config = template.getConfig();
+        String url = template.expand(values);
+        Client client = getClient(config);
+        WebResource webResource = ClientFilters.bind(client.resource(url), config);
+        WebResource.Builder builder = addHeaders(webResource, template.getHeaders(), Codecs.getAccept(config),
+                Codecs.getType(config, data));
+
+        return toResult(config, url, getResponse(template.getHttpMethod(), config, client, builder,
+                Codecs.toEntity(config, data)));
+    }
+
+    private T execute(final String httpMethod, final HttpCallConfig<T> config) {
+        // set up the webresource object to make the REST call by obtaining the client object with or without
+        // proxy as specified.
+        Client client = getClient(config);
+        WebResource webResource = client.resource(config.getUrl());
+        webResource = ClientFilters.bind(addQueryParams(webResource, config.getQueryParams()), config);
+        WebResource.Builder builder = addHeaders(webResource, config.getHeaders(), Codecs.getAccept(config),
+                Codecs.getType(config));
+
+        return toResult(config, config.getUrl(), getResponse(httpMethod, config, client, builder,
+                Codecs.toEntity(config)));
+    }
+
+    private T toResult(final HttpCallConfig<T> config, final String url, final ClientResponse response) {
 
         //check for a successful verification
         if (response != null && response.getStatus() != config.getExpectedStatus()) {
-            String msg = format("error, get call to %s returned status was %s expecting status = %s", config.getUrl(),
+            String msg = format("error, get call to %s returned status was %s expecting status = %s", url,
                     response.getStatus(), config.getExpectedStatus());
 
             LOGGER.error(msg);
@@ -93,7 +133,7 @@ public class HttpCallImpl<T> implements HttpCall<T> {
 
             throw new HttpCallException(msg);
         } else if (response == null) {
-            String msg = format("error, get call to %s expecting status = %s", config.getUrl(),
+            String msg = format("error, get call to %s expecting status = %s", url,
                     config.getExpectedStatus());
 
             LOGGER.error(msg);
@@ -101,17 +141,20 @@ public class HttpCallImpl<T> implements HttpCall<T> {
             throw new UnsupportedOperationException(msg);
         }
 
+        if (ResponseStreams.isStream(config.getToMap())) {
+            return (T) ResponseStreams.toStream(response);
+        }
+
+        if (Codecs.isDecoded(config)) {
+            return Codecs.decode(response, config);
+        }
+
         return (config.getToMap() == null || ClientResponse.class == config.getToMap())
                 ? (T) response : response.getEntity(config.getToMap());
     }
 
-    private ClientResponse getResponse(final String httpMethod, final HttpCallConfig<T> config) {
-        // set up the webresource object to make the REST call by obtaining the client object with or without
-        // proxy as specified.
-        Client client = getClient(config);
-        WebResource webResource = client.resource(config.getUrl());
-        webResource = addQueryParams(webResource, config.getQueryParams());
-        WebResource.Builder builder = addHeaders(webResource, config.getHeaders(), config.getAccept(), config.getType());
+    private ClientResponse getResponse(final String httpMethod, final HttpCallConfig<T> config, final Client client,
+                                       final WebResource.Builder builder, final Object entity) {
         ClientResponse response = null;
 
         try {
@@ -122,14 +165,14 @@ public class HttpCallImpl<T> implements HttpCall<T> {
 
                     break;
                 case POST:
-                    response = (config.getData().isPresent()) ?
-                            builder.post(ClientResponse.class, config.getData().get()) :
+                    response = (entity != null) ?
+                            builder.post(ClientResponse.class, entity) :
                             builder.post(ClientResponse.class);
 
                     break;
                 case PUT:
-                    response = (config.getData().isPresent()) ?
-                            builder.put(ClientResponse.class, config.getData().get()) :
+                    response = (entity != null) ?
+                            builder.put(ClientResponse.class, entity) :
                             builder.put(ClientResponse.class);
 
                     break;
@@ -145,14 +188,20 @@ public class HttpCallImpl<T> implements HttpCall<T> {
                     throw new UnsupportedOperationException(msg);
             }
         } finally {
-            client.destroy();
+            if (!Http2ClientEngine.isEligible(config)) {
+                client.destroy();
+            }
         }
 
         return response;
     }
 
     private Client getClient(final HttpCallConfig<T> config) {
-        ClientConfig clientConfig = new DefaultClientConfig();
+        if (Http2ClientEngine.isEligible(config)) {
+            return Http2ClientEngine.getInstance().getClient();
+        }
+
+        ClientConfig clientConfig = RequestBodies.register(new DefaultClientConfig());
 
         clientConfig.getFeatures().put(FEATURE_POJO_MAPPING, TRUE);
 
@@ -171,7 +220,16 @@ public class HttpCallImpl<T> implements HttpCall<T> {
                             }
                         }
 
-                        return (HttpURLConnection) url.openConnection(p);
+                        final HttpURLConnection connection = (HttpURLConnection) url.openConnection(p);
+
+                        Attempt.onAbort(new Runnable() {
+                            @Override
+                            public void run() {
+                                connection.disconnect();
+                            }
+                        });
+
+                        return connection;
                     }
                 }), clientConfig);
 
@@ -190,7 +248,7 @@ public class HttpCallImpl<T> implements HttpCall<T> {
 
         LOGGER.info("Properties of the sun jersey client used by the application: {}", client.getProperties().toString());
 
-        return client;
+        return ClientFilters.install(client);
     }
 
     @Override
@@ -19,21 +19,19 @@ package com.intuit.autumn.client.impl;
 import com.google.inject.Inject;
 import com.intuit.autumn.client.HttpCall;
 import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpCallTemplate;
 import com.sun.jersey.api.client.Client;
-import com.sun.jersey.api.client.ClientHandler;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
-import com.sun.jersey.api.client.config.ClientConfig;
-import com.sun.jersey.client.apache.ApacheHttpClient;
-import com.sun.jersey.client.apache.ApacheHttpClientHandler;
-import com.sun.jersey.client.apache.config.DefaultApacheHttpClientConfig;
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.SimpleHttpConnectionManager;
 import org.slf4j.Logger;
 
+import java.net.URI;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
-import static com.sun.jersey.client.apache.config.ApacheHttpClientConfig.PROPERTY_PROXY_URI;
+import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
 import static javax.ws.rs.HttpMethod.*;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -49,14 +47,47 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class HttpCallImplWithConnectionPooling<T> implements HttpCall<T> {
 
     private static final Logger LOGGER = getLogger(HttpCall.class);
-    private Client client;
+    private final ConnectionPoolRegistry connectionPoolRegistry;
 
     /**
-     * Constructor.
+     * Constructor bound to the process-wide connection pool registry.
      */
 
     @Inject
     public HttpCallImplWithConnectionPooling() {
+        this(ConnectionPoolRegistry.getInstance());
+    }
+
+    /**
+     * Constructor with configurable state.
+     *
+     * @param connectionPoolRegistry shared connection pool registry
+     */
+
+    public HttpCallImplWithConnectionPooling(final ConnectionPoolRegistry connectionPoolRegistry) {
+        this.connectionPoolRegistry = connectionPoolRegistry;
+    }
+
+    /**
+     * Open pooled connections ahead of the first requests, e.g. at service startup, so that these do not pay for name
+     * resolution, connection establishment and TLS handshakes. Configurations not using connection pooling, or
+     * served over HTTP/2, are skipped.
+     *
+     * @param configs request configurations, one per pool, matching those of the requests they warm up
+     * @param connections connections to open per pool
+     * @return number of connections opened
+     */
+
+    public int warmUp(final List<? extends HttpCallConfig<?>> configs, final int connections) {
+        List<HttpCallConfig<?>> pooled = newArrayList();
+
+        for (HttpCallConfig<?> config : configs) {
+            if (config.getUseConnectionPooling() && !Http2ClientEngine.isEligible(config)) {
+                pooled.add(config);
+            }
+        }
+
+        return connectionPoolRegistry.warmUp(pooled, connections);
     }
 
     @Override
@@ -76,7 +107,45 @@ public class HttpCallImplWithConnectionPooling<T> implements HttpCall<T> {
 
     @Override
     public T makeRequest(final String httpMethod, final HttpCallConfig<T> config) {
-        ClientResponse response = getResponse(httpMethod, config);
+        if (RequestCoalescer.isCoalescable(httpMethod, config)) {
+            return RequestCoalescer.getInstance().execute(httpMethod, config, new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return execute(httpMethod, config);
+                }
+            });
+        }
+
+        return execute(httpMethod, config);
+    }
+
+    @Override
+    public T execute(final HttpCallTemplate<T> template, final Object data, final Object... values) {
+        HttpCallConfig<T> config = template.getConfig();
+        String url = template.expand(values);
+        Client client = getClient(config, template.getOrigin());
+        WebResource webResource = ClientFilters.bind(client.resource(url), config);
+        WebResource.Builder builder = addHeaders(webResource, template.getHeaders(), Codecs.getAccept(config),
+                Codecs.getType(config, data));
+
+        return toResult(config, url, getResponse(template.getHttpMethod(), config, client, builder,
+                Codecs.toEntity(config, data)));
+    }
+
+    private T execute(final String httpMethod, final HttpCallConfig<T> config) {
+        // Set up the webresource object to make the REST call by obtaining the client object with or without
+        // proxy as specified.
+        Client client = getClient(config, URI.create(config.getUrl()));
+        WebResource webResource = client.resource(config.getUrl());
+        webResource = ClientFilters.bind(addQueryParams(webResource, config.getQueryParams()), config);
+        WebResource.Builder builder = addHeaders(webResource, config.getHeaders(), Codecs.getAccept(config),
+                Codecs.getType(config));
+
+        return toResult(config, config.getUrl(), getResponse(httpMethod, config, client, builder,
+                Codecs.toEntity(config)));
+    }
+
+    private T toResult(final HttpCallConfig<T> config, final String url, final ClientResponse response) {
 
         //check for a successful verification
         if (response == null) {
@@ -90,7 +159,7 @@ public class HttpCallImplWithConnectionPooling<T> implements HttpCall<T> {
 
         if (response.getStatus() != config.getExpectedStatus()) {
             String msg = format("data.autumn: HttpCalls: error, get call to %s returned status was %s expecting status = %s",
-                    config.getUrl(), response.getStatus(), config.getExpectedStatus());
+                    url, response.getStatus(), config.getExpectedStatus());
 
             LOGGER.error(msg);
 
@@ -100,19 +169,22 @@ public class HttpCallImplWithConnectionPooling<T> implements HttpCall<T> {
             throw new HttpCallException(msg);
         }
 
+        // Streamed responses release the connection once exhausted or closed.
+        if (ResponseStreams.isStream(config.getToMap())) {
+            return (T) ResponseStreams.toStream(response);
+        }
+
+        if (Codecs.isDecoded(config)) {
+            return Codecs.decode(response, config);
+        }
+
         // Typically response.getEntity takes care of closing the response and freeing the thread.
         return (ClientResponse.class == config.getToMap() || config.getToMap() == null) ? (T) response : response.getEntity(config.getToMap());
 
     }
 
-    private ClientResponse getResponse(final String httpMethod, final HttpCallConfig<T> config) {
-        // Set up the webresource object to make the REST call by obtaining the client object with or without
-        // proxy as specified.
-        client = getClient(config);
-
-        WebResource webResource = client.resource(config.getUrl());
-        webResource = addQueryParams(webResource, config.getQueryParams());
-        WebResource.Builder builder = addHeaders(webResource, config.getHeaders(), config.getAccept(), config.getType());
+    private ClientResponse getResponse(final String httpMethod, final HttpCallConfig<T> config, final Client client,
+                                       final WebResource.Builder builder, final Object entity) {
         ClientResponse response = null;
 
         try {
@@ -123,14 +195,14 @@ public class HttpCallImplWithConnectionPooling<T> implements HttpCall<T> {
 
                     break;
                 case POST:
-                    response = (config.getData().isPresent()) ?
-                            builder.post(ClientResponse.class, config.getData().get()) :
+                    response = (entity != null) ?
+                            builder.post(ClientResponse.class, entity) :
                             builder.post(ClientResponse.class);
 
                     break;
                 case PUT:
-                    response = (config.getData().isPresent()) ?
-                            builder.put(ClientResponse.class, config.getData().get()) :
+                    response = (entity != null) ?
+                            builder.put(ClientResponse.class, entity) :
                             builder.put(ClientResponse.class);
 
                     break;
@@ -146,10 +218,14 @@ public class HttpCallImplWithConnectionPooling<T> implements HttpCall<T> {
 
                     throw new UnsupportedOperationException(msg);
             }
+        } catch (HttpCallRejectedException e) {
+            LOGGER.warn("data.autumn: HttpCall rejected: {}", e.getMessage());
+
+            throw e;
         } catch (Exception e) {
             LOGGER.error("data.autumn: HttpCall error", e);
         } finally {
-            if (!config.getUseConnectionPooling()) {
+            if (!config.getUseConnectionPooling() && !Http2ClientEngine.isEligible(config)) {
                 client.destroy();
             }
         }
@@ -157,43 +233,20 @@ public class HttpCallImplWithConnectionPooling<T> implements HttpCall<T> {
         return response;
     }
 
-    private Client getClient(final HttpCallConfig<T> config) {
-        // If either use connection pooling
-        if (!config.getUseConnectionPooling() || client == null) {
-            MultiThreadedHttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager();
-
-            if (config.getMaxConnectionPerHost().or(-1) > 0) {
-                connectionManager.getParams().setDefaultMaxConnectionsPerHost(config.getMaxConnectionPerHost().get());
-            } else {
-                connectionManager.getParams().setDefaultMaxConnectionsPerHost(20);
-            }
-
-            HttpClient httpClient = new HttpClient(connectionManager);
-            ApacheHttpClientHandler clientHandler = new ApacheHttpClientHandler(httpClient);
-            ClientHandler root = new ApacheHttpClient(clientHandler);
-            ClientConfig config1 = new DefaultApacheHttpClientConfig();
-
-            if (config.getProxyURL().isPresent()) {
-                String proxyURLWithPort = "http://" + config.getProxyURL() + ':' + config.getProxyPort();
-
-                config1.getProperties().put(PROPERTY_PROXY_URI, proxyURLWithPort);
-            }
-
-            client = new Client(root, config1);
+    private Client getClient(final HttpCallConfig<T> config, final URI origin) {
+        if (Http2ClientEngine.isEligible(config)) {
+            return Http2ClientEngine.getInstance().getClient();
+        }
 
-            //Setting connection timeouts and read timeouts when present and doing it in the getClient method
-            if (config.getConnectionTimeout().or(-1) > 0) {
-                client.setConnectTimeout(config.getConnectionTimeout().get());
-            }
+        if (config.getUseConnectionPooling()) {
+            return connectionPoolRegistry.getClient(config, origin);
+        }
 
-            if (config.getReadTimeOut().or(-1) > 0) {
-                client.setReadTimeout(config.getReadTimeOut().get());
-            }
+        // single use: the connection is closed as soon as the response is released
+        Client client = ConnectionPoolRegistry.newClient(config, new SimpleHttpConnectionManager(true));
 
-            //Logging the client properties
-            LOGGER.info("Created a new client with the following properties set by the application {}",
-                    client.getProperties().toString());
-        }
+        LOGGER.info("Created a new client with the following properties set by the application {}",
+                client.getProperties().toString());
 
         return client;
     }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+/**
+ * Signals a request rejected without being sent, e.g. by a full bulkhead or an open circuit breaker.
+ */
+
+public class HttpCallRejectedException extends HttpCallException {
+
+    public HttpCallRejectedException(String message) {
+        super(message);
+    }
+
+    public HttpCallRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.intuit.autumn.client.Flow;
+import com.intuit.autumn.client.HttpCall;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpPage;
+import com.intuit.autumn.client.HttpPagination;
+import com.intuit.autumn.client.PaginationPolicy;
+import com.intuit.autumn.utils.Deadline;
+import com.sun.jersey.api.client.ClientResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.CASE_INSENSITIVE_ORDER;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+import static javax.ws.rs.HttpMethod.GET;
+
+/**
+ * A pagination implementation over the blocking, pooled client.
+ *
+ * Each subscription fetches its pages one at a time on an executor thread, never more than the prefetch ahead of
+ * demand, i.e. at most max(prefetch, 1) pages are buffered, and delivers them on the thread fetching or requesting,
+ * one at a time. The shared executor runs at most 64 fetches at once, across subscriptions, queueing the others.
+ */
+
+public class HttpPaginationImpl implements HttpPagination {
+
+    private static final int MAXIMUM_FETCHES = 64;
+    private static final Executor EXECUTOR = newExecutor();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern LINK = Pattern.compile("<([^>]*)>([^<]*)");
+    private static final Pattern REL = Pattern.compile(";\\s*rel\\s*=\\s*(?:\"([^\"]*)\"|([^;,\\s]*))",
+            CASE_INSENSITIVE);
+    private final HttpCall<ClientResponse> httpCall;
+    private final Executor executor;
+
+    /**
+     * Constructor bound to the pooled client.
+     */
+
+    @Inject
+    public HttpPaginationImpl() {
+        this(new HttpCallImplWithConnectionPooling<ClientResponse>(), EXECUTOR);
+    }
+
+    /**
+     * Constructor with configurable state.
+     *
+     * @param httpCall blocking client, returning unread responses
+     * @param executor executor pages are fetched on
+     */
+
+    public HttpPaginationImpl(final HttpCall<ClientResponse> httpCall, final Executor executor) {
+        this.httpCall = httpCall;
+        this.executor = executor;
+    }
+
+    @Override
+    public <T> Flow.Publisher<HttpPage<T>> pages(final HttpCallConfig<T> config, final PaginationPolicy policy) {
+        checkArgument(config.getToMap() != null && ClientResponse.class != config.getToMap() &&
+                !ResponseStreams.isStream(config.getToMap()), "pages must map to a type");
+        checkArgument(policy.getPrefetch() >= 0, "negative prefetch");
+        checkArgument(policy.getMaxPages() > 0, "non-positive maximum pages");
+        checkArgument(policy.getCursorParam() == null || policy.getCursorPointer() != null,
+                "cursor parameter without cursor pointer");
+
+        return new Flow.Publisher<HttpPage<T>>() {
+            @Override
+            public void subscribe(final Flow.Subscriber<? super HttpPage<T>> subscriber) {
+                PageSubscription<T> subscription = new PageSubscription<>(config, policy, subscriber);
+
+                subscriber.onSubscribe(subscription);
+            }
+        };
+    }
+
+    private <T> HttpPage<T> fetch(final HttpCallConfig<T> config, final int index) {
+        @SuppressWarnings("unchecked")
+        HttpCallConfig<ClientResponse> request = ((HttpCallConfig.Builder) HttpCallConfig.Builder
+                .aHttpCallConfig(config)).withToMap(ClientResponse.class).build();
+        ClientResponse response = httpCall.makeRequest(GET, request);
+
+        if (response == null) {
+            throw new HttpCallException(format("error, GET call to %s returned no response, page: %s",
+                    config.getUrl(), index));
+        }
+
+        boolean read = false;
+
+        try {
+            Map<String, List<String>> headers = new TreeMap<>(CASE_INSENSITIVE_ORDER);
+
+            headers.putAll(response.getHeaders());
+
+            T value = Codecs.isDecoded(config) ? Codecs.decode(response, config) :
+                    response.getEntity(config.getToMap());
+
+            read = true;
+
+            return new HttpPage<>(config, index, response.getStatus(), headers, value);
+        } catch (RuntimeException e) {
+            throw new HttpCallException(format("error, unable to read page %s of %s, status: %s", index,
+                    config.getUrl(), response.getStatus()), e);
+        } finally {
+            // releasing the connection, as reading the entity does
+            if (!read) {
+                response.close();
+            }
+        }
+    }
+
+    private static Executor newExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAXIMUM_FETCHES, MAXIMUM_FETCHES, 60, SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder().setNameFormat("autumn-pagination-%d")
+                .setDaemon(true).build());
+
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    private static <T> HttpCallConfig<T> next(final HttpPage<T> page, final PaginationPolicy policy) {
+        HttpCallConfig<T> config = page.getConfig();
+
+        if (policy.getCursorParam() != null) {
+            String cursor = at(page, policy.getCursorPointer());
+
+            if (cursor == null) {
+                return null;
+            }
+
+            Map<String, String> queryParams = config.getQueryParams() == null ? new HashMap<String, String>() :
+                    new HashMap<>(config.getQueryParams());
+
+            queryParams.put(policy.getCursorParam(), cursor);
+
+            return HttpCallConfig.Builder.aHttpCallConfig(config).withQueryParams(queryParams).build();
+        }
+
+        String link = policy.getNextLinkPointer() != null ? at(page, policy.getNextLinkPointer()) :
+                getNextLink(page.getHeaders().get("Link"));
+
+        if (link == null) {
+            return null;
+        }
+
+        // the next page link carries its own query
+        return HttpCallConfig.Builder.aHttpCallConfig(config).withUrl(URI.create(config.getUrl()).resolve(link)
+                .toString()).withQueryParams(null).build();
+    }
+
+    private static String at(final HttpPage<?> page, final String pointer) {
+        Object value = page.getValue();
+        JsonNode node;
+
+        try {
+            if (value instanceof String) {
+                node = MAPPER.readTree((String) value);
+            } else if (value instanceof byte[]) {
+                node = MAPPER.readTree((byte[]) value);
+            } else {
+                node = MAPPER.valueToTree(value);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new HttpCallException(format("error, unable to read the next page of %s", page), e);
+        }
+
+        JsonNode field = node == null ? null : node.at(pointer);
+
+        return field == null || field.isMissingNode() || field.isNull() || field.asText().isEmpty() ? null :
+                field.asText();
+    }
+
+    // RFC 5988 link whose relation types include next
+    private static String getNextLink(final List<String> links) {
+        if (links == null) {
+            return null;
+        }
+
+        for (String header : links) {
+            Matcher link = LINK.matcher(header);
+
+            while (link.find()) {
+                Matcher rel = REL.matcher(link.group(2));
+
+                while (rel.find()) {
+                    String types = rel.group(1) != null ? rel.group(1) : rel.group(2);
+
+                    for (String type : types.trim().split("\\s+")) {
+                        if ("next".equalsIgnoreCase(type)) {
+                            return link.group(1);
+                        }
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private final class PageSubscription<T> implements Flow.Subscription {
+
+        private final PaginationPolicy policy;
+        private final Flow.Subscriber<? super HttpPage<T>> subscriber;
+        private final Queue<HttpPage<T>> pages = new ArrayDeque<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        // that of the subscribing thread, bound on the executor threads fetching
+        private final Deadline deadline = Deadline.getCurrent();
+        private HttpCallConfig<T> next;
+        private int fetched;
+        private long demand;
+        private boolean fetching;
+        private boolean cancelled;
+        private boolean done;
+        private Throwable failure;
+
+        private PageSubscription(final HttpCallConfig<T> config, final PaginationPolicy policy,
+                                 final Flow.Subscriber<? super HttpPage<T>> subscriber) {
+            this.next = config;
+            this.policy = policy;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    // signalled ahead of any page already fetched
+                    fail(new IllegalArgumentException("non-positive request: " + n));
+                    pages.clear();
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                pages.clear();
+            }
+        }
+
+        // serialized, whichever of the requesting and fetching threads gets here first delivering for both
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+
+            do {
+                while (true) {
+                    HttpPage<T> page = null;
+                    boolean fetch;
+                    Throwable error;
+
+                    synchronized (this) {
+                        if (cancelled || done) {
+                            return;
+                        }
+
+                        if (demand > 0) {
+                            page = pages.poll();
+                        }
+
+                        if (page != null) {
+                            demand--;
+                        }
+
+                        // fetched ahead while the page is processed, up to the prefetch or else on demand
+                        fetch = !fetching && next != null && (pages.size() < policy.getPrefetch() ||
+                                pages.isEmpty() && demand > 0);
+                        fetching |= fetch;
+                        done = page == null && pages.isEmpty() && !fetching && next == null;
+                        error = failure;
+                    }
+
+                    if (fetch) {
+                        fetchNext();
+                    }
+
+                    if (page != null) {
+                        try {
+                            subscriber.onNext(page);
+                        } catch (RuntimeException e) {
+                            cancel();
+                            subscriber.onError(e);
+
+                            return;
+                        }
+                    } else if (done) {
+                        if (error != null) {
+                            subscriber.onError(error);
+                        } else {
+                            subscriber.onComplete();
+                        }
+
+                        return;
+                    } else if (!fetch) {
+                        break;
+                    }
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void fetchNext() {
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        HttpCallConfig<T> config;
+                        int index;
+                        Deadline previous = Deadline.attach(deadline);
+
+                        synchronized (PageSubscription.this) {
+                            config = next;
+                            index = fetched;
+                        }
+
+                        try {
+                            HttpPage<T> page = fetch(config, index);
+                            HttpCallConfig<T> following = index + 1 < policy.getMaxPages() ? next(page, policy) :
+                                    null;
+
+                            synchronized (PageSubscription.this) {
+                                fetching = false;
+                                fetched++;
+
+                                // unless failed meanwhile, by a non-positive request, which is signalled at once
+                                if (failure == null) {
+                                    next = following;
+
+                                    if (!cancelled) {
+                                        pages.add(page);
+                                    }
+                                }
+                            }
+                        } catch (RuntimeException e) {
+                            synchronized (PageSubscription.this) {
+                                fetching = false;
+                                fail(e);
+                            }
+                        } finally {
+                            Deadline.detach(previous);
+                        }
+
+                        drain();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    fetching = false;
+                    fail(e);
+                }
+            }
+        }
+
+        // signalled once pages already fetched are delivered
+        private void fail(final Throwable throwable) {
+            if (failure == null) {
+                failure = throwable;
+            }
+
+            next = null;
+        }
+    }
+}
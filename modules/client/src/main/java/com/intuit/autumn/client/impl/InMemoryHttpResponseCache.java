@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.intuit.autumn.client.CachedHttpResponse;
+import com.intuit.autumn.client.HttpResponseCache;
+
+import static com.google.common.cache.RemovalCause.SIZE;
+
+/**
+ * A size bounded, least recently used, in memory response cache.
+ *
+ * Entries are weighed by their approximate retained size in bytes. Entries evicted for size are handed to the optional
+ * overflow cache, e.g. a {@link MappedFileHttpResponseCache}, and promoted back into memory on their next hit.
+ */
+
+public class InMemoryHttpResponseCache implements HttpResponseCache {
+
+    private final Cache<String, CachedHttpResponse> cache;
+    private final HttpResponseCache overflow;
+
+    /**
+     * Constructor.
+     *
+     * @param maximumWeight maximum retained size in bytes
+     */
+
+    public InMemoryHttpResponseCache(final long maximumWeight) {
+        this(maximumWeight, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maximumWeight maximum retained size in bytes
+     * @param overflow second level cache receiving evicted entries, or null
+     */
+
+    public InMemoryHttpResponseCache(final long maximumWeight, final HttpResponseCache overflow) {
+        this.overflow = overflow;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(new Weigher<String, CachedHttpResponse>() {
+                    @Override
+                    public int weigh(final String key, final CachedHttpResponse response) {
+                        return key.length() * 2 + response.getWeight();
+                    }
+                })
+                .removalListener(new RemovalListener<String, CachedHttpResponse>() {
+                    @Override
+                    public void onRemoval(final RemovalNotification<String, CachedHttpResponse> notification) {
+                        if (overflow != null && notification.getCause() == SIZE) {
+                            overflow.put(notification.getKey(), notification.getValue());
+                        }
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public CachedHttpResponse get(final String key) {
+        CachedHttpResponse response = cache.getIfPresent(key);
+
+        if (response == null && overflow != null) {
+            response = overflow.get(key);
+
+            if (response != null) {
+                cache.put(key, response);
+            }
+        }
+
+        return response;
+    }
+
+    @Override
+    public void put(final String key, final CachedHttpResponse response) {
+        cache.put(key, response);
+    }
+
+    @Override
+    public void invalidate(final String key) {
+        cache.invalidate(key);
+
+        if (overflow != null) {
+            overflow.invalidate(key);
+        }
+    }
+
+    /**
+     * In memory entry count getter.
+     *
+     * @return number of in memory entries
+     */
+
+    public long size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.collect.MapMaker;
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
+import org.apache.commons.httpclient.protocol.Protocol;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.System.nanoTime;
+import static java.lang.Thread.currentThread;
+import static java.util.Collections.newSetFromMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A connection manager tracking leased and pending connections, published per host, summed over all of the host's
+ * live pools, as the "pool.leased", "pool.available", "pool.pending" and "pool.max" gauges.
+ *
+ * Given a {@link DnsCache}, connections are opened to the cached addresses of their host; given a shared semaphore,
+ * each leased connection also holds one of its permits, capping the connections leased at once across managers. A
+ * permit is awaited for at most the connection manager timeout, or else a default of 30 seconds.
+ *
+ * A leased connection never released, e.g. that of a response left unclosed, is reclaimed by the pool once garbage
+ * collected; its lease, tracked by a weak reference, then ends too, returning its permit.
+ */
+
+class InstrumentedHttpConnectionManager extends MultiThreadedHttpConnectionManager {
+
+    private static final ConcurrentMap<String, Set<InstrumentedHttpConnectionManager>> MANAGERS =
+            new ConcurrentHashMap<>();
+    private static final long DEFAULT_PERMIT_TIMEOUT_MILLIS = 30000L;
+    private static final long RECLAIM_INTERVAL_MILLIS = 100L;
+    private static final ReferenceQueue<HttpConnectionParams> LOST = new ReferenceQueue<>();
+    private static final Set<Lease> LEASES = newSetFromMap(new ConcurrentHashMap<Lease, Boolean>());
+    private final String host;
+    private final DnsCache dnsCache;
+    private final Semaphore permits;
+    private final ConcurrentMap<Protocol, Protocol> protocols = new ConcurrentHashMap<>();
+    // by the leased connection's own parameters, which the pool's connection wrapper shares but does not expose
+    private final ConcurrentMap<HttpConnectionParams, Lease> leases = new MapMaker().weakKeys().makeMap();
+    private final AtomicInteger leased = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Constructor resolving host names per connection.
+     *
+     * @param host host and port served by the pool
+     */
+
+    InstrumentedHttpConnectionManager(final String host) {
+        this(host, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param host host and port served by the pool
+     * @param dnsCache host name resolution cache, or null to resolve host names per connection
+     */
+
+    InstrumentedHttpConnectionManager(final String host, final DnsCache dnsCache) {
+        this(host, dnsCache, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param host host and port served by the pool
+     * @param dnsCache host name resolution cache, or null to resolve host names per connection
+     * @param permits leased connection permits shared by managers, or null not to cap them beyond this pool
+     */
+
+    InstrumentedHttpConnectionManager(final String host, final DnsCache dnsCache, final Semaphore permits) {
+        this.host = host;
+        this.dnsCache = dnsCache;
+        this.permits = permits;
+
+        getManagers(host).add(this);
+    }
+
+    @Override
+    public HttpConnection getConnectionWithTimeout(final HostConfiguration hostConfiguration, final long timeout)
+            throws ConnectionPoolTimeoutException {
+        pending.incrementAndGet();
+
+        try {
+            long remaining = acquire(timeout);
+            boolean acquired = false;
+
+            try {
+                HttpConnection connection = super.getConnectionWithTimeout(resolving(hostConfiguration), remaining);
+                Lease lease = new Lease(connection.getParams(), this);
+
+                acquired = true;
+                LEASES.add(lease);
+                leases.put(connection.getParams(), lease);
+                leased.incrementAndGet();
+
+                return connection;
+            } finally {
+                if (!acquired && permits != null) {
+                    permits.release();
+                }
+            }
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void releaseConnection(final HttpConnection connection) {
+        // ended ahead of the release, as the connection may then be leased again at once
+        Lease lease = leases.remove(connection.getParams());
+
+        try {
+            super.releaseConnection(connection);
+        } finally {
+            if (lease != null) {
+                lease.end();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+
+        getManagers(host).remove(this);
+    }
+
+    /**
+     * Leased connection count getter.
+     *
+     * @return leased connections
+     */
+
+    int getLeased() {
+        reclaim();
+
+        return leased.get();
+    }
+
+    /**
+     * Pending connection request count getter.
+     *
+     * @return threads awaiting a connection
+     */
+
+    int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Available, i.e. open and idle, connection count getter.
+     *
+     * @return available connections
+     */
+
+    int getAvailable() {
+        return Math.max(0, getConnectionsInPool() - leased.get());
+    }
+
+    // the time left of the timeout once a permit is acquired, a timeout of 0 being left to the pool as is
+    private long acquire(final long timeout) throws ConnectionPoolTimeoutException {
+        if (permits == null) {
+            return timeout;
+        }
+
+        long start = nanoTime();
+        long limit = MILLISECONDS.toNanos(timeout > 0 ? timeout : DEFAULT_PERMIT_TIMEOUT_MILLIS);
+
+        try {
+            reclaim();
+
+            // in slices, so that permits of connections lost meanwhile are reclaimed
+            while (!permits.tryAcquire(Math.min(limit - (nanoTime() - start),
+                    MILLISECONDS.toNanos(RECLAIM_INTERVAL_MILLIS)), NANOSECONDS)) {
+                reclaim();
+
+                if (nanoTime() - start >= limit) {
+                    throw new ConnectionPoolTimeoutException("Timeout waiting for a connection under the " +
+                            "process-wide limit");
+                }
+            }
+        } catch (InterruptedException e) {
+            currentThread().interrupt();
+
+            throw new HttpCallRejectedException("interrupted awaiting a connection under the process-wide limit", e);
+        }
+
+        return timeout > 0 ? Math.max(1, timeout - NANOSECONDS.toMillis(nanoTime() - start)) : timeout;
+    }
+
+    // ends the leases of connections garbage collected unreleased, and so reclaimed by their pool
+    private static void reclaim() {
+        for (Object lost = LOST.poll(); lost != null; lost = LOST.poll()) {
+            ((Lease) lost).end();
+        }
+    }
+
+    // connections are pooled by host configuration, so each protocol is consistently replaced by the same instance
+    private HostConfiguration resolving(final HostConfiguration hostConfiguration) {
+        Protocol protocol = hostConfiguration.getProtocol();
+
+        if (dnsCache == null || protocol == null) {
+            return hostConfiguration;
+        }
+
+        Protocol resolving = protocols.get(protocol);
+
+        if (resolving == null) {
+            Protocol candidate = DnsCachingSocketFactory.wrap(protocol, dnsCache);
+
+            resolving = protocols.putIfAbsent(protocol, candidate);
+
+            if (resolving == null) {
+                resolving = candidate;
+            }
+        }
+
+        if (resolving == protocol) {
+            return hostConfiguration;
+        }
+
+        HostConfiguration resolvingHostConfiguration = new HostConfiguration(hostConfiguration);
+
+        resolvingHostConfiguration.setHost(hostConfiguration.getHost(), hostConfiguration.getPort(), resolving);
+
+        return resolvingHostConfiguration;
+    }
+
+    private static Set<InstrumentedHttpConnectionManager> getManagers(final String host) {
+        Set<InstrumentedHttpConnectionManager> managers = MANAGERS.get(host);
+
+        if (managers == null) {
+            Set<InstrumentedHttpConnectionManager> candidate = new CopyOnWriteArraySet<>();
+
+            managers = MANAGERS.putIfAbsent(host, candidate);
+
+            if (managers == null) {
+                managers = candidate;
+
+                register(host, candidate);
+            }
+        }
+
+        return managers;
+    }
+
+    private static void register(final String host, final Set<InstrumentedHttpConnectionManager> managers) {
+        ClientMetrics metrics = ClientMetrics.getInstance();
+
+        metrics.add(ClientMetrics.toName(host, "pool", "leased"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                int sum = 0;
+
+                for (InstrumentedHttpConnectionManager manager : managers) {
+                    sum += manager.getLeased();
+                }
+
+                return sum;
+            }
+        });
+        metrics.add(ClientMetrics.toName(host, "pool", "available"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                int sum = 0;
+
+                for (InstrumentedHttpConnectionManager manager : managers) {
+                    sum += manager.getAvailable();
+                }
+
+                return sum;
+            }
+        });
+        metrics.add(ClientMetrics.toName(host, "pool", "pending"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                int sum = 0;
+
+                for (InstrumentedHttpConnectionManager manager : managers) {
+                    sum += manager.getPending();
+                }
+
+                return sum;
+            }
+        });
+        metrics.add(ClientMetrics.toName(host, "pool", "max"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                int sum = 0;
+
+                for (InstrumentedHttpConnectionManager manager : managers) {
+                    sum += manager.getParams().getMaxTotalConnections();
+                }
+
+                return sum;
+            }
+        });
+    }
+
+    /**
+     * A connection lease, holding one of the shared permits if any, ended once the connection is released or else
+     * garbage collected.
+     */
+
+    private static final class Lease extends WeakReference<HttpConnectionParams> {
+
+        private final InstrumentedHttpConnectionManager manager;
+
+        private Lease(final HttpConnectionParams params, final InstrumentedHttpConnectionManager manager) {
+            super(params, LOST);
+
+            this.manager = manager;
+        }
+
+        private void end() {
+            if (!LEASES.remove(this)) {
+                return;
+            }
+
+            manager.leased.decrementAndGet();
+
+            if (manager.permits != null) {
+                manager.permits.release();
+            }
+        }
+    }
+}
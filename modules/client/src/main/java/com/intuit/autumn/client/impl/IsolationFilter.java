@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.IsolationPolicy;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Isolates requests configured with an {@link IsolationPolicy} behind a per group semaphore bulkhead and circuit
+ * breaker, rejecting them with a {@link HttpCallRejectedException} rather than tying up the calling thread.
+ *
+ * The bulkhead permit is held until the response headers are received. Groups are kept in a {@link KeyedRegistry}, and
+ * each has "circuit-breaker.state" (0 closed, 1 open, 2 half open) and "bulkhead.available" gauges and a "rejected"
+ * meter.
+ */
+
+class IsolationFilter extends ClientFilter {
+
+    private static final int SERVER_ERROR = 500;
+    private static final KeyedRegistry<String, Group> GROUPS = new KeyedRegistry<>();
+    private final KeyedRegistry<String, Group> groups;
+
+    /**
+     * Constructor, sharing the process-wide groups.
+     */
+
+    IsolationFilter() {
+        this(GROUPS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param groups isolation groups
+     */
+
+    IsolationFilter(final KeyedRegistry<String, Group> groups) {
+        this.groups = groups;
+    }
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        HttpCallConfig<?> config = ClientFilters.getConfig(request);
+        Optional<IsolationPolicy> policy = config == null ?
+                Optional.<IsolationPolicy>absent() : config.getIsolationPolicy();
+
+        if (!policy.isPresent()) {
+            return getNext().handle(request);
+        }
+
+        Group group = getGroup(toName(request.getURI(), policy.get()), policy.get());
+
+        if (!acquire(group.bulkhead, policy.get().getMaxWaitMillis())) {
+            group.rejected.mark();
+
+            throw new HttpCallRejectedException(format("bulkhead full, group: %s", group.name));
+        }
+
+        try {
+            CircuitBreaker.Permit permit = group.circuitBreaker.tryAcquire(currentTimeMillis());
+
+            if (permit == CircuitBreaker.Permit.REJECTED) {
+                group.rejected.mark();
+
+                throw new HttpCallRejectedException(format("circuit open, group: %s", group.name));
+            }
+
+            long start = nanoTime();
+            ClientResponse response;
+
+            try {
+                response = getNext().handle(request);
+            } catch (RuntimeException e) {
+                if (ClientFilters.isHostFailure(e)) {
+                    group.circuitBreaker.onComplete(permit, true, isSlow(start, policy.get()), currentTimeMillis());
+                } else {
+                    group.circuitBreaker.onCancel(permit);
+                }
+
+                throw e;
+            }
+
+            group.circuitBreaker.onComplete(permit, response.getStatus() >= SERVER_ERROR,
+                    isSlow(start, policy.get()), currentTimeMillis());
+
+            return response;
+        } finally {
+            group.bulkhead.release();
+        }
+    }
+
+    /**
+     * Circuit breaker state getter.
+     *
+     * @param group group name
+     * @return state, or null for an unknown group
+     */
+
+    CircuitBreaker.State getState(final String group) {
+        Group isolation = groups.getIfPresent(group);
+
+        return isolation == null ? null : isolation.circuitBreaker.getState();
+    }
+
+    private Group getGroup(final String name, final IsolationPolicy policy) {
+        return groups.get(name, new Callable<Group>() {
+            @Override
+            public Group call() {
+                return new Group(name, policy);
+            }
+        });
+    }
+
+    private static boolean acquire(final Semaphore bulkhead, final long maxWaitMillis) {
+        if (maxWaitMillis <= 0) {
+            return bulkhead.tryAcquire();
+        }
+
+        try {
+            return bulkhead.tryAcquire(maxWaitMillis, MILLISECONDS);
+        } catch (InterruptedException e) {
+            currentThread().interrupt();
+
+            throw new HttpCallRejectedException("interrupted awaiting bulkhead", e);
+        }
+    }
+
+    private static boolean isSlow(final long start, final IsolationPolicy policy) {
+        return NANOSECONDS.toMillis(nanoTime() - start) > policy.getSlowCallDurationMillis();
+    }
+
+    private static String toName(final URI uri, final IsolationPolicy policy) {
+        return policy.getGroup() != null ? policy.getGroup() : ClientFilters.toHost(uri);
+    }
+
+    /**
+     * A bulkhead and circuit breaker pair.
+     */
+
+    static final class Group implements KeyedRegistry.Instrumented {
+
+        private final String name;
+        private final Semaphore bulkhead;
+        private final CircuitBreaker circuitBreaker;
+        private final Meter rejected = new Meter();
+        private final Map<String, Metric> metrics;
+
+        private Group(final String name, final IsolationPolicy policy) {
+            this.name = name;
+            this.bulkhead = new Semaphore(policy.getMaxConcurrentRequests());
+            this.circuitBreaker = new CircuitBreaker(policy);
+            this.metrics = ImmutableMap.<String, Metric>of(
+                    ClientMetrics.toName(name, "circuit-breaker", "state"), new Gauge<Integer>() {
+                        @Override
+                        public Integer getValue() {
+                            return circuitBreaker.getState().ordinal();
+                        }
+                    },
+                    ClientMetrics.toName(name, "bulkhead", "available"), new Gauge<Integer>() {
+                        @Override
+                        public Integer getValue() {
+                            return bulkhead.availablePermits();
+                        }
+                    },
+                    ClientMetrics.toName(name, "rejected"), rejected);
+        }
+
+        @Override
+        public Map<String, Metric> getMetrics() {
+            return metrics;
+        }
+    }
+}
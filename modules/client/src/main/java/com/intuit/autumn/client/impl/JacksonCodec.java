@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.intuit.autumn.client.HttpCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A Jackson backed {@link HttpCodec} for a single media type, JSON or a binary format such as Smile or CBOR.
+ *
+ * The ObjectWriter and a per response type ObjectReader are built once and reused, so that no serializer lookup or
+ * configuration copy is paid per request; encoding writes to Jackson's recycled, per thread, output buffers.
+ */
+
+public final class JacksonCodec implements HttpCodec {
+
+    /**
+     * JSON media type.
+     */
+
+    public static final String JSON = "application/json";
+
+    /**
+     * Smile media type.
+     */
+
+    public static final String SMILE = "application/x-jackson-smile";
+
+    /**
+     * CBOR media type.
+     */
+
+    public static final String CBOR = "application/cbor";
+    private static final String JSON_SUFFIX = "+json";
+    private final ObjectMapper mapper;
+    private final String contentType;
+    private final ObjectWriter writer;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param mapper configured mapper, whose factory determines the format and which must not be reconfigured
+     * @param contentType media type of the format
+     */
+
+    public JacksonCodec(final ObjectMapper mapper, final String contentType) {
+        this.mapper = mapper;
+        this.contentType = contentType;
+        this.writer = mapper.writer();
+    }
+
+    /**
+     * JSON codec factory.
+     *
+     * @return codec
+     */
+
+    public static JacksonCodec json() {
+        return new JacksonCodec(new ObjectMapper(), JSON);
+    }
+
+    /**
+     * Smile codec factory.
+     *
+     * @return codec
+     */
+
+    public static JacksonCodec smile() {
+        return new JacksonCodec(new ObjectMapper(new SmileFactory()), SMILE);
+    }
+
+    /**
+     * CBOR codec factory.
+     *
+     * @return codec
+     */
+
+    public static JacksonCodec cbor() {
+        return new JacksonCodec(new ObjectMapper(new CBORFactory()), CBOR);
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getAccept() {
+        return contentType;
+    }
+
+    /**
+     * Whether a media type is decoded by this codec.
+     *
+     * @param mediaType media type, possibly with parameters
+     * @return true if the media type, without parameters, is this codec's, or a +json type for the JSON codec
+     */
+
+    public boolean canDecode(final String mediaType) {
+        String type = toType(mediaType);
+
+        return contentType.equals(type) || (JSON.equals(contentType) && type.endsWith(JSON_SUFFIX));
+    }
+
+    @Override
+    public byte[] encode(final Object value) throws IOException {
+        return writer.writeValueAsBytes(value);
+    }
+
+    @Override
+    public <T> T decode(final InputStream in, final String contentType, final Class<T> type) throws IOException {
+        return getReader(type).readValue(in);
+    }
+
+    private ObjectReader getReader(final Class<?> type) {
+        ObjectReader reader = readers.get(type);
+
+        if (reader == null) {
+            reader = mapper.readerFor(type);
+
+            ObjectReader existing = readers.putIfAbsent(type, reader);
+
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+
+        return reader;
+    }
+
+    private static String toType(final String mediaType) {
+        int parameters = mediaType.indexOf(';');
+
+        return (parameters < 0 ? mediaType : mediaType.substring(0, parameters)).trim().toLowerCase();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Metric;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.sun.jersey.api.client.ClientHandlerException;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Client state kept per key, e.g. per host or group, and created on first use, as by the rate limiting, concurrency
+ * limiting, isolation and load balancing filters.
+ *
+ * The process-wide instances are shared by all clients and publish each entry's metrics via {@link ClientMetrics}.
+ * Entries are bounded: beyond the maximum size the least recently used are evicted and their metrics removed.
+ *
+ * @param <K> key type
+ * @param <V> entry type
+ */
+
+final class KeyedRegistry<K, V extends KeyedRegistry.Instrumented> {
+
+    static final int MAXIMUM_SIZE = 1024;
+    private final Cache<K, V> entries;
+
+    /**
+     * Constructor, bounded to the default maximum size.
+     */
+
+    KeyedRegistry() {
+        this(MAXIMUM_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maximumSize maximum entries
+     */
+
+    KeyedRegistry(final int maximumSize) {
+        this.entries = CacheBuilder.newBuilder().maximumSize(maximumSize).removalListener(new RemovalListener<K, V>() {
+            @Override
+            public void onRemoval(final RemovalNotification<K, V> notification) {
+                unpublish(notification.getValue());
+            }
+        }).build();
+    }
+
+    /**
+     * Entry getter, creating and publishing the entry on first use.
+     *
+     * @param key entry key
+     * @param factory entry factory, called at most once per key while the entry is kept
+     * @return entry
+     */
+
+    V get(final K key, final Callable<V> factory) {
+        try {
+            return entries.get(key, new Callable<V>() {
+                @Override
+                public V call() throws Exception {
+                    return publish(factory.call());
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new ClientHandlerException(e.getCause());
+        }
+    }
+
+    /**
+     * Entry getter.
+     *
+     * @param key entry key
+     * @return entry, or null if absent
+     */
+
+    V getIfPresent(final K key) {
+        return entries.getIfPresent(key);
+    }
+
+    /**
+     * Entry count getter.
+     *
+     * @return number of entries kept
+     */
+
+    long size() {
+        entries.cleanUp();
+
+        return entries.size();
+    }
+
+    private static <V extends Instrumented> V publish(final V entry) {
+        ClientMetrics metrics = ClientMetrics.getInstance();
+
+        for (Map.Entry<String, Metric> metric : entry.getMetrics().entrySet()) {
+            metrics.add(metric.getKey(), metric.getValue());
+        }
+
+        return entry;
+    }
+
+    private static void unpublish(final Instrumented entry) {
+        ClientMetrics metrics = ClientMetrics.getInstance();
+
+        for (Map.Entry<String, Metric> metric : entry.getMetrics().entrySet()) {
+            metrics.remove(metric.getKey(), metric.getValue());
+        }
+    }
+
+    /**
+     * An entry publishing metrics.
+     */
+
+    interface Instrumented {
+
+        /**
+         * Metrics getter.
+         *
+         * @return metrics by name, as built by {@link ClientMetrics#toName(String, String...)}
+         */
+
+        Map<String, Metric> getMetrics();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.Arrays;
+
+/**
+ * Per endpoint latency percentiles over a sliding window of the most recent samples. The number of tracked endpoints
+ * is bounded, the least recently used endpoint being discarded first.
+ */
+
+final class LatencyTracker {
+
+    private static final LatencyTracker INSTANCE = new LatencyTracker();
+    private static final int MAXIMUM_ENDPOINTS = 1024;
+    static final int WINDOW = 128;
+    static final int MINIMUM_SAMPLES = 20;
+    private final LoadingCache<String, Window> windows = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_ENDPOINTS)
+            .build(new CacheLoader<String, Window>() {
+                @Override
+                public Window load(final String endpoint) {
+                    return new Window();
+                }
+            });
+
+    /**
+     * Process-wide tracker getter.
+     *
+     * @return shared tracker
+     */
+
+    static LatencyTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record a sample.
+     *
+     * @param endpoint endpoint key
+     * @param millis observed latency
+     */
+
+    void record(final String endpoint, final long millis) {
+        windows.getUnchecked(endpoint).record(millis);
+    }
+
+    /**
+     * Latency percentile getter.
+     *
+     * @param endpoint endpoint key
+     * @param percentile percentile, in [0, 1]
+     * @return latency milliseconds, or -1 if fewer than {@link #MINIMUM_SAMPLES} samples were recorded
+     */
+
+    long getPercentile(final String endpoint, final double percentile) {
+        Window window = windows.getIfPresent(endpoint);
+
+        return window == null ? -1 : window.getPercentile(percentile);
+    }
+
+    private static final class Window {
+
+        private final long[] samples = new long[WINDOW];
+        private int count;
+
+        synchronized void record(final long millis) {
+            samples[count++ % WINDOW] = millis;
+
+            if (count == 2 * WINDOW) {
+                count = WINDOW;
+            }
+        }
+
+        long getPercentile(final double percentile) {
+            long[] sorted;
+
+            synchronized (this) {
+                if (count < MINIMUM_SAMPLES) {
+                    return -1;
+                }
+
+                sorted = Arrays.copyOf(samples, Math.min(count, WINDOW));
+            }
+
+            Arrays.sort(sorted);
+
+            return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.intuit.autumn.client.LoadBalancingPolicy;
+import org.slf4j.Logger;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.intuit.autumn.client.LoadBalancingPolicy.Strategy.POWER_OF_TWO_CHOICES;
+import static java.lang.System.currentTimeMillis;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Load balancing and outlier ejection state of a logical service.
+ *
+ * The endpoint list is re-read from the {@link com.intuit.autumn.client.ServiceDirectory} on every selection and, when
+ * it changes, endpoints still listed keep their state. Selection is lock-free; endpoint statistics are updated without
+ * coordination and are therefore approximate under contention. The endpoint and ejected endpoint counts are reported,
+ * scoped by service name, as the "load-balancer.endpoints" and "load-balancer.ejected" gauges.
+ */
+
+class LoadBalancer implements KeyedRegistry.Instrumented {
+
+    private static final Logger LOGGER = getLogger(LoadBalancer.class);
+    private static final double LATENCY_WEIGHT = 0.2;
+    private final String serviceName;
+    private final LoadBalancingPolicy policy;
+    private final Map<String, Metric> metrics;
+    private volatile Snapshot snapshot = new Snapshot(ImmutableList.<URI>of(), ImmutableList.<Endpoint>of());
+
+    /**
+     * Constructor.
+     *
+     * @param serviceName logical service name
+     * @param policy load balancing settings
+     */
+
+    LoadBalancer(final String serviceName, final LoadBalancingPolicy policy) {
+        this.serviceName = serviceName;
+        this.policy = policy;
+        this.metrics = ImmutableMap.<String, Metric>of(
+                ClientMetrics.toName(serviceName, "load-balancer", "endpoints"), new Gauge<Integer>() {
+                    @Override
+                    public Integer getValue() {
+                        return getEndpoints().size();
+                    }
+                },
+                ClientMetrics.toName(serviceName, "load-balancer", "ejected"), new Gauge<Integer>() {
+                    @Override
+                    public Integer getValue() {
+                        return getEjected(currentTimeMillis());
+                    }
+                });
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Select an endpoint, skipping ejected endpoints unless all are ejected.
+     *
+     * @param now current time in milliseconds
+     * @return selected endpoint, or null if the service has no endpoints
+     */
+
+    Endpoint select(final long now) {
+        List<Endpoint> endpoints = getEndpoints();
+
+        if (endpoints.isEmpty()) {
+            return null;
+        }
+
+        List<Endpoint> available = new ArrayList<>(endpoints.size());
+
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isEjected(now)) {
+                available.add(endpoint);
+            }
+        }
+
+        if (available.isEmpty()) {
+            available = endpoints;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (policy.getStrategy() == POWER_OF_TWO_CHOICES) {
+            if (available.size() == 1) {
+                return available.get(0);
+            }
+
+            int first = random.nextInt(available.size());
+            int second = random.nextInt(available.size() - 1);
+
+            return lessLoaded(available.get(first), available.get(second < first ? second : second + 1));
+        }
+
+        // start at a random offset so that ties are spread rather than always going to the first endpoint
+        int offset = random.nextInt(available.size());
+        Endpoint selected = available.get(offset);
+
+        for (int i = 1; i < available.size(); i++) {
+            selected = lessLoaded(selected, available.get((offset + i) % available.size()));
+        }
+
+        return selected;
+    }
+
+    /**
+     * Number of endpoints currently ejected.
+     *
+     * @param now current time in milliseconds
+     * @return ejected endpoint count
+     */
+
+    int getEjected(final long now) {
+        int ejected = 0;
+
+        for (Endpoint endpoint : snapshot.endpoints) {
+            if (endpoint.isEjected(now)) {
+                ejected++;
+            }
+        }
+
+        return ejected;
+    }
+
+    /**
+     * Current endpoints.
+     *
+     * @return endpoints
+     */
+
+    List<Endpoint> getEndpoints() {
+        List<URI> uris = policy.getServiceDirectory().getEndpoints(serviceName);
+        Snapshot current = snapshot;
+
+        if (uris.equals(current.uris)) {
+            return current.endpoints;
+        }
+
+        Map<URI, Endpoint> existing = new HashMap<>();
+
+        for (Endpoint endpoint : current.endpoints) {
+            existing.put(endpoint.uri, endpoint);
+        }
+
+        ImmutableList.Builder<Endpoint> endpoints = ImmutableList.builder();
+
+        for (URI uri : uris) {
+            Endpoint endpoint = existing.get(uri);
+
+            endpoints.add(endpoint == null ? new Endpoint(uri) : endpoint);
+        }
+
+        Snapshot updated = new Snapshot(ImmutableList.copyOf(uris), endpoints.build());
+
+        snapshot = updated;
+
+        LOGGER.info("service: {}, endpoints: {}", serviceName, uris);
+
+        return updated.endpoints;
+    }
+
+    private static Endpoint lessLoaded(final Endpoint a, final Endpoint b) {
+        int outstanding = Integer.compare(a.outstanding.get(), b.outstanding.get());
+
+        if (outstanding != 0) {
+            return outstanding < 0 ? a : b;
+        }
+
+        return b.latencyMillis < a.latencyMillis ? b : a;
+    }
+
+    private static final class Snapshot {
+
+        private final List<URI> uris;
+        private final List<Endpoint> endpoints;
+
+        private Snapshot(final List<URI> uris, final List<Endpoint> endpoints) {
+            this.uris = uris;
+            this.endpoints = endpoints;
+        }
+    }
+
+    /**
+     * A service endpoint and its statistics.
+     */
+
+    final class Endpoint {
+
+        private final URI uri;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile double latencyMillis;
+        private volatile long ejectedUntil;
+
+        private Endpoint(final URI uri) {
+            this.uri = uri;
+        }
+
+        /**
+         * Endpoint base URI getter.
+         *
+         * @return base URI
+         */
+
+        URI getUri() {
+            return uri;
+        }
+
+        /**
+         * Resolve a logical request URI against this endpoint, keeping the request path, query and fragment.
+         *
+         * @param logical request URI naming the service
+         * @return endpoint request URI
+         */
+
+        URI resolve(final URI logical) {
+            String base = uri.toString();
+            StringBuilder resolved = new StringBuilder(base.endsWith("/") ? base.substring(0, base.length() - 1) :
+                    base);
+
+            if (logical.getRawPath() != null) {
+                resolved.append(logical.getRawPath());
+            }
+
+            if (logical.getRawQuery() != null) {
+                resolved.append('?').append(logical.getRawQuery());
+            }
+
+            if (logical.getRawFragment() != null) {
+                resolved.append('#').append(logical.getRawFragment());
+            }
+
+            return URI.create(resolved.toString());
+        }
+
+        /**
+         * Outstanding request count getter.
+         *
+         * @return outstanding requests
+         */
+
+        int getOutstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * Whether the endpoint is ejected.
+         *
+         * @param now current time in milliseconds
+         * @return true if ejected
+         */
+
+        boolean isEjected(final long now) {
+            return now < ejectedUntil;
+        }
+
+        /**
+         * Record the start of a request.
+         */
+
+        void start() {
+            outstanding.incrementAndGet();
+        }
+
+        /**
+         * Record the end of a request that was not sent, taking no sample.
+         */
+
+        void cancel() {
+            outstanding.decrementAndGet();
+        }
+
+        /**
+         * Record the completion of a request, ejecting the endpoint if it has become an outlier.
+         *
+         * @param failed I/O error or server error status
+         * @param elapsedMillis request duration
+         * @param now current time in milliseconds
+         */
+
+        void complete(final boolean failed, final long elapsedMillis, final long now) {
+            outstanding.decrementAndGet();
+
+            double latency = latencyMillis;
+
+            latencyMillis = latency == 0 ? elapsedMillis : latency + LATENCY_WEIGHT * (elapsedMillis - latency);
+
+            int failures = failed ? consecutiveFailures.incrementAndGet() : 0;
+
+            if (!failed) {
+                consecutiveFailures.set(0);
+            }
+
+            if (failures >= policy.getConsecutiveFailures() || latencyMillis > policy.getMaxLatencyMillis()) {
+                eject(now);
+            }
+        }
+
+        private void eject(final long now) {
+            if (isEjected(now)) {
+                return;
+            }
+
+            int endpoints = snapshot.endpoints.size();
+
+            if (getEjected(now) + 1 > policy.getMaxEjectionRatio() * endpoints) {
+                LOGGER.debug("service: {}, not ejecting outlier: {}, ejection limit reached", serviceName, uri);
+
+                return;
+            }
+
+            ejectedUntil = now + policy.getEjectionMillis();
+            // readmitted with a clean slate
+            consecutiveFailures.set(0);
+            latencyMillis = 0;
+
+            LOGGER.warn("service: {}, ejected outlier: {} for {}ms", serviceName, uri, policy.getEjectionMillis());
+        }
+    }
+}
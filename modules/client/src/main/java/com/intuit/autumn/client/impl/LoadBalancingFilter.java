@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.LoadBalancingPolicy;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Sends requests configured with a {@link LoadBalancingPolicy} to an endpoint of the logical service named by the
+ * request host, restoring the logical URI once the request completes so that each retry selects afresh. Only transport
+ * failures and server error statuses count against the endpoint.
+ *
+ * A {@link LoadBalancer} is kept per service directory and service name in a {@link KeyedRegistry}.
+ */
+
+class LoadBalancingFilter extends ClientFilter {
+
+    private static final int SERVER_ERROR = 500;
+    private static final KeyedRegistry<List<Object>, LoadBalancer> BALANCERS = new KeyedRegistry<>();
+    private final KeyedRegistry<List<Object>, LoadBalancer> balancers;
+
+    /**
+     * Constructor, sharing the process-wide service state.
+     */
+
+    LoadBalancingFilter() {
+        this(BALANCERS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param balancers per directory and service load balancers
+     */
+
+    LoadBalancingFilter(final KeyedRegistry<List<Object>, LoadBalancer> balancers) {
+        this.balancers = balancers;
+    }
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        HttpCallConfig<?> config = ClientFilters.getConfig(request);
+        Optional<LoadBalancingPolicy> policy = config == null ?
+                Optional.<LoadBalancingPolicy>absent() : config.getLoadBalancingPolicy();
+
+        if (!policy.isPresent()) {
+            return getNext().handle(request);
+        }
+
+        URI logical = request.getURI();
+        LoadBalancer.Endpoint endpoint = getBalancer(logical.getHost(), policy.get()).select(currentTimeMillis());
+
+        if (endpoint == null) {
+            throw new ClientHandlerException(format("no endpoints, service: %s", logical.getHost()));
+        }
+
+        request.setURI(endpoint.resolve(logical));
+        endpoint.start();
+
+        long start = nanoTime();
+
+        try {
+            ClientResponse response = getNext().handle(request);
+
+            endpoint.complete(response.getStatus() >= SERVER_ERROR, elapsedMillis(start), currentTimeMillis());
+
+            return response;
+        } catch (RuntimeException e) {
+            if (ClientFilters.isTransportFailure(e)) {
+                endpoint.complete(true, elapsedMillis(start), currentTimeMillis());
+            } else {
+                endpoint.cancel();
+            }
+
+            throw e;
+        } finally {
+            request.setURI(logical);
+        }
+    }
+
+    private LoadBalancer getBalancer(final String serviceName, final LoadBalancingPolicy policy) {
+        return balancers.get(ImmutableList.<Object>of(policy.getServiceDirectory(), serviceName),
+                new Callable<LoadBalancer>() {
+                    @Override
+                    public LoadBalancer call() {
+                        return new LoadBalancer(serviceName, policy);
+                    }
+                });
+    }
+
+    private static long elapsedMillis(final long start) {
+        return NANOSECONDS.toMillis(nanoTime() - start);
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.util.concurrent.Striped;
+import com.intuit.autumn.client.CachedHttpResponse;
+import com.intuit.autumn.client.HttpResponseCache;
+import org.slf4j.Logger;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.hash.Hashing.sha1;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A size bounded, least recently used, file backed response cache, typically used as the overflow tier of an
+ * {@link InMemoryHttpResponseCache}.
+ *
+ * Each entry is stored in its own file, written and read whole with positional channel I/O, the body being returned
+ * on the heap as {@link CachedHttpResponse} holds it. File I/O is serialized per key, by striped locks, rather than
+ * across the cache, only the index being shared. The cache is disposable: files left by a previous process are
+ * removed on construction.
+ */
+
+public class MappedFileHttpResponseCache implements HttpResponseCache {
+
+    private static final Logger LOGGER = getLogger(MappedFileHttpResponseCache.class);
+    private static final String SUFFIX = ".http";
+    private static final int LOCK_STRIPES = 64;
+    private final File directory;
+    private final long maximumSize;
+    // guarded by itself, files by their key's lock, which is taken first
+    private final Map<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+    private long size;
+
+    /**
+     * Constructor.
+     *
+     * @param directory cache directory
+     * @param maximumSize maximum total file size in bytes
+     */
+
+    public MappedFileHttpResponseCache(final File directory, final long maximumSize) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("unable to create cache directory: " + directory);
+        }
+
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(SUFFIX) && !file.delete()) {
+                    LOGGER.warn("unable to delete stale cache file: {}", file);
+                }
+            }
+        }
+    }
+
+    @Override
+    public CachedHttpResponse get(final String key) {
+        Lock lock = locks.get(key);
+
+        lock.lock();
+
+        try {
+            synchronized (index) {
+                // also marks the entry as recently used
+                if (index.get(key) == null) {
+                    return null;
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(toFile(key).toPath(), READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, buffer.position()) < 0) {
+                        throw new EOFException("truncated cache file");
+                    }
+                }
+
+                buffer.flip();
+
+                return decode(buffer);
+            } catch (IOException e) {
+                LOGGER.warn("unable to read cache entry, key: {}", key, e);
+
+                remove(key);
+
+                return null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(final String key, final CachedHttpResponse response) {
+        byte[] encodedHeaders = encodeHeaders(response);
+        long length = 4 + 8 + encodedHeaders.length + 4L + response.getBody().length;
+
+        if (length > maximumSize || length > Integer.MAX_VALUE) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+
+        buffer.putInt(response.getStatus());
+        buffer.putLong(response.getStoredAt());
+        buffer.put(encodedHeaders);
+        buffer.putInt(response.getBody().length);
+        buffer.put(response.getBody());
+        buffer.flip();
+
+        Lock lock = locks.get(key);
+        List<String> evicted;
+
+        lock.lock();
+
+        try {
+            remove(key);
+
+            try (FileChannel channel = FileChannel.open(toFile(key).toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, buffer.position());
+                }
+            } catch (IOException e) {
+                LOGGER.warn("unable to write cache entry, key: {}", key, e);
+
+                delete(key);
+
+                return;
+            }
+
+            synchronized (index) {
+                index.put(key, length);
+                size += length;
+                evicted = evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // each under its own lock, not held along with another
+        for (String eldest : evicted) {
+            deleteEvicted(eldest);
+        }
+    }
+
+    @Override
+    public void invalidate(final String key) {
+        Lock lock = locks.get(key);
+
+        lock.lock();
+
+        try {
+            remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Total file size getter.
+     *
+     * @return total file size in bytes
+     */
+
+    public long size() {
+        synchronized (index) {
+            return size;
+        }
+    }
+
+    // with the index lock held
+    private List<String> evict() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+
+        while (size > maximumSize && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+
+            size -= entry.getValue();
+            eldest.remove();
+            evicted.add(entry.getKey());
+        }
+
+        return evicted;
+    }
+
+    private void deleteEvicted(final String key) {
+        Lock lock = locks.get(key);
+
+        lock.lock();
+
+        try {
+            synchronized (index) {
+                // put again meanwhile
+                if (index.containsKey(key)) {
+                    return;
+                }
+            }
+
+            delete(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // with the key's lock held
+    private void remove(final String key) {
+        Long length;
+
+        synchronized (index) {
+            length = index.remove(key);
+
+            if (length != null) {
+                size -= length;
+            }
+        }
+
+        if (length != null) {
+            delete(key);
+        }
+    }
+
+    private void delete(final String key) {
+        File file = toFile(key);
+
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn("unable to delete cache file: {}", file);
+        }
+    }
+
+    private File toFile(final String key) {
+        return new File(directory, sha1().hashString(key, UTF_8).toString() + SUFFIX);
+    }
+
+    private static byte[] encodeHeaders(final CachedHttpResponse response) {
+        List<byte[]> fields = new ArrayList<>();
+        int length = 4;
+
+        for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            for (String value : header.getValue()) {
+                byte[] name = header.getKey().getBytes(UTF_8);
+                byte[] bytes = value.getBytes(UTF_8);
+
+                fields.add(name);
+                fields.add(bytes);
+                length += 8 + name.length + bytes.length;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        buffer.putInt(fields.size() / 2);
+
+        for (byte[] field : fields) {
+            buffer.putInt(field.length);
+            buffer.put(field);
+        }
+
+        return buffer.array();
+    }
+
+    private static CachedHttpResponse decode(final ByteBuffer buffer) {
+        int status = buffer.getInt();
+        long storedAt = buffer.getLong();
+        int fields = buffer.getInt();
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+
+        for (int i = 0; i < fields; i++) {
+            String name = readString(buffer);
+            String value = readString(buffer);
+            List<String> values = headers.get(name);
+
+            if (values == null) {
+                values = new ArrayList<>();
+                headers.put(name, values);
+            }
+
+            values.add(value);
+        }
+
+        byte[] body = new byte[buffer.getInt()];
+
+        buffer.get(body);
+
+        return new CachedHttpResponse(status, headers, body, storedAt);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+
+        buffer.get(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.AbstractClientRequestAdapter;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientRequestAdapter;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Records per host and, for requests naming an {@link HttpCallConfig#getEndpointTemplate()}, per endpoint template
+ * request metrics, see {@link HostMetrics}. Received bytes are counted as the response body is read.
+ */
+
+class MetricsFilter extends ClientFilter {
+
+    private final ClientMetrics metrics;
+
+    /**
+     * Constructor, recording to the process-wide metrics.
+     */
+
+    MetricsFilter() {
+        this(ClientMetrics.getInstance());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param metrics target metrics
+     */
+
+    MetricsFilter(final ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        String host = ClientFilters.toHost(request.getURI());
+        final HostMetrics hostMetrics = metrics.getHostMetrics(host);
+        HttpCallConfig<?> config = ClientFilters.getConfig(request);
+        Timer.Context endpoint = config == null || !config.getEndpointTemplate().isPresent() ? null :
+                metrics.getEndpointTimer(host, request.getMethod(), config.getEndpointTemplate().get()).time();
+        ClientRequestAdapter adapter = request.getAdapter();
+
+        request.setAdapter(new AbstractClientRequestAdapter(adapter) {
+            @Override
+            public OutputStream adapt(final ClientRequest request, final OutputStream out) throws IOException {
+                return new CountingOutputStream(getAdapter().adapt(request, out), hostMetrics.getBytesSent());
+            }
+        });
+
+        Timer.Context context = hostMetrics.start();
+        ClientResponse response;
+
+        try {
+            response = getNext().handle(request);
+        } catch (RuntimeException e) {
+            hostMetrics.onError(context);
+
+            throw e;
+        } finally {
+            request.setAdapter(adapter);
+
+            if (endpoint != null) {
+                endpoint.stop();
+            }
+        }
+
+        hostMetrics.onResponse(context, response.getStatus());
+
+        if (response.getEntityInputStream() != null) {
+            response.setEntityInputStream(new CountingInputStream(response.getEntityInputStream(),
+                    hostMetrics.getBytesReceived()));
+        }
+
+        return response;
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private final Counter counter;
+
+        CountingOutputStream(final OutputStream out, final Counter counter) {
+            super(out);
+
+            this.counter = counter;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            counter.inc();
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            out.write(bytes, offset, length);
+            counter.inc(length);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private final Counter counter;
+
+        CountingInputStream(final InputStream in, final Counter counter) {
+            super(in);
+
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+
+            if (read >= 0) {
+                counter.inc();
+            }
+
+            return read;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+
+            if (read > 0) {
+                counter.inc(read);
+            }
+
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            long skipped = super.skip(n);
+
+            counter.inc(skipped);
+
+            return skipped;
+        }
+    }
+}
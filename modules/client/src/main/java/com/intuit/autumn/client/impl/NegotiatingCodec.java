@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.intuit.autumn.client.HttpCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * A {@link HttpCodec} selecting, among Jackson codecs, the response decoder by content type.
+ *
+ * Requests are encoded with, and the content type of, the first codec; all codecs' media types are accepted, the
+ * server choosing the format, and responses of an absent or unknown content type are decoded with the first codec.
+ */
+
+public final class NegotiatingCodec implements HttpCodec {
+
+    private final List<JacksonCodec> codecs;
+    private final String accept;
+
+    /**
+     * Constructor.
+     *
+     * @param codec request codec, and default response codec
+     * @param others other accepted response codecs, in order of preference
+     */
+
+    public NegotiatingCodec(final JacksonCodec codec, final JacksonCodec... others) {
+        this.codecs = ImmutableList.<JacksonCodec>builder().add(codec).add(others).build();
+
+        StringBuilder types = new StringBuilder(codec.getAccept());
+
+        // a lower quality for the later codecs, so that the order of preference is kept
+        for (JacksonCodec other : others) {
+            types.append(", ").append(other.getAccept()).append(";q=0.9");
+        }
+
+        this.accept = types.toString();
+    }
+
+    @Override
+    public String getContentType() {
+        return codecs.get(0).getContentType();
+    }
+
+    @Override
+    public String getAccept() {
+        return accept;
+    }
+
+    @Override
+    public byte[] encode(final Object value) throws IOException {
+        return codecs.get(0).encode(value);
+    }
+
+    @Override
+    public <T> T decode(final InputStream in, final String contentType, final Class<T> type) throws IOException {
+        if (contentType != null) {
+            for (JacksonCodec codec : codecs) {
+                if (codec.canDecode(contentType)) {
+                    return codec.decode(in, contentType, type);
+                }
+            }
+        }
+
+        return codecs.get(0).decode(in, contentType, type);
+    }
+}
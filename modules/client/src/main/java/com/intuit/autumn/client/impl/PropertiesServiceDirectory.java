@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.intuit.autumn.client.ServiceDirectory;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.System.currentTimeMillis;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A {@link ServiceDirectory} read from properties, one per service, listing its endpoints separated by commas or
+ * whitespace, e.g.
+ * <pre>
+ * user-service=http://10.0.0.1:8080, http://10.0.0.2:8080
+ * </pre>
+ *
+ * A directory backed by a file re-reads it, at most once per refresh interval, whenever its modification time changes,
+ * so endpoints may be added and removed without a restart. A file that cannot be read or parsed leaves the last good
+ * endpoints in place.
+ */
+
+public class PropertiesServiceDirectory implements ServiceDirectory {
+
+    private static final Logger LOGGER = getLogger(PropertiesServiceDirectory.class);
+    private static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 10000L;
+    private static final Splitter SPLITTER = Splitter.onPattern("[,\\s]+").omitEmptyStrings();
+    private final Path file;
+    private final long refreshIntervalMillis;
+    private final AtomicLong nextRefresh = new AtomicLong();
+    private volatile long lastModified = Long.MIN_VALUE;
+    private volatile Map<String, List<URI>> services;
+
+    /**
+     * Constructor, re-reading the file at most every 10 seconds.
+     *
+     * @param file properties file
+     */
+
+    public PropertiesServiceDirectory(final Path file) {
+        this(file, DEFAULT_REFRESH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param file properties file
+     * @param refreshIntervalMillis minimum interval between file modification checks
+     */
+
+    public PropertiesServiceDirectory(final Path file, final long refreshIntervalMillis) {
+        this.file = file;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.services = ImmutableMap.of();
+
+        refresh();
+        nextRefresh.set(currentTimeMillis() + refreshIntervalMillis);
+    }
+
+    /**
+     * Constructor over fixed properties.
+     *
+     * @param properties service endpoints
+     */
+
+    public PropertiesServiceDirectory(final Properties properties) {
+        this.file = null;
+        this.refreshIntervalMillis = Long.MAX_VALUE;
+        this.services = parse(properties);
+    }
+
+    @Override
+    public List<URI> getEndpoints(final String serviceName) {
+        long now = currentTimeMillis();
+        long next = nextRefresh.get();
+
+        if (file != null && now >= next && nextRefresh.compareAndSet(next, now + refreshIntervalMillis)) {
+            refresh();
+        }
+
+        List<URI> endpoints = services.get(serviceName);
+
+        return endpoints == null ? ImmutableList.<URI>of() : endpoints;
+    }
+
+    private void refresh() {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+
+            if (modified == lastModified) {
+                return;
+            }
+
+            Properties properties = new Properties();
+
+            try (InputStream is = Files.newInputStream(file)) {
+                properties.load(is);
+            }
+
+            services = parse(properties);
+            lastModified = modified;
+
+            LOGGER.info("read service directory: {}, services: {}", file, services);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.warn("unable to read service directory: {}, cause: {}", file, e.getMessage());
+        }
+    }
+
+    private static Map<String, List<URI>> parse(final Properties properties) {
+        ImmutableMap.Builder<String, List<URI>> services = ImmutableMap.builder();
+
+        for (String serviceName : properties.stringPropertyNames()) {
+            ImmutableList.Builder<URI> endpoints = ImmutableList.builder();
+
+            for (String endpoint : SPLITTER.split(properties.getProperty(serviceName))) {
+                URI uri = URI.create(endpoint);
+
+                if (uri.getScheme() == null || uri.getHost() == null) {
+                    throw new IllegalArgumentException("invalid endpoint: " + endpoint + ", service: " + serviceName);
+                }
+
+                endpoints.add(uri);
+            }
+
+            services.put(serviceName, endpoints.build());
+        }
+
+        return services.build();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.RateLimitPolicy;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Meters requests configured with a {@link RateLimitPolicy} with a per host, endpoint or group {@link TokenBucket},
+ * delaying them until a token is available or rejecting them with a {@link HttpCallRejectedException}, depending on
+ * the acquire mode.
+ *
+ * Buckets are kept in a {@link KeyedRegistry}, each reporting the "rate-limit.saturation" gauge, the share of the
+ * burst capacity taken, and the "rate-limit.delayed" and "rate-limit.rejected" meters.
+ */
+
+class RateLimitFilter extends ClientFilter {
+
+    private static final KeyedRegistry<String, Bucket> BUCKETS = new KeyedRegistry<>();
+    private final KeyedRegistry<String, Bucket> buckets;
+
+    /**
+     * Constructor, sharing the process-wide buckets.
+     */
+
+    RateLimitFilter() {
+        this(BUCKETS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param buckets rate limited hosts, endpoints and groups
+     */
+
+    RateLimitFilter(final KeyedRegistry<String, Bucket> buckets) {
+        this.buckets = buckets;
+    }
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        HttpCallConfig<?> config = ClientFilters.getConfig(request);
+        Optional<RateLimitPolicy> policy = config == null ?
+                Optional.<RateLimitPolicy>absent() : config.getRateLimitPolicy();
+
+        if (!policy.isPresent()) {
+            return getNext().handle(request);
+        }
+
+        Bucket bucket = getBucket(toName(request, config, policy.get()), policy.get());
+        long wait = bucket.tokenBucket.reserve(nanoTime(), getMaxWaitNanos(policy.get()));
+
+        if (wait < 0) {
+            bucket.rejected.mark();
+
+            throw new HttpCallRejectedException(format("rate limit reached, bucket: %s", bucket.name));
+        }
+
+        if (wait > 0) {
+            bucket.delayed.mark();
+
+            try {
+                NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+
+                throw new HttpCallRejectedException("interrupted awaiting rate limit", e);
+            }
+        }
+
+        return getNext().handle(request);
+    }
+
+    /**
+     * Current saturation getter.
+     *
+     * @param name host and port, endpoint or group
+     * @return share of the burst capacity taken, or null for an unknown bucket
+     */
+
+    Double getSaturation(final String name) {
+        Bucket bucket = buckets.getIfPresent(name);
+
+        return bucket == null ? null : bucket.tokenBucket.getSaturation(nanoTime());
+    }
+
+    private Bucket getBucket(final String name, final RateLimitPolicy policy) {
+        return buckets.get(name, new Callable<Bucket>() {
+            @Override
+            public Bucket call() {
+                return new Bucket(name, policy);
+            }
+        });
+    }
+
+    private static long getMaxWaitNanos(final RateLimitPolicy policy) {
+        switch (policy.getAcquireMode()) {
+            case BLOCK:
+                return Long.MAX_VALUE;
+            case TIMED:
+                return MILLISECONDS.toNanos(Math.max(0L, policy.getMaxWaitMillis()));
+            default:
+                return 0L;
+        }
+    }
+
+    private static String toName(final ClientRequest request, final HttpCallConfig<?> config,
+                                 final RateLimitPolicy policy) {
+        if (policy.getGroup() != null) {
+            return policy.getGroup();
+        }
+
+        String host = ClientFilters.toHost(request.getURI());
+
+        return policy.getScope() == RateLimitPolicy.Scope.ENDPOINT && config.getEndpointTemplate().isPresent() ?
+                host + ' ' + request.getMethod() + ' ' + config.getEndpointTemplate().get() : host;
+    }
+
+    /**
+     * A host's, endpoint's or group's token bucket.
+     */
+
+    static final class Bucket implements KeyedRegistry.Instrumented {
+
+        private final String name;
+        private final TokenBucket tokenBucket;
+        private final Meter delayed = new Meter();
+        private final Meter rejected = new Meter();
+        private final Map<String, Metric> metrics;
+
+        private Bucket(final String name, final RateLimitPolicy policy) {
+            this.name = name;
+            this.tokenBucket = new TokenBucket(policy.getPermitsPerSecond(), policy.getBurst());
+            this.metrics = ImmutableMap.<String, Metric>of(
+                    ClientMetrics.toName(name, "rate-limit", "saturation"), new Gauge<Double>() {
+                        @Override
+                        public Double getValue() {
+                            return tokenBucket.getSaturation(nanoTime());
+                        }
+                    },
+                    ClientMetrics.toName(name, "rate-limit", "delayed"), delayed,
+                    ClientMetrics.toName(name, "rate-limit", "rejected"), rejected);
+        }
+
+        @Override
+        public Map<String, Metric> getMetrics() {
+            return metrics;
+        }
+    }
+}
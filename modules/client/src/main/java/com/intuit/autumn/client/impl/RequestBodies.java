@@ -0,0 +1,328 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.config.ClientConfig;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * First class request bodies with a known content length: a {@link Path}, a {@link FileChannel} from its current
+ * position, a {@link ByteBuffer} from its current position, direct or not, and a pre-encoded byte[].
+ *
+ * Bodies are written as is, never copied to the heap as a whole, and neither the channel's nor the buffer's position
+ * is moved so that a body may be replayed by a retry.
+ */
+
+final class RequestBodies {
+
+    private static final Writer WRITER = new Writer();
+
+    private RequestBodies() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Register the body writer with a client configuration.
+     *
+     * @param config client configuration
+     * @return client configuration
+     */
+
+    static ClientConfig register(final ClientConfig config) {
+        config.getSingletons().add(WRITER);
+
+        return config;
+    }
+
+    /**
+     * Whether a type is a first class body type.
+     *
+     * @param type entity type
+     * @return true if a path, file channel, byte buffer or byte[]
+     */
+
+    static boolean isBody(final Class<?> type) {
+        return byte[].class == type || Path.class.isAssignableFrom(type) ||
+                FileChannel.class.isAssignableFrom(type) || ByteBuffer.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Body content length.
+     *
+     * @param body body
+     * @return content length
+     * @throws IOException if the size of the file is unavailable
+     */
+
+    static long getLength(final Object body) throws IOException {
+        if (body instanceof byte[]) {
+            return ((byte[]) body).length;
+        } else if (body instanceof ByteBuffer) {
+            return ((ByteBuffer) body).remaining();
+        } else if (body instanceof FileChannel) {
+            FileChannel channel = (FileChannel) body;
+
+            return channel.size() - channel.position();
+        }
+
+        try (FileChannel channel = FileChannel.open((Path) body, READ)) {
+            return channel.size();
+        }
+    }
+
+    /**
+     * Write a body, adapted as the request requires, leaving the stream open.
+     *
+     * @param request request whose adapter, if any, is applied
+     * @param body body
+     * @param out target stream
+     * @throws IOException if unable to write
+     */
+
+    static void write(final ClientRequest request, final Object body, final OutputStream out) throws IOException {
+        OutputStream adapted = request.getAdapter() == null ? out : request.getAdapter().adapt(request, out);
+
+        write(body, adapted);
+        adapted.flush();
+    }
+
+    /**
+     * Write a body, leaving the stream open.
+     *
+     * @param body body
+     * @param out target stream
+     * @throws IOException if unable to write
+     */
+
+    static void write(final Object body, final OutputStream out) throws IOException {
+        if (body instanceof byte[]) {
+            out.write((byte[]) body);
+        } else if (body instanceof ByteBuffer) {
+            write((ByteBuffer) body, out);
+        } else if (body instanceof FileChannel) {
+            transfer((FileChannel) body, ((FileChannel) body).position(), out);
+        } else {
+            try (FileChannel channel = FileChannel.open((Path) body, READ)) {
+                transfer(channel, 0, out);
+            }
+        }
+    }
+
+    /**
+     * Body as a read only buffer, a file being memory mapped rather than read.
+     *
+     * @param body body
+     * @return buffer over the body
+     * @throws IOException if unable to map the file
+     */
+
+    static ByteBuffer toByteBuffer(final Object body) throws IOException {
+        if (body instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) body).asReadOnlyBuffer();
+        } else if (body instanceof ByteBuffer) {
+            return ((ByteBuffer) body).asReadOnlyBuffer();
+        } else if (body instanceof FileChannel) {
+            FileChannel channel = (FileChannel) body;
+
+            return channel.map(READ_ONLY, channel.position(), channel.size() - channel.position());
+        }
+
+        try (FileChannel channel = FileChannel.open((Path) body, READ)) {
+            return channel.map(READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void write(final ByteBuffer buffer, final OutputStream out) throws IOException {
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+
+            return;
+        }
+
+        ByteBuffer content = buffer.duplicate();
+        WritableByteChannel target = Channels.newChannel(out);
+
+        while (content.hasRemaining()) {
+            target.write(content);
+        }
+    }
+
+    // the connection stream is not a channel, so transferTo copies through a small transfer buffer
+    private static void transfer(final FileChannel channel, final long from, final OutputStream out)
+            throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = from;
+        long end = channel.size();
+
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+
+            if (transferred <= 0) {
+                break;
+            }
+
+            position += transferred;
+        }
+    }
+
+    /**
+     * Jersey writer of first class bodies, reporting their length so that the content is streamed with a
+     * Content-Length rather than chunked or buffered.
+     */
+
+    private static final class Writer implements MessageBodyWriter<Object> {
+
+        @Override
+        public boolean isWriteable(final Class<?> type, final Type genericType, final Annotation[] annotations,
+                                   final MediaType mediaType) {
+            return byte[].class != type && isBody(type);
+        }
+
+        @Override
+        public long getSize(final Object body, final Class<?> type, final Type genericType,
+                            final Annotation[] annotations, final MediaType mediaType) {
+            try {
+                return getLength(body);
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public void writeTo(final Object body, final Class<?> type, final Type genericType,
+                            final Annotation[] annotations, final MediaType mediaType,
+                            final MultivaluedMap<String, Object> httpHeaders, final OutputStream out)
+                throws IOException {
+            write(body, out);
+        }
+    }
+
+    /**
+     * Asynchronous client entity over a buffer, written to the connection without an intermediate copy.
+     */
+
+    static final class AsyncEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+        private final ByteBuffer content;
+        private ByteBuffer remaining;
+
+        /**
+         * Constructor.
+         *
+         * @param content content, from its position to its limit
+         */
+
+        AsyncEntity(final ByteBuffer content) {
+            this.content = content.duplicate();
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return content.remaining();
+        }
+
+        @Override
+        public InputStream getContent() {
+            final ByteBuffer buffer = content.duplicate();
+
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+                }
+
+                @Override
+                public int read(final byte[] bytes, final int offset, final int length) {
+                    if (length == 0) {
+                        return 0;
+                    }
+
+                    if (!buffer.hasRemaining()) {
+                        return -1;
+                    }
+
+                    int read = Math.min(length, buffer.remaining());
+
+                    buffer.get(bytes, offset, read);
+
+                    return read;
+                }
+
+                @Override
+                public int available() {
+                    return buffer.remaining();
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(final OutputStream out) throws IOException {
+            write(content, out);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+        @Override
+        public void produceContent(final ContentEncoder encoder, final IOControl ioControl) throws IOException {
+            if (remaining == null) {
+                remaining = content.duplicate();
+            }
+
+            encoder.write(remaining);
+
+            if (!remaining.hasRemaining()) {
+                encoder.complete();
+                remaining = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            remaining = null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.collect.ImmutableSet;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.ClientResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import static com.google.common.net.HttpHeaders.AUTHORIZATION;
+import static com.google.common.net.HttpHeaders.COOKIE;
+import static java.lang.String.CASE_INSENSITIVE_ORDER;
+import static java.lang.Thread.currentThread;
+import static java.util.Arrays.asList;
+import static java.util.Locale.ENGLISH;
+import static javax.ws.rs.HttpMethod.GET;
+
+/**
+ * A single-flight gate for identical in-flight GET requests.
+ *
+ * The first caller for a given method, url, query parameters, credentials, i.e. the Authorization and Cookie headers,
+ * selected headers, accept type, response type and expected status performs the request; concurrent callers with the
+ * same key block on, and receive, that same materialized response or exception. Shared responses should therefore be
+ * treated as immutable.
+ */
+
+final class RequestCoalescer {
+
+    // always keyed on, so that one caller's response is never shared with another's credentials
+    private static final Set<String> CREDENTIAL_HEADERS = ImmutableSet.of(AUTHORIZATION, COOKIE);
+    private static final RequestCoalescer INSTANCE = new RequestCoalescer();
+    private final ConcurrentMap<List<Object>, Future<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Process-wide coalescer getter.
+     *
+     * @return shared coalescer
+     */
+
+    static RequestCoalescer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Whether the request may be coalesced. Raw {@link ClientResponse} and streamed results hold a single use
+     * stream and are never shared.
+     *
+     * @param httpMethod request method
+     * @param config request configuration
+     * @return true if coalescing was requested and is applicable
+     */
+
+    static boolean isCoalescable(final String httpMethod, final HttpCallConfig<?> config) {
+        return config.getUseRequestCoalescing() && GET.equals(httpMethod) && config.getToMap() != null &&
+                ClientResponse.class != config.getToMap() && !ResponseStreams.isStream(config.getToMap());
+    }
+
+    /**
+     * Execute, or join, the in-flight request.
+     *
+     * @param httpMethod request method
+     * @param config request configuration
+     * @param request request executor
+     * @param <T> response type
+     * @return materialized typed response
+     */
+
+    @SuppressWarnings("unchecked")
+    <T> T execute(final String httpMethod, final HttpCallConfig<T> config, final Callable<T> request) {
+        List<Object> key = toKey(httpMethod, config);
+        FutureTask<Object> task = new FutureTask<>((Callable<Object>) request);
+        Future<Object> leader = inFlight.putIfAbsent(key, task);
+
+        if (leader == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+
+            leader = task;
+        }
+
+        return (T) await(leader);
+    }
+
+    /**
+     * In-flight request count getter.
+     *
+     * @return number of distinct in-flight requests
+     */
+
+    int size() {
+        return inFlight.size();
+    }
+
+    private static Object await(final Future<Object> leader) {
+        try {
+            return leader.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new HttpCallException(cause);
+        } catch (InterruptedException e) {
+            currentThread().interrupt();
+
+            throw new HttpCallException("interrupted awaiting coalesced request", e);
+        }
+    }
+
+    private static List<Object> toKey(final String httpMethod, final HttpCallConfig<?> config) {
+        Map<String, String> queryParams = config.getQueryParams() == null ?
+                null : new TreeMap<>(config.getQueryParams());
+        Map<String, String> headers = new TreeMap<>();
+
+        if (config.getHeaders() != null) {
+            Set<String> keyed = new TreeSet<>(CASE_INSENSITIVE_ORDER);
+
+            keyed.addAll(CREDENTIAL_HEADERS);
+
+            if (config.getCoalescingHeaders() != null) {
+                keyed.addAll(config.getCoalescingHeaders());
+            }
+
+            for (Map.Entry<String, String> header : config.getHeaders().entrySet()) {
+                if (keyed.contains(header.getKey())) {
+                    headers.put(header.getKey().toLowerCase(ENGLISH), header.getValue());
+                }
+            }
+        }
+
+        return asList(httpMethod, config.getUrl(), queryParams, headers, config.getAccept(), config.getToMap(),
+                config.getExpectedStatus());
+    }
+}
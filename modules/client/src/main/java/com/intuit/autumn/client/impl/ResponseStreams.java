@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.intuit.autumn.client.HttpResponseStream;
+import com.sun.jersey.api.client.ClientResponse;
+
+import java.io.Closeable;
+
+/**
+ * Adapts Jersey responses to {@link HttpResponseStream}.
+ */
+
+final class ResponseStreams {
+
+    private ResponseStreams() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Whether the response type is a stream, i.e. a single use response that must not be shared or buffered.
+     *
+     * @param toMap response type
+     * @return true if the response is streamed
+     */
+
+    static boolean isStream(final Class<?> toMap) {
+        return HttpResponseStream.class == toMap;
+    }
+
+    /**
+     * Wrap a response, its connection being released when the stream is exhausted or closed.
+     *
+     * @param response response to be streamed
+     * @return response stream
+     */
+
+    static HttpResponseStream toStream(final ClientResponse response) {
+        return new HttpResponseStream(response.getStatus(), response.getHeaders(), response.getEntityInputStream(),
+                new Closeable() {
+                    @Override
+                    public void close() {
+                        response.close();
+                    }
+                });
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free per host retry allowance. Each request deposits a fraction of a retry, each retry or hedge withdraws a
+ * whole one, and the balance is capped so that at most the reserve can be spent in a burst.
+ */
+
+final class RetryBudget {
+
+    private static final long UNIT = 1000;
+    private final AtomicLong balance;
+    private final long capacity;
+
+    /**
+     * Constructor, the budget starts full.
+     *
+     * @param reserve maximum retries that may be banked
+     */
+
+    RetryBudget(final int reserve) {
+        this.capacity = reserve * UNIT;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    /**
+     * Deposit the allowance earned by a request.
+     *
+     * @param ratio retries earned per request
+     */
+
+    void deposit(final double ratio) {
+        long amount = (long) (ratio * UNIT);
+        long current;
+
+        do {
+            current = balance.get();
+
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(capacity, current + amount)));
+    }
+
+    /**
+     * Withdraw a retry.
+     *
+     * @return true if a retry is allowed
+     */
+
+    boolean tryWithdraw() {
+        long current;
+
+        do {
+            current = balance.get();
+
+            if (current < UNIT) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - UNIT));
+
+        return true;
+    }
+}
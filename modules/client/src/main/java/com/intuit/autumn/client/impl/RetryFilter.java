@@ -0,0 +1,344 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.RetryPolicy;
+import com.intuit.autumn.utils.Deadline;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import org.slf4j.Logger;
+
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.System.nanoTime;
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.ws.rs.HttpMethod.GET;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Retries, and optionally hedges, idempotent requests configured with a {@link RetryPolicy}.
+ *
+ * Retries and hedges are drawn from a process-wide per host {@link RetryBudget}. The primary attempt runs on the
+ * calling thread and hedged attempts on a shared, bounded daemon pool; when the pool is at capacity the request is not
+ * hedged. The first attempt to respond aborts the other, see {@link Attempt}, and a losing response is closed.
+ */
+
+class RetryFilter extends ClientFilter {
+
+    private static final Logger LOGGER = getLogger(RetryFilter.class);
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final int MAXIMUM_HOSTS = 1024;
+    private static final int MAXIMUM_BACKOFF_SHIFT = 30;
+    private static final Cache<String, RetryBudget> BUDGETS = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_HOSTS).build();
+    private static final int MAXIMUM_HEDGES = 64;
+    private static final ExecutorService HEDGE_EXECUTOR = new ThreadPoolExecutor(0, MAXIMUM_HEDGES, 60, SECONDS,
+            new SynchronousQueue<Runnable>(), new ThreadFactoryBuilder().setNameFormat("autumn-http-hedge-%d")
+            .setDaemon(true).build());
+    private static final ScheduledExecutorService HEDGE_TIMER = newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("autumn-http-hedge-timer").setDaemon(true).build());
+    private final Cache<String, RetryBudget> budgets;
+    private final LatencyTracker latencies;
+    private final Executor hedgeExecutor;
+    private final ScheduledExecutorService hedgeTimer;
+
+    /**
+     * Constructor, sharing the process-wide budgets, latencies, hedge executor and timer.
+     */
+
+    RetryFilter() {
+        this(BUDGETS, LatencyTracker.getInstance(), HEDGE_EXECUTOR, HEDGE_TIMER);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param budgets per host retry budgets
+     * @param latencies per endpoint latencies
+     * @param hedgeExecutor hedged attempt executor, rejecting hedges beyond its capacity
+     * @param hedgeTimer hedged attempt launch timer
+     */
+
+    RetryFilter(final Cache<String, RetryBudget> budgets, final LatencyTracker latencies,
+                final Executor hedgeExecutor, final ScheduledExecutorService hedgeTimer) {
+        this.budgets = budgets;
+        this.latencies = latencies;
+        this.hedgeExecutor = hedgeExecutor;
+        this.hedgeTimer = hedgeTimer;
+    }
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        HttpCallConfig<?> config = ClientFilters.getConfig(request);
+        Optional<RetryPolicy> policy = config == null ? Optional.<RetryPolicy>absent() : config.getRetryPolicy();
+
+        if (!policy.isPresent()) {
+            return getNext().handle(request);
+        }
+
+        RetryBudget budget = getBudget(request.getURI(), policy.get());
+        boolean idempotent = ClientFilters.isIdempotent(request.getMethod());
+        boolean hedged = policy.get().getHedging() && GET.equals(request.getMethod());
+
+        budget.deposit(policy.get().getRetryBudgetRatio());
+
+        for (int attempt = 0; ; attempt++) {
+            boolean retry = idempotent && attempt < policy.get().getMaxRetries();
+
+            try {
+                ClientResponse response = hedged ? hedge(request, budget) : attempt(request);
+
+                if (!retry || !policy.get().getRetryableStatuses().contains(response.getStatus()) ||
+                        !budget.tryWithdraw()) {
+                    return response;
+                }
+
+                LOGGER.debug("retrying {} {}, status: {}", request.getMethod(), request.getURI(),
+                        response.getStatus());
+
+                response.close();
+            } catch (ClientHandlerException e) {
+                if (!retry || !budget.tryWithdraw()) {
+                    throw e;
+                }
+
+                LOGGER.debug("retrying {} {}", request.getMethod(), request.getURI(), e);
+            }
+
+            backoff(policy.get(), attempt);
+        }
+    }
+
+    private ClientResponse attempt(final ClientRequest request) {
+        long start = nanoTime();
+        ClientResponse response = getNext().handle(request);
+
+        latencies.record(toEndpoint(request), NANOSECONDS.toMillis(nanoTime() - start));
+
+        return response;
+    }
+
+    private ClientResponse hedge(final ClientRequest request, final RetryBudget budget) {
+        long delay = latencies.getPercentile(toEndpoint(request), HEDGE_PERCENTILE);
+
+        if (delay < 0) {
+            return attempt(request);
+        }
+
+        Hedge hedge = new Hedge(request.clone(), budget);
+        ScheduledFuture<?> trigger = hedgeTimer.schedule(hedge, delay, MILLISECONDS);
+        Attempt previous = Attempt.attach(hedge.primary);
+        ClientResponse response;
+
+        try {
+            response = attempt(request);
+        } catch (RuntimeException e) {
+            return hedge.onPrimaryFailure(e);
+        } finally {
+            trigger.cancel(false);
+            Attempt.detach(previous);
+        }
+
+        return hedge.onPrimaryResponse(response);
+    }
+
+    private static ClientResponse await(final Future<ClientResponse> response) {
+        try {
+            return response.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new ClientHandlerException(cause);
+        } catch (InterruptedException e) {
+            currentThread().interrupt();
+
+            throw new ClientHandlerException(e);
+        }
+    }
+
+    private static void backoff(final RetryPolicy policy, final int attempt) {
+        long bound = Math.min(policy.getMaxBackoffMillis(),
+                policy.getInitialBackoffMillis() << Math.min(attempt, MAXIMUM_BACKOFF_SHIFT));
+
+        try {
+            MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            currentThread().interrupt();
+
+            throw new ClientHandlerException(e);
+        }
+    }
+
+    private RetryBudget getBudget(final URI uri, final RetryPolicy policy) {
+        try {
+            return budgets.get(uri.getScheme() + "://" + uri.getAuthority(), new Callable<RetryBudget>() {
+                @Override
+                public RetryBudget call() {
+                    return new RetryBudget(policy.getRetryBudgetReserve());
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new ClientHandlerException(e.getCause());
+        }
+    }
+
+    private static String toEndpoint(final ClientRequest request) {
+        URI uri = request.getURI();
+
+        return request.getMethod() + ' ' + uri.getScheme() + "://" + uri.getAuthority() + uri.getPath();
+    }
+
+    /**
+     * A hedged attempt, launched once the primary attempt on the calling thread outlives the hedging delay. Whichever
+     * attempt responds first wins and aborts the other.
+     */
+
+    private final class Hedge implements Runnable {
+
+        private final ClientRequest request;
+        private final RetryBudget budget;
+        private final Deadline deadline = Deadline.getCurrent();
+        private final Attempt primary = new Attempt();
+        private final Attempt hedged = new Attempt();
+        private final AtomicReference<Attempt> winner = new AtomicReference<>();
+        private final SettableFuture<ClientResponse> response = SettableFuture.create();
+        private boolean launched;
+        private boolean done;
+
+        private Hedge(final ClientRequest request, final RetryBudget budget) {
+            this.request = request;
+            this.budget = budget;
+        }
+
+        // on the timer, once the hedging delay has passed
+        @Override
+        public synchronized void run() {
+            if (done || !budget.tryWithdraw()) {
+                return;
+            }
+
+            try {
+                hedgeExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        send();
+                    }
+                });
+
+                launched = true;
+            } catch (RejectedExecutionException e) {
+                // hedges at capacity, the primary attempt goes on alone
+                budget.deposit(1);
+
+                LOGGER.debug("not hedging {} {}, hedges at capacity", request.getMethod(), request.getURI());
+            }
+        }
+
+        private void send() {
+            LOGGER.debug("hedging {} {}", request.getMethod(), request.getURI());
+
+            Deadline previousDeadline = Deadline.attach(deadline);
+            Attempt previousAttempt = Attempt.attach(hedged);
+
+            try {
+                ClientResponse hedgedResponse = attempt(request);
+
+                if (winner.compareAndSet(null, hedged)) {
+                    response.set(hedgedResponse);
+                    primary.abort();
+                } else {
+                    hedgedResponse.close();
+                    response.setException(new ClientHandlerException("hedge lost"));
+                }
+            } catch (RuntimeException e) {
+                response.setException(e);
+            } catch (Error e) {
+                response.setException(e);
+
+                throw e;
+            } finally {
+                Attempt.detach(previousAttempt);
+                Deadline.detach(previousDeadline);
+            }
+        }
+
+        private synchronized boolean finish() {
+            done = true;
+
+            return launched;
+        }
+
+        private ClientResponse onPrimaryResponse(final ClientResponse primaryResponse) {
+            if (!finish()) {
+                return primaryResponse;
+            }
+
+            if (winner.compareAndSet(null, primary)) {
+                hedged.abort();
+
+                return primaryResponse;
+            }
+
+            primaryResponse.close();
+
+            return await(response);
+        }
+
+        private ClientResponse onPrimaryFailure(final RuntimeException e) {
+            if (!finish()) {
+                throw e;
+            }
+
+            try {
+                // the hedge's response if it won, aborting the primary attempt, or else is yet to respond
+                return await(response);
+            } catch (RuntimeException hedgeFailure) {
+                throw e;
+            }
+        }
+    }
+}
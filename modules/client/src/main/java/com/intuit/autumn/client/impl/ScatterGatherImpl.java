@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.inject.Inject;
+import com.intuit.autumn.client.AsyncHttpCall;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.ScatterGather;
+import com.intuit.autumn.client.ScatterGatherResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.lang.Thread.currentThread;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A scatter-gather implementation over the non-blocking client.
+ *
+ * Requests are sent without holding a thread each, the caller alone waiting for the deadline. Cancelling an
+ * outstanding request aborts its exchange, releasing the connection.
+ */
+
+public class ScatterGatherImpl implements ScatterGather {
+
+    private final AsyncHttpCall<Object> asyncHttpCall;
+
+    /**
+     * Constructor bound to the non-blocking engine.
+     *
+     * @param asyncHttpClientService non-blocking engine
+     */
+
+    @Inject
+    public ScatterGatherImpl(final AsyncHttpClientService asyncHttpClientService) {
+        this(new AsyncHttpCallImpl<>(asyncHttpClientService));
+    }
+
+    /**
+     * Constructor with configurable state.
+     *
+     * @param asyncHttpCall non-blocking client, requests must be cancellable
+     */
+
+    public ScatterGatherImpl(final AsyncHttpCall<Object> asyncHttpCall) {
+        this.asyncHttpCall = asyncHttpCall;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<ScatterGatherResult<T>> execute(final String httpMethod,
+                                                    final List<? extends HttpCallConfig<? extends T>> configs,
+                                                    final long timeoutMillis) {
+        final long start = nanoTime();
+        final CountDownLatch pending = new CountDownLatch(configs.size());
+        final AtomicLongArray completions = new AtomicLongArray(configs.size());
+        List<ListenableFuture<Object>> futures = new ArrayList<>(configs.size());
+
+        for (int i = 0; i < configs.size(); i++) {
+            final int index = i;
+            ListenableFuture<Object> future;
+
+            try {
+                future = asyncHttpCall.makeRequest(httpMethod, (HttpCallConfig<Object>) configs.get(i));
+            } catch (RuntimeException e) {
+                // reported as failed, the others going ahead
+                future = immediateFailedFuture(e);
+            }
+
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    completions.set(index, nanoTime());
+                    pending.countDown();
+                }
+            }, directExecutor());
+            futures.add(future);
+        }
+
+        try {
+            pending.await(timeoutMillis, MILLISECONDS);
+        } catch (InterruptedException e) {
+            for (ListenableFuture<Object> future : futures) {
+                future.cancel(true);
+            }
+
+            currentThread().interrupt();
+
+            throw new HttpCallException(format("error, interrupted waiting for %s %s calls", configs.size(),
+                    httpMethod), e);
+        }
+
+        long deadline = nanoTime();
+        List<ScatterGatherResult<T>> results = new ArrayList<>(configs.size());
+
+        for (int i = 0; i < configs.size(); i++) {
+            HttpCallConfig<? extends T> config = configs.get(i);
+            ListenableFuture<Object> future = futures.get(i);
+
+            // a request completing while the deadline passes keeps its outcome
+            if (future.cancel(true)) {
+                results.add(ScatterGatherResult.<T>timedOut(config, toMillis(deadline - start)));
+
+                continue;
+            }
+
+            long elapsedMillis = toMillis(completions.get(i) == 0 ? deadline - start : completions.get(i) - start);
+
+            try {
+                results.add(ScatterGatherResult.succeeded(config, (T) future.get(), elapsedMillis));
+            } catch (ExecutionException e) {
+                results.add(ScatterGatherResult.<T>failed(config, e.getCause(), elapsedMillis));
+            } catch (CancellationException e) {
+                results.add(ScatterGatherResult.<T>failed(config, e, elapsedMillis));
+            } catch (InterruptedException e) {
+                // unreachable, the future is done
+                currentThread().interrupt();
+
+                results.add(ScatterGatherResult.<T>failed(config, e, elapsedMillis));
+            }
+        }
+
+        return results;
+    }
+
+    private static long toMillis(final long nanos) {
+        return NANOSECONDS.toMillis(nanos);
+    }
+}
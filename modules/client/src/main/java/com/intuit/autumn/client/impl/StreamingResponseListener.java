@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.util.Callback;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static java.lang.Thread.currentThread;
+
+/**
+ * Exposes a Jetty response body as a blocking {@link InputStream}.
+ *
+ * Content is queued as it arrives and each chunk is acknowledged only once read, so a slow reader applies back
+ * pressure, i.e. HTTP/2 flow control, to the sender. Unlike Jetty's own InputStreamResponseListener, content queued
+ * before the end of the response is never discarded when the response completes.
+ */
+
+final class StreamingResponseListener extends Response.Listener.Adapter {
+
+    private static final Chunk EOF = new Chunk(ByteBuffer.allocate(0), Callback.NOOP);
+    private final CountDownLatch headers = new CountDownLatch(1);
+    private final Queue<Chunk> chunks = new ArrayDeque<>();
+    private final Request request;
+    private Response response;
+    private Throwable failure;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param request request whose response is listened to, aborted if the body is closed early
+     */
+
+    StreamingResponseListener(final Request request) {
+        this.request = request;
+    }
+
+    /**
+     * Wait for the response headers.
+     *
+     * @return response
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if the request failed before the response headers were received
+     */
+
+    Response get() throws InterruptedException, ExecutionException {
+        headers.await();
+
+        synchronized (chunks) {
+            if (response == null) {
+                throw new ExecutionException(failure);
+            }
+
+            return response;
+        }
+    }
+
+    /**
+     * Response body getter.
+     *
+     * @return body input stream, aborting the request if closed before the end of the body
+     */
+
+    InputStream getInputStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] bytes = new byte[1];
+
+                return read(bytes, 0, 1) < 0 ? -1 : bytes[0] & 0xFF;
+            }
+
+            @Override
+            public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+
+                Chunk chunk = take();
+
+                if (chunk == EOF) {
+                    return -1;
+                }
+
+                int read = Math.min(length, chunk.content.remaining());
+
+                chunk.content.get(bytes, offset, read);
+
+                if (!chunk.content.hasRemaining()) {
+                    synchronized (chunks) {
+                        chunks.poll();
+                    }
+
+                    chunk.callback.succeeded();
+                }
+
+                return read;
+            }
+
+            @Override
+            public int available() {
+                synchronized (chunks) {
+                    Chunk chunk = chunks.peek();
+
+                    return chunk == null ? 0 : chunk.content.remaining();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                abort();
+            }
+        };
+    }
+
+    @Override
+    public void onHeaders(final Response response) {
+        synchronized (chunks) {
+            this.response = response;
+        }
+
+        headers.countDown();
+    }
+
+    @Override
+    public void onContent(final Response response, final ByteBuffer content, final Callback callback) {
+        if (!content.hasRemaining()) {
+            callback.succeeded();
+
+            return;
+        }
+
+        boolean discard;
+
+        synchronized (chunks) {
+            discard = closed;
+
+            if (!discard) {
+                chunks.add(new Chunk(content, callback));
+                chunks.notifyAll();
+            }
+        }
+
+        if (discard) {
+            callback.failed(new AsynchronousCloseException());
+        }
+    }
+
+    @Override
+    public void onComplete(final Result result) {
+        synchronized (chunks) {
+            if (result.isFailed()) {
+                failure = result.getFailure();
+            }
+
+            chunks.add(EOF);
+            chunks.notifyAll();
+        }
+
+        headers.countDown();
+    }
+
+    private Chunk take() throws IOException {
+        synchronized (chunks) {
+            while (true) {
+                if (closed) {
+                    throw new AsynchronousCloseException();
+                }
+
+                Chunk chunk = chunks.peek();
+
+                if (chunk == EOF && failure != null) {
+                    throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+                }
+
+                if (chunk != null) {
+                    return chunk;
+                }
+
+                try {
+                    chunks.wait();
+                } catch (InterruptedException e) {
+                    currentThread().interrupt();
+
+                    throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+                }
+            }
+        }
+    }
+
+    private void abort() {
+        Queue<Chunk> discarded;
+
+        synchronized (chunks) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            discarded = new ArrayDeque<>(chunks);
+            chunks.clear();
+            chunks.notifyAll();
+        }
+
+        // a complete response is unaffected, otherwise the stream is reset rather than drained
+        request.abort(new AsynchronousCloseException());
+
+        for (Chunk chunk : discarded) {
+            chunk.callback.failed(new AsynchronousCloseException());
+        }
+    }
+
+    private static final class Chunk {
+
+        private final ByteBuffer content;
+        private final Callback callback;
+
+        private Chunk(final ByteBuffer content, final Callback callback) {
+            this.content = content;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * A lock-free token bucket, implemented as a generic cell rate algorithm: rather than a token count, the bucket keeps
+ * the theoretical arrival time of the next request, advanced by one emission interval per token taken. A request
+ * conforms, i.e. a token is available, while that time lies less than a burst of intervals ahead; otherwise it may
+ * reserve a token, and the number of nanoseconds it has to wait for it is returned.
+ */
+
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong next;
+
+    /**
+     * Constructor, starting with a full bucket.
+     *
+     * @param permitsPerSecond refill rate
+     * @param burst bucket capacity
+     */
+
+    TokenBucket(final double permitsPerSecond, final int burst) {
+        this(permitsPerSecond, burst, nanoTime());
+    }
+
+    /**
+     * Constructor with configurable state.
+     *
+     * @param permitsPerSecond refill rate
+     * @param burst bucket capacity
+     * @param now current nano time
+     */
+
+    TokenBucket(final double permitsPerSecond, final int burst, final long now) {
+        this.intervalNanos = Math.max(1L, Math.round(1e9 / permitsPerSecond));
+        this.toleranceNanos = (burst - 1) * intervalNanos;
+        this.next = new AtomicLong(now);
+    }
+
+    /**
+     * Take a token, reserving one ahead of time if the bucket is empty.
+     *
+     * @param now current nano time
+     * @param maxWaitNanos maximum wait for a reserved token
+     * @return nanoseconds to wait for the token, or -1 if it would exceed the maximum wait and none was taken
+     */
+
+    long reserve(final long now, final long maxWaitNanos) {
+        while (true) {
+            long current = next.get();
+            long wait = Math.max(0L, current - toleranceNanos - now);
+
+            if (wait > maxWaitNanos) {
+                return -1L;
+            }
+
+            if (next.compareAndSet(current, (current - now > 0 ? current : now) + intervalNanos)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Saturation getter.
+     *
+     * @param now current nano time
+     * @return share of the bucket capacity taken, above 1 once tokens are reserved ahead of time
+     */
+
+    double getSaturation(final long now) {
+        return Math.max(0L, next.get() - now) / (double) (toleranceNanos + intervalNanos);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.Service;
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.intuit.autumn.client.impl.AsyncHttpCallImpl;
+import org.junit.Test;
+
+import static com.google.inject.Guice.createInjector;
+import static com.google.inject.Scopes.SINGLETON;
+import static com.intuit.autumn.client.ClientServices.getClientServices;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ClientModuleTest {
+
+    @Test
+    public void injector() throws Exception {
+        Injector injector = createInjector(new ClientModule(), new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(MetricRegistry.class).in(SINGLETON);
+            }
+        });
+
+        for (Class<? extends Service> service : getClientServices()) {
+            assertThat(injector.getInstance(service), sameInstance(injector.getInstance(service)));
+        }
+
+        assertThat(injector.getInstance(AsyncHttpCall.class), instanceOf(AsyncHttpCallImpl.class));
+    }
+}
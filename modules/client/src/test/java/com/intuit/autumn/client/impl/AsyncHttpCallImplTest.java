@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.intuit.autumn.client.HttpCallConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.ws.rs.HttpMethod.OPTIONS;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mortbay.jetty.HttpHeaders.ACCEPT;
+import static org.mortbay.jetty.HttpHeaders.CONTENT_TYPE;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_201_Created;
+
+public class AsyncHttpCallImplTest {
+
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+    private AsyncHttpClientService asyncHttpClientService;
+    private Map<String, String> map;
+    private String url = "http://localhost:" + port + "/test";
+
+    @Before
+    public void setup() {
+        asyncHttpClientService = new AsyncHttpClientService(1, 10, 10, 1, 10);
+        asyncHttpClientService.startAsync().awaitRunning();
+        map = new HashMap<>();
+
+        map.put("foo", "bar");
+    }
+
+    @After
+    public void tearDown() {
+        asyncHttpClientService.stopAsync().awaitTerminated();
+    }
+
+    @Test
+    public void testDoGet() throws Exception {
+        stubFor(get(urlEqualTo("/test?foo=bar"))
+                .withHeader(ACCEPT, equalTo(APPLICATION_JSON))
+                .withHeader("foo", equalTo("bar"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("[\"dead\",\"beef\"]")));
+
+        AsyncHttpCallImpl<List> asyncHttpCall = new AsyncHttpCallImpl<>(asyncHttpClientService);
+        HttpCallConfig<List> httpCallConfig = HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl(url)
+                .withToMap(List.class)
+                .withHeaders(map)
+                .withQueryParams(map)
+                .withAccept(APPLICATION_JSON)
+                .withExpectedStatus(ORDINAL_200_OK).build();
+        List response = asyncHttpCall.doGet(httpCallConfig).get(5, SECONDS);
+
+        assertThat(response.size(), is(2));
+        assertThat((String) response.get(1), is("beef"));
+    }
+
+    @Test
+    public void testDoPostWithEntity() throws Exception {
+        stubFor(post(urlEqualTo("/test"))
+                .withRequestBody(matching("entity"))
+                .withHeader(CONTENT_TYPE, equalTo(APPLICATION_JSON))
+                .willReturn(aResponse().withStatus(ORDINAL_201_Created).withBody("created")));
+
+        AsyncHttpCallImpl<String> asyncHttpCall = new AsyncHttpCallImpl<>(asyncHttpClientService);
+        HttpCallConfig<String> httpCallConfig = HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl(url)
+                .withData("entity")
+                .withToMap(String.class)
+                .withType(APPLICATION_JSON)
+                .withExpectedStatus(ORDINAL_201_Created).build();
+
+        assertThat(asyncHttpCall.doPost(httpCallConfig).get(5, SECONDS), is("created"));
+    }
+
+    @Test
+    public void testUnexpectedStatus() throws Exception {
+        stubFor(delete(urlEqualTo("/test")).willReturn(aResponse().withStatus(ORDINAL_200_OK)));
+
+        AsyncHttpCallImpl<String> asyncHttpCall = new AsyncHttpCallImpl<>(asyncHttpClientService);
+        HttpCallConfig<String> httpCallConfig = HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl(url)
+                .withToMap(String.class)
+                .withExpectedStatus(ORDINAL_201_Created).build();
+
+        try {
+            asyncHttpCall.doDelete(httpCallConfig).get(5, SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(HttpCallException.class));
+        }
+    }
+
+    @Test
+    public void testUnsupportedMethod() throws Exception {
+        AsyncHttpCallImpl<String> asyncHttpCall = new AsyncHttpCallImpl<>(asyncHttpClientService);
+        HttpCallConfig<String> httpCallConfig = HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl(url)
+                .withExpectedStatus(ORDINAL_200_OK).build();
+
+        try {
+            asyncHttpCall.makeRequest(OPTIONS, httpCallConfig).get(5, SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(UnsupportedOperationException.class));
+        }
+    }
+
+    @Test
+    public void testStoppedServiceFailsFuture() throws Exception {
+        AsyncHttpCallImpl<String> asyncHttpCall = new AsyncHttpCallImpl<>(asyncHttpClientService);
+        HttpCallConfig<String> httpCallConfig = HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl("http://stopped:" + port + "/test")
+                .withToMap(String.class)
+                .withEndpointTemplate("/test")
+                .withExpectedStatus(ORDINAL_200_OK).build();
+
+        MetricRegistry metricRegistry = new MetricRegistry();
+        ClientMetricsService clientMetricsService = new ClientMetricsService(metricRegistry);
+
+        asyncHttpClientService.stopAsync().awaitTerminated();
+        clientMetricsService.startAsync().awaitRunning();
+
+        try {
+            try {
+                asyncHttpCall.doGet(httpCallConfig).get(5, SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+            }
+
+            assertThat(metricRegistry.getCounters().get(ClientMetrics.toName("stopped:" + port, "in-flight"))
+                    .getCount(), is(0L));
+        } finally {
+            clientMetricsService.stopAsync().awaitTerminated();
+        }
+    }
+}
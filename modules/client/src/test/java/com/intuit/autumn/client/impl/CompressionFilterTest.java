@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.intuit.autumn.client.CompressionPolicy;
+import com.intuit.autumn.client.HttpCallConfig;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.google.common.base.Charsets.UTF_8;
+import static com.intuit.autumn.client.CompressionPolicy.Encoding.DEFLATE;
+import static com.intuit.autumn.client.CompressionPolicy.Encoding.GZIP;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+
+public class CompressionFilterTest {
+
+    private static final String BODY = Strings.repeat("autumn ", 1000);
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+
+    @Test
+    public void testGzipResponseIsDecoded() throws Exception {
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(BODY.getBytes(UTF_8));
+        }
+
+        stubFor(get(urlEqualTo("/test")).withHeader("Accept-Encoding", equalTo("gzip, deflate"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withHeader("Content-Encoding", "gzip")
+                        .withBody(gzip.toByteArray())));
+
+        assertThat(new HttpCallImplWithConnectionPooling<String>().doGet(config().build()), is(BODY));
+        assertThat(new HttpCallImpl<String>().doGet(config().build()), is(BODY));
+    }
+
+    @Test
+    public void testDeflateResponseIsDecoded() throws Exception {
+        for (boolean nowrap : new boolean[]{false, true}) {
+            ByteArrayOutputStream deflate = new ByteArrayOutputStream();
+
+            try (DeflaterOutputStream out = new DeflaterOutputStream(deflate, new Deflater(-1, nowrap))) {
+                out.write(BODY.getBytes(UTF_8));
+            }
+
+            stubFor(get(urlEqualTo("/test")).willReturn(aResponse().withStatus(ORDINAL_200_OK)
+                    .withHeader("Content-Encoding", "deflate").withBody(deflate.toByteArray())));
+
+            assertThat(new HttpCallImplWithConnectionPooling<String>().doGet(config().build()), is(BODY));
+        }
+    }
+
+    @Test
+    public void testLargeRequestIsEncoded() throws Exception {
+        // the most recent matching stub wins
+        stubFor(post(urlEqualTo("/test")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("identity")));
+        stubFor(post(urlEqualTo("/test")).withHeader("Content-Encoding", equalTo("gzip"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("encoded")));
+
+        HttpCallImplWithConnectionPooling<String> httpCall = new HttpCallImplWithConnectionPooling<>();
+        CompressionPolicy policy = CompressionPolicy.Builder.aCompressionPolicy().withRequestEncoding(GZIP)
+                .withMinRequestSize(100).build();
+
+        assertThat(httpCall.doPost(config().withCompressionPolicy(policy).withData(BODY).withType("text/plain")
+                .build()), is("encoded"));
+        assertThat(httpCall.doPost(config().withCompressionPolicy(policy).withData("small").withType("text/plain")
+                .build()), is("identity"));
+    }
+
+    @Test
+    public void testEncodingRoundTrips() throws Exception {
+        byte[] data = BODY.getBytes(UTF_8);
+
+        assertThat(ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(
+                ContentCoding.encode(data, GZIP, 9)))), is(data));
+        assertThat(ByteStreams.toByteArray(new InflaterInputStream(new ByteArrayInputStream(
+                ContentCoding.encode(data, DEFLATE, -1)))), is(data));
+        assertThat(ByteStreams.toByteArray(ContentCoding.decode(new ByteArrayInputStream(
+                ContentCoding.encode(data, GZIP, 1)), "gzip")), is(data));
+    }
+
+    @Test
+    public void testEmptyBodyIsNotAnError() throws Exception {
+        InputStream decoded = ContentCoding.decode(new ByteArrayInputStream(new byte[0]), "gzip");
+
+        assertThat(decoded.read(), is(-1));
+
+        decoded.close();
+    }
+
+    private static HttpCallConfig.Builder config() {
+        return HttpCallConfig.Builder.aHttpCallConfig().withUrl("http://localhost:9876/test")
+                .withToMap(String.class).withExpectedStatus(ORDINAL_200_OK)
+                .withCompressionPolicy(CompressionPolicy.Builder.aCompressionPolicy().build());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import com.intuit.autumn.client.ConcurrencyLimitPolicy;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+
+import static com.intuit.autumn.client.ConcurrencyLimitPolicy.Algorithm.GRADIENT;
+import static com.intuit.autumn.client.ConcurrencyLimitPolicy.Algorithm.VEGAS;
+import static com.intuit.autumn.client.impl.StubClientHandler.config;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ConcurrencyLimitFilterTest {
+
+    private final StubClientHandler handler = new StubClientHandler();
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
+
+    @Before
+    public void setup() {
+        concurrencyLimitFilter = new ConcurrencyLimitFilter(
+                new KeyedRegistry<String, ConcurrencyLimitFilter.Host>());
+        handler.newClient(concurrencyLimitFilter);
+    }
+
+    @Test
+    public void testRequestsOverLimitAreRejected() throws Exception {
+        final ConcurrencyLimitPolicy policy = policy().withInitialLimit(1).withMaxLimit(1).build();
+
+        handler.release = new CountDownLatch(1);
+
+        Thread inFlight = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                get("http://rejected:8080/test", policy);
+            }
+        });
+
+        inFlight.start();
+        handler.started.await();
+
+        try {
+            get("http://rejected:8080/test", policy);
+            fail();
+        } catch (HttpCallRejectedException e) {
+            assertThat(e.getMessage(), is("concurrency limit reached, host: rejected:8080, limit: 1"));
+        }
+
+        handler.release.countDown();
+        inFlight.join();
+
+        assertThat(get("http://rejected:8080/test", policy).getStatus(), is(200));
+    }
+
+    @Test
+    public void testSheddingBacksOff() throws Exception {
+        ConcurrencyLimitPolicy policy = policy().withInitialLimit(20).build();
+
+        handler.status.set(503);
+        get("http://shedding:8080/test", policy);
+
+        assertThat(concurrencyLimitFilter.getLimit("shedding:8080"), is(18));
+    }
+
+    @Test
+    public void testServerErrorDoesNotBackOff() throws Exception {
+        ConcurrencyLimitPolicy policy = policy().withInitialLimit(20).build();
+
+        handler.status.set(500);
+        get("http://erroring:8080/test", policy);
+
+        assertThat(concurrencyLimitFilter.getLimit("erroring:8080"), is(20));
+    }
+
+    @Test
+    public void testTransportFailureBacksOff() throws Exception {
+        ConcurrencyLimitPolicy policy = policy().withInitialLimit(20).build();
+
+        handler.error = new ClientHandlerException(new SocketTimeoutException("Read timed out"));
+
+        try {
+            get("http://timing-out:8080/test", policy);
+            fail();
+        } catch (ClientHandlerException e) {
+            assertThat(e.getMessage(), is("java.net.SocketTimeoutException: Read timed out"));
+        }
+
+        assertThat(concurrencyLimitFilter.getLimit("timing-out:8080"), is(18));
+    }
+
+    @Test
+    public void testDownstreamRejectionDoesNotBackOff() throws Exception {
+        ConcurrencyLimitPolicy policy = policy().withInitialLimit(20).build();
+
+        handler.error = new HttpCallRejectedException("circuit open, group: downstream");
+
+        try {
+            get("http://downstream:8080/test", policy);
+            fail();
+        } catch (HttpCallRejectedException e) {
+            assertThat(e.getMessage(), is("circuit open, group: downstream"));
+        }
+
+        assertThat(concurrencyLimitFilter.getLimit("downstream:8080"), is(20));
+    }
+
+    @Test
+    public void testVegasFollowsRoundTripTime() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(policy().withAlgorithm(VEGAS).withInitialLimit(10).build());
+
+        saturate(limiter, 10);
+
+        assertThat(limiter.getLimit() > 10, is(true));
+
+        int grown = limiter.getLimit();
+
+        saturate(limiter, 40);
+
+        assertThat(limiter.getLimit() < grown, is(true));
+    }
+
+    @Test
+    public void testGradientFollowsRoundTripTime() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(policy().withAlgorithm(GRADIENT).withInitialLimit(10).build());
+
+        saturate(limiter, 10);
+
+        assertThat(limiter.getLimit() > 10, is(true));
+
+        int grown = limiter.getLimit();
+
+        saturate(limiter, 40);
+
+        assertThat(limiter.getLimit() < grown, is(true));
+    }
+
+    @Test
+    public void testLimitIsPublished() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        ClientMetricsService clientMetricsService = new ClientMetricsService(metricRegistry);
+        String name = ClientMetrics.toName("published:8080", "concurrency-limit", "limit");
+
+        clientMetricsService.startAsync().awaitRunning();
+
+        try {
+            get("http://published:8080/test", policy().withInitialLimit(7).build());
+
+            assertThat(metricRegistry.getGauges().get(name).getValue(), is((Object) 7));
+        } finally {
+            clientMetricsService.stopAsync().awaitTerminated();
+        }
+
+        assertThat(metricRegistry.getGauges().get(name), nullValue());
+    }
+
+    // fills the limit, then samples a full round of requests at the given round trip time
+    private static void saturate(final AdaptiveLimiter limiter, final long rttMillis) throws InterruptedException {
+        for (int round = 0; round < 5; round++) {
+            int limit = limiter.getLimit();
+
+            for (int i = 0; i < limit; i++) {
+                assertThat(limiter.acquire(0) > 0, is(true));
+            }
+
+            for (int i = 0; i < limit; i++) {
+                limiter.release(MILLISECONDS.toNanos(rttMillis), false, limit);
+            }
+        }
+    }
+
+    private ClientResponse get(final String url, final ConcurrencyLimitPolicy policy) {
+        return handler.get(config(url).withConcurrencyLimitPolicy(policy).build());
+    }
+
+    private static ConcurrencyLimitPolicy.Builder policy() {
+        return ConcurrencyLimitPolicy.Builder.aConcurrencyLimitPolicy();
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Gauge;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.collect.ImmutableList;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.Client;
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newIdentityHashSet;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+
+public class ConnectionPoolRegistryTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(9876);
+    private ConnectionPoolRegistry connectionPoolRegistry;
+
+    @Before
+    public void setup() {
+        connectionPoolRegistry = new ConnectionPoolRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        connectionPoolRegistry.shutdown();
+    }
+
+    @Test
+    public void testSharedPoolPerKey() throws Exception {
+        Client client = connectionPoolRegistry.getClient(config("http://localhost:9876/foo", 5));
+
+        assertThat(connectionPoolRegistry.getClient(config("http://localhost:9876/bar", 5)), sameInstance(client));
+        assertThat(connectionPoolRegistry.getClient(config("http://localhost:9876/bar", 6)), not(sameInstance(client)));
+        assertThat(connectionPoolRegistry.getClient(config("https://localhost:9876/bar", 5)),
+                not(sameInstance(client)));
+        assertThat(connectionPoolRegistry.size(), is(3));
+    }
+
+    @Test
+    public void testConcurrentLookup() throws Exception {
+        ExecutorService executorService = newFixedThreadPool(8);
+        Set<Client> clients = newIdentityHashSet();
+
+        try {
+            Callable<Client> lookup = new Callable<Client>() {
+                @Override
+                public Client call() throws Exception {
+                    return connectionPoolRegistry.getClient(config("http://localhost:9876/foo", 5));
+                }
+            };
+
+            for (Future<Client> client : executorService.invokeAll(newArrayList(lookup, lookup, lookup, lookup,
+                    lookup, lookup, lookup, lookup))) {
+                clients.add(client.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertThat(clients.size(), is(1));
+        assertThat(connectionPoolRegistry.size(), is(1));
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        Client client = connectionPoolRegistry.getClient(config("http://localhost:9876/foo", 5));
+
+        connectionPoolRegistry.shutdown();
+
+        assertThat(connectionPoolRegistry.size(), is(0));
+        assertThat(connectionPoolRegistry.getClient(config("http://localhost:9876/foo", 5)),
+                not(sameInstance(client)));
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        stubFor(get(urlEqualTo("/foo")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("bar")));
+
+        HttpCallConfig<String> config = HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl("http://localhost:9876/foo")
+                .withToMap(String.class)
+                .withReadTimeOut(5000)
+                .withUseConnectionPooling(true)
+                .withExpectedStatus(ORDINAL_200_OK)
+                .build();
+        Gauge<?> available = (Gauge<?>) ClientMetrics.getInstance().get(ClientMetrics.toName("localhost:9876", "pool",
+                "available"));
+        int before = available == null ? 0 : (Integer) available.getValue();
+        HttpCallImplWithConnectionPooling<String> httpCall =
+                new HttpCallImplWithConnectionPooling<>(connectionPoolRegistry);
+
+        assertThat(httpCall.warmUp(ImmutableList.of(config), 3), is(3));
+
+        available = (Gauge<?>) ClientMetrics.getInstance().get(ClientMetrics.toName("localhost:9876", "pool",
+                "available"));
+
+        assertThat((Integer) available.getValue(), is(before + 3));
+        assertThat(httpCall.doGet(config), is("bar"));
+        // the request was served by a warmed up connection
+        assertThat((Integer) available.getValue(), is(before + 3));
+    }
+
+    @Test
+    public void testMaxTotalConnections() throws Exception {
+        ConnectionPoolRegistry capped = new ConnectionPoolRegistry(30000L, 5000L, null, 2);
+        HttpCallConfig<?> config = config("http://localhost:9876/foo", 5000);
+
+        try {
+            // the third connection waits for a permit past the warm up timeout
+            assertThat(new HttpCallImplWithConnectionPooling<>(capped).warmUp(ImmutableList.of(config),
+                    3), is(2));
+            assertThat(capped.getLeased(), is(0));
+            assertThat(capped.getMaxTotalConnections(), is(2));
+        } finally {
+            capped.shutdown();
+        }
+    }
+
+    @Test
+    public void testLostConnectionReturnsPermit() throws Exception {
+        Semaphore permits = new Semaphore(1);
+        InstrumentedHttpConnectionManager connectionManager = new InstrumentedHttpConnectionManager("lost:9876",
+                null, permits);
+        HostConfiguration hostConfiguration = new HostConfiguration();
+
+        hostConfiguration.setHost("localhost", 9876, "http");
+
+        try {
+            HttpConnection connection = connectionManager.getConnectionWithTimeout(hostConfiguration, 100L);
+
+            assertThat(connection.isOpen(), is(false));
+
+            try {
+                connectionManager.getConnectionWithTimeout(hostConfiguration, 100L);
+                fail();
+            } catch (ConnectionPoolTimeoutException e) {
+                assertThat(e.getMessage(), is("Timeout waiting for a connection under the process-wide limit"));
+            }
+
+            // neither released nor referenced any longer
+            connection = null;
+
+            for (int i = 0; i < 50 && connectionManager.getLeased() > 0; i++) {
+                System.gc();
+                Thread.sleep(100L);
+            }
+
+            assertThat(connectionManager.getLeased(), is(0));
+            assertThat(permits.availablePermits(), is(1));
+
+            connectionManager.getConnectionWithTimeout(hostConfiguration, 100L).releaseConnection();
+
+            assertThat(permits.availablePermits(), is(1));
+        } finally {
+            connectionManager.shutdown();
+        }
+    }
+
+    private static HttpCallConfig config(final String url, final int readTimeOut) {
+        return HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl(url)
+                .withReadTimeOut(readTimeOut)
+                .withUseConnectionPooling(true)
+                .build();
+    }
+}
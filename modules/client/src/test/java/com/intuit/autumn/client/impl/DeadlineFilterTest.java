@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.intuit.autumn.utils.Deadline;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.intuit.autumn.client.impl.StubClientHandler.config;
+import static com.sun.jersey.api.client.config.ClientConfig.PROPERTY_READ_TIMEOUT;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DeadlineFilterTest {
+
+    private final AtomicReference<ClientRequest> sent = new AtomicReference<>();
+    private StubClientHandler handler;
+    private Client client;
+    private Deadline previous;
+
+    @Before
+    public void setup() {
+        handler = new StubClientHandler() {
+            @Override
+            int respond(final ClientRequest request) {
+                sent.set(request);
+
+                return super.respond(request);
+            }
+        };
+        client = handler.newClient(new DeadlineFilter());
+
+        client.setReadTimeout(5000);
+    }
+
+    @After
+    public void tearDown() {
+        Deadline.detach(previous);
+    }
+
+    @Test
+    public void testRemainingBudgetIsForwarded() throws Exception {
+        previous = Deadline.attach(Deadline.after(2000));
+
+        get(null);
+
+        int readTimeout = (Integer) sent.get().getProperties().get(PROPERTY_READ_TIMEOUT);
+        long forwarded = Long.parseLong((String) sent.get().getHeaders().getFirst(Deadline.HEADER));
+
+        assertThat(readTimeout > 1000 && readTimeout <= 2000, is(true));
+        assertThat(forwarded > 1000 && forwarded <= 2000, is(true));
+        // the client's own timeout is left as configured
+        assertThat((Integer) client.getProperties().get(PROPERTY_READ_TIMEOUT), is(5000));
+    }
+
+    @Test
+    public void testEarlierDeadlineApplies() throws Exception {
+        previous = Deadline.attach(Deadline.after(2000));
+
+        get(Deadline.after(500));
+
+        assertThat((Integer) sent.get().getProperties().get(PROPERTY_READ_TIMEOUT) <= 500, is(true));
+    }
+
+    @Test
+    public void testExpiredDeadlineIsRejected() throws Exception {
+        previous = Deadline.attach(Deadline.after(0));
+
+        try {
+            get(null);
+            fail();
+        } catch (HttpCallRejectedException e) {
+            assertThat(e.getMessage(), is("deadline exceeded, host: deadline:8080"));
+        }
+
+        assertThat(sent.get(), is(nullValue()));
+    }
+
+    @Test
+    public void testNoDeadline() throws Exception {
+        get(null);
+
+        assertThat(sent.get().getHeaders().getFirst(Deadline.HEADER), is(nullValue()));
+        assertThat((Integer) sent.get().getProperties().get(PROPERTY_READ_TIMEOUT), is(5000));
+    }
+
+    private ClientResponse get(final Deadline deadline) {
+        return handler.get(config("http://deadline:8080/test").withDeadline(deadline).build());
+    }
+}
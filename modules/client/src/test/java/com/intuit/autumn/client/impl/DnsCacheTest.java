@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheLoader;
+import org.apache.commons.httpclient.protocol.Protocol;
+import org.apache.commons.httpclient.protocol.SecureProtocolSocketFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DnsCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger resolutions = new AtomicInteger();
+    private volatile InetAddress[] addresses;
+    private DnsCache dnsCache;
+
+    @Before
+    public void setup() throws Exception {
+        addresses = new InetAddress[]{InetAddress.getByAddress("foo", new byte[]{10, 0, 0, 1})};
+        dnsCache = new DnsCache(new CacheLoader<String, InetAddress[]>() {
+            @Override
+            public InetAddress[] load(final String host) throws UnknownHostException {
+                resolutions.incrementAndGet();
+
+                if (addresses == null) {
+                    throw new UnknownHostException(host);
+                }
+
+                return addresses;
+            }
+        }, 1000L, 5000L, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        }, directExecutor());
+    }
+
+    @Test
+    public void testCachedUntilTtl() throws Exception {
+        assertThat(dnsCache.resolve("foo")[0].getHostAddress(), is("10.0.0.1"));
+        assertThat(dnsCache.resolve("foo")[0].getHostAddress(), is("10.0.0.1"));
+        assertThat(resolutions.get(), is(1));
+
+        addresses = new InetAddress[]{InetAddress.getByAddress("foo", new byte[]{10, 0, 0, 2})};
+        nanos.addAndGet(MILLISECONDS.toNanos(1001L));
+
+        // refreshed in the background once the time to live elapsed
+        dnsCache.resolve("foo");
+
+        assertThat(dnsCache.resolve("foo")[0].getHostAddress(), is("10.0.0.2"));
+        assertThat(resolutions.get(), is(2));
+    }
+
+    @Test
+    public void testStaleAddressesServedOnRefreshFailure() throws Exception {
+        dnsCache.resolve("foo");
+
+        addresses = null;
+        nanos.addAndGet(MILLISECONDS.toNanos(1001L));
+
+        assertThat(dnsCache.resolve("foo")[0].getHostAddress(), is("10.0.0.1"));
+        assertThat(dnsCache.resolve("foo")[0].getHostAddress(), is("10.0.0.1"));
+
+        nanos.addAndGet(MILLISECONDS.toNanos(5000L));
+
+        try {
+            dnsCache.resolve("foo");
+
+            fail();
+        } catch (UnknownHostException e) {
+            assertThat(e.getMessage(), is("foo"));
+        }
+
+        assertThat(dnsCache.size(), is(0L));
+    }
+
+    @Test
+    public void testWrappedHttpsStaysSecure() throws Exception {
+        Protocol https = DnsCachingSocketFactory.wrap(Protocol.getProtocol("https"), dnsCache);
+
+        assertThat(https.isSecure(), is(true));
+        assertThat(https.getSocketFactory() instanceof SecureProtocolSocketFactory, is(true));
+        assertThat(https.getSocketFactory() instanceof DnsCachingSocketFactory, is(true));
+        assertThat(DnsCachingSocketFactory.wrap(https, dnsCache), is(https));
+        assertThat(DnsCachingSocketFactory.wrap(Protocol.getProtocol("http"), dnsCache).isSecure(), is(false));
+    }
+}
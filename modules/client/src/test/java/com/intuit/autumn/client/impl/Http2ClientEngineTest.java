@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.io.CharStreams;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.ClientHandlerException;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.google.common.base.Charsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+
+public class Http2ClientEngineTest {
+
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+    private Server server;
+    private String url;
+
+    @Before
+    public void setup() throws Exception {
+        server = new Server();
+
+        ServerConnector connector = new ServerConnector(server,
+                new HTTP2CServerConnectionFactory(new HttpConfiguration()));
+
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(final String target, final Request baseRequest, final HttpServletRequest request,
+                               final HttpServletResponse response) throws IOException {
+                response.setStatus(ORDINAL_200_OK);
+                response.getWriter().write(request.getProtocol() + ' ' + request.getMethod() + ' ' +
+                        CharStreams.toString(request.getReader()));
+
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+
+        url = "http://localhost:" + connector.getLocalPort() + "/test";
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+        Http2ClientEngine.getInstance().shutdown();
+    }
+
+    @Test
+    public void testRequestsAreMultiplexedOverH2c() throws Exception {
+        HttpCallImplWithConnectionPooling<String> httpCall = new HttpCallImplWithConnectionPooling<>();
+
+        assertThat(httpCall.doGet(config(url).build()), is("HTTP/2.0 GET "));
+        assertThat(httpCall.doPost(config(url).withData("foo").withType("text/plain").build()),
+                is("HTTP/2.0 POST foo"));
+        assertThat(httpCall.doPost(config(url).withData(ByteBuffer.wrap("bar".getBytes(UTF_8))).withType("text/plain")
+                .build()), is("HTTP/2.0 POST bar"));
+        assertThat(Http2ClientEngine.getInstance().getProtocol(URI.create(url)), is("h2"));
+    }
+
+    @Test
+    public void testHttp1HostFallsBack() throws Exception {
+        stubFor(post(urlEqualTo("/test")).withRequestBody(equalTo("foo"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("bar")));
+
+        String wireMockUrl = "http://localhost:" + port + "/test";
+        HttpCallImpl<String> httpCall = new HttpCallImpl<>();
+
+        assertThat(httpCall.doPost(config(wireMockUrl).withData("foo").withType("text/plain").build()), is("bar"));
+        assertThat(httpCall.doPost(config(wireMockUrl).withData("foo").withType("text/plain").build()), is("bar"));
+        assertThat(Http2ClientEngine.getInstance().getProtocol(URI.create(wireMockUrl)), is("http/1.1"));
+
+        verify(2, postRequestedFor(urlEqualTo("/test")));
+    }
+
+    @Test
+    public void testCommittedNonIdempotentRequestIsNotResent() throws Exception {
+        final AtomicInteger http1Requests = new AtomicInteger();
+
+        // reads whatever is sent, then drops the connection without a response
+        try (final ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread acceptor = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!serverSocket.isClosed()) {
+                        try (Socket socket = serverSocket.accept()) {
+                            socket.setSoTimeout(500);
+
+                            byte[] method = new byte[5];
+                            int read = socket.getInputStream().read(method);
+
+                            if (read > 0 && new String(method, 0, read, UTF_8).startsWith("POST")) {
+                                http1Requests.incrementAndGet();
+                            }
+
+                            while (read >= 0) {
+                                read = socket.getInputStream().read(method);
+                            }
+                        } catch (IOException e) {
+                            // read timed out or closed
+                        }
+                    }
+                }
+            });
+
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            String droppingUrl = "http://localhost:" + serverSocket.getLocalPort() + "/test";
+            HttpCallImpl<String> httpCall = new HttpCallImpl<>();
+
+            try {
+                httpCall.doPost(config(droppingUrl).withData("foo").withType("text/plain").build());
+                fail();
+            } catch (ClientHandlerException e) {
+                // sent over HTTP/2, then dropped
+            }
+
+            assertThat(http1Requests.get(), is(0));
+            assertThat(Http2ClientEngine.getInstance().getProtocol(URI.create(droppingUrl)), is("http/1.1"));
+        }
+    }
+
+    private static HttpCallConfig.Builder config(final String url) {
+        return HttpCallConfig.Builder.aHttpCallConfig().withUrl(url).withToMap(String.class).withUseHttp2(true)
+                .withReadTimeOut(5000).withExpectedStatus(ORDINAL_200_OK);
+    }
+}
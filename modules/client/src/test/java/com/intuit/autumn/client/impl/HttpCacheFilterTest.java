@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.collect.ImmutableMap;
+import com.intuit.autumn.client.CachedHttpResponse;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpResponseCache;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_304_Not_Modified;
+
+public class HttpCacheFilterTest {
+
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+    private String url = "http://localhost:" + port + "/test";
+    private HttpResponseCache responseCache;
+
+    @Before
+    public void setup() {
+        responseCache = new InMemoryHttpResponseCache(1024 * 1024);
+    }
+
+    @Test
+    public void testFreshResponseIsServedFromCache() throws Exception {
+        stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withHeader("Cache-Control", "max-age=60")
+                        .withBody("foo")));
+
+        HttpCallImplWithConnectionPooling<String> httpCall = new HttpCallImplWithConnectionPooling<>();
+
+        assertThat(httpCall.doGet(config()), is("foo"));
+        assertThat(httpCall.doGet(config()), is("foo"));
+
+        verify(1, getRequestedFor(urlEqualTo("/test")));
+    }
+
+    @Test
+    public void testStaleResponseIsRevalidated() throws Exception {
+        stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withHeader("Cache-Control", "no-cache")
+                        .withHeader("ETag", "\"v1\"").withBody("foo")));
+        stubFor(get(urlEqualTo("/test"))
+                .withHeader("If-None-Match", equalTo("\"v1\""))
+                .willReturn(aResponse().withStatus(ORDINAL_304_Not_Modified).withHeader("ETag", "\"v1\"")));
+
+        HttpCallImpl<String> httpCall = new HttpCallImpl<>();
+
+        assertThat(httpCall.doGet(config()), is("foo"));
+        assertThat(httpCall.doGet(config()), is("foo"));
+
+        verify(2, getRequestedFor(urlEqualTo("/test")));
+        verify(1, getRequestedFor(urlEqualTo("/test")).withHeader("If-None-Match", equalTo("\"v1\"")));
+    }
+
+    @Test
+    public void testNoStoreResponseIsNotCached() throws Exception {
+        stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withHeader("Cache-Control", "no-store, max-age=60")
+                        .withBody("foo")));
+
+        HttpCallImplWithConnectionPooling<String> httpCall = new HttpCallImplWithConnectionPooling<>();
+
+        assertThat(httpCall.doGet(config()), is("foo"));
+        assertThat(httpCall.doGet(config()), is("foo"));
+
+        verify(2, getRequestedFor(urlEqualTo("/test")));
+    }
+
+    @Test
+    public void testVaryingResponseIsCachedPerVariant() throws Exception {
+        stubFor(get(urlEqualTo("/test")).withHeader("Accept-Language", equalTo("en"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withHeader("Cache-Control", "max-age=60")
+                        .withHeader("Vary", "Accept-Language").withBody("hello")));
+        stubFor(get(urlEqualTo("/test")).withHeader("Accept-Language", equalTo("fr"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withHeader("Cache-Control", "max-age=60")
+                        .withHeader("Vary", "Accept-Language").withBody("bonjour")));
+
+        HttpCallImplWithConnectionPooling<String> httpCall = new HttpCallImplWithConnectionPooling<>();
+
+        assertThat(httpCall.doGet(config(singletonMap("Accept-Language", "en"))), is("hello"));
+        assertThat(httpCall.doGet(config(singletonMap("Accept-Language", "fr"))), is("bonjour"));
+        assertThat(httpCall.doGet(config(singletonMap("Accept-Language", "en"))), is("hello"));
+        assertThat(httpCall.doGet(config(singletonMap("Accept-Language", "fr"))), is("bonjour"));
+
+        verify(1, getRequestedFor(urlEqualTo("/test")).withHeader("Accept-Language", equalTo("en")));
+        verify(1, getRequestedFor(urlEqualTo("/test")).withHeader("Accept-Language", equalTo("fr")));
+    }
+
+    @Test
+    public void testAuthorizedResponseIsNotCached() throws Exception {
+        stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withHeader("Cache-Control", "max-age=60")
+                        .withBody("mine")));
+
+        HttpCallImplWithConnectionPooling<String> httpCall = new HttpCallImplWithConnectionPooling<>();
+
+        assertThat(httpCall.doGet(config(singletonMap("Authorization", "Bearer a"))), is("mine"));
+        assertThat(httpCall.doGet(config(singletonMap("Authorization", "Bearer b"))), is("mine"));
+
+        verify(2, getRequestedFor(urlEqualTo("/test")));
+    }
+
+    @Test
+    public void testPublicAuthorizedResponseIsCached() throws Exception {
+        stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withHeader("Cache-Control", "public, max-age=60")
+                        .withBody("shared")));
+
+        HttpCallImplWithConnectionPooling<String> httpCall = new HttpCallImplWithConnectionPooling<>();
+
+        assertThat(httpCall.doGet(config(singletonMap("Authorization", "Bearer a"))), is("shared"));
+        assertThat(httpCall.doGet(config(singletonMap("Authorization", "Bearer a"))), is("shared"));
+
+        verify(1, getRequestedFor(urlEqualTo("/test")));
+    }
+
+    @Test
+    public void testIsFresh() throws Exception {
+        long now = System.currentTimeMillis();
+
+        assertThat(HttpCacheFilter.isFresh(cached("max-age=60", null, now - 1000), now), is(true));
+        assertThat(HttpCacheFilter.isFresh(cached("max-age=60", "59", now - 1000), now), is(false));
+        assertThat(HttpCacheFilter.isFresh(cached("max-age=60", null, now - 61000), now), is(false));
+        assertThat(HttpCacheFilter.isFresh(cached("no-cache, max-age=60", null, now), now), is(false));
+        assertThat(HttpCacheFilter.isFresh(cached(null, null, now), now), is(false));
+    }
+
+    private HttpCallConfig<String> config() {
+        return config(Collections.<String, String>emptyMap());
+    }
+
+    private HttpCallConfig<String> config(final Map<String, String> headers) {
+        return HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl(url)
+                .withHeaders(headers)
+                .withToMap(String.class)
+                .withExpectedStatus(ORDINAL_200_OK)
+                .withResponseCache(responseCache)
+                .build();
+    }
+
+    private static CachedHttpResponse cached(final String cacheControl, final String age, final long storedAt) {
+        ImmutableMap.Builder<String, List<String>> headers = ImmutableMap.builder();
+
+        if (cacheControl != null) {
+            headers.put("Cache-Control", Collections.singletonList(cacheControl));
+        }
+
+        if (age != null) {
+            headers.put("Age", Collections.singletonList(age));
+        }
+
+        Map<String, List<String>> map = headers.build();
+
+        return new CachedHttpResponse(ORDINAL_200_OK, map, new byte[0], storedAt);
+    }
+}
@@ -54,6 +54,7 @@ public class HttpCallConfigTest {
                 .withProxyPort(7)
                 .withUseConnectionPooling(FALSE)
                 .withMaxConnectionPerHost(8)
+                .withUseRequestCoalescing(TRUE)
                 .but();
         HttpCallConfig httpCallConfig = builder.build();
 
@@ -67,5 +68,6 @@ public class HttpCallConfigTest {
         assertThat(httpCallConfig.getUseConnectionPooling(), is(FALSE));
         assertThat(httpCallConfig.getMaxConnectionPerHost().isPresent(), is(TRUE));
         assertThat(httpCallConfig.getMaxConnectionPerHost().get().equals(8), is(TRUE));
+        assertThat(httpCallConfig.getUseRequestCoalescing(), is(TRUE));
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpCallTemplate;
+import com.sun.jersey.api.client.Client;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URI;
+import java.util.Map;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static javax.ws.rs.HttpMethod.GET;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+/**
+ * Compares the per request cost of {@link HttpCallImplWithConnectionPooling} making a request from a configuration
+ * built per call with that of executing a compiled {@link HttpCallTemplate}. Both go through the client filters to a
+ * {@link StubClientHandler} answering at once, so the network does not drown the difference.
+ *
+ * Run {@link #main(String[])}, with the test class path, once test classes are compiled with the benchmark profile,
+ * which generates the JMH harness; on Java 9 and later JMH needs --add-opens java.base/java.io=ALL-UNNAMED. Compare
+ * the gc.alloc.rate.norm, i.e. bytes allocated per operation, of the two benchmarks: what the template saves is the
+ * per call configuration, url parsing and query and header copying, the rest is shared by both.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpCallTemplateBenchmark {
+
+    private static final String URL = "http://localhost:9876/users";
+    private static final Map<String, String> HEADERS = ImmutableMap.of("X-Request-Source", "benchmark",
+            "X-Tenant", "autumn");
+    private static final Map<String, String> QUERY_PARAMS = ImmutableMap.of("fields", "name,email", "limit", "10");
+    private final StubClientHandler handler = new StubClientHandler();
+    private Client client;
+    private ConnectionPoolRegistry connectionPoolRegistry;
+    private HttpCallImplWithConnectionPooling<String> httpCall;
+    private HttpCallTemplate<String> template;
+    private long id;
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HttpCallTemplateBenchmark.class.getSimpleName())
+                .addProfiler("gc").build()).run();
+    }
+
+    @Setup
+    public void setup() {
+        client = ClientFilters.install(handler.newClient());
+        connectionPoolRegistry = new ConnectionPoolRegistry() {
+            @Override
+            public Client getClient(final HttpCallConfig<?> config, final URI uri) {
+                return client;
+            }
+        };
+        httpCall = new HttpCallImplWithConnectionPooling<>(connectionPoolRegistry);
+        template = HttpCallTemplate.compile(GET, config(URL + "/{id}/orders"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.destroy();
+        connectionPoolRegistry.shutdown();
+    }
+
+    @Benchmark
+    public String perCallConfig() {
+        return httpCall.makeRequest(GET, config(URL + '/' + id++ + "/orders"));
+    }
+
+    @Benchmark
+    public String compiledTemplate() {
+        return httpCall.execute(template, null, id++);
+    }
+
+    private static HttpCallConfig<String> config(final String url) {
+        return HttpCallConfig.Builder.aHttpCallConfig().withUrl(url).withToMap(String.class).withHeaders(HEADERS)
+                .withQueryParams(QUERY_PARAMS).withAccept(APPLICATION_JSON).withExpectedStatus(200)
+                .withUseConnectionPooling(true).build();
+    }
+}
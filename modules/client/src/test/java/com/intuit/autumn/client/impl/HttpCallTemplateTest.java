@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.collect.ImmutableMap;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpCallTemplate;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static javax.ws.rs.HttpMethod.GET;
+import static javax.ws.rs.HttpMethod.POST;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+
+public class HttpCallTemplateTest {
+
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+    private String url = "http://localhost:" + port;
+
+    @Test
+    public void testExpand() throws Exception {
+        HttpCallTemplate<String> template = HttpCallTemplate.compile(GET, config(url + "/users/{id}/orders?q={q}")
+                .withQueryParams(ImmutableMap.of("limit", "10")).build());
+
+        assertThat(template.getVariables(), is(Arrays.asList("id", "q")));
+        assertThat(template.getOrigin().toString(), is(url));
+        assertThat(template.expand("a b/c", "x&y z"), is(url + "/users/a%20b%2Fc/orders?q=x%26y+z&limit=10"));
+        assertThat(template.expand(42, 1), is(url + "/users/42/orders?q=1&limit=10"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHostMayNotBeAVariable() throws Exception {
+        HttpCallTemplate.compile(GET, config("http://{host}/users").build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testValuesMustMatchVariables() throws Exception {
+        HttpCallTemplate.compile(GET, config(url + "/users/{id}").build()).expand();
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        stubFor(get(urlEqualTo("/users/1?fields=name")).withHeader("foo", equalTo("bar"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("one")));
+        stubFor(get(urlEqualTo("/users/2?fields=name")).withHeader("foo", equalTo("bar"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("two")));
+        stubFor(post(urlEqualTo("/users/3?fields=name")).withRequestBody(equalTo("three"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("posted")));
+
+        HttpCallConfig<String> config = config(url + "/users/{id}").withHeaders(ImmutableMap.of("foo", "bar"))
+                .withQueryParams(ImmutableMap.of("fields", "name")).build();
+        HttpCallTemplate<String> get = HttpCallTemplate.compile(GET, config);
+        HttpCallTemplate<String> post = HttpCallTemplate.compile(POST, config);
+        HttpCallImplWithConnectionPooling<String> httpCall = new HttpCallImplWithConnectionPooling<>();
+
+        assertThat(httpCall.execute(get, null, 1), is("one"));
+        assertThat(httpCall.execute(get, null, 2), is("two"));
+        assertThat(httpCall.execute(post, "three", 3), is("posted"));
+        assertThat(new HttpCallImpl<String>().execute(get, null, 1), is("one"));
+    }
+
+    private static HttpCallConfig.Builder config(final String url) {
+        return HttpCallConfig.Builder.aHttpCallConfig().withUrl(url).withToMap(String.class)
+                .withExpectedStatus(ORDINAL_200_OK);
+    }
+}
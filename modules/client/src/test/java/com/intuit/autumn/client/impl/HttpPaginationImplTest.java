@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.intuit.autumn.client.Flow;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpPage;
+import com.intuit.autumn.client.PaginationPolicy;
+import com.intuit.autumn.utils.Deadline;
+import com.sun.jersey.api.client.ClientResponse;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_500_Internal_Server_Error;
+
+public class HttpPaginationImplTest {
+
+    private static final Object COMPLETE = new Object();
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+    private String url = "http://localhost:" + port + "/items";
+
+    @Test
+    public void testLinkHeaderIsFollowed() throws Exception {
+        stubFor(get(urlEqualTo("/items")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("a")
+                .withHeader("Link", "<http://localhost:" + port + "/items?page=2>; rel=\"next last\"")));
+        stubFor(get(urlEqualTo("/items?page=2")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("b")
+                .withHeader("Link", "</items?page=1>; rel=prev, </items?page=3>; rel=next")));
+        stubFor(get(urlEqualTo("/items?page=3")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("c")));
+
+        Subscriber<String> subscriber = new Subscriber<>(Long.MAX_VALUE);
+
+        new HttpPaginationImpl().pages(config(String.class).build(), PaginationPolicy.Builder.aPaginationPolicy()
+                .build()).subscribe(subscriber);
+
+        assertThat(subscriber.nextValue(), is((Object) "a"));
+        assertThat(subscriber.nextValue(), is((Object) "b"));
+        assertThat(subscriber.nextValue(), is((Object) "c"));
+        assertThat(subscriber.events.poll(5, SECONDS), is(COMPLETE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCursorIsSent() throws Exception {
+        stubFor(get(urlEqualTo("/items?size=2")).willReturn(aResponse().withStatus(ORDINAL_200_OK)
+                .withBody("{\"items\":[1,2],\"meta\":{\"next\":\"x\"}}")));
+        stubFor(get(urlMatching("/items\\?(size=2&cursor=x|cursor=x&size=2)")).willReturn(aResponse()
+                .withStatus(ORDINAL_200_OK).withBody("{\"items\":[3],\"meta\":{\"next\":null}}")));
+
+        Subscriber<Map> subscriber = new Subscriber<>(Long.MAX_VALUE);
+        HttpCallConfig<Map> config = config(Map.class).withQueryParams(singletonMap("size", "2"))
+                .withCodec(JacksonCodec.json()).build();
+
+        new HttpPaginationImpl().pages(config, PaginationPolicy.Builder.aPaginationPolicy()
+                .withCursorPointer("/meta/next").withCursorParam("cursor").build()).subscribe(subscriber);
+
+        assertThat(((Map) subscriber.nextValue()).get("items").toString(), is("[1, 2]"));
+        assertThat(((Map) subscriber.nextValue()).get("items").toString(), is("[3]"));
+        assertThat(subscriber.events.poll(5, SECONDS), is(COMPLETE));
+    }
+
+    @Test
+    public void testDemandBoundsPrefetch() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            stubFor(get(urlEqualTo("/items/" + i)).willReturn(aResponse().withStatus(ORDINAL_200_OK)
+                    .withBody("{\"page\":" + i + ",\"next\":" + (i < 5 ? "\"/items/" + (i + 1) + '"' : "null") +
+                            '}')));
+        }
+
+        Subscriber<String> subscriber = new Subscriber<>(1);
+
+        new HttpPaginationImpl().pages(config(String.class).withUrl(url + "/1").build(),
+                PaginationPolicy.Builder.aPaginationPolicy().withPrefetch(2).withNextLinkPointer("/next").build())
+                .subscribe(subscriber);
+
+        assertThat(subscriber.nextValue(), is((Object) "{\"page\":1,\"next\":\"/items/2\"}"));
+
+        // one page delivered and two fetched ahead
+        Thread.sleep(500);
+
+        verify(1, getRequestedFor(urlEqualTo("/items/3")));
+        verify(0, getRequestedFor(urlEqualTo("/items/4")));
+        assertThat(subscriber.events.isEmpty(), is(true));
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        for (int i = 2; i <= 5; i++) {
+            assertThat(subscriber.nextValue().toString().startsWith("{\"page\":" + i), is(true));
+        }
+
+        assertThat(subscriber.events.poll(5, SECONDS), is(COMPLETE));
+    }
+
+    @Test
+    public void testFailureFollowsFetchedPages() throws Exception {
+        stubFor(get(urlEqualTo("/items")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("a")
+                .withHeader("Link", "</items?page=2>; rel=\"next\"")));
+        stubFor(get(urlEqualTo("/items?page=2")).willReturn(aResponse()
+                .withStatus(ORDINAL_500_Internal_Server_Error)));
+
+        Subscriber<String> subscriber = new Subscriber<>(Long.MAX_VALUE);
+
+        new HttpPaginationImpl().pages(config(String.class).build(), PaginationPolicy.Builder.aPaginationPolicy()
+                .build()).subscribe(subscriber);
+
+        assertThat(subscriber.nextValue(), is((Object) "a"));
+        assertThat(subscriber.events.poll(5, SECONDS), instanceOf(HttpCallException.class));
+        assertThat(subscriber.events.poll(500, MILLISECONDS), nullValue());
+    }
+
+    @Test
+    public void testFailureDuringFetchEndsPagination() throws Exception {
+        stubFor(get(urlEqualTo("/items")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("a")
+                .withHeader("Link", "</items?page=2>; rel=\"next\"").withFixedDelay(300)));
+        stubFor(get(urlEqualTo("/items?page=2")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("b")));
+
+        Subscriber<String> subscriber = new Subscriber<>(Long.MAX_VALUE);
+
+        new HttpPaginationImpl().pages(config(String.class).build(), PaginationPolicy.Builder.aPaginationPolicy()
+                .build()).subscribe(subscriber);
+        // while the first page is being fetched
+        subscriber.subscription.request(0);
+
+        assertThat(subscriber.events.poll(5, SECONDS), instanceOf(IllegalArgumentException.class));
+        assertThat(subscriber.events.poll(500, MILLISECONDS), nullValue());
+
+        verify(0, getRequestedFor(urlEqualTo("/items?page=2")));
+    }
+
+    @Test
+    public void testSubscriberDeadlineIsForwarded() throws Exception {
+        stubFor(get(urlEqualTo("/items")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("a")
+                .withHeader("Link", "</items?page=2>; rel=\"next\"")));
+        stubFor(get(urlEqualTo("/items?page=2")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("b")));
+
+        Subscriber<String> subscriber = new Subscriber<>(Long.MAX_VALUE);
+        Deadline previous = Deadline.attach(Deadline.after(5000));
+
+        try {
+            new HttpPaginationImpl().pages(config(String.class).build(), PaginationPolicy.Builder
+                    .aPaginationPolicy().build()).subscribe(subscriber);
+        } finally {
+            Deadline.detach(previous);
+        }
+
+        assertThat(subscriber.nextValue(), is((Object) "a"));
+        assertThat(subscriber.nextValue(), is((Object) "b"));
+        assertThat(subscriber.events.poll(5, SECONDS), is(COMPLETE));
+
+        verify(getRequestedFor(urlEqualTo("/items")).withHeader(Deadline.HEADER, matching("\\d+")));
+        verify(getRequestedFor(urlEqualTo("/items?page=2")).withHeader(Deadline.HEADER, matching("\\d+")));
+    }
+
+    @Test
+    public void testUnreadablePageReleasesConnection() throws Exception {
+        stubFor(get(urlEqualTo("/items")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("not json")));
+
+        Subscriber<Map> subscriber = new Subscriber<>(Long.MAX_VALUE);
+
+        new HttpPaginationImpl().pages(config(Map.class).withCodec(JacksonCodec.json()).build(),
+                PaginationPolicy.Builder.aPaginationPolicy().build()).subscribe(subscriber);
+
+        Object failure = subscriber.events.poll(5, SECONDS);
+
+        assertThat(failure, instanceOf(HttpCallException.class));
+        assertThat(((HttpCallException) failure).getMessage(), is("error, unable to read page 0 of " + url +
+                ", status: 200"));
+        assertThat(((HttpCallException) failure).getCause(), notNullValue());
+        assertThat(ConnectionPoolRegistry.getInstance().getLeased(), is(0));
+    }
+
+    @Test
+    public void testMissingResponseFails() throws Exception {
+        Subscriber<String> subscriber = new Subscriber<>(Long.MAX_VALUE);
+        HttpCallImplWithConnectionPooling<ClientResponse> httpCall =
+                new HttpCallImplWithConnectionPooling<ClientResponse>() {
+                    @Override
+                    public ClientResponse makeRequest(final String httpMethod,
+                                                      final HttpCallConfig<ClientResponse> config) {
+                        return null;
+                    }
+                };
+
+        new HttpPaginationImpl(httpCall, directExecutor()).pages(config(String.class).build(),
+                PaginationPolicy.Builder.aPaginationPolicy().build()).subscribe(subscriber);
+
+        Object failure = subscriber.events.poll(5, SECONDS);
+
+        assertThat(failure, instanceOf(HttpCallException.class));
+        assertThat(((HttpCallException) failure).getMessage(), is("error, GET call to " + url +
+                " returned no response, page: 0"));
+    }
+
+    private <T> HttpCallConfig.Builder<T> config(final Class<T> toMap) {
+        HttpCallConfig.Builder<T> builder = HttpCallConfig.Builder.aHttpCallConfig();
+
+        return builder.withUrl(url).withToMap(toMap).withExpectedStatus(ORDINAL_200_OK);
+    }
+
+    private static final class Subscriber<T> implements Flow.Subscriber<HttpPage<T>> {
+
+        private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+        private final long initialDemand;
+        private Flow.Subscription subscription;
+
+        private Subscriber(final long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        private Object nextValue() throws InterruptedException {
+            Object event = events.poll(5, SECONDS);
+
+            assertThat(event, instanceOf(HttpPage.class));
+
+            return ((HttpPage<?>) event).getValue();
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+
+            subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(final HttpPage<T> item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            events.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            events.add(COMPLETE);
+        }
+    }
+}
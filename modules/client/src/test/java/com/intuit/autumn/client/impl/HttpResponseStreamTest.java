@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.io.ByteStreams;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpResponseStream;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+
+public class HttpResponseStreamTest {
+
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+    private String url = "http://localhost:" + port + "/test";
+
+    @Test
+    public void testElements() throws Exception {
+        stubFor(get(urlEqualTo("/test"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("[{\"foo\":\"bar\"},{\"foo\":\"baz\"}]")));
+
+        HttpCallImplWithConnectionPooling<HttpResponseStream> httpCall = new HttpCallImplWithConnectionPooling<>();
+        HttpCallConfig<HttpResponseStream> httpCallConfig = HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl(url)
+                .withToMap(HttpResponseStream.class)
+                .withExpectedStatus(ORDINAL_200_OK)
+                .withUseConnectionPooling(true)
+                .build();
+        HttpResponseStream stream = httpCall.doGet(httpCallConfig);
+        Iterator<Map> elements = stream.elements(Map.class);
+        List<Object> values = new ArrayList<>();
+
+        while (elements.hasNext()) {
+            values.add(elements.next().get("foo"));
+        }
+
+        assertThat(values, is((List<Object>) asList((Object) "bar", "baz")));
+        assertThat(stream.isClosed(), is(true));
+    }
+
+    @Test
+    public void testInputStreamReleasedAtEndOfStream() throws Exception {
+        AtomicInteger released = new AtomicInteger();
+        HttpResponseStream stream = stream("foo", released);
+
+        assertThat(new String(ByteStreams.toByteArray(stream.getInputStream()), "UTF-8"), is("foo"));
+        assertThat(released.get(), is(1));
+
+        stream.close();
+
+        assertThat(released.get(), is(1));
+    }
+
+    @Test
+    public void testChannelReleasedOnClose() throws Exception {
+        AtomicInteger released = new AtomicInteger();
+        HttpResponseStream stream = stream("foo", released);
+
+        try (ReadableByteChannel channel = stream.getChannel()) {
+            assertThat(channel.read(ByteBuffer.allocate(1)), is(1));
+        }
+
+        assertThat(released.get(), is(1));
+    }
+
+    @Test
+    public void testSingleConsumption() throws Exception {
+        HttpResponseStream stream = stream("[]", new AtomicInteger());
+
+        stream.getInputStream();
+
+        try {
+            stream.elements(Map.class);
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("response body has already been consumed"));
+        }
+    }
+
+    private static HttpResponseStream stream(final String body, final AtomicInteger released) throws Exception {
+        InputStream entity = new ByteArrayInputStream(body.getBytes("UTF-8"));
+
+        return new HttpResponseStream(ORDINAL_200_OK, Collections.<String, List<String>>emptyMap(), entity,
+                new Closeable() {
+                    @Override
+                    public void close() {
+                        released.incrementAndGet();
+                    }
+                });
+    }
+}
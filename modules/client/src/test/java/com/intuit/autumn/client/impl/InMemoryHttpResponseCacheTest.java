@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.intuit.autumn.client.CachedHttpResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class InMemoryHttpResponseCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testEvictionSpillsToOverflow() throws Exception {
+        MappedFileHttpResponseCache overflow = new MappedFileHttpResponseCache(temporaryFolder.getRoot(), 1024 * 1024);
+        InMemoryHttpResponseCache cache = new InMemoryHttpResponseCache(1024, overflow);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, response(new byte[256]));
+        }
+
+        assertThat(cache.size() < 10, is(true));
+        assertThat(overflow.size() > 0, is(true));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get("key" + i), notNullValue());
+        }
+    }
+
+    @Test
+    public void testMappedFileRoundTrip() throws Exception {
+        MappedFileHttpResponseCache cache = new MappedFileHttpResponseCache(temporaryFolder.getRoot(), 1024 * 1024);
+
+        cache.put("key", response("foo".getBytes("UTF-8")));
+
+        CachedHttpResponse cached = cache.get("key");
+
+        assertThat(cached.getStatus(), is(200));
+        assertThat(cached.getStoredAt(), is(1L));
+        assertThat(cached.getFirstHeader("etag"), is("\"v1\""));
+        assertThat(new String(cached.getBody(), "UTF-8"), is("foo"));
+
+        cache.invalidate("key");
+
+        assertThat(cache.get("key"), nullValue());
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void testMappedFileEviction() throws Exception {
+        MappedFileHttpResponseCache cache = new MappedFileHttpResponseCache(temporaryFolder.getRoot(), 1024);
+
+        cache.put("key0", response(new byte[600]));
+        cache.put("key1", response(new byte[600]));
+
+        assertThat(cache.get("key0"), nullValue());
+        assertThat(cache.get("key1"), notNullValue());
+        assertThat(cache.size() <= 1024, is(true));
+    }
+
+    @Test
+    public void testMappedFileConcurrentAccess() throws Exception {
+        final MappedFileHttpResponseCache cache = new MappedFileHttpResponseCache(temporaryFolder.getRoot(), 4096);
+        ExecutorService executor = newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 200; i++) {
+                            String key = "key" + i % 16;
+                            byte[] body = key.getBytes("UTF-8");
+
+                            cache.put(key, response(body));
+
+                            CachedHttpResponse cached = cache.get(key);
+
+                            // evicted, or else whole
+                            assertThat(cached == null || new String(cached.getBody(), "UTF-8").equals(key),
+                                    is(true));
+                        }
+
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(cache.size() <= 4096, is(true));
+        assertThat(temporaryFolder.getRoot().listFiles().length <= 16, is(true));
+    }
+
+    private static CachedHttpResponse response(final byte[] body) {
+        return new CachedHttpResponse(200, ImmutableMap.<String, List<String>>of("ETag",
+                Collections.singletonList("\"v1\"")), body, 1L);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import com.intuit.autumn.client.IsolationPolicy;
+import com.sun.jersey.api.client.ClientResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static com.intuit.autumn.client.impl.CircuitBreaker.Permit.CALL;
+import static com.intuit.autumn.client.impl.CircuitBreaker.Permit.REJECTED;
+import static com.intuit.autumn.client.impl.CircuitBreaker.Permit.TRIAL;
+import static com.intuit.autumn.client.impl.CircuitBreaker.State.CLOSED;
+import static com.intuit.autumn.client.impl.CircuitBreaker.State.HALF_OPEN;
+import static com.intuit.autumn.client.impl.CircuitBreaker.State.OPEN;
+import static com.intuit.autumn.client.impl.StubClientHandler.config;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class IsolationFilterTest {
+
+    private static final String URL = "http://localhost:9876/test";
+    private final StubClientHandler handler = new StubClientHandler();
+    private IsolationFilter isolationFilter;
+
+    @Before
+    public void setup() {
+        isolationFilter = new IsolationFilter(new KeyedRegistry<String, IsolationFilter.Group>());
+        handler.newClient(isolationFilter);
+    }
+
+    @Test
+    public void testFullBulkheadRejects() throws Exception {
+        final IsolationPolicy policy = policy("bulkhead").withMaxConcurrentRequests(1).build();
+
+        handler.release = new CountDownLatch(1);
+
+        Thread inFlight = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                get(policy);
+            }
+        });
+
+        inFlight.start();
+        handler.started.await();
+
+        try {
+            get(policy);
+            fail();
+        } catch (HttpCallRejectedException e) {
+            assertThat(e.getMessage(), is("bulkhead full, group: bulkhead"));
+        }
+
+        handler.release.countDown();
+        inFlight.join();
+
+        assertThat(get(policy).getStatus(), is(200));
+    }
+
+    @Test
+    public void testFailuresOpenCircuit() throws Exception {
+        IsolationPolicy policy = policy("failures").withWindowSize(2).withMinimumCalls(2).withOpenMillis(50).build();
+
+        handler.status.set(500);
+        get(policy);
+        get(policy);
+
+        assertThat(isolationFilter.getState("failures"), is(OPEN));
+
+        try {
+            get(policy);
+            fail();
+        } catch (HttpCallRejectedException e) {
+            assertThat(e.getMessage(), is("circuit open, group: failures"));
+        }
+
+        Thread.sleep(60);
+        handler.status.set(200);
+
+        assertThat(get(policy).getStatus(), is(200));
+        assertThat(isolationFilter.getState("failures"), is(CLOSED));
+    }
+
+    @Test
+    public void testOnlyTrialDecidesHalfOpenCircuit() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(policy("trial").withWindowSize(2).withMinimumCalls(2)
+                .withOpenMillis(50).build());
+        CircuitBreaker.Permit straggler = circuitBreaker.tryAcquire(0);
+
+        assertThat(straggler, is(CALL));
+
+        circuitBreaker.onComplete(circuitBreaker.tryAcquire(0), true, false, 0);
+        circuitBreaker.onComplete(circuitBreaker.tryAcquire(0), true, false, 0);
+
+        assertThat(circuitBreaker.tryAcquire(10), is(REJECTED));
+
+        CircuitBreaker.Permit trial = circuitBreaker.tryAcquire(100);
+
+        assertThat(trial, is(TRIAL));
+
+        circuitBreaker.onComplete(straggler, false, false, 100);
+
+        assertThat(circuitBreaker.getState(), is(HALF_OPEN));
+        assertThat(circuitBreaker.tryAcquire(100), is(REJECTED));
+
+        circuitBreaker.onComplete(trial, true, false, 100);
+
+        assertThat(circuitBreaker.getState(), is(OPEN));
+    }
+
+    @Test
+    public void testLocalRejectionsDoNotOpenCircuit() throws Exception {
+        IsolationPolicy policy = policy("rejections").withWindowSize(2).withMinimumCalls(2).build();
+
+        handler.error = new HttpCallRejectedException("deadline exceeded, host: localhost:9876");
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                get(policy);
+                fail();
+            } catch (HttpCallRejectedException e) {
+                assertThat(e.getMessage(), is("deadline exceeded, host: localhost:9876"));
+            }
+        }
+
+        assertThat(isolationFilter.getState("rejections"), is(CLOSED));
+    }
+
+    @Test
+    public void testCircuitStateIsPublished() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        ClientMetricsService clientMetricsService = new ClientMetricsService(metricRegistry);
+        IsolationPolicy policy = policy("published").withMinimumCalls(1).withSlowCallDurationMillis(-1)
+                .withSlowCallRateThreshold(1).build();
+        String name = ClientMetrics.toName("published", "circuit-breaker", "state");
+
+        clientMetricsService.startAsync().awaitRunning();
+
+        try {
+            get(policy);
+
+            assertThat(metricRegistry.getGauges().get(name).getValue(), is((Object) OPEN.ordinal()));
+        } finally {
+            clientMetricsService.stopAsync().awaitTerminated();
+        }
+
+        assertThat(metricRegistry.getGauges().get(name), nullValue());
+    }
+
+    private ClientResponse get(final IsolationPolicy policy) {
+        return handler.get(config(URL).withIsolationPolicy(policy).build());
+    }
+
+    private static IsolationPolicy.Builder policy(final String group) {
+        return IsolationPolicy.Builder.anIsolationPolicy().withGroup(group);
+    }
+}
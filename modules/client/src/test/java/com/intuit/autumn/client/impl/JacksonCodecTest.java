@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.HttpCodec;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.intuit.autumn.client.impl.JacksonCodec.JSON;
+import static com.intuit.autumn.client.impl.JacksonCodec.SMILE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mortbay.jetty.HttpHeaders.ACCEPT;
+import static org.mortbay.jetty.HttpHeaders.CONTENT_TYPE;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+
+public class JacksonCodecTest {
+
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+    private String url = "http://localhost:" + port + "/test";
+
+    @Test
+    public void testCodecsRoundTrip() throws Exception {
+        Map<String, String> value = Collections.singletonMap("foo", "bar");
+
+        for (JacksonCodec codec : new JacksonCodec[]{JacksonCodec.json(), JacksonCodec.smile(), JacksonCodec.cbor()}) {
+            assertThat(codec.decode(new ByteArrayInputStream(codec.encode(value)), codec.getContentType(), Map.class),
+                    is((Map) value));
+        }
+    }
+
+    @Test
+    public void testSmileRequestAndResponse() throws Exception {
+        JacksonCodec smile = JacksonCodec.smile();
+
+        stubFor(post(urlEqualTo("/test")).withHeader(CONTENT_TYPE, equalTo(SMILE)).withHeader(ACCEPT, equalTo(SMILE))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withHeader(CONTENT_TYPE, SMILE)
+                        .withBody(smile.encode(Collections.singletonMap("foo", "baz")))));
+
+        HttpCallImplWithConnectionPooling<Map> httpCall = new HttpCallImplWithConnectionPooling<>();
+
+        assertThat(httpCall.doPost(config(smile).withData(Collections.singletonMap("foo", "bar")).build()),
+                is((Map) Collections.singletonMap("foo", "baz")));
+    }
+
+    @Test
+    public void testResponseCodecIsSelectedByContentType() throws Exception {
+        HttpCodec codec = new NegotiatingCodec(JacksonCodec.smile(), JacksonCodec.json());
+
+        stubFor(get(urlEqualTo("/test")).withHeader(ACCEPT, equalTo(SMILE + ", " + JSON + ";q=0.9"))
+                .willReturn(aResponse().withStatus(ORDINAL_200_OK).withHeader(CONTENT_TYPE, JSON + "; charset=utf-8")
+                        .withBody("{\"foo\":\"bar\"}")));
+
+        HttpCallImpl<Map> httpCall = new HttpCallImpl<>();
+
+        assertThat(httpCall.doGet(config(codec).build()), is((Map) Collections.singletonMap("foo", "bar")));
+    }
+
+    private HttpCallConfig.Builder config(final HttpCodec codec) {
+        return HttpCallConfig.Builder.aHttpCallConfig().withUrl(url).withToMap(Map.class).withCodec(codec)
+                .withExpectedStatus(ORDINAL_200_OK);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.Multiset;
+import com.intuit.autumn.client.LoadBalancingPolicy;
+import com.intuit.autumn.client.ServiceDirectory;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static com.intuit.autumn.client.LoadBalancingPolicy.Strategy.LEAST_OUTSTANDING_REQUESTS;
+import static com.intuit.autumn.client.impl.StubClientHandler.config;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class LoadBalancingFilterTest {
+
+    private static final String URL = "http://users/v1/users?id=1";
+    private static final String A = "http://a:8080";
+    private static final String B = "http://b:8080/base";
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private final Multiset<String> requested = ConcurrentHashMultiset.create();
+    private volatile String failing;
+    private volatile String throwing;
+    private volatile RuntimeException transportError;
+    private volatile long delayMillis;
+    private StubClientHandler handler;
+
+    @Before
+    public void setup() {
+        handler = new StubClientHandler() {
+            @Override
+            int respond(final ClientRequest request) {
+                requested.add(request.getURI().toString());
+
+                if (request.getURI().toString().startsWith(String.valueOf(throwing))) {
+                    throw transportError;
+                }
+
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return request.getURI().toString().startsWith(String.valueOf(failing)) ? 503 : 200;
+            }
+        };
+
+        handler.newClient(new LoadBalancingFilter(new KeyedRegistry<List<Object>, LoadBalancer>()));
+    }
+
+    @Test
+    public void testRequestsAreSpreadAcrossEndpoints() throws Exception {
+        final LoadBalancingPolicy policy = policy(directory(A + ',' + B)).withStrategy(LEAST_OUTSTANDING_REQUESTS)
+                .build();
+        List<Thread> threads = new ArrayList<>();
+
+        // concurrent, so that the outstanding requests rather than latency ties drive the spread
+        delayMillis = 5;
+
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 25; i++) {
+                        assertThat(get(policy).getStatus(), is(200));
+                    }
+                }
+            });
+
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(requested.count(A + "/v1/users?id=1") + requested.count(B + "/v1/users?id=1"), is(100));
+        assertThat(requested.count(A + "/v1/users?id=1") > 10, is(true));
+        assertThat(requested.count(B + "/v1/users?id=1") > 10, is(true));
+    }
+
+    @Test
+    public void testFailingEndpointIsEjected() throws Exception {
+        LoadBalancingPolicy policy = policy(directory(A + ',' + B)).withConsecutiveFailures(2).build();
+
+        failing = A;
+
+        for (int i = 0; i < 100; i++) {
+            get(policy);
+        }
+
+        // at most the failures ejecting it, fewer if its latency had it passed over
+        assertThat(requested.count(A + "/v1/users?id=1") <= 2, is(true));
+        assertThat(requested.count(B + "/v1/users?id=1") >= 98, is(true));
+    }
+
+    @Test
+    public void testTransportErrorEjectsEndpoint() throws Exception {
+        LoadBalancingPolicy policy = policy(directory(A + ',' + B)).withConsecutiveFailures(2).build();
+
+        throwing = A;
+        transportError = new ClientHandlerException(new ConnectException("Connection refused"));
+
+        for (int i = 0; i < 100; i++) {
+            try {
+                get(policy);
+            } catch (ClientHandlerException e) {
+                assertThat(e.getCause(), instanceOf(ConnectException.class));
+            }
+        }
+
+        assertThat(requested.count(A + "/v1/users?id=1") <= 2, is(true));
+    }
+
+    @Test
+    public void testLocalErrorsDoNotEjectEndpoint() throws Exception {
+        LoadBalancingPolicy policy = policy(directory(A + ',' + B)).withConsecutiveFailures(1).build();
+
+        throwing = A;
+
+        for (int i = 0; i < 100; i++) {
+            // neither a rejection nor a failure without I/O cause says anything about the endpoint
+            transportError = i % 2 == 0 ? new HttpCallRejectedException("concurrency limit reached, host: a:8080") :
+                    new ClientHandlerException("A message body reader for Java class was not found");
+
+            try {
+                assertThat(get(policy).getStatus(), is(200));
+            } catch (RuntimeException e) {
+                assertThat(e.getCause(), nullValue());
+            }
+        }
+
+        assertThat(requested.count(A + "/v1/users?id=1") > 10, is(true));
+    }
+
+    @Test
+    public void testEjectionIsBounded() throws Exception {
+        LoadBalancingPolicy policy = policy(directory(A)).withConsecutiveFailures(1).build();
+
+        failing = A;
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(get(policy).getStatus(), is(503));
+        }
+
+        assertThat(requested.count(A + "/v1/users?id=1"), is(10));
+    }
+
+    @Test
+    public void testEndpointsAreReRead() throws Exception {
+        Path file = temporaryFolder.newFile("services.properties").toPath();
+
+        Files.write(file, ("users=" + A).getBytes(UTF_8));
+
+        ServiceDirectory directory = new PropertiesServiceDirectory(file, 0);
+        LoadBalancingPolicy policy = policy(directory).build();
+
+        get(policy);
+
+        Files.write(file, ("users=" + B).getBytes(UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+
+        get(policy);
+
+        assertThat(directory.getEndpoints("users"), is(singletonList(URI.create(B))));
+        assertThat(requested.count(A + "/v1/users?id=1"), is(1));
+        assertThat(requested.count(B + "/v1/users?id=1"), is(1));
+    }
+
+    private ClientResponse get(final LoadBalancingPolicy policy) {
+        return handler.get(config(URL).withLoadBalancingPolicy(policy).build());
+    }
+
+    private static ServiceDirectory directory(final String endpoints) {
+        Properties properties = new Properties();
+
+        properties.setProperty("users", endpoints);
+
+        return new PropertiesServiceDirectory(properties);
+    }
+
+    private static LoadBalancingPolicy.Builder policy(final ServiceDirectory directory) {
+        return LoadBalancingPolicy.Builder.aLoadBalancingPolicy().withServiceDirectory(directory);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.Counting;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.intuit.autumn.client.HttpCallConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_201_Created;
+
+public class MetricsFilterTest {
+
+    private static final String HOST = "localhost:9876";
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+    private String url = "http://localhost:" + port + "/test/1";
+    private MetricRegistry metricRegistry;
+    private ClientMetricsService clientMetricsService;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        clientMetricsService = new ClientMetricsService(metricRegistry);
+
+        clientMetricsService.startAsync().awaitRunning();
+    }
+
+    @After
+    public void tearDown() {
+        clientMetricsService.stopAsync().awaitTerminated();
+    }
+
+    @Test
+    public void testRequestsAreRecorded() throws Exception {
+        stubFor(get(urlEqualTo("/test/1")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("foo")));
+        stubFor(post(urlEqualTo("/test/1")).willReturn(aResponse().withStatus(ORDINAL_201_Created)));
+
+        long requests = count(ClientMetrics.toName(HOST, "requests"));
+        long responses = count(ClientMetrics.toName(HOST, "responses", "2xx"));
+        long received = count(ClientMetrics.toName(HOST, "bytes", "received"));
+        long sent = count(ClientMetrics.toName(HOST, "bytes", "sent"));
+        long endpoint = count(ClientMetrics.toName(HOST, "endpoints", "GET", "/test/{id}"));
+
+        assertThat(new HttpCallImplWithConnectionPooling<String>().doGet(HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl(url)
+                .withToMap(String.class)
+                .withExpectedStatus(ORDINAL_200_OK)
+                .withUseConnectionPooling(true)
+                .withEndpointTemplate("/test/{id}")
+                .build()), is("foo"));
+        new HttpCallImpl<String>().doPost(HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl(url)
+                .withData("bar")
+                .withExpectedStatus(ORDINAL_201_Created)
+                .build());
+
+        assertThat(count(ClientMetrics.toName(HOST, "requests")), is(requests + 2));
+        assertThat(count(ClientMetrics.toName(HOST, "responses", "2xx")), is(responses + 2));
+        assertThat(count(ClientMetrics.toName(HOST, "bytes", "received")), is(received + 3));
+        assertThat(count(ClientMetrics.toName(HOST, "bytes", "sent")), is(sent + 3));
+        assertThat(count(ClientMetrics.toName(HOST, "in-flight")), is(0L));
+        assertThat(count(ClientMetrics.toName(HOST, "endpoints", "GET", "/test/{id}")), is(endpoint + 1));
+        assertThat(gauge(ClientMetrics.toName(HOST, "pool", "leased")).getValue(), is((Object) 0));
+    }
+
+    @Test
+    public void testCardinalityIsBounded() throws Exception {
+        ClientMetrics clientMetrics = new ClientMetrics(1, 1);
+
+        assertThat(clientMetrics.getHostMetrics("foo:80"), sameInstance(clientMetrics.getHostMetrics("foo:80")));
+        assertThat(clientMetrics.getHostMetrics("bar:80"), sameInstance(clientMetrics.getHostMetrics("baz:80")));
+        assertThat(clientMetrics.get(ClientMetrics.toName(ClientMetrics.OTHER, "requests")) != null, is(true));
+        assertThat(clientMetrics.getEndpointTimer("foo:80", "GET", "/bar"),
+                sameInstance(clientMetrics.getEndpointTimer("foo:80", "GET", "/bar")));
+        assertThat(clientMetrics.getEndpointTimer("foo:80", "GET", "/baz"),
+                sameInstance(clientMetrics.getEndpointTimer("foo:80", "GET", "/qux")));
+    }
+
+    private long count(final String name) {
+        Metric metric = metricRegistry.getMetrics().get(name);
+
+        return metric == null ? 0 : ((Counting) metric).getCount();
+    }
+
+    private Gauge gauge(final String name) {
+        return metricRegistry.getGauges().get(name);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import com.intuit.autumn.client.RateLimitPolicy;
+import com.sun.jersey.api.client.ClientResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.intuit.autumn.client.RateLimitPolicy.AcquireMode.BLOCK;
+import static com.intuit.autumn.client.RateLimitPolicy.AcquireMode.FAIL_FAST;
+import static com.intuit.autumn.client.RateLimitPolicy.AcquireMode.TIMED;
+import static com.intuit.autumn.client.RateLimitPolicy.Scope.ENDPOINT;
+import static com.intuit.autumn.client.impl.StubClientHandler.config;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RateLimitFilterTest {
+
+    private final StubClientHandler handler = new StubClientHandler();
+    private RateLimitFilter rateLimitFilter;
+
+    @Before
+    public void setup() {
+        rateLimitFilter = new RateLimitFilter(new KeyedRegistry<String, RateLimitFilter.Bucket>());
+        handler.newClient(rateLimitFilter);
+    }
+
+    @Test
+    public void testTokenBucket() throws Exception {
+        TokenBucket tokenBucket = new TokenBucket(10, 2, 0L);
+
+        assertThat(tokenBucket.reserve(0L, 0L), is(0L));
+        assertThat(tokenBucket.reserve(0L, 0L), is(0L));
+        assertThat(tokenBucket.getSaturation(0L), is(1.0));
+        assertThat(tokenBucket.reserve(0L, 0L), is(-1L));
+        assertThat(tokenBucket.reserve(0L, MILLISECONDS.toNanos(100L)), is(MILLISECONDS.toNanos(100L)));
+        assertThat(tokenBucket.reserve(0L, MILLISECONDS.toNanos(100L)), is(-1L));
+        assertThat(tokenBucket.reserve(MILLISECONDS.toNanos(200L), 0L), is(0L));
+        // refilled at the sustained rate, up to the burst
+        assertThat(tokenBucket.reserve(MILLISECONDS.toNanos(1000L), 0L), is(0L));
+        assertThat(tokenBucket.reserve(MILLISECONDS.toNanos(1000L), 0L), is(0L));
+        assertThat(tokenBucket.reserve(MILLISECONDS.toNanos(1000L), 0L), is(-1L));
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        RateLimitPolicy policy = policy().withPermitsPerSecond(1).withBurst(2).withAcquireMode(FAIL_FAST).build();
+
+        get("http://fail-fast:8080/test", policy);
+        get("http://fail-fast:8080/test", policy);
+
+        try {
+            get("http://fail-fast:8080/test", policy);
+            fail();
+        } catch (HttpCallRejectedException e) {
+            assertThat(e.getMessage(), is("rate limit reached, bucket: fail-fast:8080"));
+        }
+
+        assertThat(handler.requests.get(), is(2));
+    }
+
+    @Test
+    public void testBurstIsSmoothed() throws Exception {
+        RateLimitPolicy policy = policy().withPermitsPerSecond(20).withAcquireMode(BLOCK).build();
+        long start = nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            get("http://smoothed:8080/test", policy);
+        }
+
+        // the first request is sent at once, the others 50 milliseconds apart
+        assertThat(NANOSECONDS.toMillis(nanoTime() - start) >= 190L, is(true));
+        assertThat(handler.requests.get(), is(5));
+    }
+
+    @Test
+    public void testTimedWaitAndEndpointScope() throws Exception {
+        RateLimitPolicy policy = policy().withPermitsPerSecond(10).withAcquireMode(TIMED).withMaxWaitMillis(150)
+                .withScope(ENDPOINT).build();
+
+        get("http://timed:8080/users/1", "/users/{id}", policy);
+        get("http://timed:8080/users/2", "/users/{id}", policy);
+        get("http://timed:8080/orders/1", "/orders/{id}", policy);
+
+        assertThat(rateLimitFilter.getSaturation("timed:8080 GET /users/{id}") > 0, is(true));
+
+        try {
+            get("http://timed:8080/users/3", "/users/{id}", policy().withPermitsPerSecond(10).withAcquireMode(TIMED)
+                    .withMaxWaitMillis(50).withScope(ENDPOINT).build());
+            fail();
+        } catch (HttpCallRejectedException e) {
+            assertThat(e.getMessage(), is("rate limit reached, bucket: timed:8080 GET /users/{id}"));
+        }
+
+        assertThat(handler.requests.get(), is(3));
+    }
+
+    @Test
+    public void testBucketsAreBounded() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        ClientMetricsService clientMetricsService = new ClientMetricsService(metricRegistry);
+        KeyedRegistry<String, RateLimitFilter.Bucket> buckets = new KeyedRegistry<>(2);
+        RateLimitPolicy policy = policy().withPermitsPerSecond(100).build();
+
+        clientMetricsService.startAsync().awaitRunning();
+
+        rateLimitFilter = new RateLimitFilter(buckets);
+        handler.newClient(rateLimitFilter);
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                get("http://bounded-" + i + ":8080/test", policy);
+            }
+
+            assertThat(buckets.size(), is(2L));
+            assertThat(rateLimitFilter.getSaturation("bounded-0:8080"), nullValue());
+            assertThat(metricRegistry.getGauges().get(ClientMetrics.toName("bounded-0:8080", "rate-limit",
+                    "saturation")), nullValue());
+            assertThat(metricRegistry.getGauges().get(ClientMetrics.toName("bounded-2:8080", "rate-limit",
+                    "saturation")), notNullValue());
+        } finally {
+            clientMetricsService.stopAsync().awaitTerminated();
+        }
+    }
+
+    private ClientResponse get(final String url, final RateLimitPolicy policy) {
+        return get(url, null, policy);
+    }
+
+    private ClientResponse get(final String url, final String endpointTemplate, final RateLimitPolicy policy) {
+        return handler.get(config(url).withEndpointTemplate(endpointTemplate).withRateLimitPolicy(policy).build());
+    }
+
+    private static RateLimitPolicy.Builder policy() {
+        return RateLimitPolicy.Builder.aRateLimitPolicy();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.base.Strings;
+import com.intuit.autumn.client.HttpCallConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.google.common.base.Charsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+
+public class RequestBodiesTest {
+
+    private static final String BODY = Strings.repeat("autumn ", 10000);
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+    private Path file;
+
+    @Before
+    public void setup() throws Exception {
+        file = Files.createTempFile("autumn", ".body");
+
+        Files.write(file, BODY.getBytes(UTF_8));
+        stubFor(post(urlEqualTo("/test")).withHeader("Content-Length", equalTo(String.valueOf(BODY.length())))
+                .withRequestBody(equalTo(BODY)).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("ok")));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.delete(file);
+    }
+
+    @Test
+    public void testPathIsSentWithContentLength() throws Exception {
+        assertThat(new HttpCallImplWithConnectionPooling<String>().doPost(config(file).build()), is("ok"));
+        assertThat(new HttpCallImpl<String>().doPost(config(file).build()), is("ok"));
+    }
+
+    @Test
+    public void testDirectBufferIsSentAsIs() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BODY.length() + 1);
+
+        buffer.put((byte) '!').put(BODY.getBytes(UTF_8)).flip();
+        buffer.position(1);
+
+        HttpCallImplWithConnectionPooling<String> httpCall = new HttpCallImplWithConnectionPooling<>();
+
+        assertThat(httpCall.doPost(config(buffer).build()), is("ok"));
+        assertThat(httpCall.doPost(config(buffer).build()), is("ok"));
+        assertThat(buffer.position(), is(1));
+    }
+
+    @Test
+    public void testFileChannelIsSentFromItsPosition() throws Exception {
+        Path prefixed = Files.createTempFile("autumn", ".body");
+
+        Files.write(prefixed, ("prefix" + BODY).getBytes(UTF_8));
+
+        try (FileChannel channel = FileChannel.open(prefixed, READ)) {
+            channel.position("prefix".length());
+
+            assertThat(new HttpCallImplWithConnectionPooling<String>().doPost(config(channel).build()), is("ok"));
+            assertThat(new HttpCallImpl<String>().doPost(config(channel).build()), is("ok"));
+            assertThat(channel.position(), is((long) "prefix".length()));
+        } finally {
+            Files.delete(prefixed);
+        }
+    }
+
+    @Test
+    public void testAsyncBodies() throws Exception {
+        AsyncHttpClientService asyncHttpClientService = new AsyncHttpClientService(1, 10, 10, 1, 10);
+
+        asyncHttpClientService.startAsync().awaitRunning();
+
+        try {
+            AsyncHttpCallImpl<String> httpCall = new AsyncHttpCallImpl<>(asyncHttpClientService);
+            HttpCallConfig<String> path = config(file).build();
+            HttpCallConfig<String> buffer = config(ByteBuffer.wrap(BODY.getBytes(UTF_8))).build();
+
+            assertThat(httpCall.doPost(path).get(5, SECONDS), is("ok"));
+            assertThat(httpCall.doPost(buffer).get(5, SECONDS), is("ok"));
+        } finally {
+            asyncHttpClientService.stopAsync().awaitTerminated();
+        }
+    }
+
+    private HttpCallConfig.Builder config(final Object data) {
+        return HttpCallConfig.Builder.aHttpCallConfig().withUrl("http://localhost:" + port + "/test")
+                .withToMap(String.class).withData(data).withType("text/plain").withExpectedStatus(ORDINAL_200_OK);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.ClientResponse;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.Thread.State.TERMINATED;
+import static java.lang.Thread.State.WAITING;
+import static javax.ws.rs.HttpMethod.GET;
+import static javax.ws.rs.HttpMethod.POST;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RequestCoalescerTest {
+
+    private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+    @Test
+    public void testIsCoalescable() throws Exception {
+        assertThat(RequestCoalescer.isCoalescable(GET, config(String.class, true)), is(true));
+        assertThat(RequestCoalescer.isCoalescable(GET, config(String.class, false)), is(false));
+        assertThat(RequestCoalescer.isCoalescable(POST, config(String.class, true)), is(false));
+        assertThat(RequestCoalescer.isCoalescable(GET, config(ClientResponse.class, true)), is(false));
+    }
+
+    @Test
+    public void testConcurrentRequestsShareResult() throws Exception {
+        final HttpCallConfig<String> config = config(String.class, true);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger invocations = new AtomicInteger();
+        final AtomicReference<String> follower = new AtomicReference<>();
+        final String result = "result";
+        final Callable<String> request = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                invocations.incrementAndGet();
+                started.countDown();
+                release.await();
+
+                return result;
+            }
+        };
+        Thread leaderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                requestCoalescer.execute(GET, config, request);
+            }
+        });
+
+        leaderThread.start();
+        started.await();
+
+        Thread followerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                follower.set(requestCoalescer.execute(GET, config, request));
+            }
+        });
+
+        followerThread.start();
+        awaitState(followerThread, WAITING);
+        release.countDown();
+        leaderThread.join();
+        followerThread.join();
+
+        assertThat(invocations.get(), is(1));
+        assertThat(follower.get(), sameInstance(result));
+        assertThat(requestCoalescer.size(), is(0));
+    }
+
+    @Test
+    public void testCredentialsAreAlwaysKeyed() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread leaderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                requestCoalescer.execute(GET, authorized("Bearer a"), new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        started.countDown();
+                        release.await();
+
+                        return "a";
+                    }
+                });
+            }
+        });
+
+        leaderThread.start();
+        started.await();
+
+        try {
+            String other = requestCoalescer.execute(GET, authorized("Bearer b"), new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return "b";
+                }
+            });
+
+            assertThat(other, is("b"));
+        } finally {
+            release.countDown();
+            leaderThread.join();
+        }
+    }
+
+    @Test
+    public void testErrorIsPropagated() throws Exception {
+        try {
+            requestCoalescer.execute(GET, config(String.class, true), new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw new HttpCallException("foo");
+                }
+            });
+            fail();
+        } catch (HttpCallException e) {
+            assertThat(e.getMessage(), is("foo"));
+        }
+
+        assertThat(requestCoalescer.size(), is(0));
+    }
+
+    private static void awaitState(final Thread thread, final Thread.State state) throws InterruptedException {
+        while (thread.getState() != state && thread.getState() != TERMINATED) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static HttpCallConfig<String> authorized(final String authorization) {
+        return HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl("http://localhost:9876/test")
+                .withToMap(String.class)
+                .withHeaders(ImmutableMap.of("Authorization", authorization))
+                .withUseRequestCoalescing(true)
+                .build();
+    }
+
+    private static <T> HttpCallConfig<T> config(final Class<T> toMap, final boolean useRequestCoalescing) {
+        return HttpCallConfig.Builder.aHttpCallConfig()
+                .withUrl("http://localhost:9876/test")
+                .withToMap(toMap)
+                .withHeaders(ImmutableMap.of("Accept-Language", "en"))
+                .withCoalescingHeaders(ImmutableSet.of("accept-language"))
+                .withUseRequestCoalescing(useRequestCoalescing)
+                .build();
+    }
+}
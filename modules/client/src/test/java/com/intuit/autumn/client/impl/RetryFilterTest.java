@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.google.common.cache.CacheBuilder;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.RetryPolicy;
+import com.intuit.autumn.utils.Deadline;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.hamcrest.CoreMatchers.everyItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RetryFilterTest {
+
+    private static final String URL = "http://localhost:9876/test";
+    private final Queue<Object> outcomes = new LinkedList<>();
+    private final List<Deadline> deadlines = new CopyOnWriteArrayList<>();
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+    private ExecutorService hedgeExecutor;
+    private ScheduledExecutorService hedgeTimer;
+    private LatencyTracker latencies;
+    private StubClientHandler handler;
+    private Client client;
+
+    @Before
+    public void setup() {
+        hedgeExecutor = newCachedThreadPool();
+        hedgeTimer = newSingleThreadScheduledExecutor();
+        latencies = new LatencyTracker();
+        handler = new StubClientHandler() {
+            @Override
+            int respond(final ClientRequest request) {
+                deadlines.add(Deadline.getCurrent());
+                threads.add(Thread.currentThread());
+
+                Object outcome;
+
+                synchronized (outcomes) {
+                    outcome = outcomes.size() > 1 ? outcomes.poll() : outcomes.peek();
+                }
+
+                if (outcome instanceof ClientHandlerException) {
+                    throw (ClientHandlerException) outcome;
+                } else if (outcome instanceof Long) {
+                    final Thread attempt = Thread.currentThread();
+
+                    Attempt.onAbort(new Runnable() {
+                        @Override
+                        public void run() {
+                            attempt.interrupt();
+                        }
+                    });
+
+                    try {
+                        Thread.sleep((Long) outcome);
+                    } catch (InterruptedException e) {
+                        throw new ClientHandlerException("aborted", e);
+                    }
+
+                    return 200;
+                }
+
+                return (Integer) outcome;
+            }
+        };
+        client = handler.newClient(new RetryFilter(CacheBuilder.newBuilder().<String, RetryBudget>build(), latencies,
+                hedgeExecutor, hedgeTimer));
+    }
+
+    @After
+    public void tearDown() {
+        hedgeExecutor.shutdownNow();
+        hedgeTimer.shutdownNow();
+    }
+
+    @Test
+    public void testRetryableStatusIsRetried() throws Exception {
+        outcomes.add(503);
+        outcomes.add(200);
+
+        assertThat(get(policy().build()).getStatus(), is(200));
+        assertThat(handler.requests.get(), is(2));
+    }
+
+    @Test
+    public void testIOErrorIsRetried() throws Exception {
+        outcomes.add(new ClientHandlerException("foo"));
+        outcomes.add(200);
+
+        assertThat(get(policy().build()).getStatus(), is(200));
+        assertThat(handler.requests.get(), is(2));
+    }
+
+    @Test
+    public void testNonIdempotentRequestIsNotRetried() throws Exception {
+        outcomes.add(503);
+        outcomes.add(200);
+
+        assertThat(ClientFilters.bind(client.resource(URL), config(policy().build())).post(ClientResponse.class)
+                .getStatus(), is(503));
+        assertThat(handler.requests.get(), is(1));
+    }
+
+    @Test
+    public void testRetriesAreBoundedByMaxRetries() throws Exception {
+        outcomes.add(new ClientHandlerException("foo"));
+
+        try {
+            get(policy().withMaxRetries(3).build());
+            fail();
+        } catch (ClientHandlerException e) {
+            assertThat(e.getMessage(), is("foo"));
+        }
+
+        assertThat(handler.requests.get(), is(4));
+    }
+
+    @Test
+    public void testRetriesAreBoundedByBudget() throws Exception {
+        outcomes.add(503);
+
+        RetryPolicy policy = policy().withMaxRetries(5).withRetryBudgetReserve(2).withRetryBudgetRatio(0).build();
+
+        assertThat(get(policy).getStatus(), is(503));
+        assertThat(handler.requests.get(), is(3));
+        assertThat(get(policy).getStatus(), is(503));
+        assertThat(handler.requests.get(), is(4));
+    }
+
+    @Test
+    public void testSlowRequestIsHedged() throws Exception {
+        for (int i = 0; i < LatencyTracker.MINIMUM_SAMPLES; i++) {
+            latencies.record("GET " + URL, 10);
+        }
+
+        outcomes.add(5000L);
+        outcomes.add(0L);
+
+        long start = currentTimeMillis();
+
+        assertThat(get(policy().withHedging(true).build()).getStatus(), is(200));
+        assertThat(currentTimeMillis() - start < 5000, is(true));
+        assertThat(handler.requests.get(), is(2));
+        // the primary attempt on the calling thread
+        assertThat(threads.get(0), sameInstance(Thread.currentThread()));
+    }
+
+    @Test
+    public void testRequestIsNotHedgedWhenHedgesAtCapacity() throws Exception {
+        for (int i = 0; i < LatencyTracker.MINIMUM_SAMPLES; i++) {
+            latencies.record("GET " + URL, 10);
+        }
+
+        outcomes.add(200L);
+        outcomes.add(0L);
+        hedgeExecutor.shutdownNow();
+
+        long start = currentTimeMillis();
+
+        assertThat(get(policy().withHedging(true).build()).getStatus(), is(200));
+        assertThat(currentTimeMillis() - start >= 200, is(true));
+        assertThat(handler.requests.get(), is(1));
+    }
+
+    @Test
+    public void testHedgedAttemptsKeepDeadline() throws Exception {
+        for (int i = 0; i < LatencyTracker.MINIMUM_SAMPLES; i++) {
+            latencies.record("GET " + URL, 10);
+        }
+
+        outcomes.add(500L);
+        outcomes.add(0L);
+
+        Deadline deadline = Deadline.after(5000);
+        Deadline previous = Deadline.attach(deadline);
+
+        try {
+            assertThat(get(policy().withHedging(true).build()).getStatus(), is(200));
+        } finally {
+            Deadline.detach(previous);
+        }
+
+        assertThat(deadlines.size(), is(2));
+        assertThat(deadlines, everyItem(sameInstance(deadline)));
+    }
+
+    private ClientResponse get(final RetryPolicy policy) {
+        return handler.get(config(policy));
+    }
+
+    private static RetryPolicy.Builder policy() {
+        return RetryPolicy.Builder.aRetryPolicy().withInitialBackoffMillis(1);
+    }
+
+    private static HttpCallConfig<ClientResponse> config(final RetryPolicy policy) {
+        return StubClientHandler.config(URL).withRetryPolicy(policy).build();
+    }
+}
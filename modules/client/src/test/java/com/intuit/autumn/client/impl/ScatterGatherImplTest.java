@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.client.impl;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.intuit.autumn.client.HttpCallConfig;
+import com.intuit.autumn.client.RetryPolicy;
+import com.intuit.autumn.client.ScatterGatherResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.intuit.autumn.client.ScatterGatherResult.Status.*;
+import static java.lang.System.currentTimeMillis;
+import static javax.ws.rs.HttpMethod.GET;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_200_OK;
+import static org.mortbay.jetty.HttpStatus.ORDINAL_500_Internal_Server_Error;
+
+public class ScatterGatherImplTest {
+
+    private int port = 9876;
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(port);
+    private AsyncHttpClientService asyncHttpClientService;
+    private String url = "http://localhost:" + port;
+
+    @Before
+    public void setup() {
+        asyncHttpClientService = new AsyncHttpClientService(1, 10, 10, 1, 10);
+        asyncHttpClientService.startAsync().awaitRunning();
+    }
+
+    @After
+    public void tearDown() {
+        asyncHttpClientService.stopAsync().awaitTerminated();
+    }
+
+    @Test
+    public void testCallsRunConcurrently() throws Exception {
+        stubFor(get(urlEqualTo("/a")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("a")
+                .withFixedDelay(300)));
+        stubFor(get(urlEqualTo("/b")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("b")
+                .withFixedDelay(300)));
+        stubFor(get(urlEqualTo("/c")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("c")
+                .withFixedDelay(300)));
+
+        long start = currentTimeMillis();
+        List<ScatterGatherResult<String>> results = new ScatterGatherImpl(asyncHttpClientService)
+                .execute(GET, Arrays.asList(config("/a"), config("/b"), config("/c")), 5000);
+
+        assertThat(currentTimeMillis() - start < 800, is(true));
+        assertThat(results.size(), is(3));
+        assertThat(results.get(0).getValue().get(), is("a"));
+        assertThat(results.get(1).getValue().get(), is("b"));
+        assertThat(results.get(2).getValue().get(), is("c"));
+    }
+
+    @Test
+    public void testPartialResultsAtDeadline() throws Exception {
+        stubFor(get(urlEqualTo("/fast")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("fast")));
+        stubFor(get(urlEqualTo("/error")).willReturn(aResponse().withStatus(ORDINAL_500_Internal_Server_Error)));
+        stubFor(get(urlEqualTo("/slow")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("slow")
+                .withFixedDelay(3000)));
+
+        long start = currentTimeMillis();
+        List<ScatterGatherResult<String>> results = new ScatterGatherImpl(asyncHttpClientService)
+                .execute(GET, Arrays.asList(config("/fast"), config("/error"), config("/slow")), 500);
+
+        assertThat(currentTimeMillis() - start < 2000, is(true));
+        assertThat(results.get(0).getStatus(), is(SUCCEEDED));
+        assertThat(results.get(0).getValue().get(), is("fast"));
+        assertThat(results.get(1).getStatus(), is(FAILED));
+        assertThat(results.get(1).getFailure().get(), instanceOf(HttpCallException.class));
+        assertThat(results.get(2).getStatus(), is(TIMED_OUT));
+        assertThat(results.get(2).getValue().isPresent(), is(false));
+    }
+
+    @Test
+    public void testUnsupportedPolicyFailsAlone() throws Exception {
+        stubFor(get(urlEqualTo("/a")).willReturn(aResponse().withStatus(ORDINAL_200_OK).withBody("a")));
+
+        HttpCallConfig<String> retried = HttpCallConfig.Builder.aHttpCallConfig(config("/a"))
+                .withRetryPolicy(RetryPolicy.Builder.aRetryPolicy().build()).build();
+        List<ScatterGatherResult<String>> results = new ScatterGatherImpl(asyncHttpClientService)
+                .execute(GET, Arrays.asList(retried, config("/a")), 5000);
+
+        assertThat(results.get(0).getStatus(), is(FAILED));
+        assertThat(results.get(0).getFailure().get(), instanceOf(UnsupportedOperationException.class));
+        assertThat(results.get(1).getValue().get(), is("a"));
+    }
+
+    @Test
+    public void testStoppedEngineFailsEachCall() throws Exception {
+        asyncHttpClientService.stopAsync().awaitTerminated();
+
+        List<ScatterGatherResult<String>> results = new ScatterGatherImpl(asyncHttpClientService)
+                .execute(GET, Arrays.asList(config("/a"), config("/b")), 5000);
+
+        assertThat(results.get(0).getStatus(), is(FAILED));
+        assertThat(results.get(0).getFailure().get(), instanceOf(IllegalStateException.class));
+        assertThat(results.get(1).getStatus(), is(FAILED));
+    }
+
+    private HttpCallConfig<String> config(final String path) {
+        return HttpCallConfig.Builder.aHttpCallConfig().withUrl(url + path).withToMap(String.class)
+                .withExpectedStatus(ORDINAL_200_OK).build();
+    }
+}
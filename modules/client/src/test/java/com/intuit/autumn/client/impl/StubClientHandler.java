@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intuit.autumn.client.impl;
+
+import com.intuit.autumn.client.HttpCallConfig;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client filter test fixture standing in for the transport: each request is counted and, unless failing with the set
+ * error, held until released, if a release latch is set, and answered with an empty response of the set status.
+ * Tests vary the answer by overriding {@link #respond(ClientRequest)}.
+ */
+
+class StubClientHandler implements ClientHandler {
+
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicInteger status = new AtomicInteger(200);
+    final CountDownLatch started = new CountDownLatch(1);
+    volatile CountDownLatch release;
+    volatile RuntimeException error;
+    private Client client;
+
+    /**
+     * Create a client over this handler.
+     *
+     * @param filters filters, outermost first
+     * @return client
+     */
+
+    Client newClient(final ClientFilter... filters) {
+        client = new Client(this);
+
+        for (ClientFilter filter : filters) {
+            client.addFilter(filter);
+        }
+
+        return client;
+    }
+
+    /**
+     * Send a GET request through the client filters.
+     *
+     * @param config request configuration, its url the request's
+     * @return response
+     */
+
+    ClientResponse get(final HttpCallConfig<ClientResponse> config) {
+        return ClientFilters.bind(client.resource(config.getUrl()), config).get(ClientResponse.class);
+    }
+
+    /**
+     * Request configuration builder.
+     *
+     * @param url request url
+     * @return builder
+     */
+
+    static HttpCallConfig.Builder<ClientResponse> config(final String url) {
+        HttpCallConfig.Builder<ClientResponse> builder = HttpCallConfig.Builder.aHttpCallConfig();
+
+        return builder.withUrl(url);
+    }
+
+    @Override
+    public ClientResponse handle(final ClientRequest request) throws ClientHandlerException {
+        requests.incrementAndGet();
+        started.countDown();
+
+        if (error != null) {
+            throw error;
+        }
+
+        if (release != null) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return response(respond(request));
+    }
+
+    /**
+     * Response status, the set status unless overridden.
+     *
+     * @param request request
+     * @return status
+     */
+
+    int respond(final ClientRequest request) {
+        return status.get();
+    }
+
+    /**
+     * Empty response.
+     *
+     * @param status status
+     * @return response
+     */
+
+    ClientResponse response(final int status) {
+        return new ClientResponse(status, new InBoundHeaders(), new ByteArrayInputStream(new byte[0]),
+                client.getMessageBodyWorkers());
+    }
+}
@@ -16,10 +16,12 @@
 
 package com.intuit.autumn.exemplary.server;
 
+import com.intuit.autumn.client.ClientModule;
 import com.intuit.autumn.metrics.MetricsModule;
 import com.intuit.autumn.service.ServiceManager;
 import org.slf4j.Logger;
 
+import static com.intuit.autumn.client.ClientServices.getClientServices;
 import static com.intuit.autumn.metrics.MetricsServices.getEnabledMetricsServices;
 import static com.intuit.autumn.web.WebServices.getEnabledWebServices;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -44,9 +46,10 @@ public class Main {
 
         ServiceManager serviceManager = new ServiceManager();
 
-        serviceManager.addModules(ExemplaryApiModule.class, MetricsModule.class)
+        serviceManager.addModules(ExemplaryApiModule.class, MetricsModule.class, ClientModule.class)
                 .addServices(getEnabledWebServices())
-                .addServices(getEnabledMetricsServices());
+                .addServices(getEnabledMetricsServices())
+                .addServices(getClientServices());
 
         serviceManager.start();
 
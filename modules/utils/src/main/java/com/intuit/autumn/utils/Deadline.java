@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.utils;
+
+import static java.lang.Long.parseLong;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A request deadline, the point in time past which a caller no longer awaits the outcome of a request.
+ *
+ * Deadlines travel between services as the remaining time budget, in milliseconds, in the {@link #HEADER} request
+ * header, so that they do not depend on the services' clocks agreeing, and are kept locally on the monotonic clock.
+ * The deadline of the request being served is bound to the serving thread, see {@link #attach(Deadline)}, from where
+ * outbound requests pick it up.
+ */
+
+public final class Deadline {
+
+    public static final String HEADER = "X-Request-Timeout";
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+    private final long deadlineNanos;
+
+    private Deadline(final long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Create a deadline.
+     *
+     * @param budgetMillis remaining time budget
+     * @return deadline, the given budget from now
+     */
+
+    public static Deadline after(final long budgetMillis) {
+        return new Deadline(nanoTime() + MILLISECONDS.toNanos(budgetMillis));
+    }
+
+    /**
+     * Parse a {@link #HEADER} header value.
+     *
+     * @param header remaining time budget in milliseconds, may be null
+     * @return deadline, or null if the header is absent or malformed
+     */
+
+    public static Deadline fromHeader(final String header) {
+        if (header == null) {
+            return null;
+        }
+
+        try {
+            return after(parseLong(header.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Deadline bound to the current thread.
+     *
+     * @return deadline, or null if none is bound
+     */
+
+    public static Deadline getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Bind a deadline to the current thread, until detached.
+     *
+     * @param deadline deadline, or null to unbind
+     * @return previously bound deadline, to be restored with {@link #detach(Deadline)}
+     */
+
+    public static Deadline attach(final Deadline deadline) {
+        Deadline previous = CURRENT.get();
+
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Restore the deadline bound to the current thread before {@link #attach(Deadline)}.
+     *
+     * @param previous previously bound deadline
+     */
+
+    public static void detach(final Deadline previous) {
+        attach(previous);
+    }
+
+    /**
+     * Remaining time budget getter.
+     *
+     * @return milliseconds left, not negative
+     */
+
+    public long getRemainingMillis() {
+        return Math.max(0L, NANOSECONDS.toMillis(deadlineNanos - nanoTime()));
+    }
+
+    /**
+     * Whether the deadline has passed.
+     *
+     * @return true if no time is left
+     */
+
+    public boolean isExpired() {
+        return deadlineNanos - nanoTime() <= 0;
+    }
+
+    /**
+     * Cap a timeout to the remaining time budget.
+     *
+     * @param timeoutMillis timeout, 0 or less meaning none
+     * @return the lesser of the timeout and the remaining budget, at least 1 so as not to disable the timeout
+     */
+
+    public int cap(final int timeoutMillis) {
+        long remaining = Math.max(1L, getRemainingMillis());
+
+        return (int) (timeoutMillis > 0 ? Math.min(timeoutMillis, remaining) : Math.min(Integer.MAX_VALUE, remaining));
+    }
+
+    /**
+     * Earlier of two deadlines.
+     *
+     * @param other other deadline, may be null
+     * @return the deadline expiring first
+     */
+
+    public Deadline min(final Deadline other) {
+        return other == null || deadlineNanos - other.deadlineNanos <= 0 ? this : other;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(getRemainingMillis());
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.utils;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class DeadlineTest {
+
+    @Test
+    public void fromHeader() {
+        Deadline deadline = Deadline.fromHeader(" 5000 ");
+
+        assertThat(deadline.isExpired(), is(false));
+        assertThat(deadline.getRemainingMillis() > 4000, is(true));
+        assertThat(Deadline.fromHeader("0").isExpired(), is(true));
+        assertThat(Deadline.fromHeader("soon"), is(nullValue()));
+        assertThat(Deadline.fromHeader(null), is(nullValue()));
+    }
+
+    @Test
+    public void cap() {
+        Deadline deadline = Deadline.after(5000);
+
+        assertThat(deadline.cap(100), is(100));
+        assertThat(deadline.cap(10000) <= 5000, is(true));
+        assertThat(deadline.cap(0) <= 5000, is(true));
+        assertThat(Deadline.after(-10).cap(100), is(1));
+    }
+
+    @Test
+    public void min() {
+        Deadline sooner = Deadline.after(1000);
+        Deadline later = Deadline.after(5000);
+
+        assertThat(sooner.min(later), is(sameInstance(sooner)));
+        assertThat(later.min(sooner), is(sameInstance(sooner)));
+        assertThat(later.min(null), is(sameInstance(later)));
+    }
+
+    @Test
+    public void attachAndDetach() {
+        Deadline outer = Deadline.after(5000);
+        Deadline inner = Deadline.after(1000);
+        Deadline previous = Deadline.attach(outer);
+
+        assertThat(previous, is(nullValue()));
+        assertThat(Deadline.attach(inner), is(sameInstance(outer)));
+        assertThat(Deadline.getCurrent(), is(sameInstance(inner)));
+
+        Deadline.detach(outer);
+
+        assertThat(Deadline.getCurrent(), is(sameInstance(outer)));
+
+        Deadline.detach(previous);
+
+        assertThat(Deadline.getCurrent(), is(nullValue()));
+    }
+}
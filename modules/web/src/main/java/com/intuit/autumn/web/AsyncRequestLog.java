@@ -0,0 +1,342 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.RequestLog;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A Jetty request log that takes access logging off the request thread.
+ *
+ * Request threads claim a preallocated record in a bounded, lock-free ring buffer and copy the request's log fields
+ * into it. A single background writer drains records in batches, formats them in NCSA common log format followed by
+ * the request latency in milliseconds, and appends them to a {@link RollingLogFile}, flushing whenever the ring is
+ * empty. When the ring is full a record is either dropped, and counted, or the request thread waits for the writer.
+ * A record that fails to format or write is logged and skipped, the writer keeps draining.
+ */
+
+public class AsyncRequestLog extends AbstractLifeCycle implements RequestLog {
+
+    private static final Logger LOGGER = getLogger(AsyncRequestLog.class);
+    private static final long PARK_NANOS = 100000L;
+    private static final long IDLE_PARK_NANOS = 10000000L;
+    private final Record[] ring;
+    private final int mask;
+    private final boolean block;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final String path;
+    private final long maxFileSize;
+    private final boolean compress;
+    private volatile boolean running;
+    private volatile Thread writer;
+    private RollingLogFile file;
+    private volatile long head;
+
+    /**
+     * Constructor.
+     *
+     * @param path        log file path
+     * @param bufferSize  ring buffer records, rounded up to a power of two
+     * @param block       wait for the writer, rather than drop the record, when the ring buffer is full
+     * @param maxFileSize bytes after which the log file is rolled, never if not positive
+     * @param compress    gzip rolled log files
+     */
+
+    public AsyncRequestLog(final String path, final int bufferSize, final boolean block, final long maxFileSize,
+                           final boolean compress) {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+
+        this.ring = new Record[capacity];
+        this.mask = capacity - 1;
+        this.block = block;
+        this.path = path;
+        this.maxFileSize = maxFileSize;
+        this.compress = compress;
+
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Record(i);
+        }
+    }
+
+    /**
+     * Capacity getter.
+     *
+     * @return ring buffer records
+     */
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * Dropped record getter.
+     *
+     * @return records dropped as the ring buffer was full
+     */
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Pending record getter.
+     *
+     * @return records claimed but not yet written
+     */
+
+    public long getPending() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * Record the request, without blocking unless configured to when the ring buffer is full.
+     *
+     * @param request  request
+     * @param response response
+     */
+
+    @Override
+    public void log(final Request request, final Response response) {
+        Record record = claim();
+
+        if (record == null) {
+            dropped.incrementAndGet();
+
+            return;
+        }
+
+        try {
+            record.timeStamp = request.getTimeStamp();
+            record.latency = System.currentTimeMillis() - record.timeStamp;
+            record.remoteAddr = request.getRemoteAddr();
+            record.remoteUser = request.getRemoteUser();
+            record.method = request.getMethod();
+            record.uri = request.getHttpURI().getPathQuery();
+            record.protocol = request.getProtocol();
+            record.status = response.getCommittedMetaData().getStatus();
+            record.bytesWritten = response.getHttpChannel().getBytesWritten();
+        } finally {
+            // publish, even if incomplete, as the writer consumes records in order
+            record.sequence = record.claimed + 1;
+        }
+    }
+
+    private Record claim() {
+        long position = tail.get();
+
+        while (running) {
+            Record record = ring[(int) position & mask];
+            long available = record.sequence - position;
+
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    record.claimed = position;
+
+                    return record;
+                }
+            } else if (available < 0) {
+                // full, the writer has yet to free the record claimed a lap ago
+                if (!block) {
+                    return null;
+                }
+
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+
+            position = tail.get();
+        }
+
+        return null;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        file = new RollingLogFile(path, maxFileSize, compress);
+        running = true;
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "autumn-access-log");
+        writer.setDaemon(true);
+        writer.start();
+
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        running = false;
+
+        Thread thread = writer;
+
+        // not started, or failed to
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+            writer = null;
+
+            // records claimed by producers that saw the log still running as the writer exited
+            Formatter formatter = new Formatter();
+
+            while (getPending() > 0) {
+                if (drain(formatter) == 0) {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+
+            try {
+                file.close();
+            } catch (IOException ioe) {
+                LOGGER.warn("unable to close access log {}", path, ioe);
+            }
+        }
+
+        super.doStop();
+    }
+
+    private void write() {
+        Formatter formatter = new Formatter();
+
+        while (true) {
+            boolean stopping = !running;
+            int drained = drain(formatter);
+
+            if (drained == 0) {
+                flush();
+
+                if (stopping && getPending() == 0) {
+                    break;
+                }
+
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private int drain(final Formatter formatter) {
+        int drained = 0;
+
+        for (Record record = ring[(int) head & mask]; record.sequence == head + 1 && drained < ring.length;
+             record = ring[(int) head & mask]) {
+            // lose the record, not the writer
+            try {
+                file.write(formatter.format(record), record.timeStamp);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("unable to write access log {}", path, e);
+            }
+
+            record.clear();
+            // free the record for the claim one lap ahead
+            record.sequence = head + ring.length;
+            head++;
+            drained++;
+        }
+
+        return drained;
+    }
+
+    private void flush() {
+        try {
+            file.flush();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("unable to flush access log {}", path, e);
+        }
+    }
+
+    private static final class Record {
+
+        private volatile long sequence;
+        private long claimed;
+        private long timeStamp;
+        private long latency;
+        private String remoteAddr;
+        private String remoteUser;
+        private String method;
+        private String uri;
+        private String protocol;
+        private int status;
+        private long bytesWritten;
+
+        private Record(final long sequence) {
+            this.sequence = sequence;
+        }
+
+        private void clear() {
+            remoteAddr = null;
+            remoteUser = null;
+            method = null;
+            uri = null;
+            protocol = null;
+        }
+    }
+
+    /**
+     * NCSA common log format, with trailing latency, formatter owned by the writer thread.
+     */
+
+    private static final class Formatter {
+
+        private final StringBuilder line = new StringBuilder(256);
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss Z", Locale.US);
+        private long second = Long.MIN_VALUE;
+        private String date;
+
+        private CharSequence format(final Record record) {
+            long recordSecond = record.timeStamp / 1000;
+
+            if (recordSecond != second) {
+                second = recordSecond;
+                date = dateFormat.format(new Date(record.timeStamp));
+            }
+
+            line.setLength(0);
+            line.append(orDash(record.remoteAddr)).append(" - ").append(orDash(record.remoteUser))
+                    .append(" [").append(date).append("] \"")
+                    .append(record.method).append(' ').append(record.uri).append(' ').append(record.protocol)
+                    .append("\" ").append(record.status).append(' ');
+
+            if (record.bytesWritten > 0) {
+                line.append(record.bytesWritten);
+            } else {
+                line.append('-');
+            }
+
+            return line.append(' ').append(record.latency).append('\n');
+        }
+
+        private static String orDash(final String value) {
+            return value == null || value.isEmpty() ? "-" : value;
+        }
+    }
+}
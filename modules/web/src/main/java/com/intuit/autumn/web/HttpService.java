@@ -16,30 +16,19 @@
 
 package com.intuit.autumn.web;
 
-import ch.qos.logback.access.jetty.RequestLogImpl;
-import ch.qos.logback.access.joran.JoranConfigurator;
-import ch.qos.logback.core.joran.spi.JoranException;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import com.google.inject.servlet.GuiceFilter;
-import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.HandlerCollection;
-import org.eclipse.jetty.server.handler.RequestLogHandler;
-import org.eclipse.jetty.server.handler.ResourceHandler;
-import org.eclipse.jetty.servlet.FilterHolder;
-import org.eclipse.jetty.servlet.ServletContextHandler;
-import org.eclipse.jetty.servlet.ServletHolder;
 import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
-import javax.servlet.DispatcherType;
-import java.io.IOException;
-import java.io.InputStream;
 
-import static java.util.EnumSet.allOf;
+import static com.intuit.autumn.web.WebServers.*;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -55,6 +44,9 @@ public class HttpService extends AbstractIdleService {
     private final GuiceFilter guiceFilter;
     @Nullable
     private final String contentDirectory;
+    private final WebThreadPoolFactory threadPoolFactory;
+    private final WebConnectionFactories connectionFactories;
+    private final WebRequestLogFactory requestLogFactory;
     private Server server;
 
     /**
@@ -63,12 +55,30 @@ public class HttpService extends AbstractIdleService {
      * @param guiceFilter
      */
 
+    public HttpService(int port, String contextPath, @Nullable String contentDirectory, GuiceFilter guiceFilter) {
+        this(port, contextPath, contentDirectory, guiceFilter, new WebThreadPoolFactory(),
+                new WebConnectionFactories(), new WebRequestLogFactory());
+    }
+
+    /**
+     * @param port
+     * @param contextPath
+     * @param contentDirectory
+     * @param guiceFilter
+     * @param threadPoolFactory
+     * @param connectionFactories
+     * @param requestLogFactory
+     */
+
     @Inject
     public HttpService(
             @Named("application.http.port") int port,
             @Named("application.http.context.path") String contextPath,
             @Named("application.http.content.directory") @Nullable String contentDirectory,
-            GuiceFilter guiceFilter) {
+            GuiceFilter guiceFilter,
+            WebThreadPoolFactory threadPoolFactory,
+            WebConnectionFactories connectionFactories,
+            WebRequestLogFactory requestLogFactory) {
         LOGGER.debug("instantiating {} with httpPort: {}, contextPath: {}, contentDirectory: {}",
                 new Object[]{serviceName(), port, contextPath, contentDirectory});
 
@@ -76,20 +86,13 @@ public class HttpService extends AbstractIdleService {
         this.contextPath = isEmpty(contextPath) ? "/" : contextPath;
         this.contentDirectory = contentDirectory;
         this.guiceFilter = guiceFilter;
+        this.threadPoolFactory = threadPoolFactory;
+        this.connectionFactories = connectionFactories;
+        this.requestLogFactory = requestLogFactory;
 
         LOGGER.debug("instantiated {} with httpPort: {}", new Object[]{serviceName(), port});
     }
 
-    private static ResourceHandler makeContentHandler(String contentDirectory) {
-        ResourceHandler resourceHandler = new ResourceHandler();
-
-        resourceHandler.setDirectoriesListed(true);
-        resourceHandler.setWelcomeFiles(new String[]{"index.html"});
-        resourceHandler.setResourceBase(contentDirectory);
-
-        return resourceHandler;
-    }
-
     /**
      * @throws Exception
      */
@@ -102,9 +105,12 @@ public class HttpService extends AbstractIdleService {
             LOGGER.error("Server is already stopped");
             return;
         } else {
-            server = new Server(httpPort);
+            server = new Server(threadPoolFactory.create("autumn-http"));
         }
 
+        server.setConnectors(new Connector[]{
+                makeHttpConnector(server, connectionFactories, new HttpConfiguration(), httpPort)});
+
         HandlerCollection handlers = new HandlerCollection(false);
 
         handlers.addHandler(makeMonitorHandler());
@@ -113,62 +119,14 @@ public class HttpService extends AbstractIdleService {
             handlers.addHandler(makeContentHandler(contentDirectory));
         }
 
-        handlers.addHandler(makeContextHandler(guiceFilter));
-        handlers.addHandler(makeRequestLogHandler());
+        handlers.addHandler(makeContextHandler(contextPath, guiceFilter));
+        handlers.addHandler(makeRequestLogHandler(requestLogFactory));
         server.setHandler(handlers);
         server.start();
 
         LOGGER.info("started {}", serviceName());
     }
 
-    private ContextHandlerCollection makeMonitorHandler() {
-        ServletContextHandler handler = new ServletContextHandler();
-
-        handler.setContextPath("/monitor");
-        handler.addServlet(new ServletHolder(new PingServlet()), "/ping");
-        // note: registering a servlet for '/*' appears to be required, fails otherwise
-        handler.addServlet(new ServletHolder(new InvalidRequestServlet()), "/*");
-
-        ContextHandlerCollection context = new ContextHandlerCollection();
-
-        context.setHandlers(new Handler[]{handler});
-
-        return context;
-    }
-
-    private ContextHandlerCollection makeContextHandler(GuiceFilter guiceFilter) {
-        ServletContextHandler handler = new ServletContextHandler();
-
-        handler.setContextPath(contextPath);
-        handler.addFilter(new FilterHolder(guiceFilter), "/*", allOf(DispatcherType.class));
-        // note: registering a servlet for '/*' appears to be required, fails otherwise
-        handler.addServlet(new ServletHolder(new InvalidRequestServlet()), "/*");
-
-        ContextHandlerCollection context = new ContextHandlerCollection();
-
-        context.setHandlers(new Handler[]{handler});
-
-        return context;
-    }
-
-    private RequestLogHandler makeRequestLogHandler() {
-        RequestLogImpl requestLogImpl = new RequestLogImpl();
-        JoranConfigurator configurator = new JoranConfigurator();
-
-        try (InputStream in = getClass().getResourceAsStream("/logback-access.xml")) {
-            configurator.setContext(requestLogImpl);
-            configurator.doConfigure(in);
-        } catch (JoranException | IOException je) {
-            throw new HttpServiceException("unable to start request log hander", je);
-        }
-
-        RequestLogHandler requestLogHandler = new RequestLogHandler();
-
-        requestLogHandler.setRequestLog(requestLogImpl);
-
-        return requestLogHandler;
-    }
-
     /**
      * @throws Exception
      */
@@ -20,21 +20,16 @@ import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import com.google.inject.servlet.GuiceFilter;
-import org.eclipse.jetty.server.*;
-import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.handler.HandlerCollection;
-import org.eclipse.jetty.servlet.FilterHolder;
-import org.eclipse.jetty.servlet.ServletContextHandler;
-import org.eclipse.jetty.servlet.ServletHolder;
-import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.slf4j.Logger;
 
-import javax.servlet.DispatcherType;
-import java.io.File;
-import java.io.FileNotFoundException;
-
-import static java.util.EnumSet.allOf;
-import static org.eclipse.jetty.http.HttpVersion.HTTP_1_1;
+import static com.intuit.autumn.web.WebServers.makeContextHandler;
+import static com.intuit.autumn.web.WebServers.makeHttpsConnector;
+import static com.intuit.autumn.web.WebServers.makeMonitorHandler;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -52,6 +47,8 @@ public class HttpsService extends AbstractIdleService {
     private final String sslKeyManagerPassword;
     private final String contextPath;
     private final GuiceFilter guiceFilter;
+    private final WebThreadPoolFactory threadPoolFactory;
+    private final WebConnectionFactories connectionFactories;
     private Server server;
 
     /**
@@ -65,6 +62,27 @@ public class HttpsService extends AbstractIdleService {
      * @param guiceFilter
      */
 
+    public HttpsService(int httpsPort, int httpsIdleTimeout, int httpConfigOutputBufferSize, String keyStorePath,
+                        String sslKeyStorePassword, String sslKeyManagerPassword, String contextPath,
+                        GuiceFilter guiceFilter) {
+        this(httpsPort, httpsIdleTimeout, httpConfigOutputBufferSize, keyStorePath, sslKeyStorePassword,
+                sslKeyManagerPassword, contextPath, guiceFilter, new WebThreadPoolFactory(),
+                new WebConnectionFactories());
+    }
+
+    /**
+     * @param httpsPort
+     * @param httpsIdleTimeout
+     * @param httpConfigOutputBufferSize
+     * @param keyStorePath
+     * @param sslKeyStorePassword
+     * @param sslKeyManagerPassword
+     * @param contextPath
+     * @param guiceFilter
+     * @param threadPoolFactory
+     * @param connectionFactories
+     */
+
     @Inject
     public HttpsService(
             @Named("application.https.port") int httpsPort,
@@ -74,7 +92,9 @@ public class HttpsService extends AbstractIdleService {
             @Named("application.ssl.keystore.password") String sslKeyStorePassword,
             @Named("application.ssl.keymanager.password") String sslKeyManagerPassword,
             @Named("application.http.context.path") String contextPath,
-            GuiceFilter guiceFilter) {
+            GuiceFilter guiceFilter,
+            WebThreadPoolFactory threadPoolFactory,
+            WebConnectionFactories connectionFactories) {
         LOGGER.debug("instantiating {} with httpsPort: {}", new Object[]{serviceName(), httpsPort});
 
         this.httpsIdleTimeout = httpsIdleTimeout;
@@ -85,6 +105,8 @@ public class HttpsService extends AbstractIdleService {
         this.httpsPort = httpsPort;
         this.contextPath = contextPath.isEmpty() ? "/" : contextPath;
         this.guiceFilter = guiceFilter;
+        this.threadPoolFactory = threadPoolFactory;
+        this.connectionFactories = connectionFactories;
 
         LOGGER.debug("instantiated {} with httpsPort: {}", new Object[]{serviceName(), httpsPort});
     }
@@ -105,13 +127,7 @@ public class HttpsService extends AbstractIdleService {
 
             return;
         } else {
-            server = new Server();
-        }
-
-        File keystoreFile = new File(keyStorePath);
-
-        if (!keystoreFile.exists()) {
-            throw new FileNotFoundException(keystoreFile.getAbsolutePath());
+            server = new Server(threadPoolFactory.create("autumn-https"));
         }
 
         HttpConfiguration httpConfiguration = new HttpConfiguration();
@@ -120,35 +136,8 @@ public class HttpsService extends AbstractIdleService {
         httpConfiguration.setSecurePort(httpsPort);
         httpConfiguration.setOutputBufferSize(httpConfigOutputBufferSize);
 
-        // SSL Context Factory for HTTPS
-        // SSL requires a certificate so we configure a factory for ssl contents
-        // with information pointing to what keystore the ssl connection needs
-        // to know about. Much more configuration is available the ssl context,
-        // including things like choosing the particular certificate out of
-        // a keystore to be used.
-        SslContextFactory sslContextFactory = new SslContextFactory();
-
-        sslContextFactory.setKeyStorePath(keystoreFile.getAbsolutePath());
-        sslContextFactory.setKeyStorePassword(sslKeyStorePassword);
-        sslContextFactory.setKeyManagerPassword(sslKeyManagerPassword);
-
-        // HTTPS Configuration
-        // A new HttpConfiguration object is needed for the next connector
-        // and you can pass the old one as an argument to effectively clone the
-        // contents. On this HttpConfiguration object we add a
-        // SecureRequestCustomizer which is how a new connector is able to
-        // resolve the https connection before handing control over to the Jetty Server.
-        HttpConfiguration httpsConfiguration = new HttpConfiguration(httpConfiguration);
-
-        httpsConfiguration.addCustomizer(new SecureRequestCustomizer());
-
-        // Configure HTTPS connector
-        ServerConnector https = new ServerConnector(server,
-                new SslConnectionFactory(sslContextFactory, HTTP_1_1.asString()),
-                new HttpConnectionFactory(httpsConfiguration));
-
-        https.setPort(httpsPort);
-        https.setIdleTimeout(httpsIdleTimeout);
+        ServerConnector https = makeHttpsConnector(server, connectionFactories, httpConfiguration, httpsPort,
+                httpsIdleTimeout, keyStorePath, sslKeyStorePassword, sslKeyManagerPassword);
 
         // The server have multiple connectors registered with it,
         // now requests can flow into the server from both http and https
@@ -159,7 +148,7 @@ public class HttpsService extends AbstractIdleService {
         HandlerCollection handlers = new HandlerCollection(false);
 
         handlers.addHandler(makeMonitorHandler());
-        handlers.addHandler(makeContextHandler(guiceFilter));
+        handlers.addHandler(makeContextHandler(contextPath, guiceFilter));
 
         server.setHandler(handlers);
         server.start();
@@ -167,36 +156,6 @@ public class HttpsService extends AbstractIdleService {
         LOGGER.info("started {}", serviceName());
     }
 
-    private ContextHandlerCollection makeMonitorHandler() {
-        ServletContextHandler handler = new ServletContextHandler();
-
-        handler.setContextPath("/monitor");
-        handler.addServlet(new ServletHolder(new PingServlet()), "/ping");
-        // note: registering a servlet for '/*' appears to be required, fails otherwise
-        handler.addServlet(new ServletHolder(new InvalidRequestServlet()), "/*");
-
-        ContextHandlerCollection context = new ContextHandlerCollection();
-
-        context.setHandlers(new Handler[]{handler});
-
-        return context;
-    }
-
-    private ContextHandlerCollection makeContextHandler(GuiceFilter guiceFilter) {
-        ServletContextHandler handler = new ServletContextHandler();
-
-        handler.setContextPath(contextPath);
-        handler.addFilter(new FilterHolder(guiceFilter), "/*", allOf(DispatcherType.class));
-        // note: registering a servlet for '/*' appears to be required, fails otherwise
-        handler.addServlet(new ServletHolder(new InvalidRequestServlet()), "/*");
-
-        ContextHandlerCollection context = new ContextHandlerCollection();
-
-        context.setHandlers(new Handler[]{handler});
-
-        return context;
-    }
-
     /**
      * @throws Exception
      */
@@ -14,36 +14,188 @@
  * limitations under the License.
  */
 
+
 package com.intuit.autumn.web;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-
-import static org.apache.commons.io.IOUtils.toByteArray;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * Wrapper object around HttpServletRequest to allow multiple readings of InputStream
+ *
+ * The body is read in bulk into buffers drawn from a shared pool, which are returned by {@link #release()} once the
+ * request completes, asynchronous requests being listened to as soon as started. The pool keeps at most 1024 idle
+ * buffers, 8 MiB, those released beyond it being left to the garbage collector. Each {@link #getInputStream()} call
+ * returns a new stream over the buffered body supporting bulk reads, skips and non-blocking {@link ReadListener}
+ * notification.
  */
 
 public class InputStreamHttpServletRequestWrapper extends HttpServletRequestWrapper {
 
-    private final byte[] body;
+    static final int CHUNK_SIZE = 8192;
+    static final int MAX_POOLED_CHUNKS = 1024;
+    private static final Queue<ByteBuffer> BUFFER_POOL = new ArrayBlockingQueue<>(MAX_POOLED_CHUNKS);
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final long length;
+    private boolean released;
+    private boolean listening;
 
     /**
-     * Constructs a request object wrapping the given request.
+     * Constructs a request object wrapping the given request, with no body size limit.
      *
      * @param request inbound request
      * @throws IllegalArgumentException if the request is null
      */
 
     public InputStreamHttpServletRequestWrapper(HttpServletRequest request) throws IOException {
+        this(request, -1);
+    }
+
+    /**
+     * Constructs a request object wrapping the given request.
+     *
+     * @param request inbound request
+     * @param maxBodySize maximum body bytes, unlimited if negative
+     * @throws IllegalArgumentException if the request is null
+     * @throws RequestEntityTooLargeException if the body exceeds the maximum size
+     */
+
+    public InputStreamHttpServletRequestWrapper(HttpServletRequest request, long maxBodySize) throws IOException {
         super(request);
 
-        body = toByteArray(request.getInputStream());
+        long contentLength = request.getContentLengthLong();
+
+        if (maxBodySize >= 0 && contentLength > maxBodySize) {
+            throw new RequestEntityTooLargeException("request body exceeds " + maxBodySize + " bytes");
+        }
+
+        try {
+            length = buffer(request.getInputStream(), maxBodySize);
+        } catch (IOException | RuntimeException e) {
+            release();
+
+            throw e;
+        }
+    }
+
+    private long buffer(final InputStream in, final long maxBodySize) throws IOException {
+        long read = 0;
+        ByteBuffer chunk = null;
+
+        while (true) {
+            if (chunk == null || !chunk.hasRemaining()) {
+                chunk = BUFFER_POOL.poll();
+
+                if (chunk == null) {
+                    chunk = ByteBuffer.allocate(CHUNK_SIZE);
+                }
+
+                chunk.clear();
+                chunks.add(chunk);
+            }
+
+            int count = in.read(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+
+            if (count < 0) {
+                break;
+            }
+
+            read += count;
+
+            if (maxBodySize >= 0 && read > maxBodySize) {
+                throw new RequestEntityTooLargeException("request body exceeds " + maxBodySize + " bytes");
+            }
+
+            chunk.position(chunk.position() + count);
+        }
+
+        for (ByteBuffer buffered : chunks) {
+            buffered.flip();
+        }
+
+        return read;
+    }
+
+    /**
+     * Buffered body length getter.
+     *
+     * @return body length in bytes
+     */
+
+    public long getBodyLength() {
+        return length;
+    }
+
+    /**
+     * Return the body buffers to the pool, after which the body may no longer be read.
+     */
+
+    public synchronized void release() {
+        if (!released) {
+            released = true;
+
+            for (ByteBuffer chunk : chunks) {
+                // dropped once the pool is full
+                BUFFER_POOL.offer(chunk);
+            }
+
+            chunks.clear();
+        }
+    }
+
+    /**
+     * Start asynchronous processing, releasing the body once it completes.
+     *
+     * @return asynchronous context
+     */
+
+    @Override
+    public AsyncContext startAsync() {
+        return listen(super.startAsync());
+    }
+
+    /**
+     * Start asynchronous processing, releasing the body once it completes.
+     *
+     * @param servletRequest request
+     * @param servletResponse response
+     * @return asynchronous context
+     */
+
+    @Override
+    public AsyncContext startAsync(final ServletRequest servletRequest, final ServletResponse servletResponse) {
+        return listen(super.startAsync(servletRequest, servletResponse));
+    }
+
+    /**
+     * Release the body once asynchronous processing completes, unless already listened to.
+     *
+     * @param asyncContext asynchronous context
+     * @return asynchronous context
+     */
+
+    synchronized AsyncContext listen(final AsyncContext asyncContext) {
+        if (!listening) {
+            listening = true;
+
+            asyncContext.addListener(new ReleaseListener(this));
+        }
+
+        return asyncContext;
     }
 
     /**
@@ -54,29 +206,197 @@ public class InputStreamHttpServletRequestWrapper extends HttpServletRequestWrap
      */
 
     @Override
-    public ServletInputStream getInputStream() throws IOException {
-        final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(body);
+    public synchronized ServletInputStream getInputStream() throws IOException {
+        if (released) {
+            throw new IllegalStateException("request body released");
+        }
+
+        List<ByteBuffer> body = new ArrayList<>(chunks.size());
+
+        for (ByteBuffer chunk : chunks) {
+            body.add(chunk.asReadOnlyBuffer());
+        }
+
+        return new BodyInputStream(body, length);
+    }
+
+    private static final class BodyInputStream extends ServletInputStream {
+
+        private final List<ByteBuffer> chunks;
+        private long remaining;
+        private int index;
+        private ReadListener readListener;
+        private boolean dispatching;
+        private boolean allDataRead;
+
+        private BodyInputStream(final List<ByteBuffer> chunks, final long remaining) {
+            this.chunks = chunks;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return remaining == 0;
+        }
 
-        return new ServletInputStream() {
-            @Override
-            public boolean isFinished() {
-                return byteArrayInputStream.available() == 0;
+        /**
+         * @return true, the body being buffered reads never block
+         */
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        /**
+         * Notify the listener of the buffered data and, once read, of its end.
+         *
+         * @param readListener read listener
+         */
+
+        @Override
+        public void setReadListener(final ReadListener readListener) {
+            if (readListener == null) {
+                throw new NullPointerException("readListener");
             }
 
-            @Override
-            public boolean isReady() {
-                return true;
+            if (this.readListener != null) {
+                throw new IllegalStateException("read listener already set");
             }
 
-            @Override
-            public void setReadListener(ReadListener readListener) {
-                throw new UnsupportedOperationException("Not implemented");
+            this.readListener = readListener;
+
+            try {
+                if (!isFinished()) {
+                    // end of data is signalled once onDataAvailable returns, as a container would
+                    dispatching = true;
+
+                    try {
+                        readListener.onDataAvailable();
+                    } finally {
+                        dispatching = false;
+                    }
+                }
+
+                notifyAllDataRead();
+            } catch (Throwable t) {
+                readListener.onError(t);
             }
+        }
+
+        @Override
+        public int read() throws IOException {
+            ByteBuffer chunk = current();
+
+            if (chunk == null) {
+                notifyAllDataRead();
 
-            @Override
-            public int read() throws IOException {
-                return byteArrayInputStream.read();
+                return -1;
             }
-        };
+
+            remaining--;
+
+            int b = chunk.get() & 0xFF;
+
+            notifyAllDataRead();
+
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (offset < 0 || length < 0 || length > bytes.length - offset) {
+                throw new IndexOutOfBoundsException();
+            }
+
+            if (length == 0) {
+                return 0;
+            }
+
+            int read = 0;
+
+            for (ByteBuffer chunk = current(); chunk != null && read < length; chunk = current()) {
+                int count = Math.min(length - read, chunk.remaining());
+
+                chunk.get(bytes, offset + read, count);
+                read += count;
+                remaining -= count;
+            }
+
+            notifyAllDataRead();
+
+            return read == 0 ? -1 : read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            long skipped = 0;
+
+            for (ByteBuffer chunk = current(); chunk != null && skipped < n; chunk = current()) {
+                int count = (int) Math.min(n - skipped, chunk.remaining());
+
+                chunk.position(chunk.position() + count);
+                skipped += count;
+                remaining -= count;
+            }
+
+            notifyAllDataRead();
+
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+
+        private ByteBuffer current() {
+            while (index < chunks.size()) {
+                ByteBuffer chunk = chunks.get(index);
+
+                if (chunk.hasRemaining()) {
+                    return chunk;
+                }
+
+                index++;
+            }
+
+            return null;
+        }
+
+        private void notifyAllDataRead() throws IOException {
+            if (readListener != null && !dispatching && isFinished() && !allDataRead) {
+                allDataRead = true;
+                readListener.onAllDataRead();
+            }
+        }
+    }
+
+    // the body is released on completion only, which follows a timeout or error, as it may be read until then
+    private static final class ReleaseListener implements AsyncListener {
+
+        private final InputStreamHttpServletRequestWrapper wrapper;
+
+        private ReleaseListener(final InputStreamHttpServletRequestWrapper wrapper) {
+            this.wrapper = wrapper;
+        }
+
+        @Override
+        public void onComplete(final AsyncEvent event) throws IOException {
+            wrapper.release();
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event) throws IOException {
+        }
+
+        @Override
+        public void onError(final AsyncEvent event) throws IOException {
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event) throws IOException {
+            event.getAsyncContext().addListener(this);
+        }
     }
 }
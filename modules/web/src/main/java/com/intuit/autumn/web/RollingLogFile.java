@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import com.intuit.autumn.utils.NameableThreadFactory;
+import org.slf4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * An append only log file, rolled daily and once it exceeds a maximum size, and optionally gzip compressed once rolled.
+ *
+ * Rolled files are named after the log file, the day and an index, e.g.: access.log.2016-07-29.0.gz. Not thread safe,
+ * the file is owned by a single writer; compression runs on a separate thread.
+ */
+
+final class RollingLogFile implements Closeable {
+
+    private static final Logger LOGGER = getLogger(RollingLogFile.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final File file;
+    private final long maxFileSize;
+    private final boolean compress;
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private final ExecutorService compressor;
+    private Writer writer;
+    private CountingOutputStream out;
+    private String day;
+    private long dayEnd;
+
+    /**
+     * Constructor.
+     *
+     * @param path        log file path
+     * @param maxFileSize bytes after which the file is rolled, never if not positive
+     * @param compress    gzip rolled files
+     */
+
+    RollingLogFile(final String path, final long maxFileSize, final boolean compress) {
+        this.file = new File(path).getAbsoluteFile();
+        this.maxFileSize = maxFileSize;
+        this.compress = compress;
+        this.compressor = compress ? newSingleThreadExecutor(new NameableThreadFactory("autumn-access-log-gzip")) :
+                null;
+    }
+
+    /**
+     * Append a line, rolling the file first if required.
+     *
+     * @param line      line, including its terminator
+     * @param timeStamp line time stamp milliseconds
+     * @throws IOException unintended exception
+     */
+
+    void write(final CharSequence line, final long timeStamp) throws IOException {
+        if (writer == null) {
+            open(timeStamp);
+        } else if (timeStamp >= dayEnd || maxFileSize > 0 && out.count >= maxFileSize) {
+            roll();
+            // only ever forward, a late line of the previous day, e.g. a slow request's, goes to the current day's file
+            open(Math.max(timeStamp, dayEnd - 1));
+        }
+
+        writer.append(line);
+    }
+
+    /**
+     * Flush buffered lines to the file.
+     *
+     * @throws IOException unintended exception
+     */
+
+    void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    private void open(final long timeStamp) throws IOException {
+        File parent = file.getParentFile();
+
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("unable to create directory: " + parent);
+        }
+
+        Calendar calendar = Calendar.getInstance();
+
+        calendar.setTimeInMillis(timeStamp);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long dayStart = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        dayEnd = calendar.getTimeInMillis();
+        day = dayFormat.format(new Date(dayStart));
+        this.out = new CountingOutputStream(new FileOutputStream(file, true), file.length());
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8), BUFFER_SIZE);
+    }
+
+    private void roll() throws IOException {
+        writer.close();
+        writer = null;
+
+        File rolled;
+
+        for (int i = 0; ; i++) {
+            rolled = new File(file.getPath() + '.' + day + '.' + i);
+
+            if (!rolled.exists() && !new File(rolled.getPath() + ".gz").exists()) {
+                break;
+            }
+        }
+
+        Files.move(file.toPath(), rolled.toPath(), ATOMIC_MOVE);
+
+        if (compress) {
+            final Path source = rolled.toPath();
+
+            compressor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    gzip(source);
+                }
+            });
+        }
+    }
+
+    private static void gzip(final Path source) {
+        Path target = source.resolveSibling(source.getFileName() + ".gz");
+
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream gz = new GZIPOutputStream(Files.newOutputStream(target), BUFFER_SIZE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                gz.write(buffer, 0, read);
+            }
+        } catch (IOException ioe) {
+            LOGGER.warn("unable to compress {}", source, ioe);
+
+            return;
+        }
+
+        try {
+            Files.delete(source);
+        } catch (IOException ioe) {
+            LOGGER.warn("unable to delete {}", source, ioe);
+        }
+    }
+
+    /**
+     * Close the file, waiting for pending compressions.
+     *
+     * @throws IOException unintended exception
+     */
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } finally {
+            if (compressor != null) {
+                compressor.shutdown();
+
+                try {
+                    compressor.awaitTermination(30, SECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private long count;
+
+        private CountingOutputStream(final OutputStream out, final long count) {
+            this.out = out;
+            this.count = count;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
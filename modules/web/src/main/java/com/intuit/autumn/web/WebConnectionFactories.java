@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.BufferingFlowControlStrategy;
+import org.eclipse.jetty.http2.FlowControlStrategy;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.AbstractHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.slf4j.Logger;
+
+import static org.eclipse.jetty.http.HttpVersion.HTTP_1_1;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Creates the configured connector protocol stacks: HTTP/1.1, optionally with HTTP/2.
+ *
+ * With HTTP/2 enabled cleartext connectors accept h2c, both by HTTP/1.1 upgrade and with prior knowledge, and TLS
+ * connectors negotiate h2 by ALPN, preferring the cipher suites h2 permits, falling back to HTTP/1.1 only when the JVM
+ * provides no ALPN implementation.
+ */
+
+public class WebConnectionFactories {
+
+    private static final Logger LOGGER = getLogger(WebConnectionFactories.class);
+    private final boolean http2Enabled;
+    private final int maxConcurrentStreams;
+    private final int initialStreamWindow;
+    private final float flowControlBufferRatio;
+
+    /**
+     * Constructor for HTTP/1.1 only connectors.
+     */
+
+    public WebConnectionFactories() {
+        this(false, 128, 65535, 0.5F);
+    }
+
+    /**
+     * @param http2Enabled
+     * @param maxConcurrentStreams
+     * @param initialStreamWindow
+     * @param flowControlBufferRatio
+     */
+
+    @Inject
+    public WebConnectionFactories(
+            @Named("application.http2.enabled") boolean http2Enabled,
+            @Named("application.http2.max.concurrent.streams") int maxConcurrentStreams,
+            @Named("application.http2.initial.stream.window") int initialStreamWindow,
+            @Named("application.http2.flow.control.buffer.ratio") float flowControlBufferRatio) {
+        LOGGER.debug("instantiating connection factories with http2Enabled: {}, maxConcurrentStreams: {}, " +
+                        "initialStreamWindow: {}, flowControlBufferRatio: {}",
+                new Object[]{http2Enabled, maxConcurrentStreams, initialStreamWindow, flowControlBufferRatio});
+
+        this.http2Enabled = http2Enabled;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.initialStreamWindow = initialStreamWindow;
+        this.flowControlBufferRatio = flowControlBufferRatio;
+    }
+
+    /**
+     * http2Enabled getter.
+     *
+     * @return http2Enabled value
+     */
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    /**
+     * Cleartext connection factories.
+     *
+     * @param httpConfiguration http configuration
+     * @return HTTP/1.1 and, if enabled, h2c connection factories
+     */
+
+    public ConnectionFactory[] cleartext(final HttpConfiguration httpConfiguration) {
+        HttpConnectionFactory http = new HttpConnectionFactory(httpConfiguration);
+
+        if (!http2Enabled) {
+            return new ConnectionFactory[]{http};
+        }
+
+        return new ConnectionFactory[]{http, configure(new HTTP2CServerConnectionFactory(httpConfiguration))};
+    }
+
+    /**
+     * TLS connection factories.
+     *
+     * @param sslContextFactory ssl context factory
+     * @param httpConfiguration https configuration
+     * @return TLS and HTTP/1.1 and, if enabled and supported, ALPN and h2 connection factories
+     */
+
+    public ConnectionFactory[] secure(final SslContextFactory sslContextFactory,
+                                      final HttpConfiguration httpConfiguration) {
+        HttpConnectionFactory http = new HttpConnectionFactory(httpConfiguration);
+
+        if (http2Enabled) {
+            ALPNServerConnectionFactory alpn = newAlpnConnectionFactory(http.getProtocol());
+
+            if (alpn != null) {
+                // h2 rejects black listed cipher suites, so the server orders the compliant ones first
+                sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+                sslContextFactory.setUseCipherSuitesOrder(true);
+
+                return new ConnectionFactory[]{new SslConnectionFactory(sslContextFactory, alpn.getProtocol()),
+                        alpn, configure(new HTTP2ServerConnectionFactory(httpConfiguration)), http};
+            }
+        }
+
+        return new ConnectionFactory[]{new SslConnectionFactory(sslContextFactory, HTTP_1_1.asString()), http};
+    }
+
+    private static ALPNServerConnectionFactory newAlpnConnectionFactory(final String defaultProtocol) {
+        try {
+            // Jetty's ALPN requires the alpn-boot agent on the boot class path
+            Class.forName("org.eclipse.jetty.alpn.ALPN", false, null);
+        } catch (ClassNotFoundException cnfe) {
+            LOGGER.warn("ALPN unavailable, h2 disabled on TLS connectors");
+
+            return null;
+        }
+
+        ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory("h2", defaultProtocol);
+
+        alpn.setDefaultProtocol(defaultProtocol);
+
+        return alpn;
+    }
+
+    private AbstractHTTP2ServerConnectionFactory configure(final AbstractHTTP2ServerConnectionFactory http2) {
+        http2.setMaxConcurrentStreams(maxConcurrentStreams);
+        http2.setInitialStreamSendWindow(initialStreamWindow);
+        http2.setFlowControlStrategyFactory(new FlowControlStrategy.Factory() {
+            @Override
+            public FlowControlStrategy newFlowControlStrategy() {
+                return new BufferingFlowControlStrategy(flowControlBufferRatio);
+            }
+        });
+
+        return http2;
+    }
+}
@@ -16,17 +16,29 @@
 
 package com.intuit.autumn.web;
 
+import com.intuit.autumn.utils.Deadline;
+
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
+import static javax.servlet.http.HttpServletResponse.SC_GATEWAY_TIMEOUT;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+
 /**
- * A filter that allows for processing of CONTENT-TYPE free messages.
+ * A filter that allows for processing of CONTENT-TYPE free messages, and binds the caller's {@link Deadline}, if
+ * any, to the request.
  */
 
 public class WebFilter implements Filter {
 
+    public static final String DEADLINE_ATTRIBUTE = Deadline.class.getName();
+    public static final String MAX_BODY_SIZE_PARAMETER = "maxBodySize";
+    public static final long DEFAULT_MAX_BODY_SIZE = 2097152L;
+
     private FilterConfig filterConfig;
+    private long maxBodySize = DEFAULT_MAX_BODY_SIZE;
 
     /**
      * Initialization implementation.
@@ -38,11 +50,25 @@ public class WebFilter implements Filter {
     @Override
     public void init(final FilterConfig filterConfig) throws ServletException {
         this.filterConfig = filterConfig;
+
+        String maxBodySize = filterConfig.getInitParameter(MAX_BODY_SIZE_PARAMETER);
+
+        if (maxBodySize != null && !maxBodySize.trim().isEmpty()) {
+            this.maxBodySize = Long.parseLong(maxBodySize.trim());
+        }
     }
 
     /**
      * Filter that injects a request wrapper in the event the CONTENT-TYPE was not provided.
      *
+     * Form bodies larger than the {@link #MAX_BODY_SIZE_PARAMETER} init parameter, 2 MiB by default, are answered
+     * with a 413 status, and the buffered body is released once the request, synchronous or asynchronous, completes.
+     *
+     * A deadline read from the {@link Deadline#HEADER} request header is bound to the serving thread for the duration
+     * of the request, and to the {@link #DEADLINE_ATTRIBUTE} request attribute, so that outbound requests are capped
+     * to, and forward, the remaining time budget. Requests whose caller has already given up are answered with a 504
+     * status without further processing.
+     *
      * @param request request
      * @param response response
      * @param chain filter chain
@@ -54,15 +80,61 @@ public class WebFilter implements Filter {
     public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain)
             throws IOException, ServletException {
         HttpServletRequest httpRequest = (HttpServletRequest)request;
+        Deadline deadline = Deadline.fromHeader(httpRequest.getHeader(Deadline.HEADER));
+
+        if (deadline != null && deadline.isExpired()) {
+            ((HttpServletResponse) response).sendError(SC_GATEWAY_TIMEOUT, "request deadline exceeded");
+
+            return;
+        }
 
         // if content-type not set pass on InputStreamHttpServletRequestWrapper object default
         // content-type = application/x-www-form-urlencoded
 
         if ("application/x-www-form-urlencoded".equals(httpRequest.getContentType())) {
-            httpRequest = new InputStreamHttpServletRequestWrapper(httpRequest);
+            final InputStreamHttpServletRequestWrapper wrapper;
+
+            try {
+                wrapper = new InputStreamHttpServletRequestWrapper(httpRequest, maxBodySize);
+            } catch (RequestEntityTooLargeException retle) {
+                ((HttpServletResponse) response).sendError(SC_REQUEST_ENTITY_TOO_LARGE, retle.getMessage());
+
+                return;
+            }
+
+            try {
+                doFilter(wrapper, response, chain, deadline);
+            } finally {
+                // started on the wrapper, the listener is already in place, otherwise added as processing goes on
+                if (wrapper.isAsyncStarted()) {
+                    wrapper.listen(wrapper.getAsyncContext());
+                } else {
+                    wrapper.release();
+                }
+            }
+        } else {
+            doFilter(httpRequest, response, chain, deadline);
         }
+    }
 
-        chain.doFilter(httpRequest, response);
+    private static void doFilter(final HttpServletRequest httpRequest, final ServletResponse response,
+                                 final FilterChain chain, final Deadline deadline)
+            throws IOException, ServletException {
+        if (deadline == null) {
+            chain.doFilter(httpRequest, response);
+
+            return;
+        }
+
+        httpRequest.setAttribute(DEADLINE_ATTRIBUTE, deadline);
+
+        Deadline previous = Deadline.attach(deadline);
+
+        try {
+            chain.doFilter(httpRequest, response);
+        } finally {
+            Deadline.detach(previous);
+        }
     }
 
     /**
@@ -74,6 +146,16 @@ public class WebFilter implements Filter {
         filterConfig = null;
     }
 
+    /**
+     * Maximum form body size getter.
+     *
+     * @return maximum form body bytes, unlimited if negative
+     */
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
     /**
      * Retrieve the associated filter configuration.
      *
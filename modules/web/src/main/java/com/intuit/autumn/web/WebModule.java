@@ -61,6 +61,39 @@ public class WebModule extends AbstractModule {
         bind(String.class).annotatedWith(named("application.http.content.directory"))
                 .toInstance(String.valueOf(getProperty(
                         "application.http.content.directory", properties)));
+        bind(Integer.class).annotatedWith(named("application.http.threads.min"))
+                .toInstance(valueOf(getProperty("application.http.threads.min", properties, "8")));
+        bind(Integer.class).annotatedWith(named("application.http.threads.max"))
+                .toInstance(valueOf(getProperty("application.http.threads.max", properties, "200")));
+        bind(Integer.class).annotatedWith(named("application.http.threads.queue.size"))
+                .toInstance(valueOf(getProperty("application.http.threads.queue.size", properties, "1024")));
+        bind(Integer.class).annotatedWith(named("application.http.threads.idletimeout"))
+                .toInstance(valueOf(getProperty("application.http.threads.idletimeout", properties, "60000")));
+        bind(Integer.class).annotatedWith(named("application.http.threads.reserved"))
+                .toInstance(valueOf(getProperty("application.http.threads.reserved", properties, "0")));
+        bind(Boolean.class).annotatedWith(named("application.http.threads.virtual"))
+                .toInstance(Boolean.valueOf(getProperty("application.http.threads.virtual", properties, "false")));
+        bind(Boolean.class).annotatedWith(named("application.http2.enabled"))
+                .toInstance(Boolean.valueOf(getProperty("application.http2.enabled", properties, "false")));
+        bind(Integer.class).annotatedWith(named("application.http2.max.concurrent.streams"))
+                .toInstance(valueOf(getProperty("application.http2.max.concurrent.streams", properties, "128")));
+        bind(Integer.class).annotatedWith(named("application.http2.initial.stream.window"))
+                .toInstance(valueOf(getProperty("application.http2.initial.stream.window", properties, "65535")));
+        bind(Float.class).annotatedWith(named("application.http2.flow.control.buffer.ratio"))
+                .toInstance(Float.valueOf(getProperty("application.http2.flow.control.buffer.ratio", properties,
+                        "0.5")));
+
+        bind(String.class).annotatedWith(named("application.http.access.log.path"))
+                .toInstance(String.valueOf(getProperty("application.http.access.log.path", properties, "")));
+        bind(Integer.class).annotatedWith(named("application.http.access.log.buffer.size"))
+                .toInstance(valueOf(getProperty("application.http.access.log.buffer.size", properties, "8192")));
+        bind(Boolean.class).annotatedWith(named("application.http.access.log.block"))
+                .toInstance(Boolean.valueOf(getProperty("application.http.access.log.block", properties, "false")));
+        bind(Long.class).annotatedWith(named("application.http.access.log.max.file.size"))
+                .toInstance(Long.valueOf(getProperty("application.http.access.log.max.file.size", properties,
+                        "104857600")));
+        bind(Boolean.class).annotatedWith(named("application.http.access.log.compress"))
+                .toInstance(Boolean.valueOf(getProperty("application.http.access.log.compress", properties, "true")));
 
         Boolean isHttpsOn = Boolean.valueOf(getProperty("application.https.enabled",
                 properties, "false"));
@@ -92,6 +125,7 @@ public class WebModule extends AbstractModule {
         bind(HttpHeader.class).in(SINGLETON);
         bind(HttpService.class).in(SINGLETON);
         bind(HttpsService.class).in(SINGLETON);
+        bind(WebService.class).in(SINGLETON);
 
         LOGGER.debug("bound properties: {}", PROPERTY_NAME);
     }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import ch.qos.logback.access.jetty.RequestLogImpl;
+import ch.qos.logback.access.joran.JoranConfigurator;
+import ch.qos.logback.core.joran.spi.JoranException;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.eclipse.jetty.server.RequestLog;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Creates the configured Jetty request log: asynchronous, to rolling files, if a log path is configured, and
+ * logback-access, configured by logback-access.xml, otherwise.
+ */
+
+public class WebRequestLogFactory {
+
+    private static final Logger LOGGER = getLogger(WebRequestLogFactory.class);
+    private final String path;
+    private final int bufferSize;
+    private final boolean block;
+    private final long maxFileSize;
+    private final boolean compress;
+    private final MetricRegistry metricRegistry;
+
+    /**
+     * Constructor for the logback-access request log.
+     */
+
+    public WebRequestLogFactory() {
+        this("", 8192, false, 104857600L, true, null);
+    }
+
+    /**
+     * @param path
+     * @param bufferSize
+     * @param block
+     * @param maxFileSize
+     * @param compress
+     * @param metricRegistry application registry, e.g. the one bound by the MetricsModule, or null
+     */
+
+    @Inject
+    public WebRequestLogFactory(
+            @Named("application.http.access.log.path") String path,
+            @Named("application.http.access.log.buffer.size") int bufferSize,
+            @Named("application.http.access.log.block") boolean block,
+            @Named("application.http.access.log.max.file.size") long maxFileSize,
+            @Named("application.http.access.log.compress") boolean compress,
+            MetricRegistry metricRegistry) {
+        LOGGER.debug("instantiating request log factory with path: {}, bufferSize: {}, block: {}, maxFileSize: {}, " +
+                "compress: {}", new Object[]{path, bufferSize, block, maxFileSize, compress});
+
+        this.path = path;
+        this.bufferSize = bufferSize;
+        this.block = block;
+        this.maxFileSize = maxFileSize;
+        this.compress = compress;
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Request log creator.
+     *
+     * @return unstarted request log
+     */
+
+    public RequestLog create() {
+        if (isBlank(path)) {
+            return makeLogbackRequestLog();
+        }
+
+        final AsyncRequestLog requestLog = new AsyncRequestLog(path, bufferSize, block, maxFileSize, compress);
+
+        if (metricRegistry == null) {
+            return requestLog;
+        }
+
+        metricRegistry.remove(name("jetty", "access-log", "dropped"));
+        metricRegistry.register(name("jetty", "access-log", "dropped"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return requestLog.getDropped();
+            }
+        });
+        metricRegistry.remove(name("jetty", "access-log", "pending"));
+        metricRegistry.register(name("jetty", "access-log", "pending"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return requestLog.getPending();
+            }
+        });
+
+        return requestLog;
+    }
+
+    private static RequestLog makeLogbackRequestLog() {
+        RequestLogImpl requestLogImpl = new RequestLogImpl();
+        JoranConfigurator configurator = new JoranConfigurator();
+
+        try (InputStream in = WebRequestLogFactory.class.getResourceAsStream("/logback-access.xml")) {
+            configurator.setContext(requestLogImpl);
+            configurator.doConfigure(in);
+        } catch (JoranException | IOException je) {
+            throw new HttpServiceException("unable to start request log hander", je);
+        }
+
+        return requestLogImpl;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import com.google.inject.servlet.GuiceFilter;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.server.handler.RequestLogHandler;
+import org.eclipse.jetty.server.handler.ResourceHandler;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+import javax.servlet.DispatcherType;
+import java.io.File;
+import java.io.FileNotFoundException;
+
+import static java.util.EnumSet.allOf;
+
+/**
+ * Jetty handler and connector building blocks shared by the web services.
+ */
+
+final class WebServers {
+
+    private WebServers() {
+        throw new UnsupportedOperationException();
+    }
+
+    static ServerConnector makeHttpConnector(final Server server, final WebConnectionFactories connectionFactories,
+                                             final HttpConfiguration httpConfiguration, final int port) {
+        ServerConnector http = new ServerConnector(server, connectionFactories.cleartext(httpConfiguration));
+
+        http.setPort(port);
+
+        return http;
+    }
+
+    static ServerConnector makeHttpsConnector(final Server server, final WebConnectionFactories connectionFactories,
+                                              final HttpConfiguration httpConfiguration, final int port,
+                                              final int idleTimeout, final String keyStorePath,
+                                              final String keyStorePassword, final String keyManagerPassword)
+            throws FileNotFoundException {
+        File keystoreFile = new File(keyStorePath);
+
+        if (!keystoreFile.exists()) {
+            throw new FileNotFoundException(keystoreFile.getAbsolutePath());
+        }
+
+        // SSL Context Factory for HTTPS
+        // SSL requires a certificate so we configure a factory for ssl contents
+        // with information pointing to what keystore the ssl connection needs
+        // to know about. Much more configuration is available the ssl context,
+        // including things like choosing the particular certificate out of
+        // a keystore to be used.
+        SslContextFactory sslContextFactory = new SslContextFactory();
+
+        sslContextFactory.setKeyStorePath(keystoreFile.getAbsolutePath());
+        sslContextFactory.setKeyStorePassword(keyStorePassword);
+        sslContextFactory.setKeyManagerPassword(keyManagerPassword);
+
+        // HTTPS Configuration
+        // A new HttpConfiguration object is needed for the next connector
+        // and you can pass the old one as an argument to effectively clone the
+        // contents. On this HttpConfiguration object we add a
+        // SecureRequestCustomizer which is how a new connector is able to
+        // resolve the https connection before handing control over to the Jetty Server.
+        HttpConfiguration httpsConfiguration = new HttpConfiguration(httpConfiguration);
+
+        httpsConfiguration.addCustomizer(new SecureRequestCustomizer());
+
+        ServerConnector https = new ServerConnector(server,
+                connectionFactories.secure(sslContextFactory, httpsConfiguration));
+
+        https.setPort(port);
+        https.setIdleTimeout(idleTimeout);
+
+        return https;
+    }
+
+    static ResourceHandler makeContentHandler(final String contentDirectory) {
+        ResourceHandler resourceHandler = new ResourceHandler();
+
+        resourceHandler.setDirectoriesListed(true);
+        resourceHandler.setWelcomeFiles(new String[]{"index.html"});
+        resourceHandler.setResourceBase(contentDirectory);
+
+        return resourceHandler;
+    }
+
+    static ContextHandlerCollection makeMonitorHandler() {
+        ServletContextHandler handler = new ServletContextHandler();
+
+        handler.setContextPath("/monitor");
+        handler.addServlet(new ServletHolder(new PingServlet()), "/ping");
+        // note: registering a servlet for '/*' appears to be required, fails otherwise
+        handler.addServlet(new ServletHolder(new InvalidRequestServlet()), "/*");
+
+        ContextHandlerCollection context = new ContextHandlerCollection();
+
+        context.setHandlers(new Handler[]{handler});
+
+        return context;
+    }
+
+    static ContextHandlerCollection makeContextHandler(final String contextPath, final GuiceFilter guiceFilter) {
+        ServletContextHandler handler = new ServletContextHandler();
+
+        handler.setContextPath(contextPath);
+        handler.addFilter(new FilterHolder(guiceFilter), "/*", allOf(DispatcherType.class));
+        // note: registering a servlet for '/*' appears to be required, fails otherwise
+        handler.addServlet(new ServletHolder(new InvalidRequestServlet()), "/*");
+
+        ContextHandlerCollection context = new ContextHandlerCollection();
+
+        context.setHandlers(new Handler[]{handler});
+
+        return context;
+    }
+
+    static RequestLogHandler makeRequestLogHandler(final WebRequestLogFactory requestLogFactory) {
+        RequestLogHandler requestLogHandler = new RequestLogHandler();
+
+        requestLogHandler.setRequestLog(requestLogFactory.create());
+
+        return requestLogHandler;
+    }
+}
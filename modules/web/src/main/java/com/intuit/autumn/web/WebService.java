@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.google.inject.servlet.GuiceFilter;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.HandlerCollection;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+
+import static com.intuit.autumn.web.WebServers.*;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A lifecycle provider for a single Jetty server serving both http and https.
+ *
+ * Both connectors share the server's thread pool, buffer pool, scheduler, handler chain and request log.
+ */
+
+public class WebService extends AbstractIdleService {
+
+    private static final Logger LOGGER = getLogger(WebService.class);
+    private final int httpPort;
+    private final int httpsPort;
+    private final int httpsIdleTimeout;
+    private final int httpConfigOutputBufferSize;
+    private final String keyStorePath;
+    private final String sslKeyStorePassword;
+    private final String sslKeyManagerPassword;
+    private final String contextPath;
+    @Nullable
+    private final String contentDirectory;
+    private final GuiceFilter guiceFilter;
+    private final WebThreadPoolFactory threadPoolFactory;
+    private final WebConnectionFactories connectionFactories;
+    private final WebRequestLogFactory requestLogFactory;
+    private Server server;
+
+    /**
+     * @param httpPort
+     * @param httpsPort
+     * @param httpsIdleTimeout
+     * @param httpConfigOutputBufferSize
+     * @param keyStorePath
+     * @param sslKeyStorePassword
+     * @param sslKeyManagerPassword
+     * @param contextPath
+     * @param contentDirectory
+     * @param guiceFilter
+     * @param threadPoolFactory
+     * @param connectionFactories
+     * @param requestLogFactory
+     */
+
+    @Inject
+    public WebService(
+            @Named("application.http.port") int httpPort,
+            @Named("application.https.port") int httpsPort,
+            @Named("application.https.idletimeout") int httpsIdleTimeout,
+            @Named("application.httpconfig.output.buffersize") int httpConfigOutputBufferSize,
+            @Named("application.ssl.keystore.path") String keyStorePath,
+            @Named("application.ssl.keystore.password") String sslKeyStorePassword,
+            @Named("application.ssl.keymanager.password") String sslKeyManagerPassword,
+            @Named("application.http.context.path") String contextPath,
+            @Named("application.http.content.directory") @Nullable String contentDirectory,
+            GuiceFilter guiceFilter,
+            WebThreadPoolFactory threadPoolFactory,
+            WebConnectionFactories connectionFactories,
+            WebRequestLogFactory requestLogFactory) {
+        LOGGER.debug("instantiating {} with httpPort: {}, httpsPort: {}",
+                new Object[]{serviceName(), httpPort, httpsPort});
+
+        this.httpPort = httpPort;
+        this.httpsPort = httpsPort;
+        this.httpsIdleTimeout = httpsIdleTimeout;
+        this.httpConfigOutputBufferSize = httpConfigOutputBufferSize;
+        this.keyStorePath = keyStorePath;
+        this.sslKeyStorePassword = sslKeyStorePassword;
+        this.sslKeyManagerPassword = sslKeyManagerPassword;
+        this.contextPath = isEmpty(contextPath) ? "/" : contextPath;
+        this.contentDirectory = contentDirectory;
+        this.guiceFilter = guiceFilter;
+        this.threadPoolFactory = threadPoolFactory;
+        this.connectionFactories = connectionFactories;
+        this.requestLogFactory = requestLogFactory;
+
+        LOGGER.debug("instantiated {} with httpPort: {}, httpsPort: {}",
+                new Object[]{serviceName(), httpPort, httpsPort});
+    }
+
+    /**
+     * @throws Exception
+     */
+
+    @Override
+    protected void startUp() throws Exception {
+        LOGGER.info("starting {}", serviceName());
+
+        if (server != null) {
+            LOGGER.error("Server is already started");
+
+            return;
+        }
+
+        server = new Server(threadPoolFactory.create("autumn-web"));
+
+        // connectors pick up the server's buffer pool and scheduler beans rather than creating their own
+        server.addBean(new ArrayByteBufferPool());
+        server.addBean(new ScheduledExecutorScheduler("autumn-web-scheduler", false));
+
+        HttpConfiguration httpConfiguration = new HttpConfiguration();
+
+        httpConfiguration.setSecureScheme("https");
+        httpConfiguration.setSecurePort(httpsPort);
+        httpConfiguration.setOutputBufferSize(httpConfigOutputBufferSize);
+
+        server.setConnectors(new Connector[]{
+                makeHttpConnector(server, connectionFactories, httpConfiguration, httpPort),
+                makeHttpsConnector(server, connectionFactories, httpConfiguration, httpsPort, httpsIdleTimeout,
+                        keyStorePath, sslKeyStorePassword, sslKeyManagerPassword)});
+
+        HandlerCollection handlers = new HandlerCollection(false);
+
+        handlers.addHandler(makeMonitorHandler());
+
+        if (contentDirectory != null) {
+            handlers.addHandler(makeContentHandler(contentDirectory));
+        }
+
+        handlers.addHandler(makeContextHandler(contextPath, guiceFilter));
+        handlers.addHandler(makeRequestLogHandler(requestLogFactory));
+        server.setHandler(handlers);
+        server.start();
+
+        LOGGER.info("started {}", serviceName());
+    }
+
+    /**
+     * Connectors getter.
+     *
+     * @return running server connectors, empty if not running
+     */
+
+    public Connector[] getConnectors() {
+        Server running = server;
+
+        return running == null ? new Connector[0] : running.getConnectors();
+    }
+
+    /**
+     * @throws Exception
+     */
+
+    @Override
+    protected void shutDown() throws Exception {
+        if (server == null) {
+            LOGGER.error("Server is already stopped");
+        } else {
+            LOGGER.debug("stopping {}", serviceName());
+
+            try {
+                server.stop();
+            } finally {
+                server = null;
+            }
+
+            LOGGER.debug("stopped {}", serviceName());
+        }
+    }
+}
@@ -49,7 +49,8 @@ public class WebServices {
     }
 
     /**
-     * Http services configuration utility.
+     * Http services configuration utility, serving both http and https from a single server unless
+     * application.web.shared.server is false.
      *
      * @return collection of enabled http services.
      */
@@ -63,11 +64,22 @@ public class WebServices {
         loadIfEnabled(properties, webServices, "application.http.enabled");
         loadIfEnabled(properties, webServices, "application.https.enabled");
 
+        if (webServices.size() == WEB_SERVICES.size() && isShared(properties)) {
+            webServices.clear();
+            webServices.add(WebService.class);
+        }
+
         LOGGER.debug("got enabled web services count: {}", webServices.size());
 
         return webServices;
     }
 
+    private static boolean isShared(final Properties properties) {
+        String shared = getProperty("application.web.shared.server", properties);
+
+        return shared == null || toBoolean(shared);
+    }
+
     private static void loadIfEnabled(final Properties properties, Set<Class<? extends Service>> services,
                                       final String key) {
         if (toBoolean(getProperty(key, properties))) {
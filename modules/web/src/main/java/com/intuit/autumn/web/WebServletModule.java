@@ -69,7 +69,14 @@ public class WebServletModule extends ServletModule {
             }
         }
 
-        filter("/*").through(WebFilter.class);
+        Map<String, String> filterParams = new HashMap<>();
+        String maxBodySize = trimToNull(getProperty("application.http.form.max.body.size", properties));
+
+        if (isNotBlank(maxBodySize)) {
+            filterParams.put(WebFilter.MAX_BODY_SIZE_PARAMETER, maxBodySize);
+        }
+
+        filter("/*").through(WebFilter.class, filterParams);
         serve("/*").with(GuiceContainer.class, params);
     }
 
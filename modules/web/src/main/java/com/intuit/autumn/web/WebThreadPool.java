@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A named, bounded Jetty thread pool reporting its statistics to a {@link MetricRegistry}.
+ *
+ * Jobs beyond the queue bound are rejected, rather than queued without limit, and the pool reports itself low on
+ * threads, so that connectors stop accepting work, once fewer than the reserved number of threads remain available.
+ * Threads are optionally virtual, when supported by the running JVM.
+ */
+
+public class WebThreadPool extends QueuedThreadPool {
+
+    private static final Logger LOGGER = getLogger(WebThreadPool.class);
+    private static final String[] GAUGES = {"threads", "idle", "busy", "queue-size", "utilization"};
+    private final int reservedThreads;
+    private final MetricRegistry metricRegistry;
+    private final Meter rejected = new Meter();
+    private final ThreadFactory virtualThreadFactory;
+
+    /**
+     * Constructor.
+     *
+     * @param name               pool name, prefixing thread and metric names
+     * @param minThreads         minimum threads
+     * @param maxThreads         maximum threads
+     * @param queueSize          maximum queued jobs, unbounded if not positive
+     * @param idleTimeout        idle thread timeout milliseconds
+     * @param reservedThreads    threads kept available before the pool reports itself low on threads
+     * @param virtualThreads     run jobs on virtual threads, if supported
+     * @param metricRegistry     pool statistics registry, or null not to publish them
+     */
+
+    public WebThreadPool(final String name, final int minThreads, final int maxThreads, final int queueSize,
+                         final int idleTimeout, final int reservedThreads, final boolean virtualThreads,
+                         final MetricRegistry metricRegistry) {
+        super(maxThreads, minThreads, idleTimeout, queueSize > 0 ?
+                new BlockingArrayQueue<Runnable>(Math.min(Math.max(minThreads, 1), queueSize),
+                        Math.max(minThreads, 1), queueSize) :
+                new BlockingArrayQueue<Runnable>(Math.max(minThreads, 1), Math.max(minThreads, 1)));
+
+        setName(name);
+
+        this.reservedThreads = reservedThreads;
+        this.metricRegistry = metricRegistry;
+        this.virtualThreadFactory = virtualThreads ? virtualThreadFactory(name) : null;
+
+        if (virtualThreadFactory != null) {
+            // virtual threads are always daemon threads
+            setDaemon(true);
+        }
+    }
+
+    private static ThreadFactory virtualThreadFactory(final String name) {
+        try {
+            // Thread.ofVirtual().factory(), thread names are assigned by the pool once started
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+
+            return (ThreadFactory) ofVirtual.getReturnType().getMethod("factory").invoke(ofVirtual.invoke(null));
+        } catch (ReflectiveOperationException roe) {
+            LOGGER.warn("virtual threads unsupported, {} falling back to platform threads", name);
+
+            return null;
+        }
+    }
+
+    /**
+     * reservedThreads getter.
+     *
+     * @return reservedThreads value
+     */
+
+    public int getReservedThreads() {
+        return reservedThreads;
+    }
+
+    /**
+     * Virtual threads getter.
+     *
+     * @return true if jobs run on virtual threads
+     */
+
+    public boolean isVirtualThreads() {
+        return virtualThreadFactory != null;
+    }
+
+    /**
+     * Rejected job meter getter.
+     *
+     * @return rejected job meter
+     */
+
+    public Meter getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Utilization getter.
+     *
+     * @return ratio of busy to maximum threads
+     */
+
+    public double getUtilization() {
+        return (double) getBusyThreads() / getMaxThreads();
+    }
+
+    @Override
+    public void execute(final Runnable job) {
+        try {
+            super.execute(job);
+        } catch (RejectedExecutionException ree) {
+            rejected.mark();
+
+            throw ree;
+        }
+    }
+
+    /**
+     * @return true if fewer than the reserved threads remain available for new jobs
+     */
+
+    @Override
+    public boolean isLowOnThreads() {
+        int available = getMaxThreads() - getThreads() + getIdleThreads() - getQueueSize();
+
+        return available <= reservedThreads || super.isLowOnThreads();
+    }
+
+    @Override
+    protected Thread newThread(final Runnable runnable) {
+        return virtualThreadFactory == null ? super.newThread(runnable) : virtualThreadFactory.newThread(runnable);
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        if (metricRegistry != null) {
+            register();
+        }
+
+        super.doStart();
+    }
+
+    private void register() {
+        metricRegistry.register(name("jetty", getName(), "threads"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getThreads();
+            }
+        });
+        metricRegistry.register(name("jetty", getName(), "idle"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getIdleThreads();
+            }
+        });
+        metricRegistry.register(name("jetty", getName(), "busy"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getBusyThreads();
+            }
+        });
+        metricRegistry.register(name("jetty", getName(), "queue-size"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getQueueSize();
+            }
+        });
+        metricRegistry.register(name("jetty", getName(), "utilization"), new Gauge<Double>() {
+            @Override
+            public Double getValue() {
+                return getUtilization();
+            }
+        });
+        metricRegistry.register(name("jetty", getName(), "rejected"), rejected);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        try {
+            super.doStop();
+        } finally {
+            if (metricRegistry != null) {
+                unregister();
+            }
+        }
+    }
+
+    private void unregister() {
+        for (String gauge : GAUGES) {
+            metricRegistry.remove(name("jetty", getName(), gauge));
+        }
+
+        metricRegistry.remove(name("jetty", getName(), "rejected"));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.slf4j.Logger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Creates the configured Jetty thread pools.
+ */
+
+public class WebThreadPoolFactory {
+
+    private static final Logger LOGGER = getLogger(WebThreadPoolFactory.class);
+    private final int minThreads;
+    private final int maxThreads;
+    private final int queueSize;
+    private final int idleTimeout;
+    private final int reservedThreads;
+    private final boolean virtualThreads;
+    private final MetricRegistry metricRegistry;
+
+    /**
+     * Constructor with Jetty's default pool sizing and an unbounded queue, publishing no pool statistics.
+     */
+
+    public WebThreadPoolFactory() {
+        this(8, 200, 0, 60000, 0, false, null);
+    }
+
+    /**
+     * @param minThreads
+     * @param maxThreads
+     * @param queueSize
+     * @param idleTimeout
+     * @param reservedThreads
+     * @param virtualThreads
+     * @param metricRegistry application registry, e.g. the one bound by the MetricsModule, or null
+     */
+
+    @Inject
+    public WebThreadPoolFactory(
+            @Named("application.http.threads.min") int minThreads,
+            @Named("application.http.threads.max") int maxThreads,
+            @Named("application.http.threads.queue.size") int queueSize,
+            @Named("application.http.threads.idletimeout") int idleTimeout,
+            @Named("application.http.threads.reserved") int reservedThreads,
+            @Named("application.http.threads.virtual") boolean virtualThreads,
+            MetricRegistry metricRegistry) {
+        LOGGER.debug("instantiating thread pool factory with minThreads: {}, maxThreads: {}, queueSize: {}, " +
+                        "idleTimeout: {}, reservedThreads: {}, virtualThreads: {}",
+                new Object[]{minThreads, maxThreads, queueSize, idleTimeout, reservedThreads, virtualThreads});
+
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.queueSize = queueSize;
+        this.idleTimeout = idleTimeout;
+        this.reservedThreads = reservedThreads;
+        this.virtualThreads = virtualThreads;
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Thread pool creator.
+     *
+     * @param name pool name
+     * @return unstarted thread pool
+     */
+
+    public WebThreadPool create(final String name) {
+        return new WebThreadPool(name, minThreads, maxThreads, queueSize, idleTimeout, reservedThreads,
+                virtualThreads, metricRegistry);
+    }
+}
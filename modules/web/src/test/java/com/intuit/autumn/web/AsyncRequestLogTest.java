@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import ch.qos.logback.access.jetty.RequestLogImpl;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.io.ByteStreams;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.RequestLogHandler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class AsyncRequestLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void capacityIsPowerOfTwo() throws Exception {
+        assertThat(new AsyncRequestLog("access.log", 1000, false, -1, false).getCapacity(), is(1024));
+        assertThat(new AsyncRequestLog("access.log", 1024, false, -1, false).getCapacity(), is(1024));
+    }
+
+    @Test
+    public void requestsAreLogged() throws Exception {
+        File log = new File(folder.getRoot(), "logs/access.log");
+        AsyncRequestLog requestLog = new AsyncRequestLog(log.getPath(), 4, false, -1, false);
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        RequestLogHandler requestLogHandler = new RequestLogHandler();
+
+        server.addConnector(connector);
+        requestLogHandler.setRequestLog(requestLog);
+        requestLogHandler.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(final String target, final Request baseRequest, final HttpServletRequest request,
+                               final HttpServletResponse response) throws IOException {
+                response.setStatus(200);
+                response.getWriter().write("pong");
+                baseRequest.setHandled(true);
+            }
+        });
+        server.setHandler(requestLogHandler);
+        server.start();
+
+        try {
+            for (int i = 0; i < 10; i++) {
+                try (InputStream in = new URL("http://localhost:" + connector.getLocalPort() + "/ping?i=" + i)
+                        .openStream()) {
+                    ByteStreams.toByteArray(in);
+                }
+            }
+        } finally {
+            server.stop();
+        }
+
+        List<String> lines = Files.readAllLines(log.toPath(), UTF_8);
+
+        assertThat(lines.size(), is(10));
+        assertThat(lines.get(9), containsString("\"GET /ping?i=9 HTTP/1.1\" 200 4 "));
+        assertThat(requestLog.getDropped(), is(0L));
+        assertThat(requestLog.getPending(), is(0L));
+    }
+
+    @Test
+    public void recordsAreDroppedWhenNotRunning() throws Exception {
+        AsyncRequestLog requestLog = new AsyncRequestLog(new File(folder.getRoot(), "access.log").getPath(), 2,
+                false, -1, false);
+
+        requestLog.log(null, null);
+
+        assertThat(requestLog.getDropped(), is(1L));
+        assertThat(requestLog.getPending(), is(0L));
+    }
+
+    @Test
+    public void filesAreRolledAndCompressed() throws Exception {
+        File log = new File(folder.getRoot(), "access.log");
+        RollingLogFile file = new RollingLogFile(log.getPath(), 8, true);
+        long now = System.currentTimeMillis();
+
+        file.write("first line\n", now);
+        file.flush();
+        file.write("second line\n", now);
+        file.close();
+
+        File[] rolled = folder.getRoot().listFiles();
+
+        assertThat(rolled.length, is(2));
+        assertThat(Files.readAllLines(log.toPath(), UTF_8).get(0), is("second line"));
+
+        for (File each : rolled) {
+            if (!each.equals(log)) {
+                assertThat(each.getName().endsWith(".0.gz"), is(true));
+
+                try (InputStream in = new GZIPInputStream(new FileInputStream(each))) {
+                    assertThat(new String(ByteStreams.toByteArray(in), UTF_8), is("first line\n"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void lateLinesDoNotRollBack() throws Exception {
+        File log = new File(folder.getRoot(), "access.log");
+        RollingLogFile file = new RollingLogFile(log.getPath(), -1, false);
+        long now = System.currentTimeMillis();
+
+        file.write("current line\n", now);
+        file.write("late line\n", now - 2 * 24 * 60 * 60 * 1000L);
+        file.close();
+
+        assertThat(folder.getRoot().listFiles().length, is(1));
+        assertThat(Files.readAllLines(log.toPath(), UTF_8).size(), is(2));
+    }
+
+    @Test
+    public void factoryCreatesConfiguredRequestLog() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+
+        assertThat(new WebRequestLogFactory().create(), instanceOf(RequestLogImpl.class));
+        assertThat(new WebRequestLogFactory(new File(folder.getRoot(), "access.log").getPath(), 16, true, -1, false,
+                metricRegistry).create(), instanceOf(AsyncRequestLog.class));
+        assertThat(metricRegistry.getGauges().get("jetty.access-log.dropped").getValue(), is((Object) 0L));
+    }
+}
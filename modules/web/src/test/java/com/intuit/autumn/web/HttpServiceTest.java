@@ -17,9 +17,12 @@
 package com.intuit.autumn.web;
 
 import com.google.inject.servlet.GuiceFilter;
+import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.HandlerCollection;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -40,6 +43,12 @@ public class HttpServiceTest {
     private Server server;
     @Mock
     private GuiceFilter guiceFilter;
+    @Mock
+    private ThreadPool threadPool;
+    @Mock
+    private Scheduler scheduler;
+    @Mock
+    private ByteBufferPool byteBufferPool;
 
     @After
     public void after() throws Exception {
@@ -56,8 +65,15 @@ public class HttpServiceTest {
     @Test
     public void startable() throws Exception {
         int port = 8080;
-        Server server = createMockAndExpectNew(Server.class, port);
+        Server server = createMockAndExpectNew(Server.class, new Class<?>[]{ThreadPool.class},
+                isA(ThreadPool.class));
 
+        setInternalState(server, "_lock", new Object());
+        setInternalState(server, "_state", 2);
+        expect(server.getThreadPool()).andReturn(threadPool);
+        expect(server.getBean(Scheduler.class)).andReturn(scheduler);
+        expect(server.getBean(ByteBufferPool.class)).andReturn(byteBufferPool);
+        server.setConnectors(isA(Connector[].class));
         server.setHandler(isA(HandlerCollection.class));
         server.start();
         replay(server, Server.class);
@@ -72,8 +88,15 @@ public class HttpServiceTest {
     @Test
     public void startableAndStopableWithEmptyContextPath() throws Exception {
         int port = 8080;
-        Server server = createMockAndExpectNew(Server.class, port);
+        Server server = createMockAndExpectNew(Server.class, new Class<?>[]{ThreadPool.class},
+                isA(ThreadPool.class));
 
+        setInternalState(server, "_lock", new Object());
+        setInternalState(server, "_state", 2);
+        expect(server.getThreadPool()).andReturn(threadPool);
+        expect(server.getBean(Scheduler.class)).andReturn(scheduler);
+        expect(server.getBean(ByteBufferPool.class)).andReturn(byteBufferPool);
+        server.setConnectors(isA(Connector[].class));
         server.setHandler(isA(HandlerCollection.class));
         server.start();
         replay(server, Server.class);
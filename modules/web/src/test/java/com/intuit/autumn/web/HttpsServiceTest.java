@@ -38,7 +38,7 @@ import static org.powermock.api.easymock.PowerMock.*;
 import static org.powermock.reflect.Whitebox.setInternalState;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest(HttpsService.class)
+@PrepareForTest({HttpsService.class, WebServers.class})
 public class HttpsServiceTest {
 
     @Mock
@@ -57,7 +57,8 @@ public class HttpsServiceTest {
 
     @Test
     public void startable() throws Exception {
-        Server server = createMockAndExpectNew(Server.class);
+        Server server = createMockAndExpectNew(Server.class, new Class<?>[]{ThreadPool.class},
+                isA(ThreadPool.class));
 
         setInternalState(server, "_lock", new Object());
         setInternalState(server, "_state", 2);
@@ -87,7 +88,8 @@ public class HttpsServiceTest {
 
     @Test
     public void startableWithEmptyContextPath() throws Exception {
-        Server server = createMockAndExpectNew(Server.class);
+        Server server = createMockAndExpectNew(Server.class, new Class<?>[]{ThreadPool.class},
+                isA(ThreadPool.class));
 
         setInternalState(server, "_lock", new Object());
         setInternalState(server, "_state", 2);
@@ -133,7 +135,8 @@ public class HttpsServiceTest {
 
     @Test(expected = FileNotFoundException.class)
     public void notStartableKeyStoreDoesNotExist() throws Exception {
-        Server server = createMockAndExpectNew(Server.class);
+        Server server = createMockAndExpectNew(Server.class, new Class<?>[]{ThreadPool.class},
+                isA(ThreadPool.class));
 
         setInternalState(server, "_lock", new Object());
         setInternalState(server, "_state", 2);
@@ -14,140 +14,225 @@
  * limitations under the License.
  */
 
+
 package com.intuit.autumn.web;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.Mock;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
+import org.mockito.ArgumentCaptor;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.Arrays;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.when;
-import static org.powermock.api.support.membermodification.MemberMatcher.method;
-import static org.powermock.api.support.membermodification.MemberModifier.stub;
+import static org.mockito.Mockito.*;
 
-@RunWith(PowerMockRunner.class)
-@PrepareForTest({IOUtils.class, HttpServletRequest.class, ServletInputStream.class, InputStreamHttpServletRequestWrapper.class})
 public class InputStreamHttpServletRequestWrapperTest {
 
-    private InputStreamHttpServletRequestWrapper inputStreamHttpServletRequestWrapper;
-    @Mock
+    private byte[] body;
     private HttpServletRequest httpServletRequest;
-    @Mock
-    private ServletInputStream servletInputStream;
-    @Mock
-    private ByteArrayInputStream byteArrayInputStream;
-    @Mock
     private ReadListener readListener;
-    private byte[] body = "test".getBytes();
 
     @Before
     public void initialize() throws IOException {
-        when(httpServletRequest.getInputStream()).thenReturn(servletInputStream);
-        stub(method(IOUtils.class, "toByteArray", InputStream.class)).toReturn(body);
+        // spans several pooled chunks, ending part way through the last
+        body = new byte[InputStreamHttpServletRequestWrapper.CHUNK_SIZE * 2 + 123];
+
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+
+        httpServletRequest = mock(HttpServletRequest.class);
+        readListener = mock(ReadListener.class);
+
+        when(httpServletRequest.getContentLengthLong()).thenReturn(-1L);
+        when(httpServletRequest.getInputStream()).thenReturn(servletInputStream(body));
+    }
 
-        inputStreamHttpServletRequestWrapper = new InputStreamHttpServletRequestWrapper(httpServletRequest);
+    private static ServletInputStream servletInputStream(final byte[] body) {
+        final ByteArrayInputStream in = new ByteArrayInputStream(body);
+
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                // short reads, as from a network stream
+                return in.read(bytes, offset, Math.min(length, 1000));
+            }
+        };
     }
 
     @Test
     public void testGetInputStreamContent() throws Exception {
-        assertThat(IOUtils.toString(inputStreamHttpServletRequestWrapper.getInputStream()), is("test"));
+        InputStreamHttpServletRequestWrapper wrapper = new InputStreamHttpServletRequestWrapper(httpServletRequest);
+
+        assertThat(wrapper.getBodyLength(), is((long) body.length));
+        assertThat(Arrays.equals(IOUtils.toByteArray(wrapper.getInputStream()), body), is(true));
+        // readable more than once
+        assertThat(Arrays.equals(IOUtils.toByteArray(wrapper.getInputStream()), body), is(true));
     }
 
-    @Test(expected = NullPointerException.class)
-    public void testGetInputStreamNullBody() throws IOException {
-        when(httpServletRequest.getInputStream()).thenReturn(servletInputStream);
-        stub(method(IOUtils.class, "toByteArray", InputStream.class)).toReturn(null);
+    @Test
+    public void testGetInputStreamSingleByteReads() throws Exception {
+        ServletInputStream is = new InputStreamHttpServletRequestWrapper(httpServletRequest).getInputStream();
 
-        inputStreamHttpServletRequestWrapper = new InputStreamHttpServletRequestWrapper(httpServletRequest);
+        for (byte b : body) {
+            assertThat(is.read(), is(b & 0xFF));
+        }
 
-        inputStreamHttpServletRequestWrapper.getInputStream();
+        assertThat(is.read(), is(-1));
+        assertThat(is.isFinished(), is(true));
+    }
+
+    @Test
+    public void testGetInputStreamSkipAndAvailable() throws Exception {
+        ServletInputStream is = new InputStreamHttpServletRequestWrapper(httpServletRequest).getInputStream();
+
+        assertThat(is.available(), is(body.length));
+        assertThat(is.skip(InputStreamHttpServletRequestWrapper.CHUNK_SIZE + 1),
+                is((long) InputStreamHttpServletRequestWrapper.CHUNK_SIZE + 1));
+        assertThat(is.available(), is(body.length - InputStreamHttpServletRequestWrapper.CHUNK_SIZE - 1));
+        assertThat(is.read(), is(body[InputStreamHttpServletRequestWrapper.CHUNK_SIZE + 1] & 0xFF));
+        assertThat(is.skip(body.length), is((long) body.length - InputStreamHttpServletRequestWrapper.CHUNK_SIZE - 2));
+        assertThat(is.isFinished(), is(true));
+        assertThat(is.read(new byte[1], 0, 1), is(-1));
+    }
+
+    @Test
+    public void testGetInputStreamEmpty() throws Exception {
+        when(httpServletRequest.getInputStream()).thenReturn(servletInputStream(new byte[0]));
+
+        ServletInputStream is = new InputStreamHttpServletRequestWrapper(httpServletRequest).getInputStream();
+
+        assertThat(is.isFinished(), is(true));
+        assertThat(is.read(), is(-1));
     }
 
     @Test(expected = IOException.class)
     public void testInputStreamIOException() throws IOException {
-        when(httpServletRequest.getInputStream()).thenReturn(servletInputStream);
-        stub(method(IOUtils.class, "toByteArray", InputStream.class)).toThrow(new IOException("some io exception"));
+        ServletInputStream failing = mock(ServletInputStream.class);
+
+        when(failing.read(any(byte[].class), anyInt(), anyInt())).thenThrow(new IOException("some io exception"));
+        when(httpServletRequest.getInputStream()).thenReturn(failing);
+
+        new InputStreamHttpServletRequestWrapper(httpServletRequest);
+    }
 
-        inputStreamHttpServletRequestWrapper = new InputStreamHttpServletRequestWrapper(httpServletRequest);
+    @Test(expected = RequestEntityTooLargeException.class)
+    public void testMaxBodySizeExceeded() throws IOException {
+        new InputStreamHttpServletRequestWrapper(httpServletRequest, body.length - 1);
+    }
+
+    @Test(expected = RequestEntityTooLargeException.class)
+    public void testMaxBodySizeExceededByContentLength() throws IOException {
+        when(httpServletRequest.getContentLengthLong()).thenReturn((long) body.length);
+
+        new InputStreamHttpServletRequestWrapper(httpServletRequest, body.length - 1);
     }
 
     @Test
-    public void testInputStreamIOExceptionDesc() throws Exception {
-        when(httpServletRequest.getInputStream()).thenReturn(servletInputStream);
-        stub(method(IOUtils.class, "toByteArray", InputStream.class)).toThrow(new IOException("some io exception"));
-
-        try {
-            inputStreamHttpServletRequestWrapper = new InputStreamHttpServletRequestWrapper(httpServletRequest);
-        } catch (IOException e) {
-            assertThat(e.getMessage(), is("some io exception"));
-        }
+    public void testMaxBodySize() throws IOException {
+        assertThat(new InputStreamHttpServletRequestWrapper(httpServletRequest, body.length).getBodyLength(),
+                is((long) body.length));
     }
 
     @Test
     public void testGetInputStreamIsReady() throws IOException {
-        ServletInputStream is = inputStreamHttpServletRequestWrapper.getInputStream();
+        ServletInputStream is = new InputStreamHttpServletRequestWrapper(httpServletRequest).getInputStream();
 
         assertThat(is.isReady(), is(true));
     }
 
-    @Test(expected = RuntimeException.class)
+    @Test
     public void testGetInputStreamSetReadListener() throws IOException {
-        ServletInputStream is = inputStreamHttpServletRequestWrapper.getInputStream();
+        final ServletInputStream is = new InputStreamHttpServletRequestWrapper(httpServletRequest).getInputStream();
+
+        doAnswer(new org.mockito.stubbing.Answer<Void>() {
+            @Override
+            public Void answer(org.mockito.invocation.InvocationOnMock invocation) throws Throwable {
+                byte[] bytes = new byte[body.length];
+
+                while (is.isReady() && is.read(bytes) != -1) {
+                    // drain
+                }
+
+                verify(readListener, never()).onAllDataRead();
+
+                return null;
+            }
+        }).when(readListener).onDataAvailable();
 
         is.setReadListener(readListener);
+
+        verify(readListener).onDataAvailable();
+        verify(readListener).onAllDataRead();
+        verify(readListener, never()).onError(any(Throwable.class));
     }
 
-    @Test
-    public void testGetInputStreamSetReadListenerDetail() throws Exception {
-        ServletInputStream is = inputStreamHttpServletRequestWrapper.getInputStream();
+    @Test(expected = IllegalStateException.class)
+    public void testGetInputStreamSetReadListenerTwice() throws IOException {
+        ServletInputStream is = new InputStreamHttpServletRequestWrapper(httpServletRequest).getInputStream();
 
-        try {
-            is.setReadListener(readListener);
-        } catch (RuntimeException e) {
-            assertThat(e.getMessage(), is("Not implemented"));
-        }
+        is.setReadListener(readListener);
+        is.setReadListener(readListener);
     }
 
-    @Test
-    public void testGetInputStreamIsFinishedTrue() throws Exception {
-        PowerMockito.whenNew(ByteArrayInputStream.class).withArguments(any()).thenReturn(byteArrayInputStream);
-        when(byteArrayInputStream.available()).thenReturn(0);
-
-        ServletInputStream is = inputStreamHttpServletRequestWrapper.getInputStream();
+    @Test(expected = IllegalStateException.class)
+    public void testGetInputStreamReleased() throws IOException {
+        InputStreamHttpServletRequestWrapper wrapper = new InputStreamHttpServletRequestWrapper(httpServletRequest);
 
-        assertThat(is.isFinished(), is(true));
+        wrapper.release();
+        wrapper.release();
+        wrapper.getInputStream();
     }
 
-    @Test
-    public void testGetInputStreamIsFinishedFalse() throws Exception {
-        PowerMockito.whenNew(ByteArrayInputStream.class).withArguments(any()).thenReturn(byteArrayInputStream);
-        when(byteArrayInputStream.available()).thenReturn(-1);
+    @Test(expected = IllegalStateException.class)
+    public void testStartAsyncReleasesOnComplete() throws IOException {
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
 
-        ServletInputStream is = inputStreamHttpServletRequestWrapper.getInputStream();
+        when(httpServletRequest.startAsync()).thenReturn(asyncContext);
 
-        assertThat(is.isFinished(), is(false));
-    }
+        InputStreamHttpServletRequestWrapper wrapper = new InputStreamHttpServletRequestWrapper(httpServletRequest);
 
-    @Test
-    public void testGetInputStreamRead() throws Exception {
-        PowerMockito.whenNew(ByteArrayInputStream.class).withArguments(any()).thenReturn(byteArrayInputStream);
-        when(byteArrayInputStream.read()).thenReturn(5);
+        // listened to once, however often started or reported started
+        assertThat(wrapper.startAsync(), is(asyncContext));
+        wrapper.listen(asyncContext);
+        verify(asyncContext).addListener(listener.capture());
+
+        listener.getValue().onTimeout(new AsyncEvent(asyncContext));
+
+        assertThat(IOUtils.toByteArray(wrapper.getInputStream()), is(body));
 
-        ServletInputStream is = inputStreamHttpServletRequestWrapper.getInputStream();
-        assertThat(is.read(), is(5));
+        listener.getValue().onComplete(new AsyncEvent(asyncContext));
+        wrapper.getInputStream();
     }
 }
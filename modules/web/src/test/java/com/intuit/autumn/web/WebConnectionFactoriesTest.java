@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WebConnectionFactoriesTest {
+
+    private static final String PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n";
+    private static final int SETTINGS = 0x4;
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    private WebConnectionFactories connectionFactories;
+    private Server server;
+
+    @Before
+    public void before() throws Exception {
+        connectionFactories = new WebConnectionFactories(true, 100, 131072, 0.5F);
+        server = new Server();
+    }
+
+    @After
+    public void after() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void http11Only() throws Exception {
+        ConnectionFactory[] factories = new WebConnectionFactories().cleartext(new HttpConfiguration());
+
+        assertThat(factories.length, is(1));
+        assertThat(factories[0].getProtocol(), is("HTTP/1.1"));
+    }
+
+    @Test
+    public void h2cWithPriorKnowledge() throws Exception {
+        ServerConnector connector = new ServerConnector(server,
+                connectionFactories.cleartext(new HttpConfiguration()));
+
+        server.addConnector(connector);
+        server.start();
+
+        try (Socket socket = new Socket("localhost", connector.getLocalPort())) {
+            OutputStream out = socket.getOutputStream();
+
+            out.write(PREFACE.getBytes(US_ASCII));
+            // empty client SETTINGS frame
+            out.write(new byte[]{0, 0, 0, SETTINGS, 0, 0, 0, 0, 0});
+            out.flush();
+
+            Map<Integer, Integer> settings = readSettings(new DataInputStream(socket.getInputStream()));
+
+            assertThat(settings.get(SETTINGS_MAX_CONCURRENT_STREAMS), is(100));
+            assertThat(settings.get(SETTINGS_INITIAL_WINDOW_SIZE), is(131072));
+        }
+    }
+
+    @Test
+    public void h2cUpgrade() throws Exception {
+        ServerConnector connector = new ServerConnector(server,
+                connectionFactories.cleartext(new HttpConfiguration()));
+
+        server.addConnector(connector);
+        server.start();
+
+        try (Socket socket = new Socket("localhost", connector.getLocalPort())) {
+            OutputStream out = socket.getOutputStream();
+
+            out.write(("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: Upgrade, HTTP2-Settings\r\n" +
+                    "Upgrade: h2c\r\nHTTP2-Settings: \r\n\r\n").getBytes(US_ASCII));
+            out.flush();
+
+            byte[] status = new byte["HTTP/1.1 101".length()];
+
+            new DataInputStream(socket.getInputStream()).readFully(status);
+
+            assertThat(new String(status, US_ASCII), is("HTTP/1.1 101"));
+        }
+    }
+
+    @Test
+    public void tlsFallsBackWithoutAlpn() throws Exception {
+        SslContextFactory sslContextFactory = new SslContextFactory();
+        ConnectionFactory[] factories = connectionFactories.secure(sslContextFactory, new HttpConfiguration());
+        boolean alpn;
+
+        try {
+            // Jetty's ALPN is only usable from the boot class path
+            Class.forName("org.eclipse.jetty.alpn.ALPN", false, null);
+            alpn = true;
+        } catch (ClassNotFoundException cnfe) {
+            alpn = false;
+        }
+
+        assertThat(factories[0] instanceof SslConnectionFactory, is(true));
+        assertThat(factories.length, is(alpn ? 4 : 2));
+        assertThat(factories[1].getProtocol(), is(alpn ? "alpn" : "HTTP/1.1"));
+        assertThat(sslContextFactory.getCipherComparator() == HTTP2Cipher.COMPARATOR, is(alpn));
+    }
+
+    private static Map<Integer, Integer> readSettings(final DataInputStream in) throws Exception {
+        int length = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+        int type = in.readUnsignedByte();
+
+        in.readUnsignedByte();
+        in.readInt();
+
+        assertThat(type, is(SETTINGS));
+
+        Map<Integer, Integer> settings = new HashMap<>();
+
+        for (int i = 0; i < length / 6; i++) {
+            settings.put(in.readUnsignedShort(), in.readInt());
+        }
+
+        return settings;
+    }
+}
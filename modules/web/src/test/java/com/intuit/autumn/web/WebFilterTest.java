@@ -16,21 +16,31 @@
 
 package com.intuit.autumn.web;
 
+import com.intuit.autumn.utils.Deadline;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static javax.servlet.http.HttpServletResponse.SC_GATEWAY_TIMEOUT;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
 
@@ -97,11 +107,67 @@ public class WebFilterTest {
         HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
 
         when(httpServletRequest.getContentType()).thenReturn("application/x-www-form-urlencoded");
-        whenNew(InputStreamHttpServletRequestWrapper.class).withArguments(any(HttpServletRequest.class)).
+        whenNew(InputStreamHttpServletRequestWrapper.class).withArguments(any(HttpServletRequest.class), anyLong()).
                 thenReturn(inputStreamHttpServletRequestWrapper);
 
         webFilter.doFilter(servletRequest, servletResponse, filterChain);
 
         verify(filterChain).doFilter(inputStreamHttpServletRequestWrapper, servletResponse);
+        verify(inputStreamHttpServletRequestWrapper).release();
+    }
+
+    @Test
+    public void testDoFilterBodyTooLarge() throws Exception {
+        ServletRequest servletRequest = mock(ServletRequest.class, withSettings().extraInterfaces(HttpServletRequest.class));
+        HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
+        HttpServletResponse httpServletResponse = mock(HttpServletResponse.class);
+
+        when(filterConfig.getInitParameter(WebFilter.MAX_BODY_SIZE_PARAMETER)).thenReturn("1");
+        when(httpServletRequest.getContentType()).thenReturn("application/x-www-form-urlencoded");
+        when(httpServletRequest.getContentLengthLong()).thenReturn(2L);
+
+        webFilter.init(filterConfig);
+        webFilter.doFilter(servletRequest, httpServletResponse, filterChain);
+
+        verify(httpServletResponse).sendError(eq(SC_REQUEST_ENTITY_TOO_LARGE), anyString());
+        verify(filterChain, never()).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+    }
+
+    @Test
+    public void testDeadlineIsBound() throws Exception {
+        ServletRequest servletRequest = mock(ServletRequest.class, withSettings().extraInterfaces(HttpServletRequest.class));
+        HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
+        final Deadline[] bound = new Deadline[1];
+
+        when(httpServletRequest.getHeader(Deadline.HEADER)).thenReturn("5000");
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                bound[0] = Deadline.getCurrent();
+
+                return null;
+            }
+        }).when(filterChain).doFilter(servletRequest, servletResponse);
+
+        webFilter.doFilter(servletRequest, servletResponse, filterChain);
+
+        assertThat(bound[0], is(notNullValue()));
+        assertThat(bound[0].getRemainingMillis() > 4000, is(true));
+        assertThat(Deadline.getCurrent(), is(nullValue()));
+        verify(httpServletRequest).setAttribute(WebFilter.DEADLINE_ATTRIBUTE, bound[0]);
+    }
+
+    @Test
+    public void testExpiredDeadlineIsRejected() throws Exception {
+        ServletRequest servletRequest = mock(ServletRequest.class, withSettings().extraInterfaces(HttpServletRequest.class));
+        HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
+        HttpServletResponse httpServletResponse = mock(HttpServletResponse.class);
+
+        when(httpServletRequest.getHeader(Deadline.HEADER)).thenReturn("0");
+
+        webFilter.doFilter(servletRequest, httpServletResponse, filterChain);
+
+        verify(httpServletResponse).sendError(eq(SC_GATEWAY_TIMEOUT), anyString());
+        verify(filterChain, never()).doFilter(any(ServletRequest.class), any(ServletResponse.class));
     }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.io.CharStreams;
+import com.google.inject.Guice;
+import com.google.inject.servlet.GuiceFilter;
+import com.google.inject.servlet.ServletModule;
+import com.sun.jersey.guice.spi.container.servlet.GuiceContainer;
+import org.eclipse.jetty.server.AbstractConnector;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.KeyStore;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WebServiceTest {
+
+    private static final String KEYSTORE = "src/test/resources/autumn-keystore";
+    private GuiceFilter guiceFilter;
+    private WebService webService;
+
+    @Before
+    public void before() throws Exception {
+        guiceFilter = Guice.createInjector(new ServletModule() {
+            @Override
+            protected void configureServlets() {
+                bind(EchoResource.class);
+                bind(GuiceContainer.class);
+                serve("/*").with(GuiceContainer.class);
+            }
+        }).getInstance(GuiceFilter.class);
+        webService = new WebService(0, 0, 30000, 32768, KEYSTORE, "ThisIsATest", "ThisIsAnotherTest", "/", null,
+                guiceFilter, new WebThreadPoolFactory(2, 16, 64, 60000, 0, false, new MetricRegistry()),
+                new WebConnectionFactories(true, 128, 65535, 0.5F), new WebRequestLogFactory());
+
+        webService.startAsync().awaitRunning();
+    }
+
+    @After
+    public void after() throws Exception {
+        try {
+            webService.stopAsync().awaitTerminated();
+        } finally {
+            guiceFilter.destroy();
+        }
+    }
+
+    @Test
+    public void connectorsShareOneServer() throws Exception {
+        Connector[] connectors = webService.getConnectors();
+
+        assertThat(connectors.length, is(2));
+        assertThat(connectors[0].getServer(), sameInstance(connectors[1].getServer()));
+        assertThat(connectors[0].getExecutor(), sameInstance(connectors[1].getExecutor()));
+        assertThat(connectors[0].getByteBufferPool(), sameInstance(connectors[1].getByteBufferPool()));
+        assertThat(((AbstractConnector) connectors[0]).getScheduler(),
+                sameInstance(((AbstractConnector) connectors[1]).getScheduler()));
+    }
+
+    @Test
+    public void httpAndHttpsServed() throws Exception {
+        Connector[] connectors = webService.getConnectors();
+        int httpPort = ((ServerConnector) connectors[0]).getLocalPort();
+        int httpsPort = ((ServerConnector) connectors[1]).getLocalPort();
+
+        assertThat(ping(new URL("http://localhost:" + httpPort + "/monitor/ping").openConnection()), is("200"));
+
+        HttpsURLConnection https = (HttpsURLConnection) new URL("https://localhost:" + httpsPort + "/monitor/ping")
+                .openConnection();
+
+        https.setSSLSocketFactory(trustKeystore().getSocketFactory());
+
+        assertThat(ping(https), is("200"));
+    }
+
+    @Test
+    public void resourceServed() throws Exception {
+        int httpPort = ((ServerConnector) webService.getConnectors()[0]).getLocalPort();
+
+        assertThat(ping(new URL("http://localhost:" + httpPort + "/echo").openConnection()), is("echo"));
+    }
+
+    private static String ping(final Object connection) throws Exception {
+        HttpURLConnection httpConnection = (HttpURLConnection) connection;
+
+        assertThat(httpConnection.getResponseCode(), is(200));
+
+        try (InputStream in = httpConnection.getInputStream()) {
+            return CharStreams.toString(new InputStreamReader(in, UTF_8));
+        }
+    }
+
+    private static SSLContext trustKeystore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+
+        try (InputStream in = WebServiceTest.class.getResourceAsStream("/autumn-keystore")) {
+            keyStore.load(in, "ThisIsATest".toCharArray());
+        }
+
+        TrustManagerFactory trustManagerFactory =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+
+        trustManagerFactory.init(keyStore);
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+
+        sslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+        return sslContext;
+    }
+
+    @Path("/echo")
+    public static class EchoResource {
+
+        @GET
+        @Produces(TEXT_PLAIN)
+        public String echo() {
+            return "echo";
+        }
+    }
+}
@@ -75,7 +75,12 @@ public class WebServicesTest {
 
     @Test
     public void getEnabledWebServicesAllTrue() throws Exception {
-        test("/web-all-enabled.properties", HttpService.class, HttpsService.class);
+        test("/web-all-enabled.properties", WebService.class);
+    }
+
+    @Test
+    public void getEnabledWebServicesAllTrueNotShared() throws Exception {
+        test("/web-all-enabled-not-shared.properties", HttpService.class, HttpsService.class);
     }
 
     @Test
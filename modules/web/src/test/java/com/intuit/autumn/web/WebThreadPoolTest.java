@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Intuit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.intuit.autumn.web;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class WebThreadPoolTest {
+
+    private MetricRegistry metricRegistry;
+    private WebThreadPool threadPool;
+    private CountDownLatch release;
+
+    @Before
+    public void before() throws Exception {
+        metricRegistry = new MetricRegistry();
+        threadPool = new WebThreadPool("test", 1, 1, 1, 60000, 0, false, metricRegistry);
+        release = new CountDownLatch(1);
+
+        threadPool.start();
+    }
+
+    @After
+    public void after() throws Exception {
+        release.countDown();
+        threadPool.stop();
+    }
+
+    @Test
+    public void metricsRegisteredWhileStarted() throws Exception {
+        assertThat(metricRegistry.getGauges().get("jetty.test.threads").getValue(), is((Object) 1));
+        assertThat(metricRegistry.getMeters().containsKey("jetty.test.rejected"), is(true));
+
+        threadPool.stop();
+
+        assertThat(metricRegistry.getMetrics().isEmpty(), is(true));
+    }
+
+    @Test
+    public void metricsAreOptional() throws Exception {
+        WebThreadPool unmetered = new WebThreadPoolFactory().create("unmetered");
+
+        unmetered.start();
+        unmetered.stop();
+
+        assertThat(unmetered.isStopped(), is(true));
+    }
+
+    @Test
+    public void queueIsBounded() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+
+        threadPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                running.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        running.await();
+        threadPool.execute(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+
+        assertThat(threadPool.isLowOnThreads(), is(true));
+        assertThat(((Gauge) metricRegistry.getGauges().get("jetty.test.queue-size")).getValue(), is((Object) 1));
+
+        try {
+            threadPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail();
+        } catch (RejectedExecutionException ree) {
+            assertThat(threadPool.getRejected().getCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void reservedThreadsAreKeptAvailable() throws Exception {
+        WebThreadPool reserved = new WebThreadPool("reserved", 1, 4, 0, 60000, 4, false, metricRegistry);
+
+        reserved.start();
+
+        try {
+            assertThat(reserved.isLowOnThreads(), is(true));
+        } finally {
+            reserved.stop();
+        }
+    }
+
+    @Test
+    public void virtualThreadsFallBackWhenUnsupported() throws Exception {
+        boolean supported;
+
+        try {
+            Thread.class.getMethod("ofVirtual");
+            supported = true;
+        } catch (NoSuchMethodException nsme) {
+            supported = false;
+        }
+
+        WebThreadPool virtual = new WebThreadPool("virtual", 1, 4, 0, 60000, 0, true, metricRegistry);
+
+        assertThat(virtual.isVirtualThreads(), is(supported));
+    }
+}